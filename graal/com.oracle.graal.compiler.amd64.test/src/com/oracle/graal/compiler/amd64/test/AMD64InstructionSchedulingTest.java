@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.amd64.test;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oracle.graal.jtt.lang.Math_exact;
+import com.oracle.graal.lir.amd64.phases.AMD64InstructionSchedulingPhase;
+import com.oracle.graal.lir.phases.LIRSuites;
+
+import jdk.vm.ci.amd64.AMD64;
+
+/**
+ * Runs the {@link Math_exact} tests and a few compare-and-branch tests with the
+ * {@link AMD64InstructionSchedulingPhase} enabled. The snippets place independent flag-modifying
+ * instructions around the instruction that sets the flags of a branch, which the scheduler must not
+ * move in between.
+ */
+public class AMD64InstructionSchedulingTest extends Math_exact {
+
+    @Before
+    public void checkAMD64() {
+        assumeTrue("skipping AMD64 specific test", getTarget().arch instanceof AMD64);
+    }
+
+    @Override
+    protected LIRSuites createLIRSuites() {
+        LIRSuites suites = super.createLIRSuites();
+        if (suites.getPreAllocationOptimizationStage().findPhase(AMD64InstructionSchedulingPhase.class) == null) {
+            suites.getPreAllocationOptimizationStage().appendPhase(new AMD64InstructionSchedulingPhase());
+        }
+        return suites;
+    }
+
+    public static int intAddExactWithWork(int a, int b, int c) {
+        int x = c << 3;
+        int y = c ^ 0x5555;
+        int z = c >>> 7;
+        int r = Math.addExact(a, b);
+        return r + x + y + z;
+    }
+
+    @Test
+    public void runIntAddExactWithWork() throws Throwable {
+        runTest("intAddExactWithWork", 1, 2, 0x1234);
+        runTest("intAddExactWithWork", 1, Integer.MAX_VALUE, 0x1234);
+        runTest("intAddExactWithWork", Integer.MAX_VALUE, 0, 0);
+        runTest("intAddExactWithWork", -1, Integer.MIN_VALUE, -7);
+    }
+
+    public static long longSubExactWithWork(long a, long b, long c) {
+        long x = c << 5;
+        long y = c ^ 0x5555_5555_5555L;
+        long z = c & 0xFFFF;
+        long r = Math.subtractExact(a, b);
+        return r - x - y - z;
+    }
+
+    @Test
+    public void runLongSubExactWithWork() throws Throwable {
+        runTest("longSubExactWithWork", 1L, 2L, 0x1234L);
+        runTest("longSubExactWithWork", -2L, Long.MAX_VALUE, 0x1234L);
+        runTest("longSubExactWithWork", 2L, Long.MIN_VALUE, -7L);
+        runTest("longSubExactWithWork", Long.MIN_VALUE, 0L, 0L);
+    }
+
+    public static int intMulExactWithWork(int a, int b, int c) {
+        int x = c + 17;
+        int y = c << 2;
+        int r = Math.multiplyExact(a, b);
+        return r ^ x ^ y;
+    }
+
+    @Test
+    public void runIntMulExactWithWork() throws Throwable {
+        runTest("intMulExactWithWork", 3, 5, 11);
+        runTest("intMulExactWithWork", 2, Integer.MAX_VALUE, 11);
+        runTest("intMulExactWithWork", -2, Integer.MIN_VALUE, 0);
+    }
+
+    public static int compareAndBranch(int a, int b, int c) {
+        int x = c << 3;
+        int y = c ^ 0x5555;
+        int d = a - b;
+        if (d < 0) {
+            return x - y;
+        }
+        return x + y + d;
+    }
+
+    @Test
+    public void runCompareAndBranch() throws Throwable {
+        runTest("compareAndBranch", 1, 2, 0x1234);
+        runTest("compareAndBranch", 2, 1, 0x1234);
+        runTest("compareAndBranch", 0, 0, -1);
+        runTest("compareAndBranch", Integer.MIN_VALUE, 1, 3);
+    }
+
+    public static long longCompareAndBranch(long a, long b, long c) {
+        long x = c >> 4;
+        long y = c | 0x1000;
+        long d = a & b;
+        if (d == 0) {
+            return x * y;
+        }
+        return x - y + d;
+    }
+
+    @Test
+    public void runLongCompareAndBranch() throws Throwable {
+        runTest("longCompareAndBranch", 1L, 2L, 0x1234L);
+        runTest("longCompareAndBranch", 3L, 1L, 0x1234L);
+        runTest("longCompareAndBranch", -1L, Long.MIN_VALUE, -1L);
+    }
+
+    public static double floatCompareAndBranch(double a, double b, int c) {
+        int x = c << 3;
+        int y = c ^ 0x5555;
+        if (a < b) {
+            return a * x;
+        }
+        return b * y;
+    }
+
+    @Test
+    public void runFloatCompareAndBranch() throws Throwable {
+        runTest("floatCompareAndBranch", 1.0, 2.0, 3);
+        runTest("floatCompareAndBranch", 2.0, 1.0, 3);
+        runTest("floatCompareAndBranch", Double.NaN, 1.0, 3);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.amd64.test;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oracle.graal.compiler.common.cfg.AbstractBlockBase;
+import com.oracle.graal.lir.LIR;
+import com.oracle.graal.lir.LIRInstruction;
+import com.oracle.graal.lir.amd64.AMD64BinaryConsumer.MemoryConstOp;
+import com.oracle.graal.lir.amd64.AMD64BinaryConsumer.MemoryMROp;
+import com.oracle.graal.lir.amd64.AMD64Unary.MemoryMOp;
+import com.oracle.graal.lir.gen.LIRGenerationResult;
+import com.oracle.graal.lir.jtt.LIRTest;
+import com.oracle.graal.lir.phases.LIRPhase;
+import com.oracle.graal.lir.phases.PreAllocationOptimizationPhase.PreAllocationOptimizationContext;
+
+import jdk.vm.ci.amd64.AMD64;
+import jdk.vm.ci.code.TargetDescription;
+
+/**
+ * Checks that a read, an arithmetic operation and a write back to the same location are matched to
+ * a single instruction with a memory operand.
+ */
+public class ReadModifyWriteMatchRuleTest extends LIRTest {
+    private static LIR lir;
+
+    @Before
+    public void checkAMD64() {
+        assumeTrue("skipping AMD64 specific test", getTarget().arch instanceof AMD64);
+    }
+
+    public static class TestClass {
+        public int x;
+        public long y;
+        public int[] values = new int[4];
+    }
+
+    public static void addRegisterSnippet(TestClass o, int v) {
+        o.x += v;
+    }
+
+    public static void orConstantSnippet(TestClass o) {
+        o.y |= 0x100L;
+    }
+
+    public static void incrementSnippet(TestClass o) {
+        o.x++;
+    }
+
+    public static void decrementSnippet(TestClass o) {
+        o.y -= 1;
+    }
+
+    public static void xorArraySnippet(TestClass o, int i, int mask) {
+        o.values[i] ^= mask;
+    }
+
+    public static int interveningWriteSnippet(TestClass o, TestClass p, int v) {
+        int x = o.x;
+        p.x = 42;
+        o.x = x + v;
+        return p.x;
+    }
+
+    @Test
+    public void testAddRegister() {
+        checkLIR("addRegisterSnippet", MemoryMROp.class, "ADD");
+        test("addRegisterSnippet", new TestClass(), 5);
+    }
+
+    @Test
+    public void testOrConstant() {
+        checkLIR("orConstantSnippet", MemoryConstOp.class, "OR");
+        test("orConstantSnippet", new TestClass());
+    }
+
+    @Test
+    public void testIncrement() {
+        checkLIR("incrementSnippet", MemoryMOp.class, "INC");
+        test("incrementSnippet", new TestClass());
+    }
+
+    @Test
+    public void testDecrement() {
+        checkLIR("decrementSnippet", MemoryMOp.class, "DEC");
+        test("decrementSnippet", new TestClass());
+    }
+
+    @Test
+    public void testXorArray() {
+        checkLIR("xorArraySnippet", MemoryMROp.class, "XOR");
+        test("xorArraySnippet", new TestClass(), 2, 0xFF);
+    }
+
+    @Test
+    public void testInterveningWrite() {
+        TestClass o = new TestClass();
+        test("interveningWriteSnippet", o, o, 3);
+        test("interveningWriteSnippet", o, new TestClass(), 3);
+    }
+
+    private void checkLIR(String snippet, Class<? extends LIRInstruction> expectedClass, String expectedOpcode) {
+        getLIRSuites().getPreAllocationOptimizationStage().appendPhase(new CheckPhase());
+        compile(getResolvedJavaMethod(snippet), null);
+        int found = 0;
+        for (AbstractBlockBase<?> block : lir.codeEmittingOrder()) {
+            if (block == null) {
+                continue;
+            }
+            for (LIRInstruction ins : lir.getLIRforBlock(block)) {
+                if (expectedClass.isInstance(ins) && opcode(ins).equals(expectedOpcode)) {
+                    found++;
+                }
+            }
+        }
+        assertDeepEquals(snippet + ": " + expectedClass.getSimpleName() + " " + expectedOpcode, 1, found);
+    }
+
+    private static String opcode(LIRInstruction ins) {
+        if (ins instanceof MemoryMROp) {
+            return ((MemoryMROp) ins).getOpcode().toString();
+        } else if (ins instanceof MemoryConstOp) {
+            return ((MemoryConstOp) ins).getOpcode().toString();
+        } else if (ins instanceof MemoryMOp) {
+            return ((MemoryMOp) ins).getOpcode().toString();
+        }
+        return "";
+    }
+
+    public static class CheckPhase extends LIRPhase<PreAllocationOptimizationContext> {
+        @Override
+        protected void run(TargetDescription target, LIRGenerationResult lirGenRes, PreAllocationOptimizationContext context) {
+            lir = lirGenRes.getLIR();
+        }
+    }
+}
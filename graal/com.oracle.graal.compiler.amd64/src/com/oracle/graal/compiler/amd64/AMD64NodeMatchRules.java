@@ -37,7 +37,9 @@ import static com.oracle.graal.asm.amd64.AMD64Assembler.OperandSize.SD;
 import static com.oracle.graal.asm.amd64.AMD64Assembler.OperandSize.SS;
 
 import com.oracle.graal.asm.NumUtil;
+import com.oracle.graal.asm.amd64.AMD64Assembler.AMD64BinaryArithmetic;
 import com.oracle.graal.asm.amd64.AMD64Assembler.AMD64MIOp;
+import com.oracle.graal.asm.amd64.AMD64Assembler.AMD64MOp;
 import com.oracle.graal.asm.amd64.AMD64Assembler.AMD64RMOp;
 import com.oracle.graal.asm.amd64.AMD64Assembler.AMD64RRMOp;
 import com.oracle.graal.asm.amd64.AMD64Assembler.OperandSize;
@@ -56,6 +58,7 @@ import com.oracle.graal.lir.LabelRef;
 import com.oracle.graal.lir.amd64.AMD64AddressValue;
 import com.oracle.graal.lir.amd64.AMD64BinaryConsumer;
 import com.oracle.graal.lir.amd64.AMD64ControlFlow.BranchOp;
+import com.oracle.graal.lir.amd64.AMD64Unary;
 import com.oracle.graal.lir.gen.LIRGeneratorTool;
 import com.oracle.graal.nodes.ConstantNode;
 import com.oracle.graal.nodes.DeoptimizingNode;
@@ -392,6 +395,99 @@ public class AMD64NodeMatchRules extends NodeMatchRules {
         };
     }
 
+    /**
+     * Emits a single instruction that combines a read of a memory location, an integer operation
+     * on the value read and a write of the result back to the same location, e.g.,
+     * {@code add [mem], reg} or {@code inc [mem]}. The match framework guarantees that there is
+     * no other side effect between the read and the write.
+     */
+    private ComplexMatchResult emitReadModifyWrite(AMD64BinaryArithmetic op, WriteNode write, Access access, ValueNode value) {
+        AMD64Kind kind = getMemoryKind(access);
+        if (kind != AMD64Kind.DWORD && kind != AMD64Kind.QWORD) {
+            // sub-word values are extended before the operation and narrowed before the write
+            return null;
+        }
+        if (gen.getLIRKind(write.value().stamp()).getPlatformKind() != kind) {
+            return null;
+        }
+        OperandSize size = kind == AMD64Kind.QWORD ? QWORD : DWORD;
+        if (value.isConstant()) {
+            JavaConstant constant = value.asJavaConstant();
+            if (constant == null || (kind == AMD64Kind.QWORD && !NumUtil.isInt(constant.asLong()))) {
+                // Only imm32 as long
+                return null;
+            }
+            int imm = (int) constant.asLong();
+            AMD64MOp mop = getMemoryMOp(op, imm);
+            return builder -> {
+                AMD64AddressValue address = (AMD64AddressValue) operand(write.getAddress());
+                LIRFrameState state = getReadModifyWriteState(write, access);
+                if (mop != null) {
+                    gen.append(new AMD64Unary.MemoryMOp(mop, size, address, state));
+                } else {
+                    gen.append(new AMD64BinaryConsumer.MemoryConstOp(op, size, address, imm, state));
+                }
+                return null;
+            };
+        }
+        return builder -> {
+            AMD64AddressValue address = (AMD64AddressValue) operand(write.getAddress());
+            gen.append(new AMD64BinaryConsumer.MemoryMROp(op.getMROpcode(size), size, address, gen.asAllocatable(operand(value)), getReadModifyWriteState(write, access)));
+            return null;
+        };
+    }
+
+    private static AMD64MOp getMemoryMOp(AMD64BinaryArithmetic op, int constant) {
+        if (constant == 1 || constant == -1) {
+            if (op.equals(ADD)) {
+                return constant == 1 ? AMD64MOp.INC : AMD64MOp.DEC;
+            }
+            if (op.equals(SUB)) {
+                return constant == 1 ? AMD64MOp.DEC : AMD64MOp.INC;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The combined instruction faults where the read would have faulted, so the state of the read
+     * is used for implicit exceptions if it has one.
+     */
+    private LIRFrameState getReadModifyWriteState(WriteNode write, Access access) {
+        LIRFrameState state = getState(access);
+        return state != null ? state : state(write);
+    }
+
+    @MatchRule("(Write address (Add (Read=access address) value))")
+    @MatchRule("(Write address (Add (FloatingRead=access address) value))")
+    public ComplexMatchResult addToMemory(WriteNode root, Access access, ValueNode value) {
+        return emitReadModifyWrite(ADD, root, access, value);
+    }
+
+    @MatchRule("(Write address (Sub (Read=access address) value))")
+    @MatchRule("(Write address (Sub (FloatingRead=access address) value))")
+    public ComplexMatchResult subFromMemory(WriteNode root, Access access, ValueNode value) {
+        return emitReadModifyWrite(SUB, root, access, value);
+    }
+
+    @MatchRule("(Write address (And (Read=access address) value))")
+    @MatchRule("(Write address (And (FloatingRead=access address) value))")
+    public ComplexMatchResult andToMemory(WriteNode root, Access access, ValueNode value) {
+        return emitReadModifyWrite(AND, root, access, value);
+    }
+
+    @MatchRule("(Write address (Or (Read=access address) value))")
+    @MatchRule("(Write address (Or (FloatingRead=access address) value))")
+    public ComplexMatchResult orToMemory(WriteNode root, Access access, ValueNode value) {
+        return emitReadModifyWrite(OR, root, access, value);
+    }
+
+    @MatchRule("(Write address (Xor (Read=access address) value))")
+    @MatchRule("(Write address (Xor (FloatingRead=access address) value))")
+    public ComplexMatchResult xorToMemory(WriteNode root, Access access, ValueNode value) {
+        return emitReadModifyWrite(XOR, root, access, value);
+    }
+
     @MatchRule("(SignExtend Read=access)")
     @MatchRule("(SignExtend FloatingRead=access)")
     public ComplexMatchResult signExtend(SignExtendNode root, Access access) {
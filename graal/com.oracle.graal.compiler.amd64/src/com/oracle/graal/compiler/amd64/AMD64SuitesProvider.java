@@ -23,6 +23,7 @@
 package com.oracle.graal.compiler.amd64;
 
 import com.oracle.graal.java.DefaultSuitesProvider;
+import com.oracle.graal.lir.amd64.phases.AMD64InstructionSchedulingPhase;
 import com.oracle.graal.lir.amd64.phases.StackMoveOptimizationPhase;
 import com.oracle.graal.lir.phases.LIRSuites;
 import com.oracle.graal.nodes.graphbuilderconf.GraphBuilderConfiguration.Plugins;
@@ -37,6 +38,9 @@ public class AMD64SuitesProvider extends DefaultSuitesProvider {
     @Override
     public LIRSuites createLIRSuites() {
         LIRSuites lirSuites = super.createLIRSuites();
+        if (AMD64InstructionSchedulingPhase.Options.LIROptAMD64InstructionScheduling.getValue()) {
+            lirSuites.getPreAllocationOptimizationStage().appendPhase(new AMD64InstructionSchedulingPhase());
+        }
         if (StackMoveOptimizationPhase.Options.LIROptStackMoveOptimizer.getValue()) {
             /* Note: this phase must be inserted <b>after</b> RedundantMoveElimination */
             lirSuites.getPostAllocationOptimizationStage().appendPhase(new StackMoveOptimizationPhase());
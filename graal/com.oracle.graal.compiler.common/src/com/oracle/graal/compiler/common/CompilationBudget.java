@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.common;
+
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.internal.MemUseTrackerImpl;
+import com.oracle.graal.options.Option;
+import com.oracle.graal.options.OptionType;
+import com.oracle.graal.options.OptionValue;
+
+import jdk.vm.ci.code.BailoutException;
+
+/**
+ * Limits the wall time and the number of bytes allocated by a single compilation. A budget is
+ * {@linkplain #open() opened} for the current thread around a compilation and is checked at phase
+ * boundaries with {@link #check(CharSequence)} and in long running loops with
+ * {@link #checkPeriodically(CharSequence)}. Exceeding the budget throws a
+ * {@link BudgetExceededException}.
+ *
+ * Loops look up the {@linkplain #current() current budget} once, before they start, so that an
+ * iteration only pays for a null check if no budget is configured and for a counter increment
+ * otherwise. Budgets are disabled by default.
+ */
+public final class CompilationBudget implements AutoCloseable {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Maximum wall time in milliseconds a single compilation may take before it is retried with a cheaper configuration (0 to disable).", type = OptionType.Expert)
+        public static final OptionValue<Integer> CompilationTimeBudget = new OptionValue<>(0);
+        @Option(help = "Maximum number of megabytes a single compilation may allocate before it is retried with a cheaper configuration (0 to disable).", type = OptionType.Expert)
+        public static final OptionValue<Integer> CompilationMemoryBudget = new OptionValue<>(0);
+        // @formatter:on
+    }
+
+    /**
+     * Number of {@link #checkPeriodically} calls between two actual checks of the budget.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private static final ThreadLocal<CompilationBudget> current = new ThreadLocal<>();
+
+    private final CompilationBudget outer;
+    private final long deadline;
+    private final long allocationLimit;
+    private int periodicChecks;
+
+    private CompilationBudget(CompilationBudget outer, long deadline, long allocationLimit) {
+        this.outer = outer;
+        this.deadline = deadline;
+        this.allocationLimit = allocationLimit;
+    }
+
+    /**
+     * Opens a budget for the current thread as configured by the {@link Options}.
+     *
+     * @return the budget, which must be {@linkplain #close() closed} when the compilation is done,
+     *         or {@code null} if no budget is configured
+     */
+    public static CompilationBudget open() {
+        int millis = Options.CompilationTimeBudget.getValue();
+        int megabytes = Options.CompilationMemoryBudget.getValue();
+        if (millis <= 0 && megabytes <= 0) {
+            return null;
+        }
+        long deadline = millis <= 0 ? Long.MAX_VALUE : System.nanoTime() + millis * 1000000L;
+        long allocationLimit = megabytes <= 0 ? Long.MAX_VALUE : MemUseTrackerImpl.getCurrentThreadAllocatedBytes() + megabytes * 1024L * 1024L;
+        CompilationBudget budget = new CompilationBudget(current.get(), deadline, allocationLimit);
+        current.set(budget);
+        return budget;
+    }
+
+    @Override
+    public void close() {
+        assert current.get() == this;
+        current.set(outer);
+    }
+
+    /**
+     * Checks the budget of the current compilation, if any.
+     *
+     * @param where the phase or operation that is checking the budget
+     * @throws BudgetExceededException if the budget is exceeded
+     */
+    public static void check(CharSequence where) {
+        CompilationBudget budget = current.get();
+        if (budget != null) {
+            budget.checkBudget(where);
+        }
+    }
+
+    /**
+     * Gets the budget of the compilation on the current thread.
+     *
+     * @return the budget or {@code null} if no budget is open
+     */
+    public static CompilationBudget current() {
+        return current.get();
+    }
+
+    /**
+     * Cheaper variant of {@link #check(CharSequence)} for use in loops that only checks this budget
+     * every {@value #CHECK_INTERVAL} calls.
+     *
+     * @throws BudgetExceededException if the budget is exceeded
+     */
+    public void checkPeriodically(CharSequence where) {
+        if (++periodicChecks % CHECK_INTERVAL == 0) {
+            checkBudget(where);
+        }
+    }
+
+    private void checkBudget(CharSequence where) {
+        if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+            throw exceeded(where, "time");
+        }
+        if (allocationLimit != Long.MAX_VALUE && MemUseTrackerImpl.getCurrentThreadAllocatedBytes() > allocationLimit) {
+            throw exceeded(where, "memory");
+        }
+    }
+
+    private static BudgetExceededException exceeded(CharSequence where, String resource) {
+        Debug.counter("CompilationBudgetExceeded[%s]", where).increment();
+        return new BudgetExceededException(where, resource);
+    }
+
+    /**
+     * Thrown when a compilation exceeds its {@link CompilationBudget}.
+     */
+    public static final class BudgetExceededException extends BailoutException {
+
+        private static final long serialVersionUID = -2542312384212460178L;
+
+        private final String where;
+
+        BudgetExceededException(CharSequence where, String resource) {
+            super(false, "Compilation %s budget exceeded in %s", resource, where);
+            this.where = where.toString();
+        }
+
+        /**
+         * Gets the phase or operation in which the budget was exceeded.
+         */
+        public String getWhere() {
+            return where;
+        }
+    }
+}
@@ -113,13 +113,16 @@ public class FieldsScanner {
                 if (!includeTransient && Modifier.isTransient(field.getModifiers())) {
                     continue;
                 }
-                long offset = calc.getOffset(field);
-                scanField(field, offset);
+                scanField(field, getOffset(field));
             }
             currentClazz = currentClazz.getSuperclass();
         }
     }
 
+    protected long getOffset(Field field) {
+        return calc.getOffset(field);
+    }
+
     protected void scanField(Field field, long offset) {
         data.add(new FieldsScanner.FieldInfo(offset, field.getName(), field.getType(), field.getDeclaringClass()));
     }
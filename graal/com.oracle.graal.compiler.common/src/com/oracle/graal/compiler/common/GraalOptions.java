@@ -51,6 +51,15 @@ public final class GraalOptions {
     @Option(help = "Minimum probability for methods to be inlined for megamorphic type profiles.", type = OptionType.Expert)
     public static final OptionValue<Double> MegamorphicInliningMinMethodProbability = new OptionValue<>(0.33D);
 
+    @Option(help = "Dispatch megamorphic calls that are not inlined with a type switch over the most frequent receiver types and direct calls to their targets.", type = OptionType.Expert)
+    public static final OptionValue<Boolean> MegamorphicTypeSwitchDispatch = new OptionValue<>(false);
+
+    @Option(help = "Maximum number of receiver types checked by a megamorphic type switch dispatch.", type = OptionType.Expert)
+    public static final OptionValue<Integer> MegamorphicTypeSwitchMaxTypes = new OptionValue<>(8);
+
+    @Option(help = "Minimum total probability of the receiver types checked by a megamorphic type switch dispatch.", type = OptionType.Expert)
+    public static final OptionValue<Double> MegamorphicTypeSwitchMinProbability = new OptionValue<>(0.75D);
+
     @Option(help = "Maximum level of recursive inlining.", type = OptionType.Expert)
     public static final OptionValue<Integer> MaximumRecursiveInlining = new OptionValue<>(5);
 
@@ -215,6 +224,9 @@ public final class GraalOptions {
     @Option(help = "", type = OptionType.Debug)
     public static final OptionValue<Boolean> OptCanonicalizer = new OptionValue<>(true);
 
+    @Option(help = "Use a hash table for global value numbering of non-leaf nodes when canonicalizing a whole graph", type = OptionType.Debug)
+    public static final OptionValue<Boolean> OptCanonicalizerValueNumberTable = new OptionValue<>(true);
+
     @Option(help = "", type = OptionType.Debug)
     public static final OptionValue<Boolean> OptDeoptimizationGrouping = new OptionValue<>(true);
 
@@ -239,6 +251,9 @@ public final class GraalOptions {
     @Option(help = "", type = OptionType.Debug)
     public static final OptionValue<Boolean> OptEliminatePartiallyRedundantGuards = new OptionValue<>(true);
 
+    @Option(help = "Move guards with loop invariant conditions out of loops.", type = OptionType.Debug)
+    public static final OptionValue<Boolean> OptSpeculativeGuardMovement = new OptionValue<>(true);
+
     @Option(help = "", type = OptionType.Debug)
     public static final OptionValue<Boolean> OptFilterProfiledTypes = new OptionValue<>(true);
 
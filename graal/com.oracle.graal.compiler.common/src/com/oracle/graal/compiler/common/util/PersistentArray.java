@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.common.util;
+
+/**
+ * An immutable array of elements indexed by small non-negative integers, implemented as a trie
+ * with 32 children per node. Setting an element copies only the path to the element and shares
+ * all other nodes with the original array, so an array can be copied in constant time and updated
+ * in time logarithmic in its length. Unset elements are {@code null}.
+ */
+public final class PersistentArray<E> {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final int MAX_SHIFT = 25;
+
+    private static final PersistentArray<?> EMPTY = new PersistentArray<>(new Object[WIDTH], 0, 0);
+
+    /**
+     * The root node. Inner nodes contain child nodes, nodes at shift 0 contain the elements.
+     */
+    private final Object[] root;
+    private final int shift;
+    private final int length;
+
+    private PersistentArray(Object[] root, int shift, int length) {
+        this.root = root;
+        this.shift = shift;
+        this.length = length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentArray<E> empty() {
+        return (PersistentArray<E>) EMPTY;
+    }
+
+    /**
+     * Creates an array of {@code length} unset elements.
+     */
+    public static <E> PersistentArray<E> empty(int length) {
+        assert length >= 0;
+        int shift = 0;
+        while (length > (1 << (shift + BITS)) && shift < MAX_SHIFT) {
+            shift += BITS;
+        }
+        return new PersistentArray<>(new Object[WIDTH], shift, length);
+    }
+
+    /**
+     * The number of elements, i.e., one more than the largest index that was set or the length
+     * this array was created with.
+     */
+    public int length() {
+        return length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index >= length) {
+            return null;
+        }
+        Object[] node = root;
+        for (int s = shift; s > 0; s -= BITS) {
+            node = (Object[]) node[(index >>> s) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (E) node[index & MASK];
+    }
+
+    /**
+     * Returns an array in which the element at {@code index} is {@code value}. Returns this array
+     * if the element already is {@code value}.
+     */
+    public PersistentArray<E> set(int index, E value) {
+        assert index >= 0;
+        if (index < length && get(index) == value) {
+            return this;
+        }
+        Object[] newRoot = root;
+        int newShift = shift;
+        while (index >= (1 << (newShift + BITS))) {
+            assert newShift < MAX_SHIFT : "index too large: " + index;
+            Object[] node = new Object[WIDTH];
+            node[0] = newRoot;
+            newRoot = node;
+            newShift += BITS;
+        }
+        return new PersistentArray<>(set(newRoot, newShift, index, value), newShift, Math.max(length, index + 1));
+    }
+
+    private static Object[] set(Object[] node, int shift, int index, Object value) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int slot = (index >>> shift) & MASK;
+        if (shift == 0) {
+            copy[slot] = value;
+        } else {
+            copy[slot] = set((Object[]) copy[slot], shift - BITS, index, value);
+        }
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(get(i));
+        }
+        return sb.append(']').toString();
+    }
+}
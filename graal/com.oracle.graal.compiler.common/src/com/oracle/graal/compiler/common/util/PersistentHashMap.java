@@ -0,0 +1,612 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.common.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * An immutable hash map implemented as a hash array mapped trie. Every update returns a new map
+ * that shares all unmodified sub-tries with the original map, so a map can be copied in constant
+ * time. Operations on two maps that were derived from a common ancestor skip the sub-tries the maps
+ * still share, which makes them proportional to the differences between the maps rather than to
+ * their sizes.
+ *
+ * Keys are compared with {@link Object#equals(Object)}, values are compared by identity.
+ * {@code null} keys and values are not supported.
+ */
+public final class PersistentHashMap<K, V> implements Iterable<Map.Entry<K, V>> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * The largest shift for which a {@link BitmapNode} is created. Entries that are still not
+     * distinguished at this level have the same hash and end up in a {@link CollisionNode}.
+     */
+    private static final int MAX_SHIFT = 30;
+    private static final int MAX_DEPTH = MAX_SHIFT / BITS + 3;
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private static final Object[] NO_SLOTS = new Object[0];
+
+    /**
+     * A slot of the trie is either {@code null}, an {@link Entry}, a {@link BitmapNode} or a
+     * {@link CollisionNode}.
+     */
+    private final Object root;
+    private final int size;
+
+    private PersistentHashMap(Object root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Entry<?, ?> entry = find(root, key, hash(key), 0);
+        return entry == null ? null : (V) entry.value;
+    }
+
+    public boolean containsKey(Object key) {
+        return find(root, key, hash(key), 0) != null;
+    }
+
+    /**
+     * Returns a map in which {@code key} is mapped to {@code value}. Returns this map if it already
+     * contains the mapping.
+     */
+    public PersistentHashMap<K, V> put(K key, V value) {
+        assert key != null && value != null;
+        int[] added = new int[1];
+        Object newRoot = put(root, new Entry<>(key, value, hash(key)), 0, added);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot, size + added[0]);
+    }
+
+    /**
+     * Returns a map without a mapping for {@code key}. Returns this map if it does not contain
+     * {@code key}.
+     */
+    public PersistentHashMap<K, V> remove(Object key) {
+        Object newRoot = remove(root, key, hash(key), 0);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    /**
+     * Returns a map without the mappings matching {@code predicate}. Returns this map if no mapping
+     * matches.
+     */
+    @SuppressWarnings("unchecked")
+    public PersistentHashMap<K, V> removeIf(BiPredicate<? super K, ? super V> predicate) {
+        int[] removed = new int[1];
+        Object newRoot = filter(root, e -> !predicate.test((K) e.key, (V) e.value), removed);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot, size - removed[0]);
+    }
+
+    /**
+     * Returns a map that only contains the mappings of this map for which {@code other} maps the
+     * key to the identical value. Sub-tries shared by the two maps are retained without being
+     * visited.
+     */
+    public PersistentHashMap<K, V> retainEqual(PersistentHashMap<K, V> other) {
+        int[] removed = new int[1];
+        Object newRoot = retainEqual(root, other.root, 0, removed);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot, size - removed[0]);
+    }
+
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Map.Entry<K, V> entry : this) {
+            action.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Applies {@code action} to all mappings of this map for which {@code other} does not map the
+     * key to the identical value. Sub-tries shared by the two maps are skipped.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachDifferent(PersistentHashMap<K, V> other, Consumer<? super Map.Entry<K, V>> action) {
+        forEachDifferent(root, other.root, 0, e -> action.accept((Entry<K, V>) e));
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(root);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (Map.Entry<K, V> entry : this) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(entry);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static final class Entry<K, V> implements Map.Entry<K, V> {
+        final K key;
+        final V value;
+        final int hash;
+
+        Entry(K key, V value, int hash) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V newValue) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Map.Entry) {
+                Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+                return key.equals(other.getKey()) && value.equals(other.getValue());
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+
+        boolean matches(Object otherKey, int otherHash) {
+            return hash == otherHash && key.equals(otherKey);
+        }
+    }
+
+    /**
+     * An inner node of the trie. The bits set in {@link #bitmap} denote which of the 32 possible
+     * children are present, {@link #slots} contains the present children in ascending bit order.
+     */
+    private static final class BitmapNode {
+        final int bitmap;
+        final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            assert Integer.bitCount(bitmap) == slots.length;
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        BitmapNode insert(int bit, int index, Object slot) {
+            Object[] newSlots = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            newSlots[index] = slot;
+            System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+            return new BitmapNode(bitmap | bit, newSlots);
+        }
+
+        BitmapNode replace(int index, Object slot) {
+            Object[] newSlots = slots.clone();
+            newSlots[index] = slot;
+            return new BitmapNode(bitmap, newSlots);
+        }
+    }
+
+    /**
+     * A leaf containing two or more entries with the same hash.
+     */
+    private static final class CollisionNode {
+        final int hash;
+        final Entry<?, ?>[] entries;
+
+        CollisionNode(int hash, Entry<?, ?>[] entries) {
+            assert entries.length >= 2;
+            this.hash = hash;
+            this.entries = entries;
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static Entry<?, ?> find(Object slot, Object key, int hash, int shift) {
+        Object current = slot;
+        int s = shift;
+        while (current instanceof BitmapNode) {
+            BitmapNode node = (BitmapNode) current;
+            int bit = bit(hash, s);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            current = node.slots[index(node.bitmap, bit)];
+            s += BITS;
+        }
+        if (current instanceof Entry) {
+            Entry<?, ?> entry = (Entry<?, ?>) current;
+            return entry.matches(key, hash) ? entry : null;
+        } else if (current instanceof CollisionNode) {
+            CollisionNode collision = (CollisionNode) current;
+            if (collision.hash == hash) {
+                for (Entry<?, ?> entry : collision.entries) {
+                    if (entry.key.equals(key)) {
+                        return entry;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Object put(Object slot, Entry<?, ?> entry, int shift, int[] added) {
+        if (slot == null) {
+            added[0] = 1;
+            return entry;
+        } else if (slot instanceof Entry) {
+            Entry<?, ?> existing = (Entry<?, ?>) slot;
+            if (existing.matches(entry.key, entry.hash)) {
+                return existing.value == entry.value ? existing : entry;
+            }
+            added[0] = 1;
+            return merge(existing, entry, shift);
+        } else if (slot instanceof BitmapNode) {
+            BitmapNode node = (BitmapNode) slot;
+            int bit = bit(entry.hash, shift);
+            int index = index(node.bitmap, bit);
+            if ((node.bitmap & bit) == 0) {
+                added[0] = 1;
+                return node.insert(bit, index, entry);
+            }
+            Object child = node.slots[index];
+            Object newChild = put(child, entry, shift + BITS, added);
+            return newChild == child ? node : node.replace(index, newChild);
+        } else {
+            CollisionNode collision = (CollisionNode) slot;
+            if (collision.hash != entry.hash) {
+                // push the collision node down into a new inner node
+                assert shift <= MAX_SHIFT;
+                return put(new BitmapNode(bit(collision.hash, shift), new Object[]{collision}), entry, shift, added);
+            }
+            Entry<?, ?>[] entries = collision.entries;
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].key.equals(entry.key)) {
+                    if (entries[i].value == entry.value) {
+                        return collision;
+                    }
+                    Entry<?, ?>[] newEntries = entries.clone();
+                    newEntries[i] = entry;
+                    return new CollisionNode(collision.hash, newEntries);
+                }
+            }
+            Entry<?, ?>[] newEntries = new Entry<?, ?>[entries.length + 1];
+            System.arraycopy(entries, 0, newEntries, 0, entries.length);
+            newEntries[entries.length] = entry;
+            added[0] = 1;
+            return new CollisionNode(collision.hash, newEntries);
+        }
+    }
+
+    private static Object merge(Entry<?, ?> e1, Entry<?, ?> e2, int shift) {
+        if (e1.hash == e2.hash) {
+            return new CollisionNode(e1.hash, new Entry<?, ?>[]{e1, e2});
+        }
+        assert shift <= MAX_SHIFT;
+        int index1 = (e1.hash >>> shift) & MASK;
+        int index2 = (e2.hash >>> shift) & MASK;
+        if (index1 == index2) {
+            return new BitmapNode(1 << index1, new Object[]{merge(e1, e2, shift + BITS)});
+        }
+        return new BitmapNode((1 << index1) | (1 << index2), index1 < index2 ? new Object[]{e1, e2} : new Object[]{e2, e1});
+    }
+
+    private static Object remove(Object slot, Object key, int hash, int shift) {
+        if (slot instanceof Entry) {
+            return ((Entry<?, ?>) slot).matches(key, hash) ? null : slot;
+        } else if (slot instanceof BitmapNode) {
+            BitmapNode node = (BitmapNode) slot;
+            int bit = bit(hash, shift);
+            if ((node.bitmap & bit) == 0) {
+                return node;
+            }
+            int index = index(node.bitmap, bit);
+            Object child = node.slots[index];
+            Object newChild = remove(child, key, hash, shift + BITS);
+            if (newChild == child) {
+                return node;
+            }
+            Object[] newSlots = node.slots.clone();
+            newSlots[index] = newChild;
+            return rebuild(node, newSlots);
+        } else if (slot instanceof CollisionNode) {
+            CollisionNode collision = (CollisionNode) slot;
+            if (collision.hash != hash) {
+                return collision;
+            }
+            return filterCollision(collision, e -> !e.key.equals(key), new int[1]);
+        }
+        return null;
+    }
+
+    /**
+     * Creates the inner node for the children of {@code node} replaced by {@code newSlots}, in
+     * which removed children are {@code null}. A node with a single leaf child is replaced by that
+     * child.
+     */
+    private static Object rebuild(BitmapNode node, Object[] newSlots) {
+        int bitmap = 0;
+        int count = 0;
+        int remaining = node.bitmap;
+        for (int i = 0; remaining != 0; i++) {
+            int bit = Integer.lowestOneBit(remaining);
+            remaining ^= bit;
+            if (newSlots[i] != null) {
+                bitmap |= bit;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        if (count == 1) {
+            for (Object slot : newSlots) {
+                if (slot != null && !(slot instanceof BitmapNode)) {
+                    return slot;
+                }
+            }
+        }
+        if (count == newSlots.length) {
+            return new BitmapNode(bitmap, newSlots);
+        }
+        Object[] slots = new Object[count];
+        int index = 0;
+        for (Object slot : newSlots) {
+            if (slot != null) {
+                slots[index++] = slot;
+            }
+        }
+        return new BitmapNode(bitmap, slots);
+    }
+
+    private static Object filter(Object slot, Predicate<Entry<?, ?>> keep, int[] removed) {
+        if (slot instanceof Entry) {
+            if (keep.test((Entry<?, ?>) slot)) {
+                return slot;
+            }
+            removed[0]++;
+            return null;
+        } else if (slot instanceof BitmapNode) {
+            BitmapNode node = (BitmapNode) slot;
+            Object[] newSlots = null;
+            for (int i = 0; i < node.slots.length; i++) {
+                Object child = node.slots[i];
+                Object newChild = filter(child, keep, removed);
+                if (newChild != child) {
+                    if (newSlots == null) {
+                        newSlots = node.slots.clone();
+                    }
+                    newSlots[i] = newChild;
+                }
+            }
+            return newSlots == null ? node : rebuild(node, newSlots);
+        } else if (slot instanceof CollisionNode) {
+            return filterCollision((CollisionNode) slot, keep, removed);
+        }
+        return null;
+    }
+
+    private static Object filterCollision(CollisionNode collision, Predicate<Entry<?, ?>> keep, int[] removed) {
+        Entry<?, ?>[] entries = collision.entries;
+        int count = 0;
+        for (Entry<?, ?> entry : entries) {
+            if (keep.test(entry)) {
+                count++;
+            }
+        }
+        if (count == entries.length) {
+            return collision;
+        }
+        removed[0] += entries.length - count;
+        if (count == 0) {
+            return null;
+        }
+        Entry<?, ?>[] newEntries = new Entry<?, ?>[count];
+        int index = 0;
+        for (Entry<?, ?> entry : entries) {
+            if (keep.test(entry)) {
+                newEntries[index++] = entry;
+            }
+        }
+        return count == 1 ? newEntries[0] : new CollisionNode(collision.hash, newEntries);
+    }
+
+    private static Object retainEqual(Object slot, Object other, int shift, int[] removed) {
+        if (slot == other || slot == null) {
+            return slot;
+        } else if (other == null) {
+            removed[0] += count(slot);
+            return null;
+        } else if (slot instanceof BitmapNode && other instanceof BitmapNode) {
+            BitmapNode node = (BitmapNode) slot;
+            BitmapNode otherNode = (BitmapNode) other;
+            Object[] newSlots = null;
+            int remaining = node.bitmap;
+            for (int i = 0; remaining != 0; i++) {
+                int bit = Integer.lowestOneBit(remaining);
+                remaining ^= bit;
+                Object child = node.slots[i];
+                Object otherChild = (otherNode.bitmap & bit) == 0 ? null : otherNode.slots[index(otherNode.bitmap, bit)];
+                Object newChild = retainEqual(child, otherChild, shift + BITS, removed);
+                if (newChild != child) {
+                    if (newSlots == null) {
+                        newSlots = node.slots.clone();
+                    }
+                    newSlots[i] = newChild;
+                }
+            }
+            return newSlots == null ? node : rebuild(node, newSlots);
+        } else {
+            // the tries have different shapes at this point, look up the entries individually
+            return filter(slot, e -> {
+                Entry<?, ?> otherEntry = find(other, e.key, e.hash, shift);
+                return otherEntry != null && otherEntry.value == e.value;
+            }, removed);
+        }
+    }
+
+    private static void forEachDifferent(Object slot, Object other, int shift, Consumer<Entry<?, ?>> action) {
+        if (slot == other || slot == null) {
+            return;
+        } else if (slot instanceof BitmapNode && other instanceof BitmapNode) {
+            BitmapNode node = (BitmapNode) slot;
+            BitmapNode otherNode = (BitmapNode) other;
+            int remaining = node.bitmap;
+            for (int i = 0; remaining != 0; i++) {
+                int bit = Integer.lowestOneBit(remaining);
+                remaining ^= bit;
+                Object otherChild = (otherNode.bitmap & bit) == 0 ? null : otherNode.slots[index(otherNode.bitmap, bit)];
+                forEachDifferent(node.slots[i], otherChild, shift + BITS, action);
+            }
+        } else {
+            filter(slot, e -> {
+                Entry<?, ?> otherEntry = other == null ? null : find(other, e.key, e.hash, shift);
+                if (otherEntry == null || otherEntry.value != e.value) {
+                    action.accept(e);
+                }
+                return true;
+            }, new int[1]);
+        }
+    }
+
+    private static int count(Object slot) {
+        if (slot instanceof Entry) {
+            return 1;
+        } else if (slot instanceof CollisionNode) {
+            return ((CollisionNode) slot).entries.length;
+        } else if (slot instanceof BitmapNode) {
+            int count = 0;
+            for (Object child : ((BitmapNode) slot).slots) {
+                count += count(child);
+            }
+            return count;
+        }
+        return 0;
+    }
+
+    private static Object[] slotsOf(Object slot) {
+        if (slot instanceof BitmapNode) {
+            return ((BitmapNode) slot).slots;
+        } else if (slot instanceof CollisionNode) {
+            return ((CollisionNode) slot).entries;
+        } else if (slot == null) {
+            return NO_SLOTS;
+        }
+        return new Object[]{slot};
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Object[][] slots = new Object[MAX_DEPTH][];
+        private final int[] indices = new int[MAX_DEPTH];
+        private int depth;
+        private Entry<K, V> next;
+
+        EntryIterator(Object root) {
+            slots[0] = slotsOf(root);
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                if (indices[depth] == slots[depth].length) {
+                    depth--;
+                    continue;
+                }
+                Object slot = slots[depth][indices[depth]++];
+                if (slot instanceof Entry) {
+                    next = (Entry<K, V>) slot;
+                    return;
+                }
+                depth++;
+                slots[depth] = slotsOf(slot);
+                indices[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, V> result = next;
+            advance();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import static com.oracle.graal.compiler.common.CompilationBudget.Options.CompilationMemoryBudget;
+import static com.oracle.graal.compiler.common.CompilationBudget.Options.CompilationTimeBudget;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.compiler.common.CompilationBudget;
+import com.oracle.graal.compiler.common.CompilationBudget.BudgetExceededException;
+import com.oracle.graal.nodes.ConstantNode;
+import com.oracle.graal.nodes.ReturnNode;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.nodes.ValueNode;
+import com.oracle.graal.nodes.calc.AddNode;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.common.CanonicalizerPhase;
+import com.oracle.graal.phases.tiers.PhaseContext;
+
+public class CompilationBudgetTest extends GraalCompilerTest {
+
+    public static int snippet(int a, int b) {
+        return a + b;
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testMemoryBudget() {
+        StructuredGraph graph = parseEager("snippet", AllowAssumptions.YES);
+        try (OverrideScope s = OptionValue.override(CompilationTimeBudget, 0, CompilationMemoryBudget, 1); CompilationBudget budget = CompilationBudget.open()) {
+            new CanonicalizerPhase().apply(graph, new PhaseContext(getProviders()));
+            byte[][] garbage = new byte[4][];
+            for (int i = 0; i < garbage.length; i++) {
+                garbage[i] = new byte[1024 * 1024];
+            }
+            new CanonicalizerPhase().apply(graph, new PhaseContext(getProviders()));
+            Assert.fail("expected " + BudgetExceededException.class.getSimpleName());
+        } catch (BudgetExceededException e) {
+            Assert.assertEquals("Canonicalizer", e.getWhere());
+            Assert.assertFalse(e.isPermanent());
+        }
+    }
+
+    /**
+     * Checks that the budget also stops a single canonicalization that runs past it and not only
+     * the next phase.
+     */
+    @SuppressWarnings("try")
+    @Test
+    public void testLargeCanonicalization() {
+        StructuredGraph graph = parseEager("snippet", AllowAssumptions.YES);
+        ReturnNode ret = graph.getNodes(ReturnNode.TYPE).first();
+        ValueNode value = ret.result();
+        ConstantNode zero = ConstantNode.forInt(0, graph);
+        int count = 200000;
+        for (int i = 0; i < count; i++) {
+            value = graph.unique(new AddNode(value, zero));
+        }
+        ret.replaceFirstInput(ret.result(), value);
+
+        try (OverrideScope s = OptionValue.override(CompilationTimeBudget, 0, CompilationMemoryBudget, 1); CompilationBudget budget = CompilationBudget.open()) {
+            new CanonicalizerPhase().apply(graph, new PhaseContext(getProviders()));
+            Assert.fail("expected " + BudgetExceededException.class.getSimpleName());
+        } catch (BudgetExceededException e) {
+            Assert.assertEquals("Canonicalizer", e.getWhere());
+        }
+        // the canonicalization was stopped before it folded all the additions of 0
+        int remaining = graph.getNodes().filter(AddNode.class).count();
+        Assert.assertTrue(String.valueOf(remaining), remaining > 1);
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testTimeBudget() throws InterruptedException {
+        try (OverrideScope s = OptionValue.override(CompilationTimeBudget, 50, CompilationMemoryBudget, 0); CompilationBudget budget = CompilationBudget.open()) {
+            CompilationBudget.check("before");
+            Thread.sleep(100);
+            CompilationBudget.check("after");
+            Assert.fail("expected " + BudgetExceededException.class.getSimpleName());
+        } catch (BudgetExceededException e) {
+            Assert.assertEquals("after", e.getWhere());
+        }
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testDisabled() {
+        try (OverrideScope s = OptionValue.override(CompilationTimeBudget, 0, CompilationMemoryBudget, 0); CompilationBudget budget = CompilationBudget.open()) {
+            Assert.assertNull(budget);
+            CompilationBudget.check("disabled");
+        }
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testDisabledByDefault() {
+        try (CompilationBudget budget = CompilationBudget.open()) {
+            Assert.assertNull(budget);
+        }
+    }
+}
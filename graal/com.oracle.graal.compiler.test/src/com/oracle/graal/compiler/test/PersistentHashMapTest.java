@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.compiler.common.util.PersistentArray;
+import com.oracle.graal.compiler.common.util.PersistentHashMap;
+
+/**
+ * Compares {@link PersistentHashMap} and {@link PersistentArray} against the corresponding mutable
+ * data structures.
+ */
+public class PersistentHashMapTest {
+
+    /**
+     * A key with a configurable hash code to produce collisions.
+     */
+    private static final class Key {
+        final int value;
+        final int hash;
+
+        Key(int value, int hashRange) {
+            this.value = value;
+            this.hash = (value * 31) % hashRange;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key) obj).value == value;
+        }
+
+        @Override
+        public String toString() {
+            return "k" + value;
+        }
+    }
+
+    private static final String[] VALUES = new String[16];
+
+    static {
+        for (int i = 0; i < VALUES.length; i++) {
+            VALUES[i] = "v" + i;
+        }
+    }
+
+    private static void assertEquals(Map<Key, String> expected, PersistentHashMap<Key, String> actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        int count = 0;
+        for (Map.Entry<Key, String> entry : actual) {
+            Assert.assertSame(expected.get(entry.getKey()), entry.getValue());
+            count++;
+        }
+        Assert.assertEquals(expected.size(), count);
+        for (Map.Entry<Key, String> entry : expected.entrySet()) {
+            Assert.assertSame(entry.getValue(), actual.get(entry.getKey()));
+        }
+    }
+
+    private static PersistentHashMap<Key, String> update(Random random, int operations, int hashRange, PersistentHashMap<Key, String> map, Map<Key, String> expected) {
+        PersistentHashMap<Key, String> result = map;
+        for (int i = 0; i < operations; i++) {
+            Key key = new Key(random.nextInt(200), hashRange);
+            if (random.nextInt(4) == 0) {
+                result = result.remove(key);
+                expected.remove(key);
+            } else {
+                String value = VALUES[random.nextInt(VALUES.length)];
+                result = result.put(key, value);
+                expected.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    private static void testMap(int hashRange) {
+        Random random = new Random(hashRange);
+        for (int round = 0; round < 100; round++) {
+            Map<Key, String> expected = new HashMap<>();
+            PersistentHashMap<Key, String> map = update(random, random.nextInt(300), hashRange, PersistentHashMap.empty(), expected);
+            assertEquals(expected, map);
+
+            Map<Key, String> forkExpected = new HashMap<>(expected);
+            PersistentHashMap<Key, String> fork = update(random, random.nextInt(20), hashRange, map, forkExpected);
+            assertEquals(forkExpected, fork);
+            assertEquals(expected, map);
+
+            Map<Key, String> retained = new HashMap<>();
+            for (Map.Entry<Key, String> entry : expected.entrySet()) {
+                if (forkExpected.get(entry.getKey()) == entry.getValue()) {
+                    retained.put(entry.getKey(), entry.getValue());
+                }
+            }
+            assertEquals(retained, map.retainEqual(fork));
+
+            Map<Key, String> different = new HashMap<>();
+            map.forEachDifferent(fork, entry -> different.put(entry.getKey(), entry.getValue()));
+            Map<Key, String> expectedDifferent = new HashMap<>(expected);
+            expectedDifferent.keySet().removeAll(retained.keySet());
+            Assert.assertEquals(expectedDifferent, different);
+
+            Map<Key, String> filtered = new HashMap<>(expected);
+            filtered.keySet().removeIf(key -> key.value % 3 == 0);
+            assertEquals(filtered, map.removeIf((key, value) -> key.value % 3 == 0));
+
+            Assert.assertSame(map, map.removeIf((key, value) -> false));
+            Assert.assertSame(map, map.retainEqual(map));
+        }
+    }
+
+    @Test
+    public void testFewCollisions() {
+        testMap(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testSomeCollisions() {
+        testMap(64);
+    }
+
+    @Test
+    public void testManyCollisions() {
+        testMap(8);
+    }
+
+    @Test
+    public void testArray() {
+        Random random = new Random(11);
+        for (int round = 0; round < 100; round++) {
+            int length = random.nextInt(5000) + 1;
+            PersistentArray<String> array = round % 2 == 0 ? PersistentArray.empty() : PersistentArray.empty(random.nextInt(length));
+            String[] expected = new String[length];
+            int expectedLength = array.length();
+            PersistentArray<String> snapshot = array;
+            String[] snapshotExpected = expected.clone();
+            int snapshotLength = expectedLength;
+            for (int i = 0; i < 300; i++) {
+                int index = random.nextInt(length);
+                String value = VALUES[random.nextInt(VALUES.length)];
+                array = array.set(index, value);
+                expected[index] = value;
+                expectedLength = Math.max(expectedLength, index + 1);
+                if (i == 150) {
+                    snapshot = array;
+                    snapshotExpected = expected.clone();
+                    snapshotLength = expectedLength;
+                }
+            }
+            assertEquals(expected, expectedLength, array);
+            assertEquals(snapshotExpected, snapshotLength, snapshot);
+        }
+    }
+
+    private static void assertEquals(String[] expected, int expectedLength, PersistentArray<String> actual) {
+        Assert.assertEquals(expectedLength, actual.length());
+        for (int i = 0; i < expected.length + 40; i++) {
+            String value = i < expectedLength ? expected[i] : null;
+            Assert.assertSame(value, actual.get(i));
+        }
+    }
+}
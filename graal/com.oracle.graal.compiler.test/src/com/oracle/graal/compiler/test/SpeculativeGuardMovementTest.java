@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.loop.LoopEx;
+import com.oracle.graal.loop.LoopsData;
+import com.oracle.graal.loop.phases.SpeculativeGuardMovementPhase;
+import com.oracle.graal.nodes.GuardNode;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.nodes.spi.LoweringTool;
+import com.oracle.graal.phases.OptimisticOptimizations;
+import com.oracle.graal.phases.common.CanonicalizerPhase;
+import com.oracle.graal.phases.common.LoweringPhase;
+import com.oracle.graal.phases.tiers.MidTierContext;
+import com.oracle.graal.phases.tiers.PhaseContext;
+
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.SpeculationLog;
+
+public class SpeculativeGuardMovementTest extends GraalCompilerTest {
+
+    static class Holder {
+        int value;
+        int[] values;
+    }
+
+    public static int invariantNullCheckSnippet(Holder h, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += h.value;
+        }
+        return sum;
+    }
+
+    public static int invariantLoadSnippet(Holder h, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            if (i % 3 == 0) {
+                sum += h.values.length;
+            }
+        }
+        return sum;
+    }
+
+    public static int variantNullCheckSnippet(Holder[] holders) {
+        int sum = 0;
+        for (int i = 0; i < holders.length; i++) {
+            sum += holders[i].value;
+        }
+        return sum;
+    }
+
+    public static int nestedInvariantNullCheckSnippet(Holder h, int n, int m) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < m; j++) {
+                sum += h.value;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * A speculation log in which the speculations that were made can be marked as failed, as if
+     * the code speculating on them deoptimized.
+     */
+    static final class TestSpeculationLog implements SpeculationLog {
+        final List<SpeculationReason> speculations = new ArrayList<>();
+        final Set<SpeculationReason> failed = new HashSet<>();
+
+        @Override
+        public void collectFailedSpeculations() {
+        }
+
+        @Override
+        public boolean maySpeculate(SpeculationReason reason) {
+            return !failed.contains(reason);
+        }
+
+        @Override
+        public JavaConstant speculate(SpeculationReason reason) {
+            speculations.add(reason);
+            return JavaConstant.forInt(speculations.size());
+        }
+
+        void failAll() {
+            failed.addAll(speculations);
+            speculations.clear();
+        }
+    }
+
+    private SpeculationLog speculationLog;
+
+    @Override
+    protected SpeculationLog getSpeculationLog() {
+        return speculationLog;
+    }
+
+    private static Holder holder() {
+        Holder h = new Holder();
+        h.value = 3;
+        h.values = new int[7];
+        return h;
+    }
+
+    @Test
+    public void testInvariantNullCheck() {
+        checkMoved("invariantNullCheckSnippet", true);
+        test("invariantNullCheckSnippet", holder(), 10);
+        test("invariantNullCheckSnippet", null, 0);
+        test("invariantNullCheckSnippet", null, 10);
+    }
+
+    @Test
+    public void testInvariantLoad() {
+        // the null check of h is moved, the null check of the loaded array stays in the loop
+        Assert.assertTrue(movedGuards("invariantLoadSnippet") > 0);
+        test("invariantLoadSnippet", holder(), 10);
+        test("invariantLoadSnippet", null, 0);
+        test("invariantLoadSnippet", null, 1);
+    }
+
+    @Test
+    public void testVariantNullCheck() {
+        checkMoved("variantNullCheckSnippet", false);
+        test("variantNullCheckSnippet", (Object) new Holder[]{holder(), holder()});
+        test("variantNullCheckSnippet", (Object) new Holder[]{holder(), null});
+    }
+
+    @Test
+    public void testNestedInvariantNullCheck() {
+        checkMoved("nestedInvariantNullCheckSnippet", true);
+        test("nestedInvariantNullCheckSnippet", holder(), 3, 4);
+        test("nestedInvariantNullCheckSnippet", null, 3, 0);
+    }
+
+    @Test
+    public void testNestedInvariantNullCheckSpeculation() {
+        TestSpeculationLog log = new TestSpeculationLog();
+        speculationLog = log;
+        try {
+            // the guard is moved out of the whole loop nest with a single speculation
+            checkMoved("nestedInvariantNullCheckSnippet", true);
+            Assert.assertEquals(log.speculations.toString(), 1, log.speculations.size());
+
+            // after the speculation failed, the guard is only moved out of the inner loop
+            log.failAll();
+            StructuredGraph graph = parseEager("nestedInvariantNullCheckSnippet", AllowAssumptions.YES);
+            new LoweringPhase(new CanonicalizerPhase(), LoweringTool.StandardLoweringStage.HIGH_TIER).apply(graph, new PhaseContext(getProviders()));
+            applyPhase(graph);
+            Assert.assertEquals(1, log.speculations.size());
+            LoopsData loops = new LoopsData(graph);
+            for (GuardNode guard : guardsInLoops(graph)) {
+                for (LoopEx loop : loops.loops()) {
+                    if (loop.parent() != null) {
+                        Assert.assertFalse(guard.toString(), loop.whole().contains(guard.getAnchor().asNode()));
+                    }
+                }
+            }
+            Assert.assertFalse(guardsInLoops(graph).isEmpty());
+        } finally {
+            speculationLog = null;
+        }
+    }
+
+    /**
+     * Checks whether the null check of the loop body is moved out of the loop.
+     */
+    private void checkMoved(String snippet, boolean expectMoved) {
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.YES);
+        new LoweringPhase(new CanonicalizerPhase(), LoweringTool.StandardLoweringStage.HIGH_TIER).apply(graph, new PhaseContext(getProviders()));
+        Assert.assertFalse(guardsInLoops(graph).isEmpty());
+        applyPhase(graph);
+        Assert.assertEquals(expectMoved, guardsInLoops(graph).isEmpty());
+    }
+
+    /**
+     * Gets the number of guards moved out of the loops of {@code snippet}.
+     */
+    private int movedGuards(String snippet) {
+        StructuredGraph graph = parseEager(snippet, AllowAssumptions.YES);
+        new LoweringPhase(new CanonicalizerPhase(), LoweringTool.StandardLoweringStage.HIGH_TIER).apply(graph, new PhaseContext(getProviders()));
+        List<GuardNode> before = guardsInLoops(graph);
+        applyPhase(graph);
+        before.removeAll(guardsInLoops(graph));
+        return before.size();
+    }
+
+    private void applyPhase(StructuredGraph graph) {
+        MidTierContext midContext = new MidTierContext(getProviders(), getTargetProvider(), OptimisticOptimizations.ALL, graph.getProfilingInfo());
+        new SpeculativeGuardMovementPhase().apply(graph, midContext);
+    }
+
+    private static List<GuardNode> guardsInLoops(StructuredGraph graph) {
+        LoopsData loops = new LoopsData(graph);
+        List<GuardNode> guards = new ArrayList<>();
+        for (GuardNode guard : graph.getNodes().filter(GuardNode.class)) {
+            for (LoopEx loop : loops.loops()) {
+                if (loop.whole().contains(guard.getAnchor().asNode())) {
+                    guards.add(guard);
+                    break;
+                }
+            }
+        }
+        return guards;
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.compiler.test.backend;
+
+import static jdk.vm.ci.code.ValueUtil.isRegister;
+import static jdk.vm.ci.code.ValueUtil.isStackSlot;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.compiler.common.cfg.AbstractBlockBase;
+import com.oracle.graal.lir.LIR;
+import com.oracle.graal.lir.LIRInstruction;
+import com.oracle.graal.lir.StandardOp.BranchOp;
+import com.oracle.graal.lir.StandardOp.JumpOp;
+import com.oracle.graal.lir.StandardOp.LabelOp;
+import com.oracle.graal.lir.StandardOp.LoadConstantOp;
+import com.oracle.graal.lir.StandardOp.NoOp;
+import com.oracle.graal.lir.StandardOp.ValueMoveOp;
+import com.oracle.graal.lir.gen.LIRGenerationResult;
+import com.oracle.graal.lir.phases.LIRSuites;
+import com.oracle.graal.lir.phases.PostAllocationOptimizationPhase;
+import com.oracle.graal.nodes.AbstractDeoptimizeNode;
+
+import jdk.vm.ci.code.TargetDescription;
+import jdk.vm.ci.code.site.Infopoint;
+import jdk.vm.ci.code.site.InfopointReason;
+import jdk.vm.ci.meta.Value;
+
+/**
+ * Regression net for the quality of the generated code. Each kernel is compiled and the code size,
+ * the number of safepoints and deoptimization points, the number of spill moves and the mix of
+ * LIR instructions after register allocation are compared against a baseline. The test fails if
+ * a value exceeds its baseline by more than {@code -DCodeQualityTest.threshold} (default 10%).
+ *
+ * Baselines are read from the resource {@code CodeQualityTest.<arch>.properties} next to this
+ * class or from the file given by {@code -DCodeQualityTest.baseline}. The kernel tests fail on
+ * architectures without a baseline, and a kernel or value missing from an existing baseline fails
+ * the test as well. Running with {@code -DCodeQualityTest.record=<file>} writes the measured values
+ * to {@code file} so that they can be checked in as new baselines. While recording, a missing
+ * baseline does not fail the test.
+ */
+public class CodeQualityTest extends BackendTest {
+
+    private static final double THRESHOLD = Double.parseDouble(System.getProperty("CodeQualityTest.threshold", "0.10"));
+
+    /**
+     * Values below this are never reported as a regression, so that small counts such as a
+     * single additional spill move do not fail the test.
+     */
+    private static final int MIN_SLACK = 2;
+
+    /**
+     * Categories of LIR instructions.
+     */
+    enum Category {
+        RegMove,
+        Spill,
+        Reload,
+        StackMove,
+        Constant,
+        Call,
+        Branch,
+        Jump,
+        Other
+    }
+
+    private Map<Category, Integer> lirStatistics;
+
+    @Override
+    protected LIRSuites createLIRSuites() {
+        LIRSuites suites = super.createLIRSuites();
+        suites.getPostAllocationOptimizationStage().appendPhase(new PostAllocationOptimizationPhase() {
+            @Override
+            protected void run(TargetDescription target, LIRGenerationResult lirGenRes, PostAllocationOptimizationContext context) {
+                lirStatistics = classify(lirGenRes.getLIR());
+            }
+        });
+        return suites;
+    }
+
+    private static Map<Category, Integer> classify(LIR lir) {
+        Map<Category, Integer> result = new LinkedHashMap<>();
+        for (Category c : Category.values()) {
+            result.put(c, 0);
+        }
+        for (AbstractBlockBase<?> block : lir.codeEmittingOrder()) {
+            if (block == null) {
+                continue;
+            }
+            for (LIRInstruction inst : lir.getLIRforBlock(block)) {
+                if (!(inst instanceof LabelOp) && !(inst instanceof NoOp)) {
+                    Category c = category(inst);
+                    result.put(c, result.get(c) + 1);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Category category(LIRInstruction inst) {
+        if (inst instanceof LoadConstantOp) {
+            return isStackSlot(((LoadConstantOp) inst).getResult()) ? Category.Spill : Category.Constant;
+        } else if (inst instanceof ValueMoveOp) {
+            Value result = ((ValueMoveOp) inst).getResult();
+            Value input = ((ValueMoveOp) inst).getInput();
+            if (isRegister(result)) {
+                return isRegister(input) ? Category.RegMove : Category.Reload;
+            }
+            return isRegister(input) ? Category.Spill : Category.StackMove;
+        } else if (inst.destroysCallerSavedRegisters()) {
+            return Category.Call;
+        } else if (inst instanceof BranchOp) {
+            return Category.Branch;
+        } else if (inst instanceof JumpOp) {
+            return Category.Jump;
+        }
+        return Category.Other;
+    }
+
+    private Map<String, Integer> measure(String kernel) {
+        lirStatistics = null;
+        CompilationResult result = compile(getResolvedJavaMethod(kernel), null);
+        Assert.assertNotNull("LIR statistics were not collected", lirStatistics);
+
+        Map<String, Integer> values = new LinkedHashMap<>();
+        values.put("codeSize", result.getTargetCodeSize());
+        int safepoints = 0;
+        for (Infopoint infopoint : result.getInfopoints()) {
+            if (infopoint.reason == InfopointReason.SAFEPOINT) {
+                safepoints++;
+            }
+        }
+        values.put("safepoints", safepoints);
+        values.put("deoptPoints", lastCompiledGraph.getNodes().filter(AbstractDeoptimizeNode.class).count());
+        for (Map.Entry<Category, Integer> e : lirStatistics.entrySet()) {
+            values.put("lir." + e.getKey(), e.getValue());
+        }
+        return values;
+    }
+
+    private void check(String kernel) {
+        Map<String, Integer> values = measure(kernel);
+        record(kernel, values);
+
+        Properties baseline = loadBaseline();
+        if (baseline == null) {
+            if (System.getProperty("CodeQualityTest.record") != null) {
+                // the values are being recorded to create the missing baseline
+                return;
+            }
+            Assert.fail("no code quality baseline for " + getArchitectureName() + ": run this test with -DCodeQualityTest.record=<file> and check in <file> as the resource " +
+                            CodeQualityTest.class.getPackage().getName().replace('.', '/') + "/" + baselineResourceName());
+        }
+        List<String> regressions = findRegressions(kernel, values, baseline, THRESHOLD);
+        if (!regressions.isEmpty()) {
+            Assert.fail(kernel + " exceeds its baseline by more than " + (int) (THRESHOLD * 100) + "%: " + regressions);
+        }
+    }
+
+    /**
+     * Compares the values measured for {@code kernel} with {@code baseline}. A value without a
+     * baseline is reported as well, so that a new kernel or metric cannot silently escape the
+     * check.
+     */
+    static List<String> findRegressions(String kernel, Map<String, Integer> values, Properties baseline, double threshold) {
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : values.entrySet()) {
+            String value = baseline.getProperty(kernel + "." + e.getKey());
+            if (value == null) {
+                regressions.add(String.format("%s: %d (no baseline)", e.getKey(), e.getValue()));
+            } else {
+                int expected = Integer.parseInt(value);
+                double allowed = expected + Math.max(expected * threshold, MIN_SLACK);
+                if (e.getValue() > allowed) {
+                    regressions.add(String.format("%s: %d (baseline %d)", e.getKey(), e.getValue(), expected));
+                }
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * Loads the baseline for the current architecture or returns {@code null} if there is none.
+     */
+    private Properties loadBaseline() {
+        String file = System.getProperty("CodeQualityTest.baseline");
+        try (InputStream in = file != null ? new FileInputStream(file) : CodeQualityTest.class.getResourceAsStream(baselineResourceName())) {
+            if (in == null) {
+                return null;
+            }
+            Properties baseline = new Properties();
+            baseline.load(in);
+            return baseline;
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private String baselineResourceName() {
+        return getClass().getSimpleName() + "." + getArchitectureName() + ".properties";
+    }
+
+    private String getArchitectureName() {
+        return getTarget().arch.getName().toLowerCase();
+    }
+
+    private static synchronized void record(String kernel, Map<String, Integer> values) {
+        String file = System.getProperty("CodeQualityTest.record");
+        if (file == null) {
+            return;
+        }
+        Properties recorded = new Properties();
+        if (new File(file).exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                recorded.load(in);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        }
+        for (Map.Entry<String, Integer> e : values.entrySet()) {
+            recorded.setProperty(kernel + "." + e.getKey(), String.valueOf(e.getValue()));
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            recorded.store(out, "Code quality baseline");
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // Loops
+
+    public static int sumArray(int[] a) {
+        int sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i];
+        }
+        return sum;
+    }
+
+    public static void matrixMultiply(double[][] a, double[][] b, double[][] c) {
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b[0].length; j++) {
+                double sum = 0;
+                for (int k = 0; k < b.length; k++) {
+                    sum += a[i][k] * b[k][j];
+                }
+                c[i][j] = sum;
+            }
+        }
+    }
+
+    public static long countBits(long[] words) {
+        long count = 0;
+        for (long w : words) {
+            while (w != 0) {
+                w &= w - 1;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Allocations
+
+    static final class Point {
+        final int x;
+        final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public static Point[] allocatePoints(int n) {
+        Point[] points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = new Point(i, -i);
+        }
+        return points;
+    }
+
+    public static int[] allocateAndFill(int n, int value) {
+        int[] result = new int[n];
+        Arrays.fill(result, value);
+        return result;
+    }
+
+    // Type checks
+
+    public static int typeSwitch(Object o) {
+        if (o instanceof Integer) {
+            return (Integer) o;
+        } else if (o instanceof String) {
+            return ((String) o).length();
+        } else if (o instanceof CharSequence) {
+            return ((CharSequence) o).length() + 1;
+        } else if (o instanceof Object[]) {
+            return ((Object[]) o).length;
+        }
+        return -1;
+    }
+
+    public static Comparable<?> checkCast(Object o) {
+        return (Comparable<?>) o;
+    }
+
+    // Array copies
+
+    public static int[] copyRange(int[] a, int from, int to) {
+        int[] result = new int[to - from];
+        System.arraycopy(a, from, result, 0, result.length);
+        return result;
+    }
+
+    public static Object[] copyObjects(Object[] a) {
+        return Arrays.copyOf(a, a.length * 2);
+    }
+
+    public static byte[] cloneBytes(byte[] a) {
+        return a.clone();
+    }
+
+    // String operations
+
+    public static boolean stringEquals(String a, String b) {
+        return a.equals(b);
+    }
+
+    public static int countChar(String s, char c) {
+        int count = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static String concat(String a, int b) {
+        return new StringBuilder().append(a).append(':').append(b).toString();
+    }
+
+    @Test
+    public void testRegressionDetection() {
+        Properties baseline = new Properties();
+        baseline.setProperty("kernel.codeSize", "100");
+        baseline.setProperty("kernel.lir.Spill", "0");
+        Map<String, Integer> values = new LinkedHashMap<>();
+        values.put("codeSize", 110);
+        values.put("lir.Spill", 2);
+        Assert.assertEquals(Collections.emptyList(), findRegressions("kernel", values, baseline, 0.10));
+
+        values.put("codeSize", 111);
+        Assert.assertEquals(Arrays.asList("codeSize: 111 (baseline 100)"), findRegressions("kernel", values, baseline, 0.10));
+
+        values.put("codeSize", 100);
+        values.put("lir.Spill", 3);
+        Assert.assertEquals(Arrays.asList("lir.Spill: 3 (baseline 0)"), findRegressions("kernel", values, baseline, 0.10));
+
+        values.put("lir.Spill", 0);
+        values.put("safepoints", 1);
+        Assert.assertEquals(Arrays.asList("safepoints: 1 (no baseline)"), findRegressions("kernel", values, baseline, 0.10));
+    }
+
+    @Test
+    public void testSumArray() {
+        check("sumArray");
+    }
+
+    @Test
+    public void testMatrixMultiply() {
+        check("matrixMultiply");
+    }
+
+    @Test
+    public void testCountBits() {
+        check("countBits");
+    }
+
+    @Test
+    public void testAllocatePoints() {
+        check("allocatePoints");
+    }
+
+    @Test
+    public void testAllocateAndFill() {
+        check("allocateAndFill");
+    }
+
+    @Test
+    public void testTypeSwitch() {
+        check("typeSwitch");
+    }
+
+    @Test
+    public void testCheckCast() {
+        check("checkCast");
+    }
+
+    @Test
+    public void testCopyRange() {
+        check("copyRange");
+    }
+
+    @Test
+    public void testCopyObjects() {
+        check("copyObjects");
+    }
+
+    @Test
+    public void testCloneBytes() {
+        check("cloneBytes");
+    }
+
+    @Test
+    public void testStringEquals() {
+        check("stringEquals");
+    }
+
+    @Test
+    public void testCountChar() {
+        check("countChar");
+    }
+
+    @Test
+    public void testConcat() {
+        check("concat");
+    }
+}
@@ -117,7 +117,59 @@ public class PEAReadEliminationTest extends EarlyReadEliminationTest {
         assertDeepEquals(3, graph.getNodes().filter(LoadIndexedNode.class).count());
     }
 
-    private static final long offsetInt1 = Unsafe.ARRAY_INT_BASE_OFFSET + Unsafe.ARRAY_INT_INDEX_SCALE * 1;
+    public static int testIndexedSymbolic1Snippet(int i, int[] array) {
+        int s = array[i];
+        s += array[i];
+        array[i] = s;
+        return s + array[i];
+    }
+
+    @Test
+    public void testIndexedSymbolic1() {
+        StructuredGraph graph = processMethod("testIndexedSymbolic1Snippet", false);
+        assertDeepEquals(1, graph.getNodes().filter(LoadIndexedNode.class).count());
+    }
+
+    public static int testIndexedSymbolic2Snippet(int i, int[] array) {
+        int s = array[i] + array[i + 1];
+        array[i + 2] = s;
+        array[i - 1] = s;
+        return s + array[i] + array[i + 1];
+    }
+
+    @Test
+    public void testIndexedSymbolic2() {
+        StructuredGraph graph = processMethod("testIndexedSymbolic2Snippet", false);
+        assertDeepEquals(2, graph.getNodes().filter(LoadIndexedNode.class).count());
+    }
+
+    public static int testIndexedSymbolic3Snippet(int i, int j, int[] array) {
+        int s = array[i] + array[3];
+        array[j] = s;
+        return s + array[i] + array[3];
+    }
+
+    @Test
+    public void testIndexedSymbolic3() {
+        StructuredGraph graph = processMethod("testIndexedSymbolic3Snippet", false);
+        assertDeepEquals(4, graph.getNodes().filter(LoadIndexedNode.class).count());
+    }
+
+    public static int testIndexedSymbolic4Snippet(int i, int[] array) {
+        int index = i & 0xF;
+        int s = array[index] + array[16];
+        array[index + 32] = s;
+        array[17] = s;
+        return s + array[index] + array[16];
+    }
+
+    @Test
+    public void testIndexedSymbolic4() {
+        StructuredGraph graph = processMethod("testIndexedSymbolic4Snippet", false);
+        assertDeepEquals(2, graph.getNodes().filter(LoadIndexedNode.class).count());
+    }
+
+    private static final long offsetInt1 =Unsafe.ARRAY_INT_BASE_OFFSET + Unsafe.ARRAY_INT_INDEX_SCALE * 1;
     private static final long offsetInt2 = Unsafe.ARRAY_INT_BASE_OFFSET + Unsafe.ARRAY_INT_INDEX_SCALE * 2;
 
     public static int testUnsafe1Snippet(int v, int[] array) {
@@ -146,7 +198,19 @@ public class PEAReadEliminationTest extends EarlyReadEliminationTest {
         assertDeepEquals(3, graph.getNodes().filter(UnsafeLoadNode.class).count());
     }
 
-    private static final long offsetObject1 = Unsafe.ARRAY_OBJECT_BASE_OFFSET + Unsafe.ARRAY_OBJECT_INDEX_SCALE * 1;
+    public static int testUnsafeSymbolicSnippet(int v, long offset, int[] array) {
+        int s = UNSAFE.getInt(array, offset) + UNSAFE.getInt(array, offset);
+        UNSAFE.putInt(array, offsetInt1, v);
+        return s + UNSAFE.getInt(array, offset);
+    }
+
+    @Test
+    public void testUnsafeSymbolic() {
+        StructuredGraph graph = processMethod("testUnsafeSymbolicSnippet", false);
+        assertDeepEquals(2, graph.getNodes().filter(UnsafeLoadNode.class).count());
+    }
+
+    private static final long offsetObject1 =Unsafe.ARRAY_OBJECT_BASE_OFFSET + Unsafe.ARRAY_OBJECT_INDEX_SCALE * 1;
     private static final long offsetObject2 = Unsafe.ARRAY_OBJECT_BASE_OFFSET + Unsafe.ARRAY_OBJECT_INDEX_SCALE * 2;
 
     public static int testUnsafe3Snippet(int v, Object[] array) {
@@ -192,6 +256,78 @@ public class PEAReadEliminationTest extends EarlyReadEliminationTest {
         assertDeepEquals(1, graph.getNodes().filter(UnsafeLoadNode.class).count());
     }
 
+    private static final long offsetByte1 = Unsafe.ARRAY_BYTE_BASE_OFFSET + Unsafe.ARRAY_BYTE_INDEX_SCALE * 1;
+
+    public static int testUnsafeMixedWidth1Snippet(int v, byte[] array) {
+        UNSAFE.putInt(array, offsetByte1, v);
+        return UNSAFE.getByte(array, offsetByte1);
+    }
+
+    @Test
+    public void testUnsafeMixedWidth1() {
+        StructuredGraph graph = processMethod("testUnsafeMixedWidth1Snippet", false);
+        assertDeepEquals(1, graph.getNodes().filter(UnsafeLoadNode.class).count());
+    }
+
+    public static int testUnsafeMixedWidth2Snippet(long v, long[] array) {
+        UNSAFE.putLong(array, offsetLong1, v);
+        return UNSAFE.getInt(array, offsetLong1);
+    }
+
+    @Test
+    public void testUnsafeMixedWidth2() {
+        StructuredGraph graph = processMethod("testUnsafeMixedWidth2Snippet", false);
+        assertDeepEquals(1, graph.getNodes().filter(UnsafeLoadNode.class).count());
+    }
+
+    public static int testUnsafeMixedWidthSymbolic1Snippet(int v, long offset, byte[] array) {
+        UNSAFE.putInt(array, offset, v);
+        return UNSAFE.getByte(array, offset);
+    }
+
+    @Test
+    public void testUnsafeMixedWidthSymbolic1() {
+        StructuredGraph graph = processMethod("testUnsafeMixedWidthSymbolic1Snippet", false);
+        assertDeepEquals(1, graph.getNodes().filter(UnsafeLoadNode.class).count());
+    }
+
+    public static int testUnsafeMixedWidthSymbolic2Snippet(long v, long offset, long[] array) {
+        UNSAFE.putLong(array, offset, v);
+        return UNSAFE.getInt(array, offset);
+    }
+
+    @Test
+    public void testUnsafeMixedWidthSymbolic2() {
+        StructuredGraph graph = processMethod("testUnsafeMixedWidthSymbolic2Snippet", false);
+        assertDeepEquals(1, graph.getNodes().filter(UnsafeLoadNode.class).count());
+    }
+
+    public static int testUnsafeSameWidthSymbolicSnippet(int v, long offset, byte[] array) {
+        UNSAFE.putInt(array, offset, v);
+        UNSAFE.putByte(array, offset + 8, (byte) v);
+        return UNSAFE.getInt(array, offset);
+    }
+
+    @Test
+    public void testUnsafeSameWidthSymbolic() {
+        // offsets that are not constants are assumed to overlap, so the int load is kept
+        StructuredGraph graph = processMethod("testUnsafeSameWidthSymbolicSnippet", false);
+        assertDeepEquals(1, graph.getNodes().filter(UnsafeLoadNode.class).count());
+    }
+
+    public static int testUnsafeSameWidthSnippet(int v, byte[] array) {
+        UNSAFE.putInt(array, offsetByte1, v);
+        UNSAFE.putByte(array, offsetByte1 + 4, (byte) v);
+        return UNSAFE.getInt(array, offsetByte1);
+    }
+
+    @Test
+    public void testUnsafeSameWidth() {
+        // an int access to a byte array is reused by an int access at the same offset
+        StructuredGraph graph = processMethod("testUnsafeSameWidthSnippet", false);
+        assertDeepEquals(0, graph.getNodes().filter(UnsafeLoadNode.class).count());
+    }
+
     @Override
     protected StructuredGraph processMethod(final String snippet, boolean doLowering) {
         StructuredGraph graph = parseEager(snippet, AllowAssumptions.NO);
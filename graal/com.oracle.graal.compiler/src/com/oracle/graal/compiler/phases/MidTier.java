@@ -30,12 +30,14 @@ import static com.oracle.graal.compiler.common.GraalOptions.OptEliminatePartiall
 import static com.oracle.graal.compiler.common.GraalOptions.OptFloatingReads;
 import static com.oracle.graal.compiler.common.GraalOptions.OptPushThroughPi;
 import static com.oracle.graal.compiler.common.GraalOptions.OptReadElimination;
+import static com.oracle.graal.compiler.common.GraalOptions.OptSpeculativeGuardMovement;
 import static com.oracle.graal.compiler.common.GraalOptions.ReassociateInvariants;
 import static com.oracle.graal.compiler.common.GraalOptions.UseGraalInstrumentation;
 import static com.oracle.graal.compiler.common.GraalOptions.VerifyHeapAtReturn;
 
 import com.oracle.graal.loop.phases.LoopSafepointEliminationPhase;
 import com.oracle.graal.loop.phases.ReassociateInvariantPhase;
+import com.oracle.graal.loop.phases.SpeculativeGuardMovementPhase;
 import com.oracle.graal.nodes.spi.LoweringTool;
 import com.oracle.graal.phases.PhaseSuite;
 import com.oracle.graal.phases.common.CanonicalizerPhase;
@@ -104,6 +106,10 @@ public class MidTier extends PhaseSuite<MidTierContext> {
             appendPhase(canonicalizer);
         }
 
+        if (OptSpeculativeGuardMovement.getValue()) {
+            appendPhase(new SpeculativeGuardMovementPhase());
+        }
+
         appendPhase(new IncrementalCanonicalizerPhase<>(canonicalizer, new LoopSafepointEliminationPhase()));
 
         appendPhase(new LoopSafepointInsertionPhase());
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.graph.test;
+
+import static com.oracle.graal.graph.test.matchers.NodeIterableContains.contains;
+import static com.oracle.graal.graph.test.matchers.NodeIterableIsEmpty.isEmpty;
+import static com.oracle.graal.nodeinfo.NodeCycles.CYCLES_IGNORED;
+import static com.oracle.graal.nodeinfo.NodeSize.SIZE_IGNORED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.oracle.graal.graph.Graph;
+import com.oracle.graal.graph.Node;
+import com.oracle.graal.graph.NodeClass;
+import com.oracle.graal.nodeinfo.NodeInfo;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Tests the usage lists of nodes in a graph with {@link Graph.Options#CompactNodeUsages} enabled.
+ */
+public class CompactNodeUsagesTest {
+
+    @NodeInfo(cycles = CYCLES_IGNORED, size = SIZE_IGNORED)
+    static final class Def extends Node {
+        public static final NodeClass<Def> TYPE = NodeClass.create(Def.class);
+
+        protected Def() {
+            super(TYPE);
+        }
+    }
+
+    @NodeInfo(cycles = CYCLES_IGNORED, size = SIZE_IGNORED)
+    static final class Use extends Node {
+        public static final NodeClass<Use> TYPE = NodeClass.create(Use.class);
+        @Input Def in0;
+
+        protected Use(Def in0) {
+            super(TYPE);
+            this.in0 = in0;
+        }
+    }
+
+    private static Graph createGraph() {
+        try (OverrideScope s = OptionValue.override(Graph.Options.CompactNodeUsages, true)) {
+            return new Graph();
+        }
+    }
+
+    private static List<Use> addUses(Graph graph, Def def, int count) {
+        List<Use> uses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uses.add(graph.add(new Use(def)));
+        }
+        return uses;
+    }
+
+    @Test
+    public void testGrowAndShrink() {
+        Graph graph = createGraph();
+        Def def = graph.add(new Def());
+        List<Use> uses = addUses(graph, def, 50);
+        assertEquals(50, def.getUsageCount());
+        for (Use use : uses) {
+            assertThat(def.usages(), contains(use));
+        }
+
+        for (int i = 0; i < uses.size(); i += 2) {
+            uses.get(i).safeDelete();
+        }
+        assertEquals(25, def.getUsageCount());
+        for (int i = 1; i < uses.size(); i += 2) {
+            assertThat(def.usages(), contains(uses.get(i)));
+        }
+
+        for (int i = 1; i < uses.size(); i += 2) {
+            uses.get(i).safeDelete();
+        }
+        assertThat(def.usages(), isEmpty());
+    }
+
+    @Test
+    public void testReuseAcrossNodes() {
+        Graph graph = createGraph();
+        Def def0 = graph.add(new Def());
+        Def def1 = graph.add(new Def());
+        for (Use use : addUses(graph, def0, 10)) {
+            use.safeDelete();
+        }
+        assertThat(def0.usages(), isEmpty());
+
+        List<Use> uses = addUses(graph, def1, 10);
+        assertEquals(10, def1.getUsageCount());
+        for (Use use : uses) {
+            assertThat(def1.usages(), contains(use));
+        }
+        assertThat(def0.usages(), isEmpty());
+    }
+
+    @Test
+    public void testCompress() {
+        Graph graph = createGraph();
+        Def def = graph.add(new Def());
+        List<Use> uses = addUses(graph, def, 100);
+        for (int i = 0; i < 90; i++) {
+            uses.get(i).safeDelete();
+        }
+        graph.maybeCompress();
+        assertEquals(10, def.getUsageCount());
+        for (int i = 90; i < uses.size(); i++) {
+            assertThat(def.usages(), contains(uses.get(i)));
+        }
+
+        List<Use> moreUses = addUses(graph, def, 20);
+        assertEquals(30, def.getUsageCount());
+        for (Use use : moreUses) {
+            assertThat(def.usages(), contains(use));
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.graph.test;
+
+import static com.oracle.graal.nodeinfo.NodeCycles.CYCLES_IGNORED;
+import static com.oracle.graal.nodeinfo.NodeSize.SIZE_IGNORED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.oracle.graal.graph.Graph;
+import com.oracle.graal.graph.Node;
+import com.oracle.graal.graph.NodeClass;
+import com.oracle.graal.graph.NodeInputList;
+import com.oracle.graal.graph.NodeStack;
+import com.oracle.graal.graph.NodeSuccessorList;
+import com.oracle.graal.nodeinfo.NodeInfo;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Tests that the accessors generated for node classes agree with the generic implementations in
+ * {@link NodeClass}.
+ */
+public class GeneratedNodeAccessorTest {
+
+    @NodeInfo(cycles = CYCLES_IGNORED, size = SIZE_IGNORED)
+    static final class Def extends Node {
+        public static final NodeClass<Def> TYPE = NodeClass.create(Def.class);
+
+        protected Def() {
+            super(TYPE);
+        }
+    }
+
+    @NodeInfo(cycles = CYCLES_IGNORED, size = SIZE_IGNORED)
+    static final class Data extends Node implements Node.ValueNumberable {
+        public static final NodeClass<Data> TYPE = NodeClass.create(Data.class);
+
+        @Input Node x;
+        @OptionalInput Node y;
+        @Input NodeInputList<Node> list;
+        @Successor Node next;
+
+        int i;
+        long l;
+        float f;
+        double d;
+        boolean z;
+        char c;
+        Object o;
+        int[] array;
+        private short s;
+
+        protected Data(Node x, Node y, Node... list) {
+            super(TYPE);
+            this.x = x;
+            this.y = y;
+            this.list = new NodeInputList<>(this, list);
+        }
+
+        Data set(int newI, long newL, float newF, double newD, boolean newZ, char newC, Object newO, int[] newArray, short newS) {
+            this.i = newI;
+            this.l = newL;
+            this.f = newF;
+            this.d = newD;
+            this.z = newZ;
+            this.c = newC;
+            this.o = newO;
+            this.array = newArray;
+            this.s = newS;
+            return this;
+        }
+    }
+
+    @NodeInfo(cycles = CYCLES_IGNORED, size = SIZE_IGNORED)
+    static final class Split extends Node {
+        public static final NodeClass<Split> TYPE = NodeClass.create(Split.class);
+
+        @Input Node x;
+        @OptionalInput private Node y;
+        @Input NodeInputList<Node> list;
+        @Successor Node next;
+        @Successor NodeSuccessorList<Node> branches;
+
+        protected Split(Node x, Node y, Node[] list, Node next, Node... branches) {
+            super(TYPE);
+            this.x = x;
+            this.y = y;
+            this.list = new NodeInputList<>(this, list);
+            this.next = next;
+            this.branches = new NodeSuccessorList<>(this, branches);
+        }
+
+        Node y() {
+            return y;
+        }
+    }
+
+    /**
+     * Gets a node class that does not use the generated accessor.
+     */
+    @SuppressWarnings("try")
+    private static <T> NodeClass<T> genericNodeClass(Class<T> clazz) {
+        try (OverrideScope scope = OptionValue.override(NodeClass.Options.UseGeneratedNodeAccessors, false)) {
+            NodeClass<T> result = new NodeClass<>(clazz, null);
+            assertFalse(result.hasGeneratedAccessor());
+            return result;
+        }
+    }
+
+    private static Data[] variants(Def a, Def b) {
+        return new Data[]{
+                        new Data(a, b, a).set(1, 2L, 3F, 4D, true, 'c', "o", new int[]{1}, (short) 5),
+                        new Data(a, b, a).set(2, 2L, 3F, 4D, true, 'c', "o", new int[]{1}, (short) 5),
+                        new Data(a, b, a).set(1, 3L, 3F, 4D, true, 'c', "o", new int[]{1}, (short) 5),
+                        new Data(a, b, a).set(1, 2L, 4F, 4D, true, 'c', "o", new int[]{1}, (short) 5),
+                        new Data(a, b, a).set(1, 2L, 3F, 5D, true, 'c', "o", new int[]{1}, (short) 5),
+                        new Data(a, b, a).set(1, 2L, 3F, 4D, false, 'c', "o", new int[]{1}, (short) 5),
+                        new Data(a, b, a).set(1, 2L, 3F, 4D, true, 'd', "o", new int[]{1}, (short) 5),
+                        new Data(a, b, a).set(1, 2L, 3F, 4D, true, 'c', "p", new int[]{1}, (short) 5),
+                        new Data(a, b, a).set(1, 2L, 3F, 4D, true, 'c', null, new int[]{1}, (short) 5),
+                        new Data(a, b, a).set(1, 2L, 3F, 4D, true, 'c', "o", new int[]{2}, (short) 5),
+                        new Data(a, b, a).set(1, 2L, 3F, 4D, true, 'c', "o", null, (short) 5),
+                        new Data(a, b, a).set(1, 2L, 3F, 4D, true, 'c', "o", new int[]{1}, (short) 6),
+        };
+    }
+
+    @Test
+    public void testGenerated() {
+        assertTrue(Data.TYPE.hasGeneratedAccessor());
+        assertTrue(Split.TYPE.hasGeneratedEdgeAccessor());
+    }
+
+    @Test
+    public void testData() {
+        Graph graph = new Graph();
+        Def a = graph.add(new Def());
+        Def b = graph.add(new Def());
+        NodeClass<Data> generic = genericNodeClass(Data.class);
+        Data[] nodes = variants(a, b);
+        Data[] copies = variants(a, b);
+        for (int i = 0; i < nodes.length; i++) {
+            Data n = nodes[i];
+            assertTrue(Data.TYPE.dataEquals(n, copies[i]));
+            assertEquals(Data.TYPE.valueNumber(n), Data.TYPE.valueNumber(copies[i]));
+            for (int j = 0; j < nodes.length; j++) {
+                assertEquals(generic.dataEquals(n, nodes[j]), Data.TYPE.dataEquals(n, nodes[j]));
+                assertEquals(i == j, Data.TYPE.dataEquals(n, nodes[j]));
+            }
+        }
+    }
+
+    @Test
+    public void testEdges() {
+        Graph graph = new Graph();
+        Def a = graph.add(new Def());
+        Def b = graph.add(new Def());
+        Data n = new Data(a, b, a, b);
+        assertTrue(Data.TYPE.equalInputs(n, new Data(a, b, a, b)));
+        assertFalse(Data.TYPE.equalInputs(n, new Data(b, b, a, b)));
+        assertFalse(Data.TYPE.equalInputs(n, new Data(a, null, a, b)));
+        assertFalse(Data.TYPE.equalInputs(n, new Data(a, b, a)));
+        assertFalse(Data.TYPE.equalInputs(n, new Data(a, b, b, a)));
+
+        Data m = new Data(a, b, a, b);
+        assertTrue(Data.TYPE.equalSuccessors(n, m));
+        m.next = a;
+        assertFalse(Data.TYPE.equalSuccessors(n, m));
+    }
+
+    private static List<Node> toList(Iterable<Node> nodes) {
+        List<Node> result = new ArrayList<>();
+        for (Node n : nodes) {
+            result.add(n);
+        }
+        return result;
+    }
+
+    private static List<Node> pushInputs(NodeClass<Split> nodeClass, Split n) {
+        NodeStack stack = new NodeStack();
+        nodeClass.pushInputs(n, stack);
+        List<Node> result = new ArrayList<>();
+        while (!stack.isEmpty()) {
+            result.add(stack.pop());
+        }
+        return result;
+    }
+
+    private static List<Node> applyInputs(NodeClass<Split> nodeClass, Split n, Node replacement) {
+        List<Node> visited = new ArrayList<>();
+        nodeClass.applyInputs(n, new Node.EdgeVisitor() {
+            @Override
+            public Node apply(Node source, Node target) {
+                visited.add(target);
+                return visited.size() % 2 == 0 ? replacement : target;
+            }
+        });
+        return visited;
+    }
+
+    @Test
+    public void testEdgeIteration() {
+        Graph graph = new Graph();
+        Def a = graph.add(new Def());
+        Def b = graph.add(new Def());
+        Def c = graph.add(new Def());
+        NodeClass<Split> generic = genericNodeClass(Split.class);
+        Node[][] lists = {{}, {a}, {b, null, c}};
+        for (Node[] list : lists) {
+            for (Node y : new Node[]{null, b}) {
+                Split n = new Split(a, y, list, b, c, null, a);
+                assertEquals(toList(generic.getInputIterable(n)), toList(Split.TYPE.getInputIterable(n)));
+                assertEquals(toList(generic.getSuccessorIterable(n)), toList(Split.TYPE.getSuccessorIterable(n)));
+                assertEquals(pushInputs(generic, n), pushInputs(Split.TYPE, n));
+
+                Split m = new Split(a, y, list, b, c, null, a);
+                assertEquals(applyInputs(generic, n, c), applyInputs(Split.TYPE, m, c));
+                assertEquals(toList(generic.getInputIterable(n)), toList(Split.TYPE.getInputIterable(m)));
+
+                assertEquals(generic.replaceFirstInput(n, b, a), Split.TYPE.replaceFirstInput(m, b, a));
+                assertEquals(generic.replaceFirstSuccessor(n, c, b), Split.TYPE.replaceFirstSuccessor(m, c, b));
+                assertEquals(toList(generic.getInputIterable(n)), toList(Split.TYPE.getInputIterable(m)));
+                assertEquals(toList(generic.getSuccessorIterable(n)), toList(Split.TYPE.getSuccessorIterable(m)));
+            }
+        }
+    }
+
+    @Test
+    public void testEdgeRegistration() {
+        Graph graph = new Graph();
+        Def a = graph.add(new Def());
+        Def b = graph.add(new Def());
+        Def c = graph.add(new Def());
+        Def d = graph.add(new Def());
+        Split n = graph.add(new Split(a, b, new Node[]{c}, d, new Def[0]));
+        assertTrue(a.usages().contains(n));
+        assertTrue(b.usages().contains(n));
+        assertTrue(c.usages().contains(n));
+        assertTrue(d.predecessor() == n);
+
+        n.clearInputs();
+        assertTrue(a.hasNoUsages());
+        assertTrue(b.hasNoUsages());
+        assertTrue(c.hasNoUsages());
+        assertTrue(n.x == null && n.y() == null && n.list.isEmpty());
+
+        n.clearSuccessors();
+        assertTrue(d.predecessor() == null);
+        assertTrue(n.next == null);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.graph.test;
+
+import static com.oracle.graal.nodeinfo.NodeCycles.CYCLES_IGNORED;
+import static com.oracle.graal.nodeinfo.NodeSize.SIZE_IGNORED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.graal.debug.DebugCloseable;
+import com.oracle.graal.graph.Graph;
+import com.oracle.graal.graph.Node;
+import com.oracle.graal.graph.NodeClass;
+import com.oracle.graal.nodeinfo.NodeInfo;
+
+/**
+ * Tests {@link Graph#findDuplicate(Node)} for non-leaf nodes inside a
+ * {@link Graph#withValueNumberTable()} scope.
+ */
+public class ValueNumberTableTest {
+
+    @NodeInfo(cycles = CYCLES_IGNORED, size = SIZE_IGNORED)
+    static final class Def extends Node {
+        public static final NodeClass<Def> TYPE = NodeClass.create(Def.class);
+
+        protected Def() {
+            super(TYPE);
+        }
+    }
+
+    @NodeInfo(cycles = CYCLES_IGNORED, size = SIZE_IGNORED)
+    static final class Op extends Node implements Node.ValueNumberable {
+        public static final NodeClass<Op> TYPE = NodeClass.create(Op.class);
+        @Input Node x;
+        @Input Node y;
+        int kind;
+
+        protected Op(Node x, Node y, int kind) {
+            super(TYPE);
+            this.x = x;
+            this.y = y;
+            this.kind = kind;
+        }
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    public void testUnique() {
+        Graph graph = new Graph();
+        Def a = graph.add(new Def());
+        Def b = graph.add(new Def());
+        Op op = graph.unique(new Op(a, b, 0));
+        try (DebugCloseable s = graph.withValueNumberTable()) {
+            assertSame(op, graph.unique(new Op(a, b, 0)));
+            assertNotSame(op, graph.unique(new Op(a, b, 1)));
+            assertNotSame(op, graph.unique(new Op(b, a, 0)));
+
+            Op op2 = graph.unique(new Op(op, a, 0));
+            assertSame(op2, graph.unique(new Op(op, a, 0)));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    public void testInputChanged() {
+        Graph graph = new Graph();
+        Def a = graph.add(new Def());
+        Def b = graph.add(new Def());
+        Def c = graph.add(new Def());
+        Op op1 = graph.addWithoutUnique(new Op(a, b, 0));
+        Op op2 = graph.addWithoutUnique(new Op(a, c, 0));
+        try (DebugCloseable s = graph.withValueNumberTable()) {
+            assertNull(graph.findDuplicate(op2));
+            op2.replaceFirstInput(c, b);
+            assertSame(op1, graph.findDuplicate(op2));
+
+            op2.replaceFirstInput(b, c);
+            assertNull(graph.findDuplicate(op2));
+            assertSame(op2, graph.unique(new Op(a, c, 0)));
+        }
+    }
+
+    /**
+     * Data fields, like the stamp of a value node, can change without a graph event.
+     */
+    @Test
+    @SuppressWarnings("try")
+    public void testDataChanged() {
+        Graph graph = new Graph();
+        Def a = graph.add(new Def());
+        Def b = graph.add(new Def());
+        Op op = graph.addWithoutUnique(new Op(a, b, 0));
+        try (DebugCloseable s = graph.withValueNumberTable()) {
+            op.kind = 1;
+            assertSame(op, graph.unique(new Op(a, b, 1)));
+            Op op0 = graph.unique(new Op(a, b, 0));
+            assertNotSame(op, op0);
+
+            op0.kind = 1;
+            Op duplicate = graph.addWithoutUnique(new Op(a, b, 1));
+            Node found = graph.findDuplicate(duplicate);
+            assertTrue(found == op || found == op0);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    public void testDeleted() {
+        Graph graph = new Graph();
+        Def a = graph.add(new Def());
+        Def b = graph.add(new Def());
+        try (DebugCloseable s = graph.withValueNumberTable()) {
+            Op op1 = graph.unique(new Op(a, b, 0));
+            op1.safeDelete();
+            Op op2 = graph.unique(new Op(a, b, 0));
+            assertNotSame(op1, op2);
+            assertSame(op2, graph.unique(new Op(a, b, 0)));
+            assertEquals(1, a.getUsageCount());
+        }
+    }
+}
@@ -0,0 +1,505 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.graph;
+
+import static com.oracle.graal.graph.Graph.isModificationCountsEnabled;
+import static com.oracle.graal.graph.UnsafeAccess.UNSAFE;
+
+import java.lang.reflect.Modifier;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.oracle.graal.compiler.common.Fields;
+import com.oracle.graal.debug.GraalError;
+import com.oracle.graal.graph.Node.EdgeVisitor;
+import com.oracle.graal.nodeinfo.InputType;
+import com.oracle.graal.nodeinfo.NodeInfo;
+
+/**
+ * Straight-line accessors for the edges and data fields of a concrete {@link Node} class. A
+ * subclass is generated by the {@link NodeInfo} annotation processor for each concrete node class
+ * and is used by {@link NodeClass} instead of iterating over field offsets. The accessor also
+ * describes the fields of the node class so that {@link NodeClass} does not need to parse their
+ * annotations reflectively.
+ *
+ * The generated code visits the edges in the order of their {@linkplain #getFields()
+ * descriptors}: direct inputs, input lists, direct successors and successor lists, each in
+ * declaration order starting with the fields of the topmost superclass. If this order differs from
+ * that of the {@link Edges} computed by the {@link NodeClass}, which are sorted by field offset,
+ * {@link NodeClass} keeps iterating the edges with its offset masks so that the visiting order does
+ * not depend on whether an accessor is used.
+ *
+ * Fields that are not accessible from the generated class, i.e. private fields and protected
+ * fields declared in another package, are read through {@code Unsafe} using the offsets computed
+ * by the {@link NodeClass}.
+ */
+public abstract class GeneratedNodeAccessor {
+
+    /**
+     * Suffix appended to the name of a node class (with {@code '$'} replaced by {@code '_'}) to
+     * form the name of its generated accessor.
+     */
+    public static final String SUFFIX = "_NodeAccessor";
+
+    /**
+     * Describes a non-static, non-transient field of a node class.
+     */
+    public static final class FieldDescriptor {
+
+        /**
+         * The {@linkplain Class#getName() name} of the class declaring the field.
+         */
+        final String declaringClass;
+        final String name;
+
+        /**
+         * The kind of edge denoted by the field, or {@code null} for a data field.
+         */
+        final Edges.Type edgeType;
+        final InputType inputType;
+        final boolean optional;
+
+        private FieldDescriptor(String declaringClass, String name, Edges.Type edgeType, InputType inputType, boolean optional) {
+            this.declaringClass = declaringClass;
+            this.name = name;
+            this.edgeType = edgeType;
+            this.inputType = inputType;
+            this.optional = optional;
+        }
+
+        @Override
+        public String toString() {
+            return declaringClass + "." + name;
+        }
+    }
+
+    protected static FieldDescriptor input(String declaringClass, String name, InputType inputType, boolean optional) {
+        return new FieldDescriptor(declaringClass, name, Edges.Type.Inputs, inputType, optional);
+    }
+
+    protected static FieldDescriptor successor(String declaringClass, String name) {
+        return new FieldDescriptor(declaringClass, name, Edges.Type.Successors, null, false);
+    }
+
+    protected static FieldDescriptor data(String declaringClass, String name) {
+        return new FieldDescriptor(declaringClass, name, null, null, false);
+    }
+
+    private final FieldDescriptor[] fields;
+
+    /**
+     * The offsets of {@link #fields}, resolved by {@link #initialize(NodeClass)}.
+     */
+    private long[] offsets;
+
+    /**
+     * Determines if the generated edge iteration visits the edges in the same order as the
+     * {@link Edges} of the node class.
+     */
+    private boolean iteratesEdges;
+    private int inputCount;
+    private int successorCount;
+
+    /**
+     * @param fields the fields of the node class in the order described
+     *            {@linkplain GeneratedNodeAccessor above}. The generated code refers to a field by
+     *            its index in this array.
+     */
+    protected GeneratedNodeAccessor(FieldDescriptor... fields) {
+        this.fields = fields;
+    }
+
+    FieldDescriptor[] getFields() {
+        return fields;
+    }
+
+    /**
+     * Resolves the field offsets once the fields and edges of {@code nodeClass} are known.
+     */
+    void initialize(NodeClass<?> nodeClass) {
+        offsets = new long[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            offsets[i] = resolveOffset(nodeClass, fields[i]);
+        }
+        Edges inputs = nodeClass.getInputEdges();
+        Edges successors = nodeClass.getSuccessorEdges();
+        inputCount = inputs.getCount();
+        successorCount = successors.getCount();
+        iteratesEdges = hasEdgeOrder(inputs) && hasEdgeOrder(successors);
+    }
+
+    private boolean hasEdgeOrder(Edges edges) {
+        int index = 0;
+        for (FieldDescriptor field : fields) {
+            if (field.edgeType == edges.type()) {
+                if (index == edges.getCount() || !field.name.equals(edges.getName(index)) || !field.declaringClass.equals(edges.getDeclaringClass(index).getName())) {
+                    return false;
+                }
+                index++;
+            }
+        }
+        return index == edges.getCount();
+    }
+
+    /**
+     * Determines if {@link NodeClass} can use the generated edge iteration.
+     */
+    boolean iteratesEdges() {
+        return iteratesEdges;
+    }
+
+    private static long resolveOffset(NodeClass<?> nodeClass, FieldDescriptor field) {
+        for (Fields f : nodeClass.getAllFields()) {
+            for (int i = 0; i < f.getCount(); i++) {
+                if (f.getName(i).equals(field.name) && f.getDeclaringClass(i).getName().equals(field.declaringClass)) {
+                    return f.getOffsets()[i];
+                }
+            }
+        }
+        throw new GraalError("%s has no field %s", nodeClass, field);
+    }
+
+    /**
+     * Loads the generated accessor for a node class.
+     *
+     * @return {@code null} if {@code clazz} is abstract or no accessor was generated for it
+     */
+    static GeneratedNodeAccessor lookup(Class<?> clazz) {
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            return null;
+        }
+        String name = clazz.getName();
+        int packageEnd = name.lastIndexOf('.') + 1;
+        String accessorName = name.substring(0, packageEnd) + name.substring(packageEnd).replace('$', '_') + SUFFIX;
+        try {
+            Class<?> accessorClass = Class.forName(accessorName, true, clazz.getClassLoader());
+            return (GeneratedNodeAccessor) accessorClass.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new GraalError(e);
+        }
+    }
+
+    /**
+     * @see NodeClass#applyInputs(Node, EdgeVisitor)
+     */
+    public abstract void applyInputs(Node n, EdgeVisitor consumer);
+
+    /**
+     * @see NodeClass#applySuccessors(Node, EdgeVisitor)
+     */
+    public abstract void applySuccessors(Node n, EdgeVisitor consumer);
+
+    /**
+     * @see NodeClass#pushInputs(Node, NodeStack)
+     */
+    public abstract void pushInputs(Node n, NodeStack stack);
+
+    /**
+     * @see NodeClass#registerAtInputsAsUsage(Node)
+     */
+    public abstract void registerAtInputsAsUsage(Node n);
+
+    /**
+     * @see NodeClass#unregisterAtInputsAsUsage(Node)
+     */
+    public abstract void unregisterAtInputsAsUsage(Node n);
+
+    /**
+     * @see NodeClass#registerAtSuccessorsAsPredecessor(Node)
+     */
+    public abstract void registerAtSuccessorsAsPredecessor(Node n);
+
+    /**
+     * @see NodeClass#unregisterAtSuccessorsAsPredecessor(Node)
+     */
+    public abstract void unregisterAtSuccessorsAsPredecessor(Node n);
+
+    /**
+     * @see NodeClass#replaceFirstInput(Node, Node, Node)
+     */
+    public abstract boolean replaceFirstInput(Node n, Node key, Node replacement);
+
+    /**
+     * @see NodeClass#replaceFirstSuccessor(Node, Node, Node)
+     */
+    public abstract boolean replaceFirstSuccessor(Node n, Node key, Node replacement);
+
+    /**
+     * Gets the value of the {@code index}th input field of {@code n}, i.e. a {@link Node} or a
+     * {@link NodeList}.
+     */
+    protected abstract Object getInput(Node n, int index);
+
+    /**
+     * Gets the value of the {@code index}th successor field of {@code n}, i.e. a {@link Node} or a
+     * {@link NodeList}.
+     */
+    protected abstract Object getSuccessor(Node n, int index);
+
+    Iterator<Node> inputIterator(Node n) {
+        return new EdgesIterator(this, n, Edges.Type.Inputs, inputCount);
+    }
+
+    Iterator<Node> successorIterator(Node n) {
+        return new EdgesIterator(this, n, Edges.Type.Successors, successorCount);
+    }
+
+    /**
+     * Iterates over the non-null edges of a node in the same order as the iterators of
+     * {@link NodeClass}.
+     */
+    private static final class EdgesIterator implements Iterator<Node> {
+
+        private static final int NO_MOD_COUNT = -1;
+
+        private final GeneratedNodeAccessor accessor;
+        private final Node node;
+        private final Edges.Type type;
+        private final int count;
+        private final int modCount;
+
+        private int index;
+        private NodeList<?> list;
+        private int listIndex;
+        private Node nextValue;
+
+        EdgesIterator(GeneratedNodeAccessor accessor, Node node, Edges.Type type, int count) {
+            this.accessor = accessor;
+            this.node = node;
+            this.type = type;
+            this.count = count;
+            this.modCount = isModificationCountsEnabled() ? node.modCount() : NO_MOD_COUNT;
+        }
+
+        private Node forward() {
+            while (true) {
+                if (list != null) {
+                    if (listIndex < list.size()) {
+                        Node next = list.get(listIndex++);
+                        if (next != null) {
+                            return next;
+                        }
+                        continue;
+                    }
+                    list = null;
+                }
+                if (index == count) {
+                    return null;
+                }
+                Object edge = type == Edges.Type.Inputs ? accessor.getInput(node, index) : accessor.getSuccessor(node, index);
+                index++;
+                if (edge instanceof NodeList) {
+                    list = (NodeList<?>) edge;
+                    listIndex = 0;
+                } else if (edge != null) {
+                    return (Node) edge;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            assert modCount == NO_MOD_COUNT || modCount == node.modCount() : "must not be modified";
+            if (nextValue == null) {
+                nextValue = forward();
+            }
+            return nextValue != null;
+        }
+
+        @Override
+        public Node next() {
+            assert modCount == NO_MOD_COUNT || modCount == node.modCount() : "must not be modified";
+            Node next = nextValue;
+            if (next == null) {
+                next = forward();
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+            } else {
+                nextValue = null;
+            }
+            return next;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /*
+     * Helpers for the generated edge iteration. They perform the same updates as the offset based
+     * loops in NodeClass.
+     */
+
+    protected final void putEdge(Node n, int field, Node value) {
+        UNSAFE.putObject(n, offsets[field], value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NodeList<Node> cast(NodeList<?> list) {
+        return (NodeList<Node>) list;
+    }
+
+    protected static void applyList(Node n, NodeList<?> list, EdgeVisitor consumer) {
+        NodeClass.applyHelper(n, consumer, cast(list));
+    }
+
+    protected static void pushList(NodeStack stack, NodeList<?> list) {
+        NodeClass.pushAllHelper(stack, cast(list));
+    }
+
+    protected static void registerInput(Node n, Node input) {
+        assert input.isAlive() : "Input not alive";
+        input.addUsage(n);
+    }
+
+    protected static void registerInputList(Node n, NodeList<?> list) {
+        NodeClass.registerAtInputsAsUsageHelper(n, cast(list));
+    }
+
+    protected static void unregisterInput(Node n, Node input) {
+        n.removeThisFromUsages(input);
+        if (input.hasNoUsages()) {
+            n.maybeNotifyZeroUsages(input);
+        }
+    }
+
+    protected static void unregisterInputList(Node n, NodeList<?> list) {
+        NodeClass.unregisterAtInputsAsUsageHelper(n, cast(list));
+    }
+
+    protected static void registerSuccessor(Node n, Node successor) {
+        assert successor.isAlive() : "Successor not alive";
+        n.updatePredecessor(null, successor);
+    }
+
+    protected static void registerSuccessorList(Node n, NodeList<?> list) {
+        NodeClass.registerAtSuccessorsAsPredecessorHelper(n, cast(list));
+    }
+
+    protected static void unregisterSuccessor(Node n, Node successor) {
+        n.updatePredecessor(successor, null);
+    }
+
+    protected static void unregisterSuccessorList(Node n, NodeList<?> list) {
+        NodeClass.unregisterAtSuccessorsAsPredecessorHelper(n, cast(list));
+    }
+
+    protected static boolean replaceFirst(NodeList<?> list, Node key, Node replacement) {
+        return list != null && list.replaceFirst(key, replacement);
+    }
+
+    /**
+     * @see NodeClass#equalInputs(Node, Node)
+     */
+    public abstract boolean equalInputs(Node a, Node b);
+
+    /**
+     * @see NodeClass#equalSuccessors(Node, Node)
+     */
+    public abstract boolean equalSuccessors(Node a, Node b);
+
+    /**
+     * Combines the hash codes of the data fields of {@code n} with {@code number}. The result is
+     * not necessarily the same as the one computed by {@link NodeClass} without an accessor since
+     * the fields may be combined in a different order.
+     *
+     * @see NodeClass#valueNumber(Node)
+     */
+    public abstract int valueNumber(Node n, int number);
+
+    /**
+     * @see NodeClass#dataEquals(Node, Node)
+     */
+    public abstract boolean dataEquals(Node a, Node b);
+
+    protected final Object getObject(Node n, int field) {
+        return UNSAFE.getObject(n, offsets[field]);
+    }
+
+    protected final int getInt(Node n, int field) {
+        return UNSAFE.getInt(n, offsets[field]);
+    }
+
+    protected final long getLong(Node n, int field) {
+        return UNSAFE.getLong(n, offsets[field]);
+    }
+
+    protected final boolean getBoolean(Node n, int field) {
+        return UNSAFE.getBoolean(n, offsets[field]);
+    }
+
+    protected final float getFloat(Node n, int field) {
+        return UNSAFE.getFloat(n, offsets[field]);
+    }
+
+    protected final double getDouble(Node n, int field) {
+        return UNSAFE.getDouble(n, offsets[field]);
+    }
+
+    protected final short getShort(Node n, int field) {
+        return UNSAFE.getShort(n, offsets[field]);
+    }
+
+    protected final char getChar(Node n, int field) {
+        return UNSAFE.getChar(n, offsets[field]);
+    }
+
+    protected final byte getByte(Node n, int field) {
+        return UNSAFE.getByte(n, offsets[field]);
+    }
+
+    /*
+     * The hash and equality functions below match those applied to data fields by NodeClass.
+     */
+
+    protected static int hash(long value) {
+        return (int) (value ^ (value >>> 32));
+    }
+
+    protected static int hash(boolean value) {
+        return value ? 7 : 0;
+    }
+
+    protected static int hash(float value) {
+        return Float.floatToRawIntBits(value);
+    }
+
+    protected static int hash(double value) {
+        return hash(Double.doubleToRawLongBits(value));
+    }
+
+    protected static int hash(Object value) {
+        return NodeClass.deepHashCode0(value);
+    }
+
+    protected static boolean dataEquals(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        return a != null && b != null && NodeClass.deepEquals0(a, b);
+    }
+}
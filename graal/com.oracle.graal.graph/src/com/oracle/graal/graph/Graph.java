@@ -56,6 +56,8 @@ public class Graph {
         public static final OptionValue<Integer> GraphCompressionThreshold = new OptionValue<>(70);
         @Option(help = "Use Unsafe to clone graph nodes thus avoiding copying fields that will be re-initialized anyway", type = OptionType.Debug)//
         public static final OptionValue<Boolean> CloneNodesWithUnsafe = new OptionValue<>(true);
+        @Option(help = "Share node usage arrays between the nodes of a graph and trim them when the graph is compressed", type = OptionType.Expert)//
+        public static final OptionValue<Boolean> CompactNodeUsages = new OptionValue<>(false);
     }
 
     public final String name;
@@ -105,12 +107,24 @@ public class Graph {
 
     NodeEventListener nodeEventListener;
 
+    /**
+     * Pool of usage arrays shared by the nodes in this graph or {@code null} if
+     * {@link Options#CompactNodeUsages} is disabled.
+     */
+    final NodeUsageArrayPool usageArrayPool;
+
     /**
      * Used to global value number {@link ValueNumberable} {@linkplain NodeClass#isLeafNode() leaf}
      * nodes.
      */
     private final HashMap<CacheEntry, Node> cachedLeafNodes = CollectionsFactory.newMap();
 
+    /**
+     * Used to global value number {@link ValueNumberable} non-leaf nodes while a
+     * {@linkplain #withValueNumberTable() value number table scope} is open.
+     */
+    private ValueNumberTable valueNumberTable;
+
     /*
      * Indicates that the graph should no longer be modified. Frozen graphs can be used my multiple
      * threads so it's only safe to read them.
@@ -252,6 +266,7 @@ public class Graph {
         iterableNodesFirst = new ArrayList<>(NodeClass.allocatedNodeIterabledIds());
         iterableNodesLast = new ArrayList<>(NodeClass.allocatedNodeIterabledIds());
         this.name = name;
+        this.usageArrayPool = Options.CompactNodeUsages.getValue() ? new NodeUsageArrayPool() : null;
         if (isModificationCountsEnabled()) {
             nodeModCounts = new int[INITIAL_NODES_SIZE];
             nodeUsageModCounts = new int[INITIAL_NODES_SIZE];
@@ -576,6 +591,30 @@ public class Graph {
         return new NodeEventScope(listener);
     }
 
+    /**
+     * Opens a scope in which {@link #findDuplicate(Node)} uses a hash table to look up
+     * {@link ValueNumberable} non-leaf nodes instead of searching the usages of their inputs. The
+     * table is built from the live nodes when the scope is opened and is maintained through a
+     * {@link NodeEventListener}. This should be used in conjunction with try-with-resources
+     * statement. If such a scope is already open, the returned object does nothing.
+     */
+    public DebugCloseable withValueNumberTable() {
+        if (valueNumberTable != null) {
+            return DebugCloseable.VOID_CLOSEABLE;
+        }
+        ValueNumberTable table = new ValueNumberTable(this);
+        NodeEventScope events = trackNodeEvents(table);
+        valueNumberTable = table;
+        return new DebugCloseable() {
+            @Override
+            public void close() {
+                assert valueNumberTable == table;
+                valueNumberTable = null;
+                events.close();
+            }
+        };
+    }
+
     /**
      * Looks for a node <i>similar</i> to {@code node} and returns it if found. Otherwise
      * {@code node} is added to this graph and returned.
@@ -634,6 +673,9 @@ public class Graph {
             } else {
                 return null;
             }
+        } else if (valueNumberTable != null) {
+            ValueNumberTableLookups.increment();
+            return (T) valueNumberTable.findDuplicate(node);
         } else {
             /*
              * Non-leaf node: look for another usage of the node's inputs that has the same data,
@@ -779,11 +821,13 @@ public class Graph {
     public static final int COMPRESSION_THRESHOLD = Options.GraphCompressionThreshold.getValue();
 
     private static final DebugCounter GraphCompressions = Debug.counter("GraphCompressions");
+    private static final DebugCounter ValueNumberTableLookups = Debug.counter("ValueNumberTableLookups");
 
     /**
      * If the {@linkplain #COMPRESSION_THRESHOLD compression threshold} is met, the list of nodes is
      * compressed such that all non-null entries precede all null entries while preserving the
-     * ordering between the nodes within the list.
+     * ordering between the nodes within the list. If {@link Options#CompactNodeUsages} is enabled,
+     * the usage arrays of the live nodes are also trimmed to the size they actually need.
      */
     public boolean maybeCompress() {
         if (Debug.isDumpEnabledForMethod() || Debug.isLogEnabledForMethod()) {
@@ -800,6 +844,9 @@ public class Graph {
             Node n = nodes[i];
             if (n != null) {
                 assert n.id == i;
+                if (usageArrayPool != null) {
+                    usageArrayPool.trim(n);
+                }
                 if (i != nextId) {
                     assert n.id > nextId;
                     n.id = nextId;
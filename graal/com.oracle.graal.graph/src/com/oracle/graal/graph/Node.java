@@ -220,7 +220,7 @@ public abstract class Node implements Cloneable, Formattable {
     Node typeCacheNext;
 
     static final int INLINE_USAGE_COUNT = 2;
-    private static final Node[] NO_NODES = {};
+    static final Node[] NO_NODES = {};
 
     /**
      * Head of usage list. The elements of the usage list in order are {@link #usage0},
@@ -432,11 +432,20 @@ public abstract class Node implements Cloneable, Formattable {
             usage1 = node;
         } else {
             int length = extraUsages.length;
+            NodeUsageArrayPool pool = graph != null ? graph.usageArrayPool : null;
             if (length == 0) {
-                extraUsages = new Node[4];
+                extraUsages = pool != null ? pool.allocate(0) : new Node[NodeUsageArrayPool.MIN_CAPACITY];
             } else if (extraUsagesCount == length) {
-                Node[] newExtraUsages = new Node[length * 2 + 1];
+                Node[] newExtraUsages;
+                if (pool != null) {
+                    newExtraUsages = pool.allocate(NodeUsageArrayPool.sizeClassFor(length + 1));
+                } else {
+                    newExtraUsages = new Node[length * 2 + 1];
+                }
                 System.arraycopy(extraUsages, 0, newExtraUsages, 0, length);
+                if (pool != null) {
+                    pool.release(extraUsages);
+                }
                 extraUsages = newExtraUsages;
             }
             extraUsages[extraUsagesCount++] = node;
@@ -468,6 +477,10 @@ public abstract class Node implements Cloneable, Formattable {
         }
         extraUsages[lastIndex - INLINE_USAGE_COUNT] = null;
         this.extraUsagesCount--;
+        if (extraUsagesCount == 0 && graph != null && graph.usageArrayPool != null) {
+            graph.usageArrayPool.release(extraUsages);
+            extraUsages = NO_NODES;
+        }
     }
 
     /**
@@ -804,6 +817,10 @@ public abstract class Node implements Cloneable, Formattable {
 
     public void markDeleted() {
         graph.unregister(this);
+        if (extraUsagesCount == 0 && graph.usageArrayPool != null && extraUsages.length != 0) {
+            graph.usageArrayPool.release(extraUsages);
+            extraUsages = NO_NODES;
+        }
         id = DELETED_ID_START - id;
         assert isDeleted();
     }
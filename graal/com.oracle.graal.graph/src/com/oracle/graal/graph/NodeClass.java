@@ -69,6 +69,7 @@ import com.oracle.graal.nodeinfo.NodeInfo;
 import com.oracle.graal.nodeinfo.NodeSize;
 import com.oracle.graal.nodeinfo.Verbosity;
 import com.oracle.graal.options.Option;
+import com.oracle.graal.options.OptionType;
 import com.oracle.graal.options.OptionValue;
 
 /**
@@ -92,6 +93,8 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
               return assertionsEnabled;
           }
         };
+        @Option(help = "Use the accessors generated for node classes to describe their fields and to compare, hash and visit nodes.", type = OptionType.Debug)
+        public static final OptionValue<Boolean> UseGeneratedNodeAccessors = new OptionValue<>(true);
         // @formatter:on
     }
 
@@ -179,6 +182,17 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
     private final boolean isSimplifiable;
     private final boolean isLeafNode;
 
+    /**
+     * The accessor generated for this node class, or {@code null} if there is none.
+     */
+    private final GeneratedNodeAccessor accessor;
+
+    /**
+     * The {@link #accessor} if it visits the edges in the same order as {@link #inputs} and
+     * {@link #successors}, otherwise {@code null}.
+     */
+    private final GeneratedNodeAccessor edgeAccessor;
+
     public NodeClass(Class<T> clazz, NodeClass<? super T> superNodeClass) {
         this(clazz, superNodeClass, new FieldsScanner.DefaultCalcOffset(), null, 0);
     }
@@ -197,9 +211,14 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
 
         this.isSimplifiable = Simplifiable.class.isAssignableFrom(clazz);
 
+        GeneratedNodeAccessor generated = Options.UseGeneratedNodeAccessors.getValue() ? GeneratedNodeAccessor.lookup(clazz) : null;
         NodeFieldsScanner fs = new NodeFieldsScanner(calcOffset, superNodeClass);
         try (DebugCloseable t = Init_FieldScanning.start()) {
-            fs.scan(clazz, clazz.getSuperclass(), false);
+            if (generated != null) {
+                fs.scan(clazz, generated.getFields());
+            } else {
+                fs.scan(clazz, clazz.getSuperclass(), false);
+            }
         }
 
         try (DebugCloseable t1 = Init_Edges.start()) {
@@ -277,6 +296,11 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
             Debug.log("Node cost for node of type __| %s |_, cycles:%s,size:%s", clazz, cycles, size);
         }
 
+        if (generated != null) {
+            generated.initialize(this);
+        }
+        accessor = generated;
+        edgeAccessor = generated != null && generated.iteratesEdges() ? generated : null;
     }
 
     private final NodeCycles cycles;
@@ -482,6 +506,49 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
             }
         }
 
+        /**
+         * Scans the fields declared by {@code clazz} as described by the accessor generated for
+         * it, which avoids parsing the annotations of the fields.
+         */
+        @SuppressWarnings("try")
+        protected void scan(Class<?> clazz, GeneratedNodeAccessor.FieldDescriptor[] fields) {
+            String className = clazz.getName();
+            int count = 0;
+            for (GeneratedNodeAccessor.FieldDescriptor descriptor : fields) {
+                if (!descriptor.declaringClass.equals(className)) {
+                    continue;
+                }
+                Field field;
+                try {
+                    field = clazz.getDeclaredField(descriptor.name);
+                } catch (NoSuchFieldException e) {
+                    throw new GraalError(e);
+                }
+                long offset = getOffset(field);
+                try (DebugCloseable s = Init_FieldScanningInner.start()) {
+                    if (descriptor.edgeType == Edges.Type.Inputs) {
+                        scanInput(field, offset, descriptor.inputType, descriptor.optional);
+                    } else if (descriptor.edgeType == Edges.Type.Successors) {
+                        scanSuccessor(field, offset);
+                    } else {
+                        scanData(field, offset);
+                    }
+                }
+                count++;
+            }
+            assert count == countScannedFields(clazz) : "generated accessor of " + clazz + " does not describe all its fields";
+        }
+
+        private static int countScannedFields(Class<?> clazz) {
+            int count = 0;
+            for (Field field : clazz.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
         @SuppressWarnings("try")
         @Override
         protected void scanField(Field field, long offset) {
@@ -489,21 +556,8 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
             OptionalInput optionalInputAnnotation = getAnnotationTimed(field, Node.OptionalInput.class);
             Successor successorAnnotation = getAnnotationTimed(field, Successor.class);
             try (DebugCloseable s = Init_FieldScanningInner.start()) {
-                Class<?> type = field.getType();
-                int modifiers = field.getModifiers();
-
                 if (inputAnnotation != null || optionalInputAnnotation != null) {
                     assert successorAnnotation == null : "field cannot be both input and successor";
-                    if (INPUT_LIST_CLASS.isAssignableFrom(type)) {
-                        // NodeInputList fields should not be final since they are
-                        // written (via Unsafe) in clearInputs()
-                        GraalError.guarantee(!Modifier.isFinal(modifiers), "NodeInputList input field %s should not be final", field);
-                        GraalError.guarantee(!Modifier.isPublic(modifiers), "NodeInputList input field %s should not be public", field);
-                    } else {
-                        GraalError.guarantee(NODE_CLASS.isAssignableFrom(type) || type.isInterface(), "invalid input type: %s", type);
-                        GraalError.guarantee(!Modifier.isFinal(modifiers), "Node input field %s should not be final", field);
-                        directInputs++;
-                    }
                     InputType inputType;
                     if (inputAnnotation != null) {
                         assert optionalInputAnnotation == null : "inputs can either be optional or non-optional";
@@ -511,27 +565,54 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
                     } else {
                         inputType = optionalInputAnnotation.value();
                     }
-                    inputs.add(new InputInfo(offset, field.getName(), type, field.getDeclaringClass(), inputType, field.isAnnotationPresent(Node.OptionalInput.class)));
+                    scanInput(field, offset, inputType, optionalInputAnnotation != null);
                 } else if (successorAnnotation != null) {
-                    if (SUCCESSOR_LIST_CLASS.isAssignableFrom(type)) {
-                        // NodeSuccessorList fields should not be final since they are
-                        // written (via Unsafe) in clearSuccessors()
-                        GraalError.guarantee(!Modifier.isFinal(modifiers), "NodeSuccessorList successor field % should not be final", field);
-                        GraalError.guarantee(!Modifier.isPublic(modifiers), "NodeSuccessorList successor field %s should not be public", field);
-                    } else {
-                        GraalError.guarantee(NODE_CLASS.isAssignableFrom(type), "invalid successor type: %s", type);
-                        GraalError.guarantee(!Modifier.isFinal(modifiers), "Node successor field %s should not be final", field);
-                        directSuccessors++;
-                    }
-                    successors.add(new EdgeInfo(offset, field.getName(), type, field.getDeclaringClass()));
+                    scanSuccessor(field, offset);
                 } else {
-                    GraalError.guarantee(!NODE_CLASS.isAssignableFrom(type) || field.getName().equals("Null"), "suspicious node field: %s", field);
-                    GraalError.guarantee(!INPUT_LIST_CLASS.isAssignableFrom(type), "suspicious node input list field: %s", field);
-                    GraalError.guarantee(!SUCCESSOR_LIST_CLASS.isAssignableFrom(type), "suspicious node successor list field: %s", field);
-                    super.scanField(field, offset);
+                    scanData(field, offset);
                 }
             }
         }
+
+        private void scanInput(Field field, long offset, InputType inputType, boolean optional) {
+            Class<?> type = field.getType();
+            int modifiers = field.getModifiers();
+            if (INPUT_LIST_CLASS.isAssignableFrom(type)) {
+                // NodeInputList fields should not be final since they are
+                // written (via Unsafe) in clearInputs()
+                GraalError.guarantee(!Modifier.isFinal(modifiers), "NodeInputList input field %s should not be final", field);
+                GraalError.guarantee(!Modifier.isPublic(modifiers), "NodeInputList input field %s should not be public", field);
+            } else {
+                GraalError.guarantee(NODE_CLASS.isAssignableFrom(type) || type.isInterface(), "invalid input type: %s", type);
+                GraalError.guarantee(!Modifier.isFinal(modifiers), "Node input field %s should not be final", field);
+                directInputs++;
+            }
+            inputs.add(new InputInfo(offset, field.getName(), type, field.getDeclaringClass(), inputType, optional));
+        }
+
+        private void scanSuccessor(Field field, long offset) {
+            Class<?> type = field.getType();
+            int modifiers = field.getModifiers();
+            if (SUCCESSOR_LIST_CLASS.isAssignableFrom(type)) {
+                // NodeSuccessorList fields should not be final since they are
+                // written (via Unsafe) in clearSuccessors()
+                GraalError.guarantee(!Modifier.isFinal(modifiers), "NodeSuccessorList successor field % should not be final", field);
+                GraalError.guarantee(!Modifier.isPublic(modifiers), "NodeSuccessorList successor field %s should not be public", field);
+            } else {
+                GraalError.guarantee(NODE_CLASS.isAssignableFrom(type), "invalid successor type: %s", type);
+                GraalError.guarantee(!Modifier.isFinal(modifiers), "Node successor field %s should not be final", field);
+                directSuccessors++;
+            }
+            successors.add(new EdgeInfo(offset, field.getName(), type, field.getDeclaringClass()));
+        }
+
+        private void scanData(Field field, long offset) {
+            Class<?> type = field.getType();
+            GraalError.guarantee(!NODE_CLASS.isAssignableFrom(type) || field.getName().equals("Null"), "suspicious node field: %s", field);
+            GraalError.guarantee(!INPUT_LIST_CLASS.isAssignableFrom(type), "suspicious node input list field: %s", field);
+            GraalError.guarantee(!SUCCESSOR_LIST_CLASS.isAssignableFrom(type), "suspicious node successor list field: %s", field);
+            super.scanField(field, offset);
+        }
     }
 
     @Override
@@ -547,7 +628,7 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
         return str.toString();
     }
 
-    private static int deepHashCode0(Object o) {
+    static int deepHashCode0(Object o) {
         if (o instanceof Object[]) {
             return Arrays.deepHashCode((Object[]) o);
         } else if (o instanceof byte[]) {
@@ -577,6 +658,9 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
         int number = 0;
         if (canGVN) {
             number = startGVNNumber;
+            if (accessor != null) {
+                return accessor.valueNumber(n, number);
+            }
             for (int i = 0; i < data.getCount(); ++i) {
                 Class<?> type = data.getType(i);
                 if (type.isPrimitive()) {
@@ -620,7 +704,7 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
         return number;
     }
 
-    private static boolean deepEquals0(Object e1, Object e2) {
+    static boolean deepEquals0(Object e1, Object e2) {
         assert e1 != null;
         boolean eq;
         if (e1 instanceof Object[] && e2 instanceof Object[]) {
@@ -649,6 +733,9 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
 
     public boolean dataEquals(Node a, Node b) {
         assert a.getClass() == b.getClass();
+        if (accessor != null) {
+            return accessor.dataEquals(a, b);
+        }
         for (int i = 0; i < data.getCount(); ++i) {
             Class<?> type = data.getType(i);
             if (type.isPrimitive()) {
@@ -1092,11 +1179,14 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
 
     public NodeIterable<Node> getSuccessorIterable(final Node node) {
         long mask = this.successorIteration;
+        GeneratedNodeAccessor a = edgeAccessor;
         return new NodeIterable<Node>() {
 
             @Override
             public Iterator<Node> iterator() {
-                if (isModificationCountsEnabled()) {
+                if (a != null) {
+                    return a.successorIterator(node);
+                } else if (isModificationCountsEnabled()) {
                     return new RawEdgesWithModCountIterator(node, mask);
                 } else {
                     return new RawEdgesIterator(node, mask);
@@ -1107,11 +1197,14 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
 
     public NodeIterable<Node> getInputIterable(final Node node) {
         long mask = this.inputsIteration;
+        GeneratedNodeAccessor a = edgeAccessor;
         return new NodeIterable<Node>() {
 
             @Override
             public Iterator<Node> iterator() {
-                if (isModificationCountsEnabled()) {
+                if (a != null) {
+                    return a.inputIterator(node);
+                } else if (isModificationCountsEnabled()) {
                     return new RawEdgesWithModCountIterator(node, mask);
                 } else {
                     return new RawEdgesIterator(node, mask);
@@ -1121,13 +1214,35 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
     }
 
     public boolean equalSuccessors(Node node, Node other) {
+        if (accessor != null) {
+            assert other.getNodeClass() == this;
+            return accessor.equalSuccessors(node, other);
+        }
         return equalEdges(node, other, successorIteration);
     }
 
     public boolean equalInputs(Node node, Node other) {
+        if (accessor != null) {
+            assert other.getNodeClass() == this;
+            return accessor.equalInputs(node, other);
+        }
         return equalEdges(node, other, inputsIteration);
     }
 
+    /**
+     * Determines if an accessor was generated for this node class.
+     */
+    public boolean hasGeneratedAccessor() {
+        return accessor != null;
+    }
+
+    /**
+     * Determines if the edges of nodes of this class are visited by the generated accessor.
+     */
+    public boolean hasGeneratedEdgeAccessor() {
+        return edgeAccessor != null;
+    }
+
     private boolean equalEdges(Node node, Node other, long mask) {
         long myMask = mask;
         assert other.getNodeClass() == this;
@@ -1150,6 +1265,10 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
     }
 
     public void pushInputs(Node node, NodeStack stack) {
+        if (edgeAccessor != null) {
+            edgeAccessor.pushInputs(node, stack);
+            return;
+        }
         long myMask = this.inputsIteration;
         while (myMask != 0) {
             long offset = (myMask & OFFSET_MASK);
@@ -1159,14 +1278,13 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
                     stack.push(curNode);
                 }
             } else {
-                pushAllHelper(stack, node, offset);
+                pushAllHelper(stack, Edges.getNodeListUnsafe(node, offset));
             }
             myMask >>>= NEXT_EDGE;
         }
     }
 
-    private static void pushAllHelper(NodeStack stack, Node node, long offset) {
-        NodeList<Node> list = Edges.getNodeListUnsafe(node, offset);
+    static void pushAllHelper(NodeStack stack, NodeList<Node> list) {
         if (list != null) {
             for (int i = 0; i < list.size(); ++i) {
                 Node curNode = list.get(i);
@@ -1178,10 +1296,18 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
     }
 
     public void applySuccessors(Node node, EdgeVisitor consumer) {
+        if (edgeAccessor != null) {
+            edgeAccessor.applySuccessors(node, consumer);
+            return;
+        }
         applyEdges(node, consumer, this.successorIteration);
     }
 
     public void applyInputs(Node node, EdgeVisitor consumer) {
+        if (edgeAccessor != null) {
+            edgeAccessor.applyInputs(node, consumer);
+            return;
+        }
         applyEdges(node, consumer, this.inputsIteration);
     }
 
@@ -1198,14 +1324,13 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
                     }
                 }
             } else {
-                applyHelper(node, consumer, offset);
+                applyHelper(node, consumer, Edges.getNodeListUnsafe(node, offset));
             }
             myMask >>>= NEXT_EDGE;
         }
     }
 
-    private static void applyHelper(Node node, EdgeVisitor consumer, long offset) {
-        NodeList<Node> list = Edges.getNodeListUnsafe(node, offset);
+    static void applyHelper(Node node, EdgeVisitor consumer, NodeList<Node> list) {
         if (list != null) {
             for (int i = 0; i < list.size(); ++i) {
                 Node curNode = list.get(i);
@@ -1220,6 +1345,10 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
     }
 
     public void unregisterAtSuccessorsAsPredecessor(Node node) {
+        if (edgeAccessor != null) {
+            edgeAccessor.unregisterAtSuccessorsAsPredecessor(node);
+            return;
+        }
         long myMask = this.successorIteration;
         while (myMask != 0) {
             long offset = (myMask & OFFSET_MASK);
@@ -1230,14 +1359,13 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
                     UNSAFE.putObject(node, offset, null);
                 }
             } else {
-                unregisterAtSuccessorsAsPredecessorHelper(node, offset);
+                unregisterAtSuccessorsAsPredecessorHelper(node, Edges.getNodeListUnsafe(node, offset));
             }
             myMask >>>= NEXT_EDGE;
         }
     }
 
-    private static void unregisterAtSuccessorsAsPredecessorHelper(Node node, long offset) {
-        NodeList<Node> list = Edges.getNodeListUnsafe(node, offset);
+    static void unregisterAtSuccessorsAsPredecessorHelper(Node node, NodeList<Node> list) {
         if (list != null) {
             for (int i = 0; i < list.size(); ++i) {
                 Node curNode = list.get(i);
@@ -1250,6 +1378,10 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
     }
 
     public void registerAtSuccessorsAsPredecessor(Node node) {
+        if (edgeAccessor != null) {
+            edgeAccessor.registerAtSuccessorsAsPredecessor(node);
+            return;
+        }
         long myMask = this.successorIteration;
         while (myMask != 0) {
             long offset = (myMask & OFFSET_MASK);
@@ -1260,14 +1392,13 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
                     node.updatePredecessor(null, curNode);
                 }
             } else {
-                registerAtSuccessorsAsPredecessorHelper(node, offset);
+                registerAtSuccessorsAsPredecessorHelper(node, Edges.getNodeListUnsafe(node, offset));
             }
             myMask >>>= NEXT_EDGE;
         }
     }
 
-    private static void registerAtSuccessorsAsPredecessorHelper(Node node, long offset) {
-        NodeList<Node> list = Edges.getNodeListUnsafe(node, offset);
+    static void registerAtSuccessorsAsPredecessorHelper(Node node, NodeList<Node> list) {
         if (list != null) {
             for (int i = 0; i < list.size(); ++i) {
                 Node curNode = list.get(i);
@@ -1280,10 +1411,16 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
     }
 
     public boolean replaceFirstInput(Node node, Node key, Node replacement) {
+        if (edgeAccessor != null) {
+            return edgeAccessor.replaceFirstInput(node, key, replacement);
+        }
         return replaceFirstEdge(node, key, replacement, this.inputsIteration);
     }
 
     public boolean replaceFirstSuccessor(Node node, Node key, Node replacement) {
+        if (edgeAccessor != null) {
+            return edgeAccessor.replaceFirstSuccessor(node, key, replacement);
+        }
         return replaceFirstEdge(node, key, replacement, this.successorIteration);
     }
 
@@ -1309,6 +1446,10 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
     }
 
     public void registerAtInputsAsUsage(Node node) {
+        if (edgeAccessor != null) {
+            edgeAccessor.registerAtInputsAsUsage(node);
+            return;
+        }
         long myMask = this.inputsIteration;
         while (myMask != 0) {
             long offset = (myMask & OFFSET_MASK);
@@ -1319,14 +1460,13 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
                     curNode.addUsage(node);
                 }
             } else {
-                registerAtInputsAsUsageHelper(node, offset);
+                registerAtInputsAsUsageHelper(node, Edges.getNodeListUnsafe(node, offset));
             }
             myMask >>>= NEXT_EDGE;
         }
     }
 
-    private static void registerAtInputsAsUsageHelper(Node node, long offset) {
-        NodeList<Node> list = Edges.getNodeListUnsafe(node, offset);
+    static void registerAtInputsAsUsageHelper(Node node, NodeList<Node> list) {
         if (list != null) {
             for (int i = 0; i < list.size(); ++i) {
                 Node curNode = list.get(i);
@@ -1339,6 +1479,10 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
     }
 
     public void unregisterAtInputsAsUsage(Node node) {
+        if (edgeAccessor != null) {
+            edgeAccessor.unregisterAtInputsAsUsage(node);
+            return;
+        }
         long myMask = this.inputsIteration;
         while (myMask != 0) {
             long offset = (myMask & OFFSET_MASK);
@@ -1352,14 +1496,13 @@ public final class NodeClass<T> extends FieldIntrospection<T> {
                     UNSAFE.putObject(node, offset, null);
                 }
             } else {
-                unregisterAtInputsAsUsageHelper(node, offset);
+                unregisterAtInputsAsUsageHelper(node, Edges.getNodeListUnsafe(node, offset));
             }
             myMask >>>= NEXT_EDGE;
         }
     }
 
-    private static void unregisterAtInputsAsUsageHelper(Node node, long offset) {
-        NodeList<Node> list = Edges.getNodeListUnsafe(node, offset);
+    static void unregisterAtInputsAsUsageHelper(Node node, NodeList<Node> list) {
         if (list != null) {
             for (int i = 0; i < list.size(); ++i) {
                 Node curNode = list.get(i);
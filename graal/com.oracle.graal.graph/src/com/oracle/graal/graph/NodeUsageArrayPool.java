@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.graph;
+
+import java.util.Arrays;
+
+/**
+ * A per-{@link Graph} pool of the arrays used to store the {@linkplain Node#extraUsages extra
+ * usages} of nodes. Usage arrays only ever grow by a fixed sequence of capacities (see
+ * {@link #capacity(int)}), so released arrays can be handed out again to any node of the graph
+ * that needs an array of the same size class. This avoids both the garbage produced by repeatedly
+ * growing and shrinking usage lists and the memory retained by arrays that are much larger than
+ * the usage list they hold.
+ */
+final class NodeUsageArrayPool {
+
+    /**
+     * The capacity of the smallest usage array.
+     */
+    static final int MIN_CAPACITY = 4;
+
+    /**
+     * Number of size classes that are pooled. Arrays of a larger size class are left to the
+     * garbage collector.
+     */
+    private static final int POOLED_SIZE_CLASSES = 8;
+
+    /**
+     * Maximum number of free arrays retained per size class.
+     */
+    private static final int MAX_FREE_PER_SIZE_CLASS = 64;
+
+    private final Node[][][] free = new Node[POOLED_SIZE_CLASSES][][];
+    private final int[] freeCount = new int[POOLED_SIZE_CLASSES];
+
+    /**
+     * Gets the capacity of the arrays in a given size class. The capacities follow the growth
+     * policy of {@link Node#addUsage(Node)}: {@code 4, 9, 19, 39, ...}.
+     */
+    static int capacity(int sizeClass) {
+        int capacity = MIN_CAPACITY;
+        for (int i = 0; i < sizeClass; i++) {
+            capacity = capacity * 2 + 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Gets the smallest size class whose capacity is at least {@code length}.
+     */
+    static int sizeClassFor(int length) {
+        int sizeClass = 0;
+        int capacity = MIN_CAPACITY;
+        while (capacity < length) {
+            capacity = capacity * 2 + 1;
+            sizeClass++;
+        }
+        return sizeClass;
+    }
+
+    /**
+     * Gets an array with the capacity of {@code sizeClass}. All elements of the returned array are
+     * {@code null}.
+     */
+    Node[] allocate(int sizeClass) {
+        if (sizeClass < POOLED_SIZE_CLASSES) {
+            int count = freeCount[sizeClass];
+            if (count != 0) {
+                Node[][] arrays = free[sizeClass];
+                Node[] result = arrays[--count];
+                arrays[count] = null;
+                freeCount[sizeClass] = count;
+                return result;
+            }
+        }
+        return new Node[capacity(sizeClass)];
+    }
+
+    /**
+     * Returns {@code array} to this pool. The caller must not retain any reference to the array.
+     */
+    void release(Node[] array) {
+        int sizeClass = sizeClassFor(array.length);
+        if (sizeClass >= POOLED_SIZE_CLASSES || capacity(sizeClass) != array.length) {
+            return;
+        }
+        int count = freeCount[sizeClass];
+        if (count == MAX_FREE_PER_SIZE_CLASS) {
+            return;
+        }
+        Node[][] arrays = free[sizeClass];
+        if (arrays == null) {
+            arrays = new Node[MAX_FREE_PER_SIZE_CLASS][];
+            free[sizeClass] = arrays;
+        }
+        Arrays.fill(array, null);
+        arrays[count] = array;
+        freeCount[sizeClass] = count + 1;
+    }
+
+    /**
+     * Shrinks the usage array of {@code node} to the smallest size class that can hold its extra
+     * usages, releasing the old array to this pool.
+     */
+    void trim(Node node) {
+        Node[] extraUsages = node.extraUsages;
+        int length = extraUsages.length;
+        if (length == 0) {
+            return;
+        }
+        int count = node.extraUsagesCount;
+        if (count == 0) {
+            node.extraUsages = Node.NO_NODES;
+            release(extraUsages);
+        } else {
+            int sizeClass = sizeClassFor(count);
+            if (capacity(sizeClass) < length) {
+                Node[] trimmed = allocate(sizeClass);
+                System.arraycopy(extraUsages, 0, trimmed, 0, count);
+                node.extraUsages = trimmed;
+                release(extraUsages);
+            }
+        }
+    }
+}
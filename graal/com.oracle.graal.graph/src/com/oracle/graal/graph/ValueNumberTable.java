@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.oracle.graal.compiler.common.CollectionsFactory;
+import com.oracle.graal.graph.Graph.NodeEventListener;
+
+/**
+ * A hash table used to global value number {@link Node.ValueNumberable} non-leaf nodes in O(1).
+ * The hash of a node is derived from its class and the identity of its inputs and successors,
+ * while equality also compares its {@linkplain NodeClass#getData() data}.
+ *
+ * The table is kept up to date through the {@link NodeEventListener} hooks of the graph. Since
+ * {@link #inputChanged(Node)} is notified before the input is actually updated, changed nodes are
+ * only recorded and re-hashed lazily before the next lookup. Data fields such as the stamp of a
+ * value node can change without any notification. They are deliberately not part of the hash, so
+ * such a change never moves a node to a different bucket, and equality is always evaluated on the
+ * current state of both nodes.
+ */
+final class ValueNumberTable implements NodeEventListener {
+
+    /**
+     * Entry in {@link ValueNumberTable#table}. The hash code is computed once when the entry is
+     * created.
+     */
+    private static final class Key {
+
+        private final Node node;
+        private final int hash;
+
+        Key(Node node) {
+            this.node = node;
+            this.hash = hash(node);
+        }
+
+        private static int hash(Node node) {
+            NodeClass<?> nodeClass = node.getNodeClass();
+            int result = System.identityHashCode(nodeClass);
+            for (Node input : nodeClass.getInputIterable(node)) {
+                result = result * 31 + input.hashCode();
+            }
+            for (Node successor : nodeClass.getSuccessorIterable(node)) {
+                result = result * 31 + successor.hashCode();
+            }
+            return result;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof Key) {
+                Node other = ((Key) obj).node;
+                if (other == node) {
+                    return true;
+                }
+                NodeClass<?> nodeClass = node.getNodeClass();
+                return other.getNodeClass() == nodeClass && node.valueEquals(other) && nodeClass.equalInputs(node, other) && nodeClass.equalSuccessors(node, other);
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return node.toString();
+        }
+    }
+
+    private final HashMap<Key, Node> table = CollectionsFactory.newMap();
+
+    /**
+     * Nodes that were added or whose inputs changed since the last lookup.
+     */
+    private final ArrayList<Node> pending = new ArrayList<>();
+
+    ValueNumberTable(Graph graph) {
+        for (Node node : graph.getNodes()) {
+            if (isIndexed(node)) {
+                table.putIfAbsent(new Key(node), node);
+            }
+        }
+    }
+
+    private static boolean isIndexed(Node node) {
+        NodeClass<?> nodeClass = node.getNodeClass();
+        return nodeClass.valueNumberable() && !nodeClass.isLeafNode();
+    }
+
+    @Override
+    public void nodeAdded(Node node) {
+        if (isIndexed(node)) {
+            pending.add(node);
+        }
+    }
+
+    @Override
+    public void inputChanged(Node node) {
+        if (isIndexed(node)) {
+            pending.add(node);
+        }
+    }
+
+    private void flushPending() {
+        for (int i = 0; i < pending.size(); i++) {
+            Node node = pending.get(i);
+            if (node.isAlive()) {
+                insert(node);
+            }
+        }
+        pending.clear();
+    }
+
+    private void insert(Node node) {
+        Key key = new Key(node);
+        Node existing = table.putIfAbsent(key, node);
+        if (existing != null && existing.isDeleted()) {
+            table.remove(key);
+            table.put(key, node);
+        }
+    }
+
+    /**
+     * Looks up a node equal to {@code node}. If no such node exists and {@code node} is in the
+     * graph, {@code node} itself is (re-)indexed under its current key.
+     *
+     * @return a node equal to but not identical with {@code node} or {@code null}
+     */
+    Node findDuplicate(Node node) {
+        assert isIndexed(node);
+        flushPending();
+        Key key = new Key(node);
+        Node result = table.get(key);
+        if (result != null && result.isDeleted()) {
+            table.remove(key);
+            result = null;
+        }
+        if (result == null) {
+            if (node.isAlive()) {
+                table.put(key, node);
+            }
+            return null;
+        }
+        return result == node ? null : result;
+    }
+}
@@ -23,10 +23,13 @@
 
 package com.oracle.graal.hotspot.aarch64;
 
+import java.util.function.Supplier;
+
 import com.oracle.graal.compiler.common.spi.ForeignCallsProvider;
 import com.oracle.graal.graph.Node;
 import com.oracle.graal.hotspot.HotSpotGraalRuntimeProvider;
 import com.oracle.graal.hotspot.GraalHotSpotVMConfig;
+import com.oracle.graal.hotspot.LazyInitialization;
 import com.oracle.graal.hotspot.meta.DefaultHotSpotLoweringProvider;
 import com.oracle.graal.hotspot.meta.HotSpotProviders;
 import com.oracle.graal.hotspot.meta.HotSpotRegistersProvider;
@@ -43,8 +46,8 @@ import jdk.vm.ci.meta.MetaAccessProvider;
 
 public class AArch64HotSpotLoweringProvider extends DefaultHotSpotLoweringProvider {
 
-    private AArch64IntegerArithmeticSnippets integerArithmeticSnippets;
-    private AArch64FloatArithmeticSnippets floatArithmeticSnippets;
+    private Supplier<AArch64IntegerArithmeticSnippets> integerArithmeticSnippets;
+    private Supplier<AArch64FloatArithmeticSnippets> floatArithmeticSnippets;
 
     public AArch64HotSpotLoweringProvider(HotSpotGraalRuntimeProvider runtime, MetaAccessProvider metaAccess, ForeignCallsProvider foreignCalls, HotSpotRegistersProvider registers,
                     HotSpotConstantReflectionProvider constantReflection, TargetDescription target) {
@@ -53,17 +56,19 @@ public class AArch64HotSpotLoweringProvider extends DefaultHotSpotLoweringProvid
 
     @Override
     public void initialize(HotSpotProviders providers, GraalHotSpotVMConfig config) {
-        integerArithmeticSnippets = new AArch64IntegerArithmeticSnippets(providers, providers.getSnippetReflection(), providers.getCodeCache().getTarget());
-        floatArithmeticSnippets = new AArch64FloatArithmeticSnippets(providers, providers.getSnippetReflection(), providers.getCodeCache().getTarget());
+        integerArithmeticSnippets = LazyInitialization.of("AArch64IntegerArithmeticSnippets",
+                        () -> new AArch64IntegerArithmeticSnippets(providers, providers.getSnippetReflection(), providers.getCodeCache().getTarget()));
+        floatArithmeticSnippets = LazyInitialization.of("AArch64FloatArithmeticSnippets",
+                        () -> new AArch64FloatArithmeticSnippets(providers, providers.getSnippetReflection(), providers.getCodeCache().getTarget()));
         super.initialize(providers, config);
     }
 
     @Override
     public void lower(Node n, LoweringTool tool) {
         if (n instanceof FixedBinaryNode) {
-            integerArithmeticSnippets.lower((FixedBinaryNode) n, tool);
+            integerArithmeticSnippets.get().lower((FixedBinaryNode) n, tool);
         } else if (n instanceof RemNode) {
-            floatArithmeticSnippets.lower((RemNode) n, tool);
+            floatArithmeticSnippets.get().lower((RemNode) n, tool);
         } else if (n instanceof FloatConvertNode) {
             // AMD64 has custom lowerings for ConvertNodes, HotSpotLoweringProvider does not expect
             // to see a ConvertNode and throws an error, just do nothing here.
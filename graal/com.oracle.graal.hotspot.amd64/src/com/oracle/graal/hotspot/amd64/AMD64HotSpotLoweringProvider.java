@@ -31,11 +31,14 @@ import static com.oracle.graal.hotspot.amd64.AMD64HotSpotForeignCallsProvider.AR
 import static com.oracle.graal.hotspot.amd64.AMD64HotSpotForeignCallsProvider.ARITHMETIC_SIN_STUB;
 import static com.oracle.graal.hotspot.amd64.AMD64HotSpotForeignCallsProvider.ARITHMETIC_TAN_STUB;
 
+import java.util.function.Supplier;
+
 import com.oracle.graal.compiler.common.spi.ForeignCallDescriptor;
 import com.oracle.graal.compiler.common.spi.ForeignCallsProvider;
 import com.oracle.graal.graph.Node;
 import com.oracle.graal.hotspot.GraalHotSpotVMConfig;
 import com.oracle.graal.hotspot.HotSpotGraalRuntimeProvider;
+import com.oracle.graal.hotspot.LazyInitialization;
 import com.oracle.graal.hotspot.meta.DefaultHotSpotLoweringProvider;
 import com.oracle.graal.hotspot.meta.HotSpotProviders;
 import com.oracle.graal.hotspot.meta.HotSpotRegistersProvider;
@@ -51,7 +54,7 @@ import jdk.vm.ci.meta.MetaAccessProvider;
 
 public class AMD64HotSpotLoweringProvider extends DefaultHotSpotLoweringProvider {
 
-    private AMD64ConvertSnippets.Templates convertSnippets;
+    private Supplier<AMD64ConvertSnippets.Templates> convertSnippets;
 
     public AMD64HotSpotLoweringProvider(HotSpotGraalRuntimeProvider runtime, MetaAccessProvider metaAccess, ForeignCallsProvider foreignCalls, HotSpotRegistersProvider registers,
                     HotSpotConstantReflectionProvider constantReflection, TargetDescription target) {
@@ -60,14 +63,14 @@ public class AMD64HotSpotLoweringProvider extends DefaultHotSpotLoweringProvider
 
     @Override
     public void initialize(HotSpotProviders providers, GraalHotSpotVMConfig config) {
-        convertSnippets = new AMD64ConvertSnippets.Templates(providers, providers.getSnippetReflection(), providers.getCodeCache().getTarget());
+        convertSnippets = LazyInitialization.of("AMD64ConvertSnippets", () -> new AMD64ConvertSnippets.Templates(providers, providers.getSnippetReflection(), providers.getCodeCache().getTarget()));
         super.initialize(providers, config);
     }
 
     @Override
     public void lower(Node n, LoweringTool tool) {
         if (n instanceof FloatConvertNode) {
-            convertSnippets.lower((FloatConvertNode) n, tool);
+            convertSnippets.get().lower((FloatConvertNode) n, tool);
         } else {
             super.lower(n, tool);
         }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.oracle.graal.api.test.Graal;
+import com.oracle.graal.hotspot.HotSpotBackend;
+import com.oracle.graal.hotspot.HotSpotGraalRuntimeProvider;
+import com.oracle.graal.hotspot.HotSpotReplacementsImpl;
+import com.oracle.graal.hotspot.LazyInitialization;
+import com.oracle.graal.hotspot.meta.DefaultHotSpotLoweringProvider;
+import com.oracle.graal.hotspot.meta.HotSpotProviders;
+import com.oracle.graal.microbenchmarks.graal.GraalBenchmark;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.runtime.RuntimeProvider;
+
+import jdk.vm.ci.hotspot.HotSpotConstantReflectionProvider;
+
+/**
+ * Measures the startup cost of the HotSpot lowering provider, which creates the snippet templates
+ * for all HotSpot specific lowerings, with and without
+ * {@link LazyInitialization.Options#LazyInitialization}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoweringInitializationBenchmark extends GraalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class HotSpotState {
+        @Param({"false", "true"}) public boolean lazy;
+
+        final HotSpotBackend backend = (HotSpotBackend) Graal.getRequiredCapability(RuntimeProvider.class).getHostBackend();
+        final HotSpotGraalRuntimeProvider runtime = backend.getRuntime();
+        final HotSpotProviders providers = backend.getProviders();
+    }
+
+    @Benchmark
+    public DefaultHotSpotLoweringProvider initialize(HotSpotState s) {
+        HotSpotProviders p = s.providers;
+        DefaultHotSpotLoweringProvider lowerer = new DefaultHotSpotLoweringProvider(s.runtime, p.getMetaAccess(), p.getForeignCalls(), p.getRegisters(),
+                        (HotSpotConstantReflectionProvider) p.getConstantReflection(), p.getCodeCache().getTarget());
+        // a fresh Replacements object so that the snippet template caches can be registered again
+        HotSpotReplacementsImpl replacements = new HotSpotReplacementsImpl(p, p.getSnippetReflection(), p.getCodeCache().getTarget());
+        HotSpotProviders copy = new HotSpotProviders(p.getMetaAccess(), p.getCodeCache(), p.getConstantReflection(), p.getConstantFieldProvider(), p.getForeignCalls(), lowerer, replacements,
+                        p.getNodeCostProvider(), p.getSuites(), p.getRegisters(), p.getSnippetReflection(), p.getWordTypes(), p.getGraphBuilderPlugins());
+        try (OverrideScope scope = OptionValue.override(LazyInitialization.Options.LazyInitialization, s.lazy)) {
+            lowerer.initialize(copy, s.runtime.getVMConfig());
+        }
+        return lowerer;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.hotspot.CompilationRecord;
+import com.oracle.graal.hotspot.CompilationReplay;
+import com.oracle.graal.hotspot.HotSpotGraalCompiler;
+import com.oracle.graal.nodes.spi.ProfilingInfoProvider;
+
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Tests that a {@link CompilationRecord} survives being written and read and that a replay of it
+ * produces the recorded compilation.
+ */
+public class CompilationReplayTest extends HotSpotGraalCompilerTest {
+
+    static final int FOLDED = Integer.getInteger("CompilationReplayTest.folded", 42);
+
+    public static int snippet(Object o, int n) {
+        int sum = FOLDED;
+        for (int i = 0; i < n; i++) {
+            if (o instanceof String) {
+                sum += ((String) o).length();
+            } else {
+                sum += o.hashCode();
+            }
+        }
+        return sum;
+    }
+
+    private static void warmUp() {
+        for (int i = 0; i < 10000; i++) {
+            snippet("abc", 3);
+            snippet(i, 1);
+        }
+    }
+
+    private static List<String> query(ProfilingInfo profile) {
+        List<String> answers = new ArrayList<>();
+        answers.add("codeSize=" + profile.getCodeSize() + " mature=" + profile.isMature());
+        for (int bci = 0; bci < profile.getCodeSize(); bci++) {
+            answers.add(bci + ": taken=" + profile.getBranchTakenProbability(bci) + " switch=" + Arrays.toString(profile.getSwitchProbabilities(bci)) + " types=" + profile.getTypeProfile(bci) +
+                            " exception=" + profile.getExceptionSeen(bci) + " null=" + profile.getNullSeen(bci) + " count=" + profile.getExecutionCount(bci));
+        }
+        return answers;
+    }
+
+    private static File tempFile() throws IOException {
+        File file = File.createTempFile("CompilationReplayTest", ".rec");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testRoundTrip() throws IOException {
+        warmUp();
+        ResolvedJavaMethod method = getResolvedJavaMethod("snippet");
+        CompilationRecord record = CompilationRecord.start(method, -1);
+        List<String> recorded;
+        try (CompilationRecord.Scope s = record.record()) {
+            recorded = query(ProfilingInfoProvider.profilingInfo(method, true, true));
+        }
+
+        File file = tempFile();
+        try {
+            record.write(file);
+            CompilationRecord read = CompilationRecord.read(file, getMetaAccess());
+            Assert.assertEquals(record.getConstants(), read.getConstants());
+            Assert.assertEquals(record.getAssumptions(), read.getAssumptions());
+            try (CompilationRecord.Scope s = read.replay()) {
+                Assert.assertEquals(recorded, query(ProfilingInfoProvider.profilingInfo(method, true, true)));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testReplay() throws IOException {
+        warmUp();
+        ResolvedJavaMethod method = getResolvedJavaMethod("snippet");
+        HotSpotGraalCompiler compiler = (HotSpotGraalCompiler) HotSpotJVMCIRuntime.runtime().getCompiler();
+        CompilationRecord record = CompilationRecord.start(method, -1);
+        CompilationResult result;
+        try (CompilationRecord.Scope s = record.record()) {
+            result = compiler.compile(method, -1, true);
+        }
+        Assert.assertNotNull(result);
+        record.finish(result);
+        Assert.assertTrue(record.getConstants().toString(), record.getConstants().containsKey(CompilationReplayTest.class.getName() + ".FOLDED"));
+
+        File file = tempFile();
+        try {
+            record.write(file);
+            CompilationRecord read = CompilationRecord.read(file, getMetaAccess());
+            Assert.assertEquals(record.getConstants(), read.getConstants());
+            Assert.assertEquals(record.getAssumptions(), read.getAssumptions());
+            Assert.assertTrue(new CompilationReplay(compiler, 1).replay(read));
+            Assert.assertEquals(0, new CompilationReplay(compiler, 2).replay(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testUnreadableRecord() throws IOException {
+        HotSpotGraalCompiler compiler = (HotSpotGraalCompiler) HotSpotJVMCIRuntime.runtime().getCompiler();
+        File file = tempFile();
+        try {
+            // an empty file is not a record; the failure is counted instead of thrown
+            Assert.assertEquals(1, new CompilationReplay(compiler, 1).replay(file));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoIterations() {
+        new CompilationReplay((HotSpotGraalCompiler) HotSpotJVMCIRuntime.runtime().getCompiler(), 0);
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.OBJECT_MONITOR_OWNER_LOCATION;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oracle.graal.graph.Node;
+import com.oracle.graal.hotspot.replacements.MonitorSnippets;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.memory.MemoryAccess;
+
+import jdk.vm.ci.code.InstalledCode;
+import jdk.vm.ci.code.InvalidInstalledCodeException;
+
+/**
+ * Tests the inline fast paths of the monitor snippets for objects whose lock is already inflated.
+ * The fast paths are enabled by default with {@code InlineInflatedLocking}.
+ */
+public class InflatedMonitorTest extends HotSpotGraalCompilerTest {
+
+    static final int THREADS = 4;
+    static final int ITERATIONS = 20000;
+
+    static class Counter {
+        int value;
+    }
+
+    private boolean inflatedPathCompiled;
+
+    @Before
+    public void checkFastPathsAvailable() {
+        Assume.assumeTrue("ObjectMonitor fields are not exported by the VM", runtime().getVMConfig().canInlineInflatedLocking());
+    }
+
+    @Override
+    protected boolean checkLowTierGraph(StructuredGraph graph) {
+        for (Node n : graph.getNodes()) {
+            if (n instanceof MemoryAccess && OBJECT_MONITOR_OWNER_LOCATION.equals(((MemoryAccess) n).getLocationIdentity())) {
+                inflatedPathCompiled = true;
+            }
+        }
+        return true;
+    }
+
+    public static void increment(Counter counter, Object lock) {
+        synchronized (lock) {
+            counter.value++;
+        }
+    }
+
+    public static void incrementRecursive(Counter counter, Object lock) {
+        synchronized (lock) {
+            synchronized (counter) {
+                synchronized (lock) {
+                    counter.value++;
+                }
+            }
+        }
+    }
+
+    private static Object inflatedLock() throws InterruptedException {
+        Object lock = new Object();
+        synchronized (lock) {
+            // Waiting always inflates the monitor
+            lock.wait(1);
+        }
+        return lock;
+    }
+
+    private InstalledCode compile(String name) {
+        inflatedPathCompiled = false;
+        InstalledCode code = getCode(getResolvedJavaMethod(name), null, true);
+        Assert.assertTrue("monitor snippets did not emit the inflated lock fast path", inflatedPathCompiled);
+        return code;
+    }
+
+    @Test
+    public void testUncontended() throws Exception {
+        InstalledCode code = compile("increment");
+        Object lock = inflatedLock();
+        Counter counter = new Counter();
+        for (int i = 0; i < ITERATIONS; i++) {
+            code.executeVarargs(counter, lock);
+        }
+        Assert.assertEquals(ITERATIONS, counter.value);
+        Assert.assertFalse(Thread.holdsLock(lock));
+        if (MonitorSnippets.lockCounters != null) {
+            Assert.assertTrue(MonitorSnippets.lockInflated.value() > 0);
+            Assert.assertTrue(MonitorSnippets.unlockInflated.value() > 0);
+        }
+    }
+
+    @Test
+    public void testRecursive() throws Exception {
+        InstalledCode code = compile("incrementRecursive");
+        Object lock = inflatedLock();
+        Counter counter = new Counter();
+        for (int i = 0; i < ITERATIONS; i++) {
+            code.executeVarargs(counter, lock);
+        }
+        Assert.assertEquals(ITERATIONS, counter.value);
+        Assert.assertFalse(Thread.holdsLock(lock));
+        if (MonitorSnippets.lockCounters != null) {
+            Assert.assertTrue(MonitorSnippets.lockInflatedRecursive.value() > 0);
+            Assert.assertTrue(MonitorSnippets.unlockInflatedRecursive.value() > 0);
+        }
+    }
+
+    @Test
+    public void testContended() throws Exception {
+        InstalledCode code = compile("increment");
+        Object lock = inflatedLock();
+        Counter counter = new Counter();
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        code.executeVarargs(counter, lock);
+                    }
+                } catch (InvalidInstalledCodeException | RuntimeException | Error e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(60000);
+            Assert.assertFalse("possible lost wakeup or unreleased monitor", thread.isAlive());
+        }
+        Assert.assertTrue(failures.toString(), failures.isEmpty());
+        // Every increment happened under the lock and the monitor is free again
+        Assert.assertEquals(THREADS * ITERATIONS, counter.value);
+        synchronized (lock) {
+            Assert.assertTrue(Thread.holdsLock(lock));
+        }
+    }
+}
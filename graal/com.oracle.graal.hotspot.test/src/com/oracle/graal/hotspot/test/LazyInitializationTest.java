@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.compiler.GraalCompiler;
+import com.oracle.graal.hotspot.HotSpotGraalRuntimeProvider;
+import com.oracle.graal.hotspot.HotSpotReplacementsImpl;
+import com.oracle.graal.hotspot.LazyInitialization;
+import com.oracle.graal.hotspot.meta.DefaultHotSpotLoweringProvider;
+import com.oracle.graal.hotspot.meta.HotSpotGraphBuilderPlugins;
+import com.oracle.graal.hotspot.meta.HotSpotProviders;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.nodes.graphbuilderconf.InvocationPlugins;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.OptimisticOptimizations;
+import com.oracle.graal.replacements.ReplacementsImpl;
+
+import jdk.vm.ci.hotspot.HotSpotConstantReflectionProvider;
+
+public class LazyInitializationTest extends HotSpotGraalCompilerTest {
+
+    private static Supplier<Object> create(boolean lazy, AtomicInteger created) {
+        try (OverrideScope s = OptionValue.override(LazyInitialization.Options.LazyInitialization, lazy)) {
+            return LazyInitialization.of("test", () -> {
+                created.incrementAndGet();
+                return new Object();
+            });
+        }
+    }
+
+    @Test
+    public void testEager() {
+        AtomicInteger created = new AtomicInteger();
+        Supplier<Object> supplier = create(false, created);
+        Assert.assertEquals(1, created.get());
+        Object value = supplier.get();
+        Assert.assertSame(value, supplier.get());
+        Assert.assertEquals(1, created.get());
+    }
+
+    @Test
+    public void testLazy() {
+        AtomicInteger created = new AtomicInteger();
+        Supplier<Object> supplier = create(true, created);
+        Assert.assertEquals(0, created.get());
+        Object value = supplier.get();
+        Assert.assertEquals(1, created.get());
+        Assert.assertSame(value, supplier.get());
+        Assert.assertEquals(1, created.get());
+    }
+
+    @Test
+    public void testLazyConcurrent() throws InterruptedException {
+        AtomicInteger created = new AtomicInteger();
+        Supplier<Object> supplier = create(true, created);
+        Object[] values = new Object[4];
+        Thread[] threads = new Thread[values.length];
+        for (int i = 0; i < threads.length; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> values[index] = supplier.get());
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(1, created.get());
+        for (Object value : values) {
+            Assert.assertSame(values[0], value);
+        }
+    }
+
+    public static boolean instanceOfSnippet(Object o) {
+        return o instanceof String;
+    }
+
+    /**
+     * A lowering provider that exposes whether its snippet templates have been created.
+     */
+    private static final class TestLoweringProvider extends DefaultHotSpotLoweringProvider {
+
+        TestLoweringProvider(HotSpotGraalRuntimeProvider runtime, HotSpotProviders p) {
+            super(runtime, p.getMetaAccess(), p.getForeignCalls(), p.getRegisters(), (HotSpotConstantReflectionProvider) p.getConstantReflection(), p.getCodeCache().getTarget());
+        }
+
+        boolean instanceofSnippetsCreated() {
+            return LazyInitialization.isCreated(instanceofSnippets);
+        }
+
+        boolean monitorSnippetsCreated() {
+            return LazyInitialization.isCreated(monitorSnippets);
+        }
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testLazyTemplates() {
+        HotSpotProviders p = (HotSpotProviders) getProviders();
+        TestLoweringProvider lowerer = new TestLoweringProvider(runtime(), p);
+        // a fresh Replacements object so that the snippet template caches can be registered again
+        HotSpotReplacementsImpl replacements = new HotSpotReplacementsImpl(p, p.getSnippetReflection(), p.getCodeCache().getTarget());
+        replacements.setGraphBuilderPlugins(p.getGraphBuilderPlugins());
+        HotSpotProviders providers = new HotSpotProviders(p.getMetaAccess(), p.getCodeCache(), p.getConstantReflection(), p.getConstantFieldProvider(), p.getForeignCalls(), lowerer, replacements,
+                        p.getNodeCostProvider(), p.getSuites(), p.getRegisters(), p.getSnippetReflection(), p.getWordTypes(), p.getGraphBuilderPlugins());
+        try (OverrideScope s = OptionValue.override(LazyInitialization.Options.LazyInitialization, true)) {
+            lowerer.initialize(providers, runtime().getVMConfig());
+        }
+        Assert.assertFalse(lowerer.instanceofSnippetsCreated());
+        Assert.assertFalse(lowerer.monitorSnippetsCreated());
+
+        StructuredGraph graph = parseEager("instanceOfSnippet", AllowAssumptions.YES);
+        GraalCompiler.emitFrontEnd(providers, getBackend(), graph, getDefaultGraphBuilderSuite(), OptimisticOptimizations.ALL, graph.getProfilingInfo(), getSuites());
+
+        // only the templates for the lowered nodes are created
+        Assert.assertTrue(lowerer.instanceofSnippetsCreated());
+        Assert.assertFalse(lowerer.monitorSnippetsCreated());
+    }
+
+    /**
+     * Creates the HotSpot invocation plugins and looks up the plugin for {@link Object#getClass()}.
+     */
+    @SuppressWarnings("try")
+    private InvocationPlugins lookupGetClass(boolean lazy) {
+        HotSpotProviders p = (HotSpotProviders) getProviders();
+        InvocationPlugins plugins;
+        try (OverrideScope s = OptionValue.override(LazyInitialization.Options.LazyInitialization, lazy)) {
+            plugins = HotSpotGraphBuilderPlugins.create(runtime().getVMConfig(), p.getWordTypes(), p.getMetaAccess(), p.getConstantReflection(), p.getSnippetReflection(), p.getForeignCalls(),
+                            p.getStampProvider(), (ReplacementsImpl) p.getReplacements()).getInvocationPlugins();
+        }
+        Assert.assertFalse(plugins.isResolved(Object.class));
+        Assert.assertNotNull(plugins.lookupInvocation(getResolvedJavaMethod(Object.class, "getClass")));
+        Assert.assertTrue(plugins.isResolved(Object.class));
+        return plugins;
+    }
+
+    @Test
+    public void testEagerPlugins() {
+        Assert.assertTrue(lookupGetClass(false).isResolved(Math.class));
+    }
+
+    @Test
+    public void testLazyPlugins() {
+        Assert.assertFalse(lookupGetClass(true).isResolved(Math.class));
+    }
+}
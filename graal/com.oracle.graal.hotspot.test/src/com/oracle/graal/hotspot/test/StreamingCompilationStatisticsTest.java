@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.oracle.graal.hotspot.StreamingCompilationStatistics;
+import com.oracle.graal.hotspot.StreamingCompilationStatistics.Histogram;
+import com.oracle.graal.hotspot.StreamingCompilationStatistics.Value;
+
+public class StreamingCompilationStatisticsTest {
+
+    @Test
+    public void testPercentiles() {
+        StreamingCompilationStatistics stats = new StreamingCompilationStatistics(0);
+        for (int i = 1; i <= 100; i++) {
+            assertFalse(stats.record(i, 0, 0, 0));
+        }
+        Histogram h = stats.snapshot(false)[Value.BytecodeCount.ordinal()];
+        assertEquals(100, h.getCount());
+        assertEquals(5050, h.getSum());
+        assertEquals(1, h.getMin());
+        assertEquals(100, h.getMax());
+        // percentiles are upper bounds of power of two buckets
+        assertEquals(63, h.getPercentile(50));
+        assertEquals(100, h.getPercentile(90));
+        assertEquals(0, stats.snapshot(false)[Value.CodeSize.ordinal()].getPercentile(99));
+    }
+
+    @Test
+    public void testMergeAndReset() throws InterruptedException {
+        StreamingCompilationStatistics stats = new StreamingCompilationStatistics(0);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        stats.record(1, 2, 3, 4);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Histogram[] snapshot = stats.snapshot(true);
+        assertEquals(4000, snapshot[Value.Duration.ordinal()].getCount());
+        assertEquals(4 * 4000, snapshot[Value.MemoryUsed.ordinal()].getSum());
+        assertEquals(0, stats.snapshot(false)[Value.Duration.ordinal()].getCount());
+    }
+
+    @Test
+    public void testRollover() {
+        StreamingCompilationStatistics stats = new StreamingCompilationStatistics(1);
+        boolean rolledOver = false;
+        for (int i = 0; i < 1000 && !rolledOver; i++) {
+            rolledOver = stats.record(1, 1, 1, 1);
+        }
+        assertTrue(rolledOver);
+    }
+
+    @Test
+    public void testRolloverOutput() throws IOException {
+        File file = File.createTempFile("StreamingCompilationStatisticsTest", ".csv");
+        try {
+            // the header is only printed into a new file
+            file.delete();
+            StreamingCompilationStatistics stats = new StreamingCompilationStatistics(0);
+            stats.record(10, 20, 3000000, 40);
+            stats.record(10, 20, 3000000, 40);
+            assertTrue(stats.rollover(file, "first"));
+            stats.record(5, 6, 7, 8);
+            assertTrue(stats.rollover(file, "second"));
+
+            List<String> lines = Files.readAllLines(file.toPath());
+            assertEquals(1 + 2 * Value.values().length, lines.size());
+            assertEquals("label;value;count;sum;min;mean;p50;p90;p99;max", lines.get(0));
+            assertEquals("first;BytecodeCount;2;20;10;10;10;10;10;10", lines.get(1));
+            assertEquals("first;Duration;2;6.000;3.000;3.000;3.000;3.000;3.000;3.000", lines.get(1 + Value.Duration.ordinal()));
+            // the first rollover reset the statistics
+            assertEquals("second;BytecodeCount;1;5;5;5;5;5;5;5", lines.get(1 + Value.values().length));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRolloverFailure() throws IOException {
+        File directory = Files.createTempDirectory("StreamingCompilationStatisticsTest").toFile();
+        try {
+            StreamingCompilationStatistics stats = new StreamingCompilationStatistics(0);
+            stats.record(1, 2, 3, 4);
+            // a directory cannot be written as a file
+            assertFalse(stats.rollover(directory, "failed"));
+            stats.record(1, 2, 3, 4);
+            // the values that could not be written are kept
+            assertEquals(2, stats.snapshot(false)[Value.BytecodeCount.ordinal()].getCount());
+        } finally {
+            directory.delete();
+        }
+    }
+}
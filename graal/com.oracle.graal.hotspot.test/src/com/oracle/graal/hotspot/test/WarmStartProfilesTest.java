@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot.test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oracle.graal.hotspot.WarmStartProfiles;
+import com.oracle.graal.nodes.spi.ProfilingInfoProvider;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaMethodProfile;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.TriState;
+
+/**
+ * Tests saving and seeding profiles with {@link WarmStartProfiles}. The maturity of the live
+ * profiles is controlled by an outer {@link ProfilingInfoProvider} so that the tests do not depend
+ * on when the VM considers a profile to be mature.
+ */
+public class WarmStartProfilesTest extends HotSpotGraalCompilerTest {
+
+    public static int snippet(int a) {
+        if (a > 0) {
+            return a + 1;
+        }
+        return a - 1;
+    }
+
+    /**
+     * Gives the live profiles a fixed maturity.
+     */
+    private static final class FixedMaturity extends ProfilingInfoProvider {
+
+        private final boolean mature;
+
+        FixedMaturity(boolean mature) {
+            this.mature = mature;
+        }
+
+        @Override
+        protected ProfilingInfo getProfilingInfo(ResolvedJavaMethod method, boolean includeNormal, boolean includeOSR) {
+            return new LiveProfilingInfo(getOuterProfilingInfo(method, includeNormal, includeOSR), mature);
+        }
+    }
+
+    private static final class LiveProfilingInfo implements ProfilingInfo {
+
+        private final ProfilingInfo delegate;
+        private final boolean mature;
+
+        LiveProfilingInfo(ProfilingInfo delegate, boolean mature) {
+            this.delegate = delegate;
+            this.mature = mature;
+        }
+
+        @Override
+        public int getCodeSize() {
+            return delegate.getCodeSize();
+        }
+
+        @Override
+        public double getBranchTakenProbability(int bci) {
+            return mature ? delegate.getBranchTakenProbability(bci) : -1;
+        }
+
+        @Override
+        public double[] getSwitchProbabilities(int bci) {
+            return delegate.getSwitchProbabilities(bci);
+        }
+
+        @Override
+        public JavaTypeProfile getTypeProfile(int bci) {
+            return delegate.getTypeProfile(bci);
+        }
+
+        @Override
+        public JavaMethodProfile getMethodProfile(int bci) {
+            return delegate.getMethodProfile(bci);
+        }
+
+        @Override
+        public TriState getExceptionSeen(int bci) {
+            return delegate.getExceptionSeen(bci);
+        }
+
+        @Override
+        public TriState getNullSeen(int bci) {
+            return delegate.getNullSeen(bci);
+        }
+
+        @Override
+        public int getExecutionCount(int bci) {
+            return delegate.getExecutionCount(bci);
+        }
+
+        @Override
+        public int getDeoptimizationCount(DeoptimizationReason reason) {
+            return delegate.getDeoptimizationCount(reason);
+        }
+
+        @Override
+        public boolean setCompilerIRSize(Class<?> irType, int irSize) {
+            return false;
+        }
+
+        @Override
+        public int getCompilerIRSize(Class<?> irType) {
+            return -1;
+        }
+
+        @Override
+        public boolean isMature() {
+            return mature;
+        }
+
+        @Override
+        public void setMature() {
+        }
+    }
+
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("WarmStartProfilesTest", ".profiles");
+        file.delete();
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    private static List<Double> branchProbabilities(ProfilingInfo profile) {
+        List<Double> probabilities = new ArrayList<>();
+        for (int bci = 0; bci < profile.getCodeSize(); bci++) {
+            probabilities.add(profile.getBranchTakenProbability(bci));
+        }
+        return probabilities;
+    }
+
+    /**
+     * Requests the profile of {@link #snippet} in a compilation using {@code profiles}.
+     *
+     * @param mature the maturity of the live profile
+     */
+    @SuppressWarnings("try")
+    private ProfilingInfo compile(WarmStartProfiles profiles, boolean mature) {
+        WarmStartProfiles.Session session = profiles.openSession();
+        ProfilingInfo profile;
+        try (ProfilingInfoProvider.Scope s1 = new FixedMaturity(mature).install(); ProfilingInfoProvider.Scope s2 = session.provider().install()) {
+            profile = ProfilingInfoProvider.profilingInfo(getResolvedJavaMethod("snippet"), true, false);
+            branchProbabilities(profile);
+        }
+        session.succeeded();
+        return profile;
+    }
+
+    private WarmStartProfiles load() {
+        WarmStartProfiles profiles = new WarmStartProfiles(file);
+        profiles.load();
+        return profiles;
+    }
+
+    /**
+     * Saves the profile of {@link #snippet} and returns its branch probabilities.
+     */
+    private List<Double> saveProfile() {
+        for (int i = 0; i < 10000; i++) {
+            snippet(i % 3);
+        }
+        WarmStartProfiles profiles = new WarmStartProfiles(file);
+        List<Double> saved = branchProbabilities(compile(profiles, true));
+        profiles.save();
+        Assert.assertTrue(file.exists());
+        // the profiles are written to a temporary file that replaces the file
+        String[] temporaries = file.getAbsoluteFile().getParentFile().list((dir, name) -> name.startsWith(file.getName()) && name.endsWith(".tmp"));
+        Assert.assertEquals(0, temporaries.length);
+        return saved;
+    }
+
+    @Test
+    public void testLoadSave() {
+        List<Double> saved = saveProfile();
+        ProfilingInfo seeded = compile(load(), false);
+        Assert.assertTrue(seeded.isMature());
+        Assert.assertEquals(saved, branchProbabilities(seeded));
+    }
+
+    @Test
+    public void testStaleBytecode() throws IOException {
+        saveProfile();
+        rewriteChecksums(1);
+        Assert.assertFalse(compile(load(), false).isMature());
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testMaxAge() {
+        saveProfile();
+        try (OverrideScope s = OptionValue.override(WarmStartProfiles.Options.WarmStartProfilesMaxAge, 2)) {
+            // profiles that are not used age by one run each time they are loaded
+            load().save();
+            Assert.assertTrue(compile(load(), false).isMature());
+            load().save();
+            load().save();
+            Assert.assertFalse(compile(load(), false).isMature());
+        }
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testUsedProfileDoesNotExpire() {
+        saveProfile();
+        try (OverrideScope s = OptionValue.override(WarmStartProfiles.Options.WarmStartProfilesMaxAge, 2)) {
+            // a profile that seeds a compilation in every run is kept although it never matures
+            for (int run = 0; run < 5; run++) {
+                WarmStartProfiles profiles = load();
+                Assert.assertTrue(compile(profiles, false).isMature());
+                profiles.save();
+            }
+        }
+    }
+
+    /**
+     * Rewrites the saved profiles as if they were saved for a different version of the bytecode by
+     * adding {@code delta} to their checksums.
+     */
+    private void rewriteChecksums(long delta) throws IOException {
+        File rewritten = new File(file.getPath() + ".rewritten");
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))));
+                        DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(rewritten))))) {
+            out.writeInt(in.readInt());
+            out.writeInt(in.readInt());
+            int count = in.readInt();
+            out.writeInt(count);
+            for (int i = 0; i < count; i++) {
+                // holder, name and descriptor of the method
+                out.writeUTF(in.readUTF());
+                out.writeUTF(in.readUTF());
+                out.writeUTF(in.readUTF());
+                out.writeLong(in.readLong() + delta);
+                out.writeInt(in.readInt());
+                byte[] profile = new byte[in.readInt()];
+                in.readFully(profile);
+                out.writeInt(profile.length);
+                out.write(profile);
+            }
+        }
+        Assert.assertTrue(file.delete());
+        Assert.assertTrue(rewritten.renameTo(file));
+    }
+}
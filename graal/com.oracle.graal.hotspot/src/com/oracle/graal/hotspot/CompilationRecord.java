@@ -0,0 +1,580 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.compiler.common.spi.ConstantFieldProvider.ConstantFieldTool;
+import com.oracle.graal.nodes.spi.ProfilingInfoProvider;
+import com.oracle.graal.options.OptionDescriptor;
+import com.oracle.graal.options.OptionDescriptors;
+import com.oracle.graal.options.OptionValue;
+
+import jdk.vm.ci.meta.Assumptions.Assumption;
+import jdk.vm.ci.meta.DefaultProfilingInfo;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaField;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.meta.TriState;
+import jdk.vm.ci.meta.UnresolvedJavaType;
+
+/**
+ * Everything a compilation consumed that is not derived from class files: the non-default option
+ * values, the profiles of all methods that were parsed, the values of the fields that were constant
+ * folded, the methods that were inlined and the assumptions that were made. A record is created by
+ * {@link CompilationTask} for compilations selected by
+ * {@link CompilationReplayOptions#RecordCompilations} and replayed by {@link CompilationReplay}.
+ *
+ * Methods, types and fields are identified by name. A replay folds the recorded values of static
+ * fields of primitive type. Objects are only recorded as being null or not; a replay folds the
+ * objects found in the heap of the replaying VM.
+ */
+public final class CompilationRecord {
+
+    private static final int MAGIC = 0x47524543;
+    private static final int VERSION = 2;
+
+    /**
+     * The record that is recorded or replayed by the compilation on the current thread.
+     */
+    private static final ThreadLocal<CompilationRecord> current = new ThreadLocal<>();
+
+    /**
+     * A method identified by the {@linkplain ResolvedJavaType#getName() name} of its holder, its
+     * name and its descriptor.
+     */
+    static final class MethodKey {
+        final String holder;
+        final String name;
+        final String descriptor;
+
+        MethodKey(String holder, String name, String descriptor) {
+            this.holder = holder;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+
+        MethodKey(ResolvedJavaMethod method) {
+            this(method.getDeclaringClass().getName(), method.getName(), method.getSignature().toMethodDescriptor());
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeUTF(holder);
+            out.writeUTF(name);
+            out.writeUTF(descriptor);
+        }
+
+        static MethodKey read(DataInputStream in) throws IOException {
+            return new MethodKey(in.readUTF(), in.readUTF(), in.readUTF());
+        }
+
+        @Override
+        public int hashCode() {
+            return holder.hashCode() ^ name.hashCode() ^ descriptor.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof MethodKey) {
+                MethodKey other = (MethodKey) obj;
+                return holder.equals(other.holder) && name.equals(other.name) && descriptor.equals(other.descriptor);
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return holder + "." + name + descriptor;
+        }
+    }
+
+    /**
+     * Key of a recorded profile: the method and the kind of profile requested.
+     */
+    private static final class ProfileKey {
+        final MethodKey method;
+        final boolean includeNormal;
+        final boolean includeOSR;
+
+        ProfileKey(MethodKey method, boolean includeNormal, boolean includeOSR) {
+            this.method = method;
+            this.includeNormal = includeNormal;
+            this.includeOSR = includeOSR;
+        }
+
+        @Override
+        public int hashCode() {
+            return method.hashCode() * 4 + (includeNormal ? 2 : 0) + (includeOSR ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof ProfileKey) {
+                ProfileKey other = (ProfileKey) obj;
+                return method.equals(other.method) && includeNormal == other.includeNormal && includeOSR == other.includeOSR;
+            }
+            return false;
+        }
+    }
+
+    final MethodKey method;
+    final int entryBCI;
+    final Map<String, String> options;
+    private final Map<ProfileKey, RecordedProfilingInfo> profiles;
+
+    /**
+     * The {@linkplain #describe(JavaConstant) descriptions} of the values of the constant folded
+     * fields, in the order in which they were folded, by {@linkplain ResolvedJavaField#format
+     * field name}.
+     */
+    final Map<String, List<String>> constants;
+    final List<MethodKey> inlinedMethods;
+    final List<String> assumptions;
+
+    /**
+     * The constants folded by the replay of this record, or {@code null} if this record is being
+     * recorded.
+     */
+    private Map<String, List<String>> replayedConstants;
+
+    private CompilationRecord(MethodKey method, int entryBCI, Map<String, String> options) {
+        this.method = method;
+        this.entryBCI = entryBCI;
+        this.options = options;
+        this.profiles = new LinkedHashMap<>();
+        this.constants = new LinkedHashMap<>();
+        this.inlinedMethods = new ArrayList<>();
+        this.assumptions = new ArrayList<>();
+    }
+
+    /**
+     * Starts recording a compilation. The profiles and constants are recorded while the
+     * {@link #record()} scope is open.
+     */
+    public static CompilationRecord start(ResolvedJavaMethod method, int entryBCI) {
+        return new CompilationRecord(new MethodKey(method), entryBCI, currentOptions());
+    }
+
+    /**
+     * Gets the values of all options that differ from their default values.
+     */
+    private static Map<String, String> currentOptions() {
+        Map<String, String> result = new HashMap<>();
+        for (OptionDescriptors descriptors : ServiceLoader.load(OptionDescriptors.class, OptionDescriptors.class.getClassLoader())) {
+            for (OptionDescriptor descriptor : descriptors) {
+                OptionValue<?> option = descriptor.getOptionValue();
+                if (option == CompilationReplayOptions.RecordCompilations || option == CompilationReplayOptions.RecordCompilationsDirectory) {
+                    continue;
+                }
+                Object value = option.getValue();
+                if (value != null && !value.equals(option.getDefaultValue())) {
+                    result.put(descriptor.getName(), String.valueOf(value));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Records the profiles and constants used by the compilation on the current thread until the
+     * returned scope is closed.
+     */
+    public Scope record() {
+        return new Scope(recorder().install());
+    }
+
+    /**
+     * Answers the profile requests of the compilation on the current thread with the recorded
+     * profiles and folds the recorded constants until the returned scope is closed.
+     */
+    public Scope replay() {
+        replayedConstants = new LinkedHashMap<>();
+        return new Scope(replayer().install());
+    }
+
+    public final class Scope implements AutoCloseable {
+
+        private final ProfilingInfoProvider.Scope profilingInfoScope;
+        private final CompilationRecord previous;
+
+        private Scope(ProfilingInfoProvider.Scope profilingInfoScope) {
+            this.profilingInfoScope = profilingInfoScope;
+            this.previous = current.get();
+            current.set(CompilationRecord.this);
+        }
+
+        @Override
+        public void close() {
+            current.set(previous);
+            profilingInfoScope.close();
+        }
+    }
+
+    /**
+     * Intercepts the constant folding of {@code field} if a record is recorded or replayed on the
+     * current thread.
+     *
+     * @return the tool to use for folding the field
+     */
+    public static <T> ConstantFieldTool<T> interceptConstantField(ResolvedJavaField field, ConstantFieldTool<T> tool) {
+        CompilationRecord record = current.get();
+        if (record == null) {
+            return tool;
+        }
+        String key = field.format("%H.%n");
+        return new ConstantFieldTool<T>() {
+
+            @Override
+            public JavaConstant readValue() {
+                return tool.readValue();
+            }
+
+            @Override
+            public JavaConstant getReceiver() {
+                return tool.getReceiver();
+            }
+
+            @Override
+            public T foldConstant(JavaConstant ret) {
+                return tool.foldConstant(record.folded(key, field, ret));
+            }
+
+            @Override
+            public T foldStableArray(JavaConstant ret, int stableDimensions, boolean isDefaultStable) {
+                return tool.foldStableArray(record.folded(key, field, ret), stableDimensions, isDefaultStable);
+            }
+        };
+    }
+
+    private JavaConstant folded(String key, ResolvedJavaField field, JavaConstant value) {
+        if (replayedConstants == null) {
+            constants.computeIfAbsent(key, k -> new ArrayList<>()).add(describe(value));
+            return value;
+        }
+        List<String> replayed = replayedConstants.computeIfAbsent(key, k -> new ArrayList<>());
+        JavaConstant result = value;
+        List<String> recorded = constants.get(key);
+        if (field.isStatic() && value != null && value.getJavaKind().isPrimitive() && recorded != null && recorded.size() > replayed.size()) {
+            JavaConstant recordedValue = parsePrimitive(recorded.get(replayed.size()));
+            if (recordedValue != null && recordedValue.getJavaKind() == value.getJavaKind()) {
+                result = recordedValue;
+            }
+        }
+        replayed.add(describe(result));
+        return result;
+    }
+
+    /**
+     * Describes a folded value: the kind and raw bits of a primitive value, {@code L} for an object
+     * or {@code null}.
+     */
+    static String describe(JavaConstant value) {
+        if (value == null || value.isNull()) {
+            return "null";
+        }
+        JavaKind kind = value.getJavaKind();
+        switch (kind) {
+            case Float:
+                return kind.getTypeChar() + ":" + Float.floatToRawIntBits(value.asFloat());
+            case Double:
+                return kind.getTypeChar() + ":" + Double.doubleToRawLongBits(value.asDouble());
+            case Object:
+                return "L";
+            default:
+                return kind.getTypeChar() + ":" + value.asLong();
+        }
+    }
+
+    /**
+     * Parses a value {@linkplain #describe(JavaConstant) described} as a primitive.
+     *
+     * @return {@code null} if {@code description} is not a primitive value
+     */
+    static JavaConstant parsePrimitive(String description) {
+        if (description.length() < 3 || description.charAt(1) != ':') {
+            return null;
+        }
+        long bits = Long.parseLong(description.substring(2));
+        switch (description.charAt(0)) {
+            case 'Z':
+                return JavaConstant.forBoolean(bits != 0);
+            case 'B':
+                return JavaConstant.forByte((byte) bits);
+            case 'S':
+                return JavaConstant.forShort((short) bits);
+            case 'C':
+                return JavaConstant.forChar((char) bits);
+            case 'I':
+                return JavaConstant.forInt((int) bits);
+            case 'J':
+                return JavaConstant.forLong(bits);
+            case 'F':
+                return JavaConstant.forFloat(Float.intBitsToFloat((int) bits));
+            case 'D':
+                return JavaConstant.forDouble(Double.longBitsToDouble(bits));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Gets the {@linkplain #describe(JavaConstant) descriptions} of the values folded by the
+     * recorded compilation by field name.
+     */
+    public Map<String, List<String>> getConstants() {
+        return Collections.unmodifiableMap(constants);
+    }
+
+    /**
+     * Gets the descriptions of the assumptions made by the recorded compilation.
+     */
+    public List<String> getAssumptions() {
+        return Collections.unmodifiableList(assumptions);
+    }
+
+    /**
+     * Gets the constants folded by the last replay of this record.
+     */
+    Map<String, List<String>> getReplayedConstants() {
+        return replayedConstants;
+    }
+
+    /**
+     * Gets a provider that records the profiles requested from it in this record.
+     */
+    private ProfilingInfoProvider recorder() {
+        return new ProfilingInfoProvider() {
+            @Override
+            protected ProfilingInfo getProfilingInfo(ResolvedJavaMethod m, boolean includeNormal, boolean includeOSR) {
+                ProfileKey key = new ProfileKey(new MethodKey(m), includeNormal, includeOSR);
+                return profiles.computeIfAbsent(key, k -> new RecordedProfilingInfo(getOuterProfilingInfo(m, includeNormal, includeOSR)));
+            }
+        };
+    }
+
+    /**
+     * Gets a provider that answers requests with the profiles in this record. Methods whose profile
+     * was not recorded get an empty profile.
+     */
+    private ProfilingInfoProvider replayer() {
+        return new ProfilingInfoProvider() {
+            @Override
+            protected ProfilingInfo getProfilingInfo(ResolvedJavaMethod m, boolean includeNormal, boolean includeOSR) {
+                RecordedProfilingInfo profile = profiles.get(new ProfileKey(new MethodKey(m), includeNormal, includeOSR));
+                return profile != null ? profile : DefaultProfilingInfo.get(TriState.UNKNOWN);
+            }
+        };
+    }
+
+    /**
+     * Records the outcome of the compilation.
+     */
+    public void finish(CompilationResult result) {
+        inlinedMethods.clear();
+        assumptions.clear();
+        inlinedMethods.addAll(inlinedMethods(result));
+        assumptions.addAll(assumptions(result));
+    }
+
+    static List<MethodKey> inlinedMethods(CompilationResult result) {
+        List<MethodKey> methods = new ArrayList<>();
+        if (result != null && result.getMethods() != null) {
+            ResolvedJavaMethod[] resultMethods = result.getMethods();
+            for (int i = 1; i < resultMethods.length; i++) {
+                methods.add(new MethodKey(resultMethods[i]));
+            }
+        }
+        return methods;
+    }
+
+    static List<String> assumptions(CompilationResult result) {
+        List<String> descriptions = new ArrayList<>();
+        if (result != null && result.getAssumptions() != null) {
+            for (Assumption assumption : result.getAssumptions()) {
+                descriptions.add(assumption.toString());
+            }
+        }
+        return descriptions;
+    }
+
+    public void write(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            method.write(out);
+            out.writeInt(entryBCI);
+            out.writeInt(options.size());
+            for (Map.Entry<String, String> e : options.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeUTF(e.getValue());
+            }
+            out.writeInt(profiles.size());
+            for (Map.Entry<ProfileKey, RecordedProfilingInfo> e : profiles.entrySet()) {
+                e.getKey().method.write(out);
+                out.writeBoolean(e.getKey().includeNormal);
+                out.writeBoolean(e.getKey().includeOSR);
+                e.getValue().write(out);
+            }
+            out.writeInt(constants.size());
+            for (Map.Entry<String, List<String>> e : constants.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue().size());
+                for (String value : e.getValue()) {
+                    out.writeUTF(value);
+                }
+            }
+            out.writeInt(inlinedMethods.size());
+            for (MethodKey inlined : inlinedMethods) {
+                inlined.write(out);
+            }
+            out.writeInt(assumptions.size());
+            for (String assumption : assumptions) {
+                out.writeUTF(assumption);
+            }
+        }
+    }
+
+    public static CompilationRecord read(File file, MetaAccessProvider metaAccess) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not a compilation record of version " + VERSION);
+            }
+            MethodKey method = MethodKey.read(in);
+            int entryBCI = in.readInt();
+            Map<String, String> options = new HashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                options.put(in.readUTF(), in.readUTF());
+            }
+            CompilationRecord record = new CompilationRecord(method, entryBCI, options);
+            for (int i = in.readInt(); i > 0; i--) {
+                ProfileKey key = new ProfileKey(MethodKey.read(in), in.readBoolean(), in.readBoolean());
+                ResolvedJavaType holder = lookupClass(metaAccess, key.method.holder);
+                record.profiles.put(key, RecordedProfilingInfo.read(in, name -> holder == null ? null : resolveType(holder, name, true)));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String key = in.readUTF();
+                List<String> values = new ArrayList<>();
+                for (int j = in.readInt(); j > 0; j--) {
+                    values.add(in.readUTF());
+                }
+                record.constants.put(key, values);
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                record.inlinedMethods.add(MethodKey.read(in));
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                record.assumptions.add(in.readUTF());
+            }
+            return record;
+        }
+    }
+
+    /**
+     * Resolves a type named in a profile of a method of {@code accessingType} with the class loader
+     * of {@code accessingType}.
+     *
+     * @param resolve specifies if the type is loaded if it has not been loaded by the class loader
+     *            yet. Compilations must pass {@code false} to not run class loading code on the
+     *            compiler thread.
+     * @return {@code null} if the type cannot be resolved or is not loaded and {@code resolve} is
+     *         {@code false}
+     */
+    static ResolvedJavaType resolveType(ResolvedJavaType accessingType, String name, boolean resolve) {
+        if (!name.startsWith("[") && !(name.startsWith("L") && name.endsWith(";"))) {
+            return null;
+        }
+        try {
+            return accessingType.lookupType(UnresolvedJavaType.create(name), resolve);
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Looks up the class that is the holder of a recorded method by its
+     * {@linkplain ResolvedJavaType#getName() name}. This loads the class with the system class
+     * loader and is therefore only to be used by {@link CompilationReplay}, not during a
+     * compilation.
+     *
+     * @return {@code null} if the class cannot be found
+     */
+    static ResolvedJavaType lookupClass(MetaAccessProvider metaAccess, String name) {
+        String className;
+        if (name.startsWith("[")) {
+            className = name.replace('/', '.');
+        } else if (name.startsWith("L") && name.endsWith(";")) {
+            className = name.substring(1, name.length() - 1).replace('/', '.');
+        } else {
+            return null;
+        }
+        try {
+            return metaAccess.lookupJavaType(Class.forName(className, false, ClassLoader.getSystemClassLoader()));
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resolves a recorded method.
+     *
+     * @return {@code null} if the method cannot be found
+     */
+    static ResolvedJavaMethod resolveMethod(MetaAccessProvider metaAccess, MethodKey key) {
+        ResolvedJavaType holder = lookupClass(metaAccess, key.holder);
+        if (holder == null) {
+            return null;
+        }
+        if (key.name.equals("<clinit>")) {
+            return holder.getClassInitializer();
+        }
+        List<ResolvedJavaMethod> candidates = new ArrayList<>();
+        Collections.addAll(candidates, key.name.equals("<init>") ? holder.getDeclaredConstructors() : holder.getDeclaredMethods());
+        for (ResolvedJavaMethod candidate : candidates) {
+            if (candidate.getName().equals(key.name) && candidate.getSignature().toMethodDescriptor().equals(key.descriptor)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import static com.oracle.graal.hotspot.CompilationReplayOptions.ReplayCompilations;
+import static com.oracle.graal.hotspot.CompilationReplayOptions.ReplayCompilationsIterations;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.debug.TTY;
+import com.oracle.graal.debug.internal.MemUseTrackerImpl;
+import com.oracle.graal.hotspot.CompileTheWorld.Config;
+import com.oracle.graal.options.OptionDescriptors;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.options.OptionsParser;
+
+import jdk.vm.ci.hotspot.HotSpotJVMCIRuntime;
+import jdk.vm.ci.meta.MetaAccessProvider;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.services.Services;
+
+/**
+ * Recompiles methods from {@link CompilationRecord}s. Each compilation uses the recorded options
+ * and profiles, so the compiler sees the same inputs as the recorded compilation as long as the
+ * replaying VM runs with the same class path. The compiled code is not installed.
+ *
+ * For each record, the time and memory used by the compilation and the size of the produced code
+ * is printed, as well as the differences in the inlined methods, the folded constants and the
+ * assumptions compared to the recorded compilation. A record that cannot be read or replayed is
+ * reported and counted as diverged; the remaining records are still replayed.
+ */
+public final class CompilationReplay {
+
+    private final HotSpotGraalCompiler compiler;
+    private final MetaAccessProvider metaAccess;
+    private final int iterations;
+
+    public CompilationReplay(HotSpotGraalCompiler compiler, int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be at least 1: " + iterations);
+        }
+        this.compiler = compiler;
+        this.metaAccess = compiler.getGraalRuntime().getHostProviders().getMetaAccess();
+        this.iterations = iterations;
+    }
+
+    /**
+     * Replays the record in {@code file} or, if {@code file} is a directory, all records in it.
+     *
+     * @return the number of records that could not be replayed or whose replayed compilation
+     *         differs from the recorded one
+     */
+    public int replay(File file) {
+        List<File> files = new ArrayList<>();
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                files.addAll(Arrays.asList(children));
+            }
+        } else {
+            files.add(file);
+        }
+        int diverged = 0;
+        for (File f : files) {
+            try {
+                if (!replay(CompilationRecord.read(f, metaAccess))) {
+                    diverged++;
+                }
+            } catch (IOException | RuntimeException | LinkageError | AssertionError e) {
+                TTY.println("CompilationReplay: failed to replay " + f + ": " + e);
+                diverged++;
+            }
+        }
+        return diverged;
+    }
+
+    /**
+     * Replays a single compilation.
+     *
+     * @return {@code false} if the compilation could not be replayed or its inlined methods,
+     *         folded constants or assumptions differ from the recorded ones
+     */
+    @SuppressWarnings("try")
+    public boolean replay(CompilationRecord record) {
+        ResolvedJavaMethod method = CompilationRecord.resolveMethod(metaAccess, record.method);
+        if (method == null) {
+            TTY.println("CompilationReplay: cannot resolve " + record.method);
+            return false;
+        }
+        // fold the same static final fields as the recorded compilation, if possible
+        method.getDeclaringClass().initialize();
+
+        Config config = new Config(null);
+        OptionsParser.parseOptions(record.options, config, ServiceLoader.load(OptionDescriptors.class, OptionDescriptors.class.getClassLoader()));
+        CompilationResult result = null;
+        long time = 0;
+        long memory = 0;
+        try (OverrideScope s = config.apply()) {
+            for (int i = 0; i < iterations; i++) {
+                try (CompilationRecord.Scope r = record.replay()) {
+                    long start = System.nanoTime();
+                    long allocatedAtStart = MemUseTrackerImpl.getCurrentThreadAllocatedBytes();
+                    result = compiler.compile(method, record.entryBCI, true);
+                    memory = MemUseTrackerImpl.getCurrentThreadAllocatedBytes() - allocatedAtStart;
+                    time = System.nanoTime() - start;
+                }
+            }
+        }
+
+        if (result == null) {
+            TTY.println("CompilationReplay: " + record.method + " produced no code");
+            return false;
+        }
+        TTY.println(String.format("CompilationReplay: %s%s | %4dms %5dB %5dkB", record.method, record.entryBCI < 0 ? "" : "@" + record.entryBCI, time / 1000000, result.getTargetCodeSize(),
+                        memory / 1024));
+        boolean same = compare("inlined", record.inlinedMethods, CompilationRecord.inlinedMethods(result));
+        same &= compare("assumed", record.assumptions, CompilationRecord.assumptions(result));
+        Set<String> fields = new TreeSet<>(record.constants.keySet());
+        fields.addAll(record.getReplayedConstants().keySet());
+        for (String field : fields) {
+            List<String> recorded = record.constants.getOrDefault(field, Collections.emptyList());
+            List<String> replayed = record.getReplayedConstants().getOrDefault(field, Collections.emptyList());
+            if (!new HashSet<>(recorded).equals(new HashSet<>(replayed))) {
+                TTY.println("  folded " + field + ": recorded " + recorded + ", replayed " + replayed);
+                same = false;
+            }
+        }
+        return same;
+    }
+
+    private static <T> boolean compare(String what, List<T> recordedList, List<T> replayedList) {
+        Set<T> recorded = new HashSet<>(recordedList);
+        Set<T> replayed = new HashSet<>(replayedList);
+        if (recorded.equals(replayed)) {
+            return true;
+        }
+        for (T e : recorded) {
+            if (!replayed.contains(e)) {
+                TTY.println("  no longer " + what + ": " + e);
+            }
+        }
+        for (T e : replayed) {
+            if (!recorded.contains(e)) {
+                TTY.println("  newly " + what + ": " + e);
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws Throwable {
+        Services.exportJVMCITo(CompilationReplay.class);
+        HotSpotGraalCompiler compiler = (HotSpotGraalCompiler) HotSpotJVMCIRuntime.runtime().getCompiler();
+        String path = args.length > 0 ? args[0] : ReplayCompilations.getValue();
+        if (path == null) {
+            TTY.println("Usage: CompilationReplay <record file or directory> (or -Dgraal.ReplayCompilations=<path>)");
+            System.exit(1);
+        }
+        int diverged = new CompilationReplay(compiler, ReplayCompilationsIterations.getValue()).replay(new File(path));
+        System.exit(diverged == 0 ? 0 : 2);
+    }
+}
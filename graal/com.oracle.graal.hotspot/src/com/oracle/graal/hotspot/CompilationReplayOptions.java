@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import com.oracle.graal.options.Option;
+import com.oracle.graal.options.OptionType;
+import com.oracle.graal.options.OptionValue;
+
+/**
+ * Options related to recording compilations in {@link CompilationRecord}s and to
+ * {@link CompilationReplay}.
+ *
+ * Note: This must be a top level class to work around for
+ * <a href="https://bugs.eclipse.org/bugs/show_bug.cgi?id=477597">Eclipse bug 477597</a>.
+ */
+public class CompilationReplayOptions {
+    // @formatter:off
+    @Option(help = "Record the profiles and options used by compilations of methods matching this filter", type = OptionType.Debug)
+    public static final OptionValue<String> RecordCompilations = new OptionValue<>(null);
+    @Option(help = "Directory in which compilation records are written", type = OptionType.Debug)
+    public static final OptionValue<String> RecordCompilationsDirectory = new OptionValue<>("compilation-records");
+    @Option(help = "Compilation record file or directory of compilation records to replay", type = OptionType.Debug)
+    public static final OptionValue<String> ReplayCompilations = new OptionValue<>(null);
+    @Option(help = "The number of times each recorded compilation is replayed", type = OptionType.Debug)
+    public static final OptionValue<Integer> ReplayCompilationsIterations = new OptionValue<>(1);
+    // @formatter:on
+}
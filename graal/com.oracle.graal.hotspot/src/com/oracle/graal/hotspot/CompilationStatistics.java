@@ -24,6 +24,7 @@ package com.oracle.graal.hotspot;
 
 import static java.lang.Thread.currentThread;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
@@ -40,6 +41,7 @@ import java.util.Date;
 import java.util.Deque;
 import java.util.Locale;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
 
 import com.oracle.graal.debug.CSVUtil;
 import com.oracle.graal.debug.Management;
@@ -57,11 +59,19 @@ public final class CompilationStatistics {
         // @formatter:off
         @Option(help = "Enables CompilationStatistics.")
         public static final OptionValue<Boolean> UseCompilationStatistics = new OptionValue<>(false);
+        @Option(help = "Aggregate CompilationStatistics into histograms of constant size instead of keeping a record per compilation.")
+        public static final OptionValue<Boolean> CompilationStatisticsStreaming = new OptionValue<>(false);
+        @Option(help = "Interval in seconds after which streamed CompilationStatistics are appended to CompilationStatisticsFile and reset (0 = only on phase transitions).")
+        public static final OptionValue<Integer> CompilationStatisticsRolloverInterval = new OptionValue<>(0);
+        @Option(help = "File to which streamed CompilationStatistics are appended.")
+        public static final OptionValue<String> CompilationStatisticsFile = new OptionValue<>("compilation_statistics.csv");
         // @formatter:on
     }
 
     private static final long RESOLUTION = 100000000;
     private static final boolean ENABLED = Options.UseCompilationStatistics.getValue();
+    private static final StreamingCompilationStatistics STREAM = ENABLED && Options.CompilationStatisticsStreaming.getValue()
+                    ? new StreamingCompilationStatistics(TimeUnit.SECONDS.toNanos(Options.CompilationStatisticsRolloverInterval.getValue())) : null;
 
     private static final CompilationStatistics DUMMY = new CompilationStatistics(null, false);
 
@@ -130,6 +140,12 @@ public final class CompilationStatistics {
                 throw new RuntimeException("mismatch in finish()");
             }
             current.get().removeLast();
+            if (STREAM != null && STREAM.record(bytecodeCount, codeSize, duration, memoryUsed)) {
+                // keep file IO off the compiler thread
+                Thread thread = new Thread(() -> rollover("rollover"), "CompilationStatisticsRollover");
+                thread.setDaemon(true);
+                thread.start();
+            }
         }
     }
 
@@ -140,7 +156,9 @@ public final class CompilationStatistics {
     public static CompilationStatistics create(HotSpotResolvedJavaMethod method, boolean isOSR) {
         if (ENABLED) {
             CompilationStatistics stats = new CompilationStatistics(method, isOSR);
-            list.add(stats);
+            if (STREAM == null) {
+                list.add(stats);
+            }
             current.get().addLast(stats);
             return stats;
         } else {
@@ -153,6 +171,10 @@ public final class CompilationStatistics {
         if (!ENABLED) {
             return;
         }
+        if (STREAM != null) {
+            rollover(dumpName);
+            return;
+        }
         try {
             ConcurrentLinkedDeque<CompilationStatistics> snapshot = list;
             long snapshotZeroTime = zeroTime;
@@ -206,6 +228,13 @@ public final class CompilationStatistics {
         }
     }
 
+    /**
+     * Appends the streamed statistics to {@link Options#CompilationStatisticsFile} and resets them.
+     */
+    private static void rollover(String label) {
+        STREAM.rollover(new File(Options.CompilationStatisticsFile.getValue()), label + "@" + new Date());
+    }
+
     private static long normalize(long time) {
         return time * 100 / RESOLUTION;
     }
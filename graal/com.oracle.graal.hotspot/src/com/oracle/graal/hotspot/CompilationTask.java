@@ -29,9 +29,23 @@ import static com.oracle.graal.compiler.GraalCompilerOptions.PrintBailout;
 import static com.oracle.graal.compiler.GraalCompilerOptions.PrintCompilation;
 import static com.oracle.graal.compiler.GraalCompilerOptions.PrintFilter;
 import static com.oracle.graal.compiler.GraalCompilerOptions.PrintStackTraceOnException;
+import static com.oracle.graal.compiler.common.GraalOptions.ConditionalElimination;
+import static com.oracle.graal.compiler.common.GraalOptions.FullUnroll;
+import static com.oracle.graal.compiler.common.GraalOptions.OptLoopTransform;
+import static com.oracle.graal.compiler.common.GraalOptions.OptReadElimination;
+import static com.oracle.graal.compiler.common.GraalOptions.PartialEscapeAnalysis;
 import static com.oracle.graal.compiler.phases.HighTier.Options.Inline;
+import static com.oracle.graal.hotspot.CompilationReplayOptions.RecordCompilations;
+import static com.oracle.graal.hotspot.CompilationReplayOptions.RecordCompilationsDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.compiler.common.CompilationBudget;
+import com.oracle.graal.compiler.common.CompilationBudget.BudgetExceededException;
 import com.oracle.graal.debug.Debug;
 import com.oracle.graal.debug.Debug.Scope;
 import com.oracle.graal.debug.DebugCloseable;
@@ -39,8 +53,10 @@ import com.oracle.graal.debug.DebugCounter;
 import com.oracle.graal.debug.DebugDumpScope;
 import com.oracle.graal.debug.DebugTimer;
 import com.oracle.graal.debug.Management;
+import com.oracle.graal.debug.MethodFilter;
 import com.oracle.graal.debug.TTY;
 import com.oracle.graal.debug.TimeSource;
+import com.oracle.graal.nodes.spi.ProfilingInfoProvider;
 import com.oracle.graal.options.OptionValue;
 import com.oracle.graal.options.OptionValue.OverrideScope;
 
@@ -62,6 +78,7 @@ import jdk.vm.ci.services.Services;
 public class CompilationTask {
 
     private static final DebugCounter BAILOUTS = Debug.counter("Bailouts");
+    private static final DebugCounter BUDGET_RETRIES = Debug.counter("CompilationBudgetRetries");
 
     private static final EventProvider eventProvider;
 
@@ -209,7 +226,20 @@ public class CompilationTask {
                  */
                 boolean disableInlining = !config.inline && !Inline.hasBeenSet();
                 try (OverrideScope s1 = disableInlining ? OptionValue.override(Inline, false) : null) {
-                    result = compiler.compile(method, entryBCI, useProfilingInfo);
+                    WarmStartProfiles warmStart = useProfilingInfo ? WarmStartProfiles.get() : null;
+                    WarmStartProfiles.Session session = warmStart == null ? null : warmStart.openSession();
+                    CompilationRecord record = shouldRecord(method) ? CompilationRecord.start(method, entryBCI) : null;
+                    try (ProfilingInfoProvider.Scope s2 = session == null ? null : session.provider().install();
+                                    CompilationRecord.Scope s3 = record == null ? null : record.record()) {
+                        result = compileWithBudget(method, entryBCI);
+                    }
+                    if (session != null && result != null) {
+                        session.succeeded();
+                    }
+                    if (record != null) {
+                        record.finish(result);
+                        writeRecord(record);
+                    }
                 }
             } catch (Throwable e) {
                 throw Debug.handle(e);
@@ -304,6 +334,57 @@ public class CompilationTask {
         }
     }
 
+    private static boolean shouldRecord(HotSpotResolvedJavaMethod method) {
+        String filter = RecordCompilations.getValue();
+        return filter != null && MethodFilter.matches(MethodFilter.parse(filter), method);
+    }
+
+    private void writeRecord(CompilationRecord record) {
+        File directory = new File(RecordCompilationsDirectory.getValue());
+        String name = getId() + "-" + getMethod().format("%h.%n").replaceAll("[^A-Za-z0-9._-]", "_") + ".rec";
+        try {
+            directory.mkdirs();
+            record.write(new File(directory, name));
+        } catch (IOException e) {
+            TTY.println("Error writing compilation record " + name + ": " + e);
+        }
+    }
+
+    /**
+     * Compiles the method within a {@link CompilationBudget}. A compilation that exceeds its budget
+     * is retried once with the optimizations that are most likely to blow up disabled. If the
+     * retry exceeds the budget as well, the compilation bails out.
+     */
+    @SuppressWarnings("try")
+    private CompilationResult compileWithBudget(HotSpotResolvedJavaMethod method, int entryBCI) {
+        try (CompilationBudget budget = CompilationBudget.open()) {
+            return compiler.compile(method, entryBCI, useProfilingInfo);
+        } catch (BudgetExceededException e) {
+            BUDGET_RETRIES.increment();
+            if (PrintBailout.getValue()) {
+                TTY.out.println(method.format("Retrying %H.%n(%p) with reduced optimizations: ") + e.getMessage());
+            }
+        }
+        try (OverrideScope s = OptionValue.override(reducedOptimizations()); CompilationBudget budget = CompilationBudget.open()) {
+            return compiler.compile(method, entryBCI, useProfilingInfo);
+        }
+    }
+
+    /**
+     * Gets the option values used for retrying a compilation that exceeded its budget. Changing
+     * these options causes the compiler to derive suites without the corresponding phases.
+     */
+    private static Map<OptionValue<?>, Object> reducedOptimizations() {
+        Map<OptionValue<?>, Object> overrides = new HashMap<>();
+        overrides.put(Inline, false);
+        overrides.put(PartialEscapeAnalysis, false);
+        overrides.put(FullUnroll, false);
+        overrides.put(OptLoopTransform, false);
+        overrides.put(ConditionalElimination, false);
+        overrides.put(OptReadElimination, false);
+        return overrides;
+    }
+
     protected void handleException(Throwable t) {
         /*
          * Automatically enable ExitVMOnException when asserts are enabled but respect
@@ -389,6 +389,8 @@ public class GraalHotSpotVMConfig extends HotSpotVMConfigAccess {
 
     public final int markWordNoHashInPlace = getConstant("markOopDesc::no_hash_in_place", Integer.class);
     public final int markWordNoLockInPlace = getConstant("markOopDesc::no_lock_in_place", Integer.class);
+    public final int markWordLockMaskInPlace = getConstant("markOopDesc::lock_mask_in_place", Integer.class, 3);
+    public final int markWordMonitorValue = getConstant("markOopDesc::monitor_value", Integer.class, 2);
 
     /**
      * See {@code markOopDesc::prototype()}.
@@ -511,6 +513,20 @@ public class GraalHotSpotVMConfig extends HotSpotVMConfigAccess {
     public final int basicLockSize = getTypeSize("BasicLock");
     public final int basicLockDisplacedHeaderOffset = getFieldOffset("BasicLock::_displaced_header", Integer.class, "markOop");
 
+    /**
+     * Offsets of the {@code ObjectMonitor} fields accessed by the inflated locking fast paths. They
+     * are -1 if the VM does not export them, in which case inflated monitors are always handled by
+     * the runtime.
+     */
+    public final int objectMonitorOwnerOffset = getFieldOffset("ObjectMonitor::_owner", Integer.class, "void*", -1);
+    public final int objectMonitorRecursionsOffset = getFieldOffset("ObjectMonitor::_recursions", Integer.class, "intptr_t", -1);
+    public final int objectMonitorCxqOffset = getFieldOffset("ObjectMonitor::_cxq", Integer.class, "ObjectWaiter*", -1);
+    public final int objectMonitorEntryListOffset = getFieldOffset("ObjectMonitor::_EntryList", Integer.class, "ObjectWaiter*", -1);
+
+    public boolean canInlineInflatedLocking() {
+        return objectMonitorOwnerOffset != -1 && objectMonitorRecursionsOffset != -1 && objectMonitorCxqOffset != -1 && objectMonitorEntryListOffset != -1;
+    }
+
     public final int threadAllocatedBytesOffset = getFieldOffset("Thread::_allocated_bytes", Integer.class, "jlong");
 
     public final int tlabRefillWasteIncrement = getFlag("TLABWasteIncrement", Integer.class);
@@ -278,6 +278,8 @@ public final class HotSpotGraalRuntime implements HotSpotGraalRuntimeProvider {
 
         SnippetCounter.printGroups(TTY.out().out());
         BenchmarkCounters.shutdown(runtime(), runtimeStartTime);
+        WarmStartProfiles.shutdown();
+        LazyInitialization.shutdown();
     }
 
     void clearMeters() {
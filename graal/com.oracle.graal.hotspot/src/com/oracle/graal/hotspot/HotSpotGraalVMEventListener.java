@@ -64,6 +64,7 @@ public class HotSpotGraalVMEventListener extends HotSpotVMEventListener {
 
     @Override
     public void notifyBootstrapFinished() {
+        LazyInitialization.bootstrapFinished();
         if (GraalDebugConfig.Options.ClearMetricsAfterBootstrap.getValue()) {
             for (HotSpotGraalRuntime runtime : runtimes) {
                 runtime.clearMeters();
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.oracle.graal.debug.TTY;
+import com.oracle.graal.options.Option;
+import com.oracle.graal.options.OptionType;
+import com.oracle.graal.options.OptionValue;
+
+/**
+ * Support for creating compiler components such as snippet templates on first use instead of while
+ * the compiler is initialized. If {@link Options#PrintLazyInitialization} is enabled, every
+ * component created through this class is recorded together with the time it took to create and
+ * whether it was created before {@linkplain #bootstrapFinished() bootstrap} finished, which shows
+ * what compiler startup actually paid for.
+ */
+public final class LazyInitialization {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Create snippet templates when first used instead of while the compiler is initialized", type = OptionType.Expert)
+        public static final OptionValue<Boolean> LazyInitialization = new OptionValue<>(false);
+        @Option(help = "Print the compiler components created during and after bootstrap and the time taken to create them at shutdown", type = OptionType.Debug)
+        public static final OptionValue<Boolean> PrintLazyInitialization = new OptionValue<>(false);
+        // @formatter:on
+    }
+
+    /**
+     * The creation of a single component.
+     */
+    static final class Record {
+        final String name;
+        final long startNanos;
+        final long durationNanos;
+        final boolean duringBootstrap;
+
+        Record(String name, long startNanos, long durationNanos, boolean duringBootstrap) {
+            this.name = name;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.duringBootstrap = duringBootstrap;
+        }
+    }
+
+    /**
+     * A component that is created by the first call to {@link #get()}.
+     */
+    private static final class Lazy<T> implements Supplier<T> {
+        private final String name;
+        private Supplier<T> factory;
+        private volatile T value;
+
+        Lazy(String name, Supplier<T> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        @Override
+        public T get() {
+            T result = value;
+            if (result == null) {
+                synchronized (this) {
+                    result = value;
+                    if (result == null) {
+                        result = create(name, factory);
+                        factory = null;
+                        value = result;
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Lazy<" + name + ">";
+        }
+    }
+
+    private static final long startTime = System.nanoTime();
+    private static final List<Record> records = Collections.synchronizedList(new ArrayList<>());
+    private static volatile boolean bootstrapFinished;
+
+    private LazyInitialization() {
+    }
+
+    /**
+     * Gets a supplier for a compiler component. If {@link Options#LazyInitialization} is enabled,
+     * the component is created by the first call to {@link Supplier#get()} on the returned
+     * supplier. Otherwise it is created by this call.
+     *
+     * @param name the name under which the creation of the component is recorded
+     * @param factory creates the component. Must not return {@code null}.
+     */
+    public static <T> Supplier<T> of(String name, Supplier<T> factory) {
+        if (Options.LazyInitialization.getValue()) {
+            return new Lazy<>(name, factory);
+        }
+        T value = create(name, factory);
+        return () -> value;
+    }
+
+    /**
+     * Determines if the component of a supplier returned by {@link #of} has been created.
+     */
+    public static boolean isCreated(Supplier<?> supplier) {
+        return !(supplier instanceof Lazy) || ((Lazy<?>) supplier).value != null;
+    }
+
+    /**
+     * Creates a component and records its creation.
+     */
+    public static <T> T create(String name, Supplier<T> factory) {
+        long start = System.nanoTime();
+        T value = factory.get();
+        assert value != null : name;
+        record(name, start);
+        return value;
+    }
+
+    /**
+     * Records the creation of a component that started at {@code startNanos} (a
+     * {@link System#nanoTime()} value) and has just completed. Nothing is recorded unless
+     * {@link Options#PrintLazyInitialization} is enabled.
+     */
+    public static void record(String name, long startNanos) {
+        if (!Options.PrintLazyInitialization.getValue()) {
+            return;
+        }
+        records.add(new Record(name, startNanos - startTime, System.nanoTime() - startNanos, !bootstrapFinished));
+    }
+
+    /**
+     * Runs an initialization action and records it under {@code name}.
+     */
+    public static void run(String name, Runnable action) {
+        create(name, () -> {
+            action.run();
+            return Boolean.TRUE;
+        });
+    }
+
+    /**
+     * Notifies that bootstrap has finished. Components created after this call are reported as
+     * created on first use after bootstrap.
+     */
+    static void bootstrapFinished() {
+        bootstrapFinished = true;
+    }
+
+    static List<Record> getRecords() {
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    /**
+     * Prints the components created so far if {@link Options#PrintLazyInitialization} is enabled.
+     * The components are split into those created during and after bootstrap only if the VM
+     * bootstrapped the compiler.
+     */
+    static void shutdown() {
+        if (!Options.PrintLazyInitialization.getValue()) {
+            return;
+        }
+        List<Record> snapshot = getRecords();
+        if (bootstrapFinished) {
+            printSection("Initialized during bootstrap", snapshot, true);
+            printSection("Initialized after bootstrap", snapshot, false);
+        } else {
+            printSection("Initialized components", snapshot, true);
+        }
+    }
+
+    private static void printSection(String title, List<Record> snapshot, boolean duringBootstrap) {
+        long total = 0;
+        int count = 0;
+        TTY.println(title + ":");
+        for (Record r : snapshot) {
+            if (r.duringBootstrap == duringBootstrap) {
+                TTY.println(String.format("  %-60s at %8d us took %8d us", r.name, r.startNanos / 1000, r.durationNanos / 1000));
+                total += r.durationNanos;
+                count++;
+            }
+        }
+        TTY.println(String.format("  %d components, %d us", count, total / 1000));
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaMethodProfile;
+import jdk.vm.ci.meta.JavaTypeProfile;
+import jdk.vm.ci.meta.JavaTypeProfile.ProfiledType;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaType;
+import jdk.vm.ci.meta.TriState;
+
+/**
+ * A {@link ProfilingInfo} that records the answers given by another profiling info so that they
+ * can be {@linkplain #write written} to a {@link CompilationRecord} and later be
+ * {@linkplain #read replayed}. Each query is only forwarded once; subsequent queries for the same
+ * bci return the recorded answer so that a compilation sees a consistent profile even if the
+ * underlying profile is still being updated by the running program.
+ *
+ * Method profiles are not recorded and are always {@code null} in a replayed compilation.
+ */
+final class RecordedProfilingInfo implements ProfilingInfo {
+
+    /**
+     * The profile being recorded, or {@code null} if this profile is replayed.
+     */
+    private final ProfilingInfo delegate;
+
+    private int codeSize;
+    private TriState mature;
+    private final Map<Integer, Double> branchTakenProbabilities = new HashMap<>();
+    private final Map<Integer, double[]> switchProbabilities = new HashMap<>();
+    private final Map<Integer, JavaTypeProfile> typeProfiles = new HashMap<>();
+    private final Map<Integer, TriState> exceptionSeen = new HashMap<>();
+    private final Map<Integer, TriState> nullSeen = new HashMap<>();
+    private final Map<Integer, Integer> executionCounts = new HashMap<>();
+    private final Map<DeoptimizationReason, Integer> deoptimizationCounts = new EnumMap<>(DeoptimizationReason.class);
+    private final Map<String, Integer> compilerIRSizes = new HashMap<>();
+
+    RecordedProfilingInfo(ProfilingInfo delegate) {
+        this.delegate = delegate;
+        this.codeSize = delegate == null ? 0 : delegate.getCodeSize();
+        this.mature = TriState.UNKNOWN;
+    }
+
+    @Override
+    public int getCodeSize() {
+        return codeSize;
+    }
+
+    @Override
+    public double getBranchTakenProbability(int bci) {
+        return branchTakenProbabilities.computeIfAbsent(bci, b -> delegate == null ? -1D : delegate.getBranchTakenProbability(b));
+    }
+
+    @Override
+    public double[] getSwitchProbabilities(int bci) {
+        if (!switchProbabilities.containsKey(bci)) {
+            switchProbabilities.put(bci, delegate == null ? null : delegate.getSwitchProbabilities(bci));
+        }
+        return switchProbabilities.get(bci);
+    }
+
+    @Override
+    public JavaTypeProfile getTypeProfile(int bci) {
+        if (!typeProfiles.containsKey(bci)) {
+            typeProfiles.put(bci, delegate == null ? null : delegate.getTypeProfile(bci));
+        }
+        return typeProfiles.get(bci);
+    }
+
+    @Override
+    public JavaMethodProfile getMethodProfile(int bci) {
+        return null;
+    }
+
+    @Override
+    public TriState getExceptionSeen(int bci) {
+        return exceptionSeen.computeIfAbsent(bci, b -> delegate == null ? TriState.UNKNOWN : delegate.getExceptionSeen(b));
+    }
+
+    @Override
+    public TriState getNullSeen(int bci) {
+        return nullSeen.computeIfAbsent(bci, b -> delegate == null ? TriState.UNKNOWN : delegate.getNullSeen(b));
+    }
+
+    @Override
+    public int getExecutionCount(int bci) {
+        return executionCounts.computeIfAbsent(bci, b -> delegate == null ? -1 : delegate.getExecutionCount(b));
+    }
+
+    @Override
+    public int getDeoptimizationCount(DeoptimizationReason reason) {
+        return deoptimizationCounts.computeIfAbsent(reason, r -> delegate == null ? 0 : delegate.getDeoptimizationCount(r));
+    }
+
+    @Override
+    public boolean setCompilerIRSize(Class<?> irType, int irSize) {
+        return delegate != null && delegate.setCompilerIRSize(irType, irSize);
+    }
+
+    @Override
+    public int getCompilerIRSize(Class<?> irType) {
+        return compilerIRSizes.computeIfAbsent(irType.getName(), n -> delegate == null ? -1 : delegate.getCompilerIRSize(irType));
+    }
+
+    @Override
+    public boolean isMature() {
+        if (mature == TriState.UNKNOWN) {
+            mature = TriState.get(delegate != null && delegate.isMature());
+        }
+        return mature.isTrue();
+    }
+
+    @Override
+    public void setMature() {
+        if (delegate != null) {
+            delegate.setMature();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RecordedProfilingInfo<" + (delegate == null ? "replayed" : delegate.toString()) + ">";
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(codeSize);
+        out.writeBoolean(isMature());
+        out.writeInt(branchTakenProbabilities.size());
+        for (Map.Entry<Integer, Double> e : branchTakenProbabilities.entrySet()) {
+            out.writeInt(e.getKey());
+            out.writeDouble(e.getValue());
+        }
+        out.writeInt(switchProbabilities.size());
+        for (Map.Entry<Integer, double[]> e : switchProbabilities.entrySet()) {
+            out.writeInt(e.getKey());
+            double[] probabilities = e.getValue();
+            out.writeInt(probabilities == null ? -1 : probabilities.length);
+            if (probabilities != null) {
+                for (double p : probabilities) {
+                    out.writeDouble(p);
+                }
+            }
+        }
+        out.writeInt(typeProfiles.size());
+        for (Map.Entry<Integer, JavaTypeProfile> e : typeProfiles.entrySet()) {
+            out.writeInt(e.getKey());
+            JavaTypeProfile profile = e.getValue();
+            out.writeBoolean(profile != null);
+            if (profile != null) {
+                out.writeByte(profile.getNullSeen().ordinal());
+                out.writeDouble(profile.getNotRecordedProbability());
+                ProfiledType[] types = profile.getTypes();
+                out.writeInt(types.length);
+                for (ProfiledType type : types) {
+                    out.writeUTF(type.getType().getName());
+                    out.writeDouble(type.getProbability());
+                }
+            }
+        }
+        writeTriStates(out, exceptionSeen);
+        writeTriStates(out, nullSeen);
+        out.writeInt(executionCounts.size());
+        for (Map.Entry<Integer, Integer> e : executionCounts.entrySet()) {
+            out.writeInt(e.getKey());
+            out.writeInt(e.getValue());
+        }
+        out.writeInt(deoptimizationCounts.size());
+        for (Map.Entry<DeoptimizationReason, Integer> e : deoptimizationCounts.entrySet()) {
+            out.writeUTF(e.getKey().name());
+            out.writeInt(e.getValue());
+        }
+        out.writeInt(compilerIRSizes.size());
+        for (Map.Entry<String, Integer> e : compilerIRSizes.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeInt(e.getValue());
+        }
+    }
+
+    private static void writeTriStates(DataOutputStream out, Map<Integer, TriState> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<Integer, TriState> e : map.entrySet()) {
+            out.writeInt(e.getKey());
+            out.writeByte(e.getValue().ordinal());
+        }
+    }
+
+    /**
+     * Reads a replayed profile.
+     *
+     * @param typeResolver resolves a type name in the format of {@link ResolvedJavaType#getName()}
+     *            to a type, or returns {@code null} if the type cannot be resolved. Profiled types
+     *            that cannot be resolved are treated as not recorded.
+     */
+    static RecordedProfilingInfo read(DataInputStream in, Function<String, ResolvedJavaType> typeResolver) throws IOException {
+        RecordedProfilingInfo info = new RecordedProfilingInfo(null);
+        info.codeSize = in.readInt();
+        info.mature = TriState.get(in.readBoolean());
+        for (int i = in.readInt(); i > 0; i--) {
+            info.branchTakenProbabilities.put(in.readInt(), in.readDouble());
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            int bci = in.readInt();
+            int length = in.readInt();
+            double[] probabilities = length < 0 ? null : new double[length];
+            for (int j = 0; j < length; j++) {
+                probabilities[j] = in.readDouble();
+            }
+            info.switchProbabilities.put(bci, probabilities);
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            int bci = in.readInt();
+            JavaTypeProfile profile = null;
+            if (in.readBoolean()) {
+                TriState profileNullSeen = TriState.values()[in.readByte()];
+                double notRecorded = in.readDouble();
+                List<ProfiledType> types = new ArrayList<>();
+                for (int j = in.readInt(); j > 0; j--) {
+                    ResolvedJavaType type = typeResolver.apply(in.readUTF());
+                    double probability = in.readDouble();
+                    if (type != null) {
+                        types.add(new ProfiledType(type, probability));
+                    } else {
+                        notRecorded += probability;
+                    }
+                }
+                profile = new JavaTypeProfile(profileNullSeen, Math.min(1D, notRecorded), types.toArray(new ProfiledType[types.size()]));
+            }
+            info.typeProfiles.put(bci, profile);
+        }
+        readTriStates(in, info.exceptionSeen);
+        readTriStates(in, info.nullSeen);
+        for (int i = in.readInt(); i > 0; i--) {
+            info.executionCounts.put(in.readInt(), in.readInt());
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            info.deoptimizationCounts.put(DeoptimizationReason.valueOf(in.readUTF()), in.readInt());
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            info.compilerIRSizes.put(in.readUTF(), in.readInt());
+        }
+        return info;
+    }
+
+    private static void readTriStates(DataInputStream in, Map<Integer, TriState> map) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            map.put(in.readInt(), TriState.values()[in.readByte()]);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.oracle.graal.debug.CSVUtil;
+import com.oracle.graal.debug.TTY;
+
+/**
+ * Aggregates {@link CompilationStatistics} into histograms of constant size instead of keeping a
+ * record per compilation. Each thread records into its own {@link Accumulator}; the accumulators
+ * are only merged when a {@linkplain #snapshot(boolean) snapshot} is taken.
+ */
+public final class StreamingCompilationStatistics {
+
+    /**
+     * The values recorded per compilation.
+     */
+    public enum Value {
+        BytecodeCount(false),
+        CodeSize(false),
+        Duration(true),
+        MemoryUsed(false);
+
+        final boolean isTime;
+
+        Value(boolean isTime) {
+            this.isTime = isTime;
+        }
+    }
+
+    private static final Value[] VALUES = Value.values();
+
+    /**
+     * A histogram with power of two buckets. Percentiles are reported as the upper bound of the
+     * bucket they fall into, i.e., they are accurate within a factor of two.
+     */
+    public static final class Histogram {
+
+        private static final int BUCKETS = 64;
+
+        private final long[] buckets = new long[BUCKETS];
+        private long count;
+        private long sum;
+        private long min = Long.MAX_VALUE;
+        private long max = Long.MIN_VALUE;
+
+        void add(long value) {
+            long v = Math.max(value, 0);
+            // bucket i holds the values in [2^(i-1), 2^i - 1], bucket 0 holds 0
+            buckets[BUCKETS - Long.numberOfLeadingZeros(v)]++;
+            count++;
+            sum += v;
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+
+        void merge(Histogram other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] += other.buckets[i];
+            }
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        void reset() {
+            Arrays.fill(buckets, 0);
+            count = 0;
+            sum = 0;
+            min = Long.MAX_VALUE;
+            max = Long.MIN_VALUE;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public long getMin() {
+            return count == 0 ? 0 : min;
+        }
+
+        public long getMax() {
+            return count == 0 ? 0 : max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Gets an upper bound of the value below which {@code percentile} percent of the recorded
+         * values fall.
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100d);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    long upperBound = i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.min(upperBound, max);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * The histograms of one thread. Only the owning thread records into an accumulator, so the
+     * lock is uncontended except while a snapshot is taken.
+     */
+    static final class Accumulator {
+
+        final Histogram[] histograms = new Histogram[VALUES.length];
+
+        Accumulator() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new Histogram();
+            }
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Accumulator> accumulators = new ConcurrentLinkedQueue<>();
+
+    private final ThreadLocal<Accumulator> accumulator = new ThreadLocal<Accumulator>() {
+        @Override
+        protected Accumulator initialValue() {
+            Accumulator result = new Accumulator();
+            accumulators.add(result);
+            return result;
+        }
+    };
+
+    /**
+     * Holds the values of snapshots that could not be {@linkplain #rollover written} so that they
+     * are part of the next snapshot.
+     */
+    private final Accumulator unwritten = new Accumulator();
+
+    /**
+     * Serializes {@link #rollover}s so that their lines are not interleaved.
+     */
+    private final Object rolloverLock = new Object();
+
+    private final long rolloverIntervalNanos;
+    private volatile long lastRollover;
+
+    /**
+     * @param rolloverIntervalNanos the interval after which {@link #record} reports that the
+     *            statistics should be rolled over, or 0 to never roll over
+     */
+    public StreamingCompilationStatistics(long rolloverIntervalNanos) {
+        this.rolloverIntervalNanos = rolloverIntervalNanos;
+        this.lastRollover = System.nanoTime();
+        accumulators.add(unwritten);
+    }
+
+    /**
+     * Records the values of one compilation for the current thread.
+     *
+     * @return {@code true} if the rollover interval elapsed and the caller was chosen to roll
+     *         over the statistics
+     */
+    public boolean record(long bytecodeCount, long codeSize, long duration, long memoryUsed) {
+        Accumulator a = accumulator.get();
+        synchronized (a) {
+            Histogram[] histograms = a.histograms;
+            histograms[Value.BytecodeCount.ordinal()].add(bytecodeCount);
+            histograms[Value.CodeSize.ordinal()].add(codeSize);
+            histograms[Value.Duration.ordinal()].add(duration);
+            histograms[Value.MemoryUsed.ordinal()].add(memoryUsed);
+        }
+        if (rolloverIntervalNanos > 0) {
+            long last = lastRollover;
+            long now = System.nanoTime();
+            if (now - last >= rolloverIntervalNanos) {
+                synchronized (this) {
+                    if (lastRollover == last) {
+                        lastRollover = now;
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merges the histograms of all threads.
+     *
+     * @param reset specifies if the per-thread histograms are cleared after they were merged
+     * @return the merged histograms, indexed by {@link Value#ordinal()}
+     */
+    public Histogram[] snapshot(boolean reset) {
+        Histogram[] result = new Histogram[VALUES.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new Histogram();
+        }
+        for (Accumulator a : accumulators) {
+            synchronized (a) {
+                for (int i = 0; i < result.length; i++) {
+                    result[i].merge(a.histograms[i]);
+                    if (reset) {
+                        a.histograms[i].reset();
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Appends a snapshot to {@code file}, preceded by a {@linkplain #printHeader header} if the file
+     * does not exist yet, and resets the statistics. If the snapshot cannot be written, this is
+     * reported on {@link TTY} and the snapshot is kept for the next rollover.
+     *
+     * @return {@code true} if the snapshot was written
+     */
+    public boolean rollover(File file, String label) {
+        synchronized (rolloverLock) {
+            Histogram[] snapshot = snapshot(true);
+            boolean written;
+            boolean printHeader = !file.exists();
+            try (PrintStream out = new PrintStream(new FileOutputStream(file, true))) {
+                if (printHeader) {
+                    printHeader(out);
+                }
+                print(out, label, snapshot);
+                written = !out.checkError();
+            } catch (FileNotFoundException e) {
+                written = false;
+            }
+            if (!written) {
+                TTY.println("Could not write compilation statistics to %s", file);
+                synchronized (unwritten) {
+                    for (int i = 0; i < snapshot.length; i++) {
+                        unwritten.histograms[i].merge(snapshot[i]);
+                    }
+                }
+            }
+            return written;
+        }
+    }
+
+    /**
+     * Prints a header line for the output of {@link #print}.
+     */
+    public static void printHeader(PrintStream out) {
+        CSVUtil.Escape.println(out, CSVUtil.buildFormatString("%s", 10), "label", "value", "count", "sum", "min", "mean", "p50", "p90", "p99", "max");
+    }
+
+    /**
+     * Prints one line per {@link Value} of a snapshot. Time values are printed in milliseconds.
+     */
+    public static void print(PrintStream out, String label, Histogram[] snapshot) {
+        String format = CSVUtil.buildFormatString("%s", 10);
+        for (Value value : VALUES) {
+            Histogram h = snapshot[value.ordinal()];
+            CSVUtil.Escape.println(out, format, label, value, h.getCount(), format(value, h.getSum()), format(value, h.getMin()), format(value, h.getMean()),
+                            format(value, h.getPercentile(50)), format(value, h.getPercentile(90)), format(value, h.getPercentile(99)), format(value, h.getMax()));
+        }
+    }
+
+    private static String format(Value value, double v) {
+        if (value.isTime) {
+            return String.format(Locale.ENGLISH, "%.3f", v / 1000000d);
+        }
+        return String.format(Locale.ENGLISH, "%.0f", v);
+    }
+}
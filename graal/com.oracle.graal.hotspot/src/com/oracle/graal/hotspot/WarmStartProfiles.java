@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.hotspot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.DebugCounter;
+import com.oracle.graal.debug.TTY;
+import com.oracle.graal.hotspot.CompilationRecord.MethodKey;
+import com.oracle.graal.nodes.spi.ProfilingInfoProvider;
+import com.oracle.graal.options.Option;
+import com.oracle.graal.options.OptionType;
+import com.oracle.graal.options.OptionValue;
+
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * A cache of the profiles consumed by compilations that survives VM restarts. When enabled, the
+ * mature profiles used by successful compilations are saved to {@link Options#WarmStartProfiles}
+ * at shutdown. After a restart, a compilation that finds the live profile of a method to be
+ * immature uses the saved profile instead.
+ *
+ * Saved profiles are keyed by method and tagged with a checksum of the method's bytecode. A saved
+ * profile whose checksum does not match the loaded method is stale and is discarded, as are
+ * profiles that have not been used or refreshed by a successful compilation within
+ * {@link Options#WarmStartProfilesMaxAge} runs.
+ *
+ * The types in a saved profile are resolved with the class loader of the profiled method's holder
+ * and are only used if they have already been loaded by it, so that seeding a profile never loads
+ * classes on the compiler thread.
+ */
+public final class WarmStartProfiles {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "File in which the profiles used by compilations are saved at shutdown and from which " +
+                       "immature profiles are seeded at startup", type = OptionType.Expert)
+        public static final OptionValue<String> WarmStartProfiles = new OptionValue<>(null);
+        @Option(help = "Number of runs after which a saved profile that was not used or refreshed by a successful compilation is discarded", type = OptionType.Expert)
+        public static final OptionValue<Integer> WarmStartProfilesMaxAge = new OptionValue<>(5);
+        // @formatter:on
+    }
+
+    private static final int MAGIC = 0x47575350;
+    private static final int VERSION = 1;
+
+    private static final DebugCounter SEEDED_PROFILES = Debug.counter("WarmStartSeededProfiles");
+    private static final DebugCounter STALE_PROFILES = Debug.counter("WarmStartStaleProfiles");
+    private static final DebugCounter SEEDED_COMPILATIONS = Debug.counter("WarmStartSeededCompilations");
+    private static final DebugCounter SAVED_PROFILES = Debug.counter("WarmStartSavedProfiles");
+
+    /**
+     * A saved profile in its serialized form. Profiles are only deserialized when used so that
+     * loading the cache does not resolve any types.
+     */
+    private static final class Entry {
+        final long checksum;
+        final int age;
+        final byte[] profile;
+
+        Entry(long checksum, int age, byte[] profile) {
+            this.checksum = checksum;
+            this.age = age;
+            this.profile = profile;
+        }
+    }
+
+    private static volatile WarmStartProfiles instance;
+
+    private final File file;
+    private final Map<MethodKey, Entry> entries = new ConcurrentHashMap<>();
+
+    public WarmStartProfiles(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the profile cache, loading it on first use.
+     *
+     * @return {@code null} if {@link Options#WarmStartProfiles} is not set
+     */
+    static WarmStartProfiles get() {
+        WarmStartProfiles result = instance;
+        if (result == null && Options.WarmStartProfiles.getValue() != null) {
+            synchronized (WarmStartProfiles.class) {
+                result = instance;
+                if (result == null) {
+                    result = new WarmStartProfiles(new File(Options.WarmStartProfiles.getValue()));
+                    result.load();
+                    instance = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Saves the profile cache if it was used.
+     */
+    static void shutdown() {
+        WarmStartProfiles result = instance;
+        if (result != null) {
+            result.save();
+        }
+    }
+
+    /**
+     * Adds the profiles saved in the file of this cache that are not older than
+     * {@link Options#WarmStartProfilesMaxAge} runs.
+     */
+    public void load() {
+        if (!file.exists()) {
+            return;
+        }
+        int maxAge = Options.WarmStartProfilesMaxAge.getValue();
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                TTY.println("Ignoring warm start profiles in " + file + ": not a profile file of version " + VERSION);
+                return;
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                MethodKey method = MethodKey.read(in);
+                long checksum = in.readLong();
+                int age = in.readInt() + 1;
+                byte[] profile = new byte[in.readInt()];
+                in.readFully(profile);
+                if (age <= maxAge) {
+                    entries.put(method, new Entry(checksum, age, profile));
+                }
+            }
+        } catch (IOException e) {
+            entries.clear();
+            TTY.println("Ignoring warm start profiles in " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Saves the profiles in this cache to its file. The profiles are written to a temporary file
+     * that then replaces the file, so that a VM that is killed while saving or that starts
+     * concurrently never sees a partially written file.
+     */
+    public void save() {
+        File temp;
+        try {
+            temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        } catch (IOException e) {
+            TTY.println("Error saving warm start profiles to " + file + ": " + e);
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(temp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            Map<MethodKey, Entry> snapshot = new HashMap<>(entries);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<MethodKey, Entry> e : snapshot.entrySet()) {
+                e.getKey().write(out);
+                out.writeLong(e.getValue().checksum);
+                out.writeInt(e.getValue().age);
+                out.writeInt(e.getValue().profile.length);
+                out.write(e.getValue().profile);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            TTY.println("Error saving warm start profiles to " + file + ": " + e);
+            return;
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            temp.delete();
+            TTY.println("Error saving warm start profiles to " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Computes the checksum used to detect that a saved profile belongs to a different version of
+     * a method.
+     */
+    private static long checksum(ResolvedJavaMethod method) {
+        CRC32 crc = new CRC32();
+        byte[] code = method.getCode();
+        if (code != null) {
+            crc.update(code);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Creates the state for a single compilation.
+     */
+    public Session openSession() {
+        return new Session();
+    }
+
+    /**
+     * The profiles requested by a single compilation. The {@linkplain #provider() provider} answers
+     * requests for immature profiles with saved profiles and records the mature profiles used so
+     * that they can be saved once the compilation {@linkplain #succeeded() succeeded}.
+     */
+    public final class Session {
+
+        private final Map<MethodKey, RecordedProfilingInfo> consumed = new HashMap<>();
+        private final Map<MethodKey, Long> checksums = new HashMap<>();
+        private final Map<MethodKey, ProfilingInfo> seededProfiles = new HashMap<>();
+        private final Map<MethodKey, Entry> seededEntries = new HashMap<>();
+
+        private Session() {
+        }
+
+        public ProfilingInfoProvider provider() {
+            return new ProfilingInfoProvider() {
+                @Override
+                protected ProfilingInfo getProfilingInfo(ResolvedJavaMethod method, boolean includeNormal, boolean includeOSR) {
+                    ProfilingInfo live = getOuterProfilingInfo(method, includeNormal, includeOSR);
+                    if (!includeNormal || includeOSR) {
+                        return live;
+                    }
+                    MethodKey key = new MethodKey(method);
+                    if (live.isMature()) {
+                        return consumed.computeIfAbsent(key, k -> {
+                            checksums.put(k, checksum(method));
+                            return new RecordedProfilingInfo(live);
+                        });
+                    }
+                    if (!seededProfiles.containsKey(key)) {
+                        seededProfiles.put(key, lookup(key, method));
+                    }
+                    ProfilingInfo saved = seededProfiles.get(key);
+                    return saved != null ? saved : live;
+                }
+            };
+        }
+
+        private ProfilingInfo lookup(MethodKey key, ResolvedJavaMethod method) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.checksum != checksum(method)) {
+                STALE_PROFILES.increment();
+                entries.remove(key, entry);
+                return null;
+            }
+            try {
+                ProfilingInfo result = RecordedProfilingInfo.read(new DataInputStream(new ByteArrayInputStream(entry.profile)), name -> CompilationRecord.resolveType(method.getDeclaringClass(), name, false));
+                SEEDED_PROFILES.increment();
+                seededEntries.put(key, entry);
+                return result;
+            } catch (IOException e) {
+                entries.remove(key, entry);
+                return null;
+            }
+        }
+
+        /**
+         * Adds the mature profiles used by the compilation to the cache and resets the age of the
+         * saved profiles that seeded it, so that a profile used in every run does not expire.
+         */
+        public void succeeded() {
+            if (!seededEntries.isEmpty()) {
+                SEEDED_COMPILATIONS.increment();
+            }
+            for (Map.Entry<MethodKey, Entry> e : seededEntries.entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.age != 0) {
+                    entries.replace(e.getKey(), entry, new Entry(entry.checksum, 0, entry.profile));
+                }
+            }
+            for (Map.Entry<MethodKey, RecordedProfilingInfo> e : consumed.entrySet()) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (DataOutputStream out = new DataOutputStream(bytes)) {
+                    e.getValue().write(out);
+                } catch (IOException ex) {
+                    continue;
+                }
+                entries.put(e.getKey(), new Entry(checksums.get(e.getKey()), 0, bytes.toByteArray()));
+                SAVED_PROFILES.increment();
+            }
+        }
+    }
+}
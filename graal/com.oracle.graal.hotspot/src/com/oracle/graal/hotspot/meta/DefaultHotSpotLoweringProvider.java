@@ -38,6 +38,7 @@ import static com.oracle.graal.hotspot.replacements.NewObjectSnippets.INIT_LOCAT
 import static jdk.vm.ci.hotspot.HotSpotJVMCIRuntimeProvider.getArrayBaseOffset;
 
 import java.lang.ref.Reference;
+import java.util.function.Supplier;
 
 import com.oracle.graal.api.directives.GraalDirectives;
 import com.oracle.graal.compiler.common.LocationIdentity;
@@ -52,6 +53,7 @@ import com.oracle.graal.graph.Node;
 import com.oracle.graal.graph.NodeInputList;
 import com.oracle.graal.hotspot.GraalHotSpotVMConfig;
 import com.oracle.graal.hotspot.HotSpotGraalRuntimeProvider;
+import com.oracle.graal.hotspot.LazyInitialization;
 import com.oracle.graal.hotspot.nodes.CompressionNode;
 import com.oracle.graal.hotspot.nodes.CompressionNode.CompressionOp;
 import com.oracle.graal.hotspot.nodes.ComputeObjectAddressNode;
@@ -161,15 +163,15 @@ public class DefaultHotSpotLoweringProvider extends DefaultJavaLoweringProvider
     protected final HotSpotRegistersProvider registers;
     protected final HotSpotConstantReflectionProvider constantReflection;
 
-    protected InstanceOfSnippets.Templates instanceofSnippets;
-    protected NewObjectSnippets.Templates newObjectSnippets;
-    protected MonitorSnippets.Templates monitorSnippets;
-    protected WriteBarrierSnippets.Templates writeBarrierSnippets;
-    protected LoadExceptionObjectSnippets.Templates exceptionObjectSnippets;
-    protected UnsafeLoadSnippets.Templates unsafeLoadSnippets;
-    protected AssertionSnippets.Templates assertionSnippets;
-    protected ArrayCopySnippets.Templates arraycopySnippets;
-    protected StringToBytesSnippets.Templates stringToBytesSnippets;
+    protected Supplier<InstanceOfSnippets.Templates> instanceofSnippets;
+    protected Supplier<NewObjectSnippets.Templates> newObjectSnippets;
+    protected Supplier<MonitorSnippets.Templates> monitorSnippets;
+    protected Supplier<WriteBarrierSnippets.Templates> writeBarrierSnippets;
+    protected Supplier<LoadExceptionObjectSnippets.Templates> exceptionObjectSnippets;
+    protected Supplier<UnsafeLoadSnippets.Templates> unsafeLoadSnippets;
+    protected Supplier<AssertionSnippets.Templates> assertionSnippets;
+    protected Supplier<ArrayCopySnippets.Templates> arraycopySnippets;
+    protected Supplier<StringToBytesSnippets.Templates> stringToBytesSnippets;
 
     public DefaultHotSpotLoweringProvider(HotSpotGraalRuntimeProvider runtime, MetaAccessProvider metaAccess, ForeignCallsProvider foreignCalls, HotSpotRegistersProvider registers,
                     HotSpotConstantReflectionProvider constantReflection, TargetDescription target) {
@@ -184,16 +186,17 @@ public class DefaultHotSpotLoweringProvider extends DefaultJavaLoweringProvider
         super.initialize(providers, providers.getSnippetReflection());
 
         assert target == providers.getCodeCache().getTarget();
-        instanceofSnippets = new InstanceOfSnippets.Templates(providers, target);
-        newObjectSnippets = new NewObjectSnippets.Templates(providers, target, config);
-        monitorSnippets = new MonitorSnippets.Templates(providers, target, config.useFastLocking);
-        writeBarrierSnippets = new WriteBarrierSnippets.Templates(providers, target, config.useCompressedOops ? config.getOopEncoding() : null);
-        exceptionObjectSnippets = new LoadExceptionObjectSnippets.Templates(providers, target);
-        unsafeLoadSnippets = new UnsafeLoadSnippets.Templates(providers, target);
-        assertionSnippets = new AssertionSnippets.Templates(providers, target);
-        arraycopySnippets = new ArrayCopySnippets.Templates(providers, target);
-        stringToBytesSnippets = new StringToBytesSnippets.Templates(providers, target);
-        providers.getReplacements().registerSnippetTemplateCache(new UnsafeArrayCopySnippets.Templates(providers, target));
+        instanceofSnippets = LazyInitialization.of("InstanceOfSnippets", () -> new InstanceOfSnippets.Templates(providers, target));
+        newObjectSnippets = LazyInitialization.of("NewObjectSnippets", () -> new NewObjectSnippets.Templates(providers, target, config));
+        monitorSnippets = LazyInitialization.of("MonitorSnippets", () -> new MonitorSnippets.Templates(providers, target, config.useFastLocking));
+        writeBarrierSnippets = LazyInitialization.of("WriteBarrierSnippets", () -> new WriteBarrierSnippets.Templates(providers, target, config.useCompressedOops ? config.getOopEncoding() : null));
+        exceptionObjectSnippets = LazyInitialization.of("LoadExceptionObjectSnippets", () -> new LoadExceptionObjectSnippets.Templates(providers, target));
+        unsafeLoadSnippets = LazyInitialization.of("UnsafeLoadSnippets", () -> new UnsafeLoadSnippets.Templates(providers, target));
+        assertionSnippets = LazyInitialization.of("AssertionSnippets", () -> new AssertionSnippets.Templates(providers, target));
+        arraycopySnippets = LazyInitialization.of("ArrayCopySnippets", () -> new ArrayCopySnippets.Templates(providers, target));
+        stringToBytesSnippets = LazyInitialization.of("StringToBytesSnippets", () -> new StringToBytesSnippets.Templates(providers, target));
+        // registered template caches are looked up by class and therefore always created eagerly
+        providers.getReplacements().registerSnippetTemplateCache(LazyInitialization.create("UnsafeArrayCopySnippets", () -> new UnsafeArrayCopySnippets.Templates(providers, target)));
     }
 
     @Override
@@ -214,7 +217,7 @@ public class DefaultHotSpotLoweringProvider extends DefaultJavaLoweringProvider
         } else if (n instanceof InstanceOfNode) {
             InstanceOfNode instanceOfNode = (InstanceOfNode) n;
             if (graph.getGuardsStage().areDeoptsFixed()) {
-                instanceofSnippets.lower(instanceOfNode, tool);
+                instanceofSnippets.get().lower(instanceOfNode, tool);
             } else {
                 if (instanceOfNode.allowsNull()) {
                     ValueNode object = instanceOfNode.getValue();
@@ -226,7 +229,7 @@ public class DefaultHotSpotLoweringProvider extends DefaultJavaLoweringProvider
         } else if (n instanceof InstanceOfDynamicNode) {
             InstanceOfDynamicNode instanceOfDynamicNode = (InstanceOfDynamicNode) n;
             if (graph.getGuardsStage().areDeoptsFixed()) {
-                instanceofSnippets.lower(instanceOfDynamicNode, tool);
+                instanceofSnippets.get().lower(instanceOfDynamicNode, tool);
             } else {
                 ValueNode mirror = instanceOfDynamicNode.getMirrorOrHub();
                 if (mirror.stamp().getStackKind() == JavaKind.Object) {
@@ -244,67 +247,67 @@ public class DefaultHotSpotLoweringProvider extends DefaultJavaLoweringProvider
             }
         } else if (n instanceof ClassIsAssignableFromNode) {
             if (graph.getGuardsStage().areDeoptsFixed()) {
-                instanceofSnippets.lower((ClassIsAssignableFromNode) n, tool);
+                instanceofSnippets.get().lower((ClassIsAssignableFromNode) n, tool);
             }
         } else if (n instanceof NewInstanceNode) {
             if (graph.getGuardsStage().areFrameStatesAtDeopts()) {
-                newObjectSnippets.lower((NewInstanceNode) n, registers, tool);
+                newObjectSnippets.get().lower((NewInstanceNode) n, registers, tool);
             }
         } else if (n instanceof DynamicNewInstanceNode) {
             if (graph.getGuardsStage().areFrameStatesAtDeopts()) {
-                newObjectSnippets.lower((DynamicNewInstanceNode) n, registers, tool);
+                newObjectSnippets.get().lower((DynamicNewInstanceNode) n, registers, tool);
             }
         } else if (n instanceof NewArrayNode) {
             if (graph.getGuardsStage().areFrameStatesAtDeopts()) {
-                newObjectSnippets.lower((NewArrayNode) n, registers, tool);
+                newObjectSnippets.get().lower((NewArrayNode) n, registers, tool);
             }
         } else if (n instanceof DynamicNewArrayNode) {
             if (graph.getGuardsStage().areFrameStatesAtDeopts()) {
-                newObjectSnippets.lower((DynamicNewArrayNode) n, registers, tool);
+                newObjectSnippets.get().lower((DynamicNewArrayNode) n, registers, tool);
             }
         } else if (n instanceof VerifyHeapNode) {
             if (graph.getGuardsStage().areFrameStatesAtDeopts()) {
-                newObjectSnippets.lower((VerifyHeapNode) n, registers, tool);
+                newObjectSnippets.get().lower((VerifyHeapNode) n, registers, tool);
             }
         } else if (n instanceof RawMonitorEnterNode) {
             if (graph.getGuardsStage().areFrameStatesAtDeopts()) {
-                monitorSnippets.lower((RawMonitorEnterNode) n, registers, tool);
+                monitorSnippets.get().lower((RawMonitorEnterNode) n, registers, tool);
             }
         } else if (n instanceof MonitorExitNode) {
             if (graph.getGuardsStage().areFrameStatesAtDeopts()) {
-                monitorSnippets.lower((MonitorExitNode) n, tool);
+                monitorSnippets.get().lower((MonitorExitNode) n, registers, tool);
             }
         } else if (n instanceof ArrayCopyNode) {
-            arraycopySnippets.lower((ArrayCopyNode) n, tool);
+            arraycopySnippets.get().lower((ArrayCopyNode) n, tool);
         } else if (n instanceof ArrayCopySlowPathNode) {
-            arraycopySnippets.lower((ArrayCopySlowPathNode) n, tool);
+            arraycopySnippets.get().lower((ArrayCopySlowPathNode) n, tool);
         } else if (n instanceof ArrayCopyUnrollNode) {
-            arraycopySnippets.lower((ArrayCopyUnrollNode) n, tool);
+            arraycopySnippets.get().lower((ArrayCopyUnrollNode) n, tool);
         } else if (n instanceof G1PreWriteBarrier) {
-            writeBarrierSnippets.lower((G1PreWriteBarrier) n, registers, tool);
+            writeBarrierSnippets.get().lower((G1PreWriteBarrier) n, registers, tool);
         } else if (n instanceof G1PostWriteBarrier) {
-            writeBarrierSnippets.lower((G1PostWriteBarrier) n, registers, tool);
+            writeBarrierSnippets.get().lower((G1PostWriteBarrier) n, registers, tool);
         } else if (n instanceof G1ReferentFieldReadBarrier) {
-            writeBarrierSnippets.lower((G1ReferentFieldReadBarrier) n, registers, tool);
+            writeBarrierSnippets.get().lower((G1ReferentFieldReadBarrier) n, registers, tool);
         } else if (n instanceof SerialWriteBarrier) {
-            writeBarrierSnippets.lower((SerialWriteBarrier) n, tool);
+            writeBarrierSnippets.get().lower((SerialWriteBarrier) n, tool);
         } else if (n instanceof SerialArrayRangeWriteBarrier) {
-            writeBarrierSnippets.lower((SerialArrayRangeWriteBarrier) n, tool);
+            writeBarrierSnippets.get().lower((SerialArrayRangeWriteBarrier) n, tool);
         } else if (n instanceof G1ArrayRangePreWriteBarrier) {
-            writeBarrierSnippets.lower((G1ArrayRangePreWriteBarrier) n, registers, tool);
+            writeBarrierSnippets.get().lower((G1ArrayRangePreWriteBarrier) n, registers, tool);
         } else if (n instanceof G1ArrayRangePostWriteBarrier) {
-            writeBarrierSnippets.lower((G1ArrayRangePostWriteBarrier) n, registers, tool);
+            writeBarrierSnippets.get().lower((G1ArrayRangePostWriteBarrier) n, registers, tool);
         } else if (n instanceof NewMultiArrayNode) {
             if (graph.getGuardsStage().areFrameStatesAtDeopts()) {
-                newObjectSnippets.lower((NewMultiArrayNode) n, tool);
+                newObjectSnippets.get().lower((NewMultiArrayNode) n, tool);
             }
         } else if (n instanceof LoadExceptionObjectNode) {
-            exceptionObjectSnippets.lower((LoadExceptionObjectNode) n, registers, tool);
+            exceptionObjectSnippets.get().lower((LoadExceptionObjectNode) n, registers, tool);
         } else if (n instanceof AssertionNode) {
-            assertionSnippets.lower((AssertionNode) n, tool);
+            assertionSnippets.get().lower((AssertionNode) n, tool);
         } else if (n instanceof StringToBytesNode) {
             if (graph.getGuardsStage().areDeoptsFixed()) {
-                stringToBytesSnippets.lower((StringToBytesNode) n, tool);
+                stringToBytesSnippets.get().lower((StringToBytesNode) n, tool);
             }
         } else if (n instanceof IntegerDivRemNode) {
             // Nothing to do for division nodes. The HotSpot signal handler catches divisions by
@@ -472,7 +475,7 @@ public class DefaultHotSpotLoweringProvider extends DefaultJavaLoweringProvider
     protected void lowerUnsafeLoadNode(UnsafeLoadNode load, LoweringTool tool) {
         StructuredGraph graph = load.graph();
         if (load.getGuardingCondition() == null && !graph.getGuardsStage().allowsFloatingGuards() && addReadBarrier(load)) {
-            unsafeLoadSnippets.lower(load, tool);
+            unsafeLoadSnippets.get().lower(load, tool);
         } else {
             super.lowerUnsafeLoadNode(load, tool);
         }
@@ -31,6 +31,7 @@ import java.util.List;
 
 import com.oracle.graal.debug.GraalError;
 import com.oracle.graal.graph.NodeClass;
+import com.oracle.graal.hotspot.CompilationRecord;
 import com.oracle.graal.hotspot.GraalHotSpotVMConfig;
 import com.oracle.graal.options.StableOptionValue;
 import com.oracle.graal.replacements.ReplacementsImpl;
@@ -58,7 +59,8 @@ public class HotSpotGraalConstantFieldProvider extends HotSpotConstantFieldProvi
     }
 
     @Override
-    public <T> T readConstantField(ResolvedJavaField field, ConstantFieldTool<T> tool) {
+    public <T> T readConstantField(ResolvedJavaField field, ConstantFieldTool<T> originalTool) {
+        ConstantFieldTool<T> tool = CompilationRecord.interceptConstantField(field, originalTool);
         assert !ImmutableCode.getValue() || isCalledForSnippets(metaAccess) || SnippetGraphUnderConstruction.get() != null ||
                         FieldReadEnabledInImmutableCode.get() == Boolean.TRUE : tool.getReceiver();
         if (!field.isStatic() && field.getName().equals("value")) {
@@ -37,6 +37,7 @@ import com.oracle.graal.api.replacements.SnippetReflectionProvider;
 import com.oracle.graal.compiler.common.LocationIdentity;
 import com.oracle.graal.compiler.common.spi.ForeignCallsProvider;
 import com.oracle.graal.hotspot.GraalHotSpotVMConfig;
+import com.oracle.graal.hotspot.LazyInitialization;
 import com.oracle.graal.hotspot.nodes.CurrentJavaThreadNode;
 import com.oracle.graal.hotspot.replacements.AESCryptSubstitutions;
 import com.oracle.graal.hotspot.replacements.CRC32Substitutions;
@@ -111,6 +112,7 @@ public class HotSpotGraphBuilderPlugins {
     public static Plugins create(GraalHotSpotVMConfig config, HotSpotWordTypes wordTypes, MetaAccessProvider metaAccess, ConstantReflectionProvider constantReflection,
                     SnippetReflectionProvider snippetReflection, ForeignCallsProvider foreignCalls, StampProvider stampProvider, ReplacementsImpl replacements) {
         InvocationPlugins invocationPlugins = new HotSpotInvocationPlugins(config, metaAccess);
+        invocationPlugins.setResolveOnFirstLookup(LazyInitialization.Options.LazyInitialization.getValue());
 
         Plugins plugins = new Plugins(invocationPlugins);
         NodeIntrinsificationProvider nodeIntrinsificationProvider = new NodeIntrinsificationProvider(metaAccess, snippetReflection, foreignCalls, wordTypes);
@@ -131,21 +133,23 @@ public class HotSpotGraphBuilderPlugins {
 
             @Override
             public void run() {
-                registerObjectPlugins(invocationPlugins);
-                registerClassPlugins(plugins, config);
-                registerSystemPlugins(invocationPlugins, foreignCalls);
-                registerThreadPlugins(invocationPlugins, metaAccess, wordTypes, config);
-                registerCallSitePlugins(invocationPlugins);
-                registerReflectionPlugins(invocationPlugins);
-                registerConstantPoolPlugins(invocationPlugins, wordTypes, config);
-                registerStableOptionPlugins(invocationPlugins, snippetReflection);
-                registerAESPlugins(invocationPlugins, config);
-                registerCRC32Plugins(invocationPlugins, config);
-                StandardGraphBuilderPlugins.registerInvocationPlugins(metaAccess, invocationPlugins, true);
-
-                for (NodeIntrinsicPluginFactory factory : GraalServices.load(NodeIntrinsicPluginFactory.class)) {
-                    factory.registerPlugins(invocationPlugins, nodeIntrinsificationProvider);
-                }
+                LazyInitialization.run("HotSpotInvocationPlugins", () -> {
+                    registerObjectPlugins(invocationPlugins);
+                    registerClassPlugins(plugins, config);
+                    registerSystemPlugins(invocationPlugins, foreignCalls);
+                    registerThreadPlugins(invocationPlugins, metaAccess, wordTypes, config);
+                    registerCallSitePlugins(invocationPlugins);
+                    registerReflectionPlugins(invocationPlugins);
+                    registerConstantPoolPlugins(invocationPlugins, wordTypes, config);
+                    registerStableOptionPlugins(invocationPlugins, snippetReflection);
+                    registerAESPlugins(invocationPlugins, config);
+                    registerCRC32Plugins(invocationPlugins, config);
+                    StandardGraphBuilderPlugins.registerInvocationPlugins(metaAccess, invocationPlugins, true);
+
+                    for (NodeIntrinsicPluginFactory factory : GraalServices.load(NodeIntrinsicPluginFactory.class)) {
+                        factory.registerPlugins(invocationPlugins, nodeIntrinsificationProvider);
+                    }
+                });
             }
         });
         return plugins;
@@ -651,6 +651,62 @@ public class HotSpotReplacementsUtil {
         return config.basicLockDisplacedHeaderOffset;
     }
 
+    public static final LocationIdentity OBJECT_MONITOR_OWNER_LOCATION = NamedLocationIdentity.mutable("ObjectMonitor::_owner");
+
+    public static final LocationIdentity OBJECT_MONITOR_RECURSION_LOCATION = NamedLocationIdentity.mutable("ObjectMonitor::_recursions");
+
+    public static final LocationIdentity OBJECT_MONITOR_CXQ_LOCATION = NamedLocationIdentity.mutable("ObjectMonitor::_cxq");
+
+    public static final LocationIdentity OBJECT_MONITOR_ENTRY_LIST_LOCATION = NamedLocationIdentity.mutable("ObjectMonitor::_EntryList");
+
+    /**
+     * Mask for the two lock bits of a mark word.
+     *
+     * <pre>
+     * +----------------------------------+-+-+
+     * |                                  |1|1|
+     * +----------------------------------+-+-+
+     * </pre>
+     */
+    @Fold
+    public static int markWordLockMaskInPlace(@InjectedParameter GraalHotSpotVMConfig config) {
+        return config.markWordLockMaskInPlace;
+    }
+
+    /**
+     * Pattern for the lock bits of a mark word pointing to an inflated {@code ObjectMonitor}.
+     *
+     * <pre>
+     * +----------------------------------+-+-+
+     * |                                  |1|0|
+     * +----------------------------------+-+-+
+     * </pre>
+     */
+    @Fold
+    public static int markWordMonitorValue(@InjectedParameter GraalHotSpotVMConfig config) {
+        return config.markWordMonitorValue;
+    }
+
+    @Fold
+    public static int objectMonitorOwnerOffset(@InjectedParameter GraalHotSpotVMConfig config) {
+        return config.objectMonitorOwnerOffset;
+    }
+
+    @Fold
+    public static int objectMonitorRecursionsOffset(@InjectedParameter GraalHotSpotVMConfig config) {
+        return config.objectMonitorRecursionsOffset;
+    }
+
+    @Fold
+    public static int objectMonitorCxqOffset(@InjectedParameter GraalHotSpotVMConfig config) {
+        return config.objectMonitorCxqOffset;
+    }
+
+    @Fold
+    public static int objectMonitorEntryListOffset(@InjectedParameter GraalHotSpotVMConfig config) {
+        return config.objectMonitorEntryListOffset;
+    }
+
     @Fold
     public static boolean useBiasedLocking(@InjectedParameter GraalHotSpotVMConfig config) {
         return config.useBiasedLocking;
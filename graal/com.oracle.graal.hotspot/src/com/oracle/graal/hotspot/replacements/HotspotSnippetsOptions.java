@@ -60,5 +60,9 @@ class HotspotSnippetsOptions {
 
     @Option(help = "Emit extra code to dynamically check monitor operations are balanced.", type = OptionType.Debug)
     static final OptionValue<Boolean> VerifyBalancedMonitors = new OptionValue<>(false);
+
+    @Option(help = "Acquire and release uncontended inflated monitors without calling into the runtime. " +
+                   "Only effective if the VM exports the required ObjectMonitor fields.", type = OptionType.Expert)
+    static final OptionValue<Boolean> InlineInflatedLocking = new OptionValue<>(true);
     //@formatter:on
 }
@@ -30,6 +30,10 @@ import static com.oracle.graal.hotspot.nodes.EndLockScopeNode.endLockScope;
 import static com.oracle.graal.hotspot.nodes.VMErrorNode.vmError;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.DISPLACED_MARK_WORD_LOCATION;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.MARK_WORD_LOCATION;
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.OBJECT_MONITOR_CXQ_LOCATION;
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.OBJECT_MONITOR_ENTRY_LIST_LOCATION;
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.OBJECT_MONITOR_OWNER_LOCATION;
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.OBJECT_MONITOR_RECURSION_LOCATION;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.PROTOTYPE_MARK_WORD_LOCATION;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.ageMaskInPlace;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.biasedLockMaskInPlace;
@@ -39,6 +43,12 @@ import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.epoc
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.loadWordFromObject;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.lockDisplacedMarkOffset;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.markOffset;
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.markWordLockMaskInPlace;
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.markWordMonitorValue;
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.objectMonitorCxqOffset;
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.objectMonitorEntryListOffset;
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.objectMonitorOwnerOffset;
+import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.objectMonitorRecursionsOffset;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.pageSize;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.prototypeMarkWordOffset;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.registerAsWord;
@@ -46,6 +56,7 @@ import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.unlo
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.useBiasedLocking;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.verifyOop;
 import static com.oracle.graal.hotspot.replacements.HotSpotReplacementsUtil.wordSize;
+import static com.oracle.graal.hotspot.replacements.HotspotSnippetsOptions.InlineInflatedLocking;
 import static com.oracle.graal.hotspot.replacements.HotspotSnippetsOptions.ProfileMonitors;
 import static com.oracle.graal.hotspot.replacements.HotspotSnippetsOptions.TraceMonitorsMethodFilter;
 import static com.oracle.graal.hotspot.replacements.HotspotSnippetsOptions.TraceMonitorsTypeFilter;
@@ -55,10 +66,13 @@ import static com.oracle.graal.nodes.extended.BranchProbabilityNode.VERY_FAST_PA
 import static com.oracle.graal.nodes.extended.BranchProbabilityNode.VERY_SLOW_PATH_PROBABILITY;
 import static com.oracle.graal.nodes.extended.BranchProbabilityNode.probability;
 import static com.oracle.graal.replacements.SnippetTemplate.DEFAULT_REPLACER;
+import static jdk.vm.ci.code.MemoryBarriers.LOAD_STORE;
+import static jdk.vm.ci.code.MemoryBarriers.STORE_STORE;
 
 import java.util.List;
 
 import com.oracle.graal.api.replacements.Fold;
+import com.oracle.graal.api.replacements.Fold.InjectedParameter;
 import com.oracle.graal.compiler.common.LocationIdentity;
 import com.oracle.graal.compiler.common.spi.ForeignCallDescriptor;
 import com.oracle.graal.compiler.common.type.ObjectStamp;
@@ -67,6 +81,7 @@ import com.oracle.graal.compiler.common.type.StampPair;
 import com.oracle.graal.graph.Node.ConstantNodeParameter;
 import com.oracle.graal.graph.Node.NodeIntrinsic;
 import com.oracle.graal.graph.iterators.NodeIterable;
+import com.oracle.graal.hotspot.GraalHotSpotVMConfig;
 import com.oracle.graal.hotspot.meta.HotSpotProviders;
 import com.oracle.graal.hotspot.meta.HotSpotRegistersProvider;
 import com.oracle.graal.hotspot.nodes.AcquiredCASLockNode;
@@ -88,10 +103,12 @@ import com.oracle.graal.nodes.ValueNode;
 import com.oracle.graal.nodes.debug.DynamicCounterNode;
 import com.oracle.graal.nodes.extended.BranchProbabilityNode;
 import com.oracle.graal.nodes.extended.ForeignCallNode;
+import com.oracle.graal.nodes.extended.MembarNode;
 import com.oracle.graal.nodes.java.MethodCallTargetNode;
 import com.oracle.graal.nodes.java.MonitorExitNode;
 import com.oracle.graal.nodes.java.RawMonitorEnterNode;
 import com.oracle.graal.nodes.memory.address.OffsetAddressNode;
+import com.oracle.graal.nodes.memory.address.RawAddressNode;
 import com.oracle.graal.nodes.spi.LoweringTool;
 import com.oracle.graal.nodes.type.StampTool;
 import com.oracle.graal.phases.common.inlining.InliningUtil;
@@ -363,6 +380,18 @@ public class MonitorSnippets implements Snippets {
             //
             // assuming both the stack pointer and page_size have their least
             // significant 2 bits cleared and page_size is a power of 2
+            if (useInlineInflatedLocking(INJECTED_VMCONFIG) && probability(BranchProbabilityNode.NOT_FREQUENT_PROBABILITY, isInflated(currentMark))) {
+                // The object has an inflated monitor. The lock slot still holds the non-zero
+                // unlocked mark, so monitorexit will not treat this as a recursive stack lock.
+                if (probability(VERY_FAST_PATH_PROBABILITY, tryEnterInflated(object, currentMark, registerAsWord(threadRegister), trace))) {
+                    return;
+                }
+                traceObject(trace, "+lock{stub:inflated}", object, true);
+                lockStubInflated.inc();
+                monitorenterStubC(MONITORENTER, object, lock);
+                return;
+            }
+
             final Word alignedMask = Word.unsigned(wordSize() - 1);
             final Word stackPointer = registerAsWord(stackPointerRegister).add(config(INJECTED_VMCONFIG).stackBias);
             if (probability(VERY_SLOW_PATH_PROBABILITY, currentMark.subtract(stackPointer).and(alignedMask.subtract(pageSize())).notEqual(0))) {
@@ -401,8 +430,85 @@ public class MonitorSnippets implements Snippets {
         monitorenterStubC(MONITORENTER, object, lock);
     }
 
+    /**
+     * Tries to acquire the inflated monitor denoted by {@code mark} without calling into the
+     * runtime. This succeeds if the monitor is unowned and the owner can be installed with a CAS or
+     * if the monitor is already owned by the current thread, in which case the recursion count is
+     * incremented.
+     */
+    private static boolean tryEnterInflated(Object object, Word mark, Word thread, boolean trace) {
+        final Word monitor = mark.subtract(markWordMonitorValue(INJECTED_VMCONFIG));
+        final Word owner = monitor.readWord(objectMonitorOwnerOffset(INJECTED_VMCONFIG), OBJECT_MONITOR_OWNER_LOCATION);
+        trace(trace, "          monitor: 0x%016lx\n", monitor);
+        trace(trace, "            owner: 0x%016lx\n", owner);
+        if (probability(BranchProbabilityNode.NOT_LIKELY_PROBABILITY, owner.equal(thread))) {
+            // Only the owner modifies the recursion count, no atomic operation is needed
+            Word recursions = monitor.readWord(objectMonitorRecursionsOffset(INJECTED_VMCONFIG), OBJECT_MONITOR_RECURSION_LOCATION);
+            monitor.writeWord(objectMonitorRecursionsOffset(INJECTED_VMCONFIG), recursions.add(1), OBJECT_MONITOR_RECURSION_LOCATION);
+            traceObject(trace, "+lock{inflated:recursive}", object, true);
+            lockInflatedRecursive.inc();
+            return true;
+        }
+        if (probability(FREQUENT_PROBABILITY, owner.equal(0))) {
+            // The CAS has full fence semantics which provides the required acquire ordering
+            Word address = monitor.add(objectMonitorOwnerOffset(INJECTED_VMCONFIG));
+            if (probability(VERY_FAST_PATH_PROBABILITY, compareAndSwap(RawAddressNode.address(address), Word.zero(), thread, OBJECT_MONITOR_OWNER_LOCATION).equal(0))) {
+                traceObject(trace, "+lock{inflated}", object, true);
+                lockInflated.inc();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tries to release the inflated monitor denoted by {@code mark} without calling into the
+     * runtime. This succeeds if the current thread owns the monitor and either holds it recursively
+     * or no other thread is queued on it. Otherwise the runtime has to select a successor.
+     */
+    private static boolean tryExitInflated(Object object, Word mark, Word thread, boolean trace) {
+        final Word monitor = mark.subtract(markWordMonitorValue(INJECTED_VMCONFIG));
+        final Word owner = monitor.readWord(objectMonitorOwnerOffset(INJECTED_VMCONFIG), OBJECT_MONITOR_OWNER_LOCATION);
+        trace(trace, "          monitor: 0x%016lx\n", monitor);
+        trace(trace, "            owner: 0x%016lx\n", owner);
+        if (probability(VERY_SLOW_PATH_PROBABILITY, owner.notEqual(thread))) {
+            // The owner may also be a lock slot of a stack lock that was inflated while held
+            return false;
+        }
+        Word recursions = monitor.readWord(objectMonitorRecursionsOffset(INJECTED_VMCONFIG), OBJECT_MONITOR_RECURSION_LOCATION);
+        if (probability(BranchProbabilityNode.NOT_LIKELY_PROBABILITY, recursions.notEqual(0))) {
+            monitor.writeWord(objectMonitorRecursionsOffset(INJECTED_VMCONFIG), recursions.subtract(1), OBJECT_MONITOR_RECURSION_LOCATION);
+            traceObject(trace, "-lock{inflated:recursive}", object, false);
+            unlockInflatedRecursive.inc();
+            return true;
+        }
+        Word cxq = monitor.readWord(objectMonitorCxqOffset(INJECTED_VMCONFIG), OBJECT_MONITOR_CXQ_LOCATION);
+        Word entryList = monitor.readWord(objectMonitorEntryListOffset(INJECTED_VMCONFIG), OBJECT_MONITOR_ENTRY_LIST_LOCATION);
+        if (probability(FREQUENT_PROBABILITY, cxq.or(entryList).equal(0))) {
+            // No thread is queued on the monitor. Release it with a store that cannot be reordered
+            // with the accesses of the critical section. A thread that enqueues itself after the
+            // check above is recovered by the runtime in the same way as after an exit from
+            // compiled code of the other compilers.
+            MembarNode.memoryBarrier(LOAD_STORE | STORE_STORE);
+            monitor.writeWord(objectMonitorOwnerOffset(INJECTED_VMCONFIG), Word.zero(), OBJECT_MONITOR_OWNER_LOCATION);
+            traceObject(trace, "-lock{inflated}", object, false);
+            unlockInflated.inc();
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isInflated(Word mark) {
+        return mark.and(markWordLockMaskInPlace(INJECTED_VMCONFIG)).equal(markWordMonitorValue(INJECTED_VMCONFIG));
+    }
+
+    @Fold
+    static boolean useInlineInflatedLocking(@InjectedParameter GraalHotSpotVMConfig config) {
+        return InlineInflatedLocking.getValue() && config.canInlineInflatedLocking();
+    }
+
     @Snippet
-    public static void monitorexit(Object object, @ConstantParameter int lockDepth, @ConstantParameter boolean trace) {
+    public static void monitorexit(Object object, @ConstantParameter int lockDepth, @ConstantParameter Register threadRegister, @ConstantParameter boolean trace) {
         trace(trace, "           object: 0x%016lx\n", Word.objectToTrackedPointer(object));
         if (useBiasedLocking(INJECTED_VMCONFIG)) {
             // Check for biased locking unlock case, which is a no-op
@@ -437,13 +543,18 @@ public class MonitorSnippets implements Snippets {
             // Test if object's mark word is pointing to the displaced mark word, and if so, restore
             // the displaced mark in the object - if the object's mark word is not pointing to
             // the displaced mark word, do unlocking via runtime call.
-            if (probability(VERY_SLOW_PATH_PROBABILITY,
-                            DirectCompareAndSwapNode.compareAndSwap(OffsetAddressNode.address(object, markOffset(INJECTED_VMCONFIG)), lock, displacedMark, MARK_WORD_LOCATION).notEqual(lock))) {
-                // The object's mark word was not pointing to the displaced header,
-                // we do unlocking via runtime call.
-                traceObject(trace, "-lock{stub}", object, false);
-                unlockStub.inc();
-                monitorexitStubC(MONITOREXIT, object, lock);
+            Word currentMark = DirectCompareAndSwapNode.compareAndSwap(OffsetAddressNode.address(object, markOffset(INJECTED_VMCONFIG)), lock, displacedMark, MARK_WORD_LOCATION);
+            if (probability(VERY_SLOW_PATH_PROBABILITY, currentMark.notEqual(lock))) {
+                if (useInlineInflatedLocking(INJECTED_VMCONFIG) && probability(BranchProbabilityNode.NOT_FREQUENT_PROBABILITY, isInflated(currentMark)) &&
+                                probability(VERY_FAST_PATH_PROBABILITY, tryExitInflated(object, currentMark, registerAsWord(threadRegister), trace))) {
+                    // Released the inflated monitor => done
+                } else {
+                    // The object's mark word was not pointing to the displaced header,
+                    // we do unlocking via runtime call.
+                    traceObject(trace, "-lock{stub}", object, false);
+                    unlockStub.inc();
+                    monitorexitStubC(MONITOREXIT, object, lock);
+                }
             } else {
                 traceObject(trace, "-lock{cas}", object, false);
                 unlockCas.inc();
@@ -565,7 +676,7 @@ public class MonitorSnippets implements Snippets {
             template(args).instantiate(providers.getMetaAccess(), monitorenterNode, DEFAULT_REPLACER, args);
         }
 
-        public void lower(MonitorExitNode monitorexitNode, LoweringTool tool) {
+        public void lower(MonitorExitNode monitorexitNode, HotSpotRegistersProvider registers, LoweringTool tool) {
             StructuredGraph graph = monitorexitNode.graph();
 
             Arguments args;
@@ -576,6 +687,9 @@ public class MonitorSnippets implements Snippets {
             }
             args.add("object", monitorexitNode.object());
             args.addConst("lockDepth", monitorexitNode.getMonitorId().getLockDepth());
+            if (useFastLocking) {
+                args.addConst("threadRegister", registers.getThreadRegister());
+            }
             args.addConst("trace", isTracingEnabledForType(monitorexitNode.object()) || isTracingEnabledForMethod(graph.method()));
 
             template(args).instantiate(providers.getMetaAccess(), monitorexitNode, DEFAULT_REPLACER, args);
@@ -677,6 +791,9 @@ public class MonitorSnippets implements Snippets {
     public static final SnippetCounter lockStubEpochExpired = new SnippetCounter(lockCounters, "lock{stub:epoch-expired}", "stub-locked, epoch expired");
     public static final SnippetCounter lockStubRevoke = new SnippetCounter(lockCounters, "lock{stub:revoke}", "stub-locked, biased revoked");
     public static final SnippetCounter lockStubFailedCas = new SnippetCounter(lockCounters, "lock{stub:failed-cas}", "stub-locked, failed cas");
+    public static final SnippetCounter lockInflated = new SnippetCounter(lockCounters, "lock{inflated}", "inflated-locked an unowned monitor");
+    public static final SnippetCounter lockInflatedRecursive = new SnippetCounter(lockCounters, "lock{inflated:recursive}", "inflated-locked, recursive");
+    public static final SnippetCounter lockStubInflated = new SnippetCounter(lockCounters, "lock{stub:inflated}", "stub-locked, contended inflated monitor");
 
     public static final SnippetCounter unbiasable = new SnippetCounter(lockCounters, "unbiasable", "object with unbiasable type");
     public static final SnippetCounter revokeBias = new SnippetCounter(lockCounters, "revokeBias", "object had bias revoked");
@@ -690,4 +807,6 @@ public class MonitorSnippets implements Snippets {
     public static final SnippetCounter unlockCas = new SnippetCounter(unlockCounters, "unlock{cas}", "cas-unlocked an object");
     public static final SnippetCounter unlockCasRecursive = new SnippetCounter(unlockCounters, "unlock{cas:recursive}", "cas-unlocked an object, recursive");
     public static final SnippetCounter unlockStub = new SnippetCounter(unlockCounters, "unlock{stub}", "stub-unlocked an object");
+    public static final SnippetCounter unlockInflated = new SnippetCounter(unlockCounters, "unlock{inflated}", "inflated-unlocked an object without waiters");
+    public static final SnippetCounter unlockInflatedRecursive = new SnippetCounter(unlockCounters, "unlock{inflated:recursive}", "inflated-unlocked an object, recursive");
 }
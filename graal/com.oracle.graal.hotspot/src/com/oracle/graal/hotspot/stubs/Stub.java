@@ -36,6 +36,7 @@ import com.oracle.graal.debug.Debug.Scope;
 import com.oracle.graal.debug.internal.DebugScope;
 import com.oracle.graal.hotspot.HotSpotCompiledCodeBuilder;
 import com.oracle.graal.hotspot.HotSpotForeignCallLinkage;
+import com.oracle.graal.hotspot.LazyInitialization;
 import com.oracle.graal.hotspot.meta.HotSpotProviders;
 import com.oracle.graal.hotspot.nodes.StubStartNode;
 import com.oracle.graal.lir.asm.CompilationResultBuilderFactory;
@@ -163,6 +164,7 @@ public abstract class Stub {
     @SuppressWarnings("try")
     public synchronized InstalledCode getCode(final Backend backend) {
         if (code == null) {
+            long start = System.nanoTime();
             try (Scope d = Debug.sandbox("CompilingStub", DebugScope.getConfig(), providers.getCodeCache(), debugScopeContext())) {
                 final StructuredGraph graph = getGraph();
 
@@ -200,6 +202,7 @@ public abstract class Stub {
                 throw Debug.handle(e);
             }
             assert code != null : "error installing stub " + this;
+            LazyInitialization.record(toString(), start);
         }
 
         return code;
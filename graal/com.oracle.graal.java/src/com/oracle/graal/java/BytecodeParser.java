@@ -596,7 +596,7 @@ public class BytecodeParser implements GraphBuilderContext {
         this.constantReflection = graphBuilderInstance.constantReflection;
         this.constantFieldProvider = graphBuilderInstance.constantFieldProvider;
         this.stream = new BytecodeStream(method.getCode());
-        this.profilingInfo = graph.useProfilingInfo() ? method.getProfilingInfo() : null;
+        this.profilingInfo = graph.useProfilingInfo() ? graph.getProfilingInfo(method) : null;
         this.constantPool = method.getConstantPool();
         this.method = method;
         this.intrinsicContext = intrinsicContext;
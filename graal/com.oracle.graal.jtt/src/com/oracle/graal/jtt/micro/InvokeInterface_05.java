@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.jtt.micro;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oracle.graal.compiler.common.GraalOptions;
+import com.oracle.graal.jtt.JTTTest;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.java.TypeSwitchNode;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/*
+ * Megamorphic interface call site compiled with GraalOptions.MegamorphicTypeSwitchDispatch.
+ */
+public class InvokeInterface_05 extends JTTTest {
+
+    interface I {
+
+        int plus(int a);
+    }
+
+    static class C1 implements I {
+
+        @Override
+        public int plus(int a) {
+            return a + 1;
+        }
+    }
+
+    static class C2 implements I {
+
+        @Override
+        public int plus(int a) {
+            return a + 2;
+        }
+    }
+
+    static class C3 implements I {
+
+        @Override
+        public int plus(int a) {
+            return a + 3;
+        }
+    }
+
+    static class C4 implements I {
+
+        @Override
+        public int plus(int a) {
+            return a + 4;
+        }
+    }
+
+    static class C5 implements I {
+
+        @Override
+        public int plus(int a) {
+            return a + 5;
+        }
+    }
+
+    static class C6 implements I {
+
+        @Override
+        public int plus(int a) {
+            return a + 6;
+        }
+    }
+
+    static class C7 extends C6 {
+    }
+
+    static class C8 extends C6 {
+
+        @Override
+        public int plus(int a) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    static class C9 implements I {
+
+        @Override
+        public int plus(int a) {
+            return a + 9;
+        }
+    }
+
+    static class C10 implements I {
+
+        @Override
+        public int plus(int a) {
+            return a + 10;
+        }
+    }
+
+    /*
+     * C1 and C2 are recorded in the type profile, but their probabilities are below
+     * MegamorphicInliningMinMethodProbability so that the call is not inlined.
+     */
+    static final I[] receivers = new I[]{new C1(), new C2(), new C1(), new C2(), new C1(), new C2(), new C1(), new C2(), new C1(), new C3(), new C4(), new C5(), new C6(), new C7(),
+                    new C8(), new C9(), new C10()};
+
+    public static int test(I i, int a) {
+        try {
+            return i.plus(a);
+        } catch (IllegalArgumentException e) {
+            return -a;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        for (int n = 0; n < 1000; n++) {
+            for (I i : receivers) {
+                test(i, n);
+            }
+        }
+    }
+
+    private int typeSwitches;
+
+    @Override
+    protected boolean checkHighTierGraph(StructuredGraph graph) {
+        typeSwitches = graph.getNodes().filter(TypeSwitchNode.class).count();
+        return true;
+    }
+
+    @SuppressWarnings("try")
+    @Test
+    public void testTypeSwitchCreated() {
+        typeSwitches = 0;
+        try (OverrideScope s = OptionValue.override(GraalOptions.MegamorphicTypeSwitchDispatch, true, GraalOptions.MegamorphicTypeSwitchMinProbability, 0.0)) {
+            getCode(getResolvedJavaMethod("test"), null, true);
+        }
+        Assert.assertTrue("no type switch dispatch in the high tier graph", typeSwitches > 0);
+    }
+
+    @SuppressWarnings("try")
+    private void runTypeSwitchDispatch(I i, int a) {
+        try (OverrideScope s = OptionValue.override(GraalOptions.MegamorphicTypeSwitchDispatch, true, GraalOptions.MegamorphicTypeSwitchMinProbability, 0.0)) {
+            runTest("test", i, a);
+        }
+    }
+
+    @Test
+    public void run0() throws Throwable {
+        runTypeSwitchDispatch(new C1(), 0);
+    }
+
+    @Test
+    public void run1() throws Throwable {
+        runTypeSwitchDispatch(new C7(), 1);
+    }
+
+    @Test
+    public void run2() throws Throwable {
+        runTypeSwitchDispatch(new C8(), 2);
+    }
+
+    @Test
+    public void run3() throws Throwable {
+        runTypeSwitchDispatch(new C10(), 3);
+    }
+
+    @Test
+    public void run4() throws Throwable {
+        runTypeSwitchDispatch(new I() {
+            @Override
+            public int plus(int a) {
+                return a * 100;
+            }
+        }, 4);
+    }
+}
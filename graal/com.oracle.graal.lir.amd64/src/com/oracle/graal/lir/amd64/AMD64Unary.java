@@ -184,4 +184,49 @@ public class AMD64Unary {
             return false;
         }
     }
+
+    /**
+     * Instruction that reads, modifies and writes back a {@link AMD64AddressValue memory} operand.
+     */
+    public static class MemoryMOp extends AMD64LIRInstruction implements ImplicitNullCheck {
+        public static final LIRInstructionClass<MemoryMOp> TYPE = LIRInstructionClass.create(MemoryMOp.class);
+
+        @Opcode private final AMD64MOp opcode;
+        private final OperandSize size;
+
+        @Use({COMPOSITE}) protected AMD64AddressValue value;
+
+        @State protected LIRFrameState state;
+
+        public MemoryMOp(AMD64MOp opcode, OperandSize size, AMD64AddressValue value, LIRFrameState state) {
+            super(TYPE);
+            this.opcode = opcode;
+            this.size = size;
+
+            this.value = value;
+
+            this.state = state;
+        }
+
+        @Override
+        public void emitCode(CompilationResultBuilder crb, AMD64MacroAssembler masm) {
+            if (state != null) {
+                crb.recordImplicitException(masm.position(), state);
+            }
+            opcode.emit(masm, size, value.toAddress());
+        }
+
+        @Override
+        public boolean makeNullCheckFor(Value v, LIRFrameState nullCheckState, int implicitNullCheckLimit) {
+            if (state == null && value.isValidImplicitNullCheckFor(v, implicitNullCheckLimit)) {
+                state = nullCheckState;
+                return true;
+            }
+            return false;
+        }
+
+        public AMD64MOp getOpcode() {
+            return opcode;
+        }
+    }
 }
@@ -0,0 +1,382 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64.phases;
+
+import static com.oracle.graal.lir.LIRValueUtil.asVariable;
+import static com.oracle.graal.lir.LIRValueUtil.isVariable;
+import static com.oracle.graal.lir.phases.LIRPhase.Options.LIROptimization;
+import static jdk.vm.ci.code.ValueUtil.asRegister;
+import static jdk.vm.ci.code.ValueUtil.isRegister;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.oracle.graal.compiler.common.cfg.AbstractBlockBase;
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.DebugCounter;
+import com.oracle.graal.lir.LIR;
+import com.oracle.graal.lir.LIRInstruction;
+import com.oracle.graal.lir.StandardOp.BlockEndOp;
+import com.oracle.graal.lir.StandardOp.LabelOp;
+import com.oracle.graal.lir.amd64.phases.AMD64SchedulingModel.InstructionClass;
+import com.oracle.graal.lir.gen.LIRGenerationResult;
+import com.oracle.graal.lir.phases.PreAllocationOptimizationPhase;
+import com.oracle.graal.options.NestedBooleanOptionValue;
+import com.oracle.graal.options.Option;
+import com.oracle.graal.options.OptionType;
+import com.oracle.graal.options.OptionValue;
+
+import jdk.vm.ci.code.TargetDescription;
+import jdk.vm.ci.meta.AllocatableValue;
+import jdk.vm.ci.meta.Value;
+
+/**
+ * Reorders the instructions of a basic block before register allocation with a list scheduler
+ * driven by the latency and port model of {@link AMD64SchedulingModel}.
+ *
+ * Blocks are split into regions of consecutive instructions that the model considers movable. For
+ * each region a dependency graph is built from the variables, registers and stack slots read and
+ * written by the instructions. Loads are kept in their original order since the LIR does not carry
+ * enough information to disambiguate memory accesses. The condition flags are not LIR values, so
+ * every instruction that may modify them is ordered before the last such instruction of the region,
+ * which therefore still sets the flags seen by a branch following the region. The scheduler then simulates the issue of
+ * the instructions cycle by cycle and picks, among the ready instructions, the one with the longest
+ * latency-weighted path to the end of the region. Once the number of values defined in the region
+ * and still in use exceeds {@link Options#LIRSchedulingRegisterPressureLimit}, instructions that
+ * end live ranges are preferred over instructions that start new ones.
+ */
+public class AMD64InstructionSchedulingPhase extends PreAllocationOptimizationPhase {
+
+    public static class Options {
+        // @formatter:off
+        @Option(help = "Reorder instructions within basic blocks before register allocation to hide latencies.", type = OptionType.Debug)
+        public static final NestedBooleanOptionValue LIROptAMD64InstructionScheduling = new NestedBooleanOptionValue(LIROptimization, false);
+        @Option(help = "Number of values live within a scheduling region above which the instruction scheduler favors register pressure over latency.", type = OptionType.Debug)
+        public static final OptionValue<Integer> LIRSchedulingRegisterPressureLimit = new OptionValue<>(12);
+        @Option(help = "Maximum number of instructions in a scheduling region.", type = OptionType.Debug)
+        public static final OptionValue<Integer> LIRSchedulingMaxRegionSize = new OptionValue<>(256);
+        // @formatter:on
+    }
+
+    private static final DebugCounter regionsCounter = Debug.counter("AMD64InstructionScheduling[regions]");
+    private static final DebugCounter reorderedRegionsCounter = Debug.counter("AMD64InstructionScheduling[reorderedRegions]");
+    private static final DebugCounter movedInstructionsCounter = Debug.counter("AMD64InstructionScheduling[movedInstructions]");
+
+    /**
+     * Regions smaller than this cannot be improved by reordering.
+     */
+    private static final int MIN_REGION_SIZE = 3;
+
+    @Override
+    protected void run(TargetDescription target, LIRGenerationResult lirGenRes, PreAllocationOptimizationContext context) {
+        LIR lir = lirGenRes.getLIR();
+        int pressureLimit = Options.LIRSchedulingRegisterPressureLimit.getValue();
+        int maxRegionSize = Options.LIRSchedulingMaxRegionSize.getValue();
+        for (AbstractBlockBase<?> block : lir.getControlFlowGraph().getBlocks()) {
+            List<LIRInstruction> instructions = lir.getLIRforBlock(block);
+            if (instructions != null) {
+                scheduleBlock(instructions, pressureLimit, maxRegionSize);
+            }
+        }
+    }
+
+    private static void scheduleBlock(List<LIRInstruction> instructions, int pressureLimit, int maxRegionSize) {
+        ArrayList<ScheduleNode> region = new ArrayList<>();
+        for (int i = 0; i < instructions.size(); i++) {
+            LIRInstruction op = instructions.get(i);
+            InstructionClass instructionClass = op instanceof LabelOp || op instanceof BlockEndOp ? null : AMD64SchedulingModel.classify(op);
+            if (instructionClass == null || region.size() == maxRegionSize) {
+                scheduleRegion(instructions, region, pressureLimit);
+                region.clear();
+            }
+            if (instructionClass != null) {
+                region.add(new ScheduleNode(op, instructionClass, i));
+            }
+        }
+        scheduleRegion(instructions, region, pressureLimit);
+    }
+
+    /**
+     * A node of the dependency graph of a scheduling region.
+     */
+    private static final class ScheduleNode {
+        final LIRInstruction op;
+        final InstructionClass instructionClass;
+        final int index;
+
+        final ArrayList<ScheduleNode> successors = new ArrayList<>(2);
+        final ArrayList<Integer> successorLatencies = new ArrayList<>(2);
+        int unscheduledPredecessors;
+
+        /**
+         * Latency-weighted length of the longest path from this node to the end of the region.
+         */
+        int height;
+
+        /**
+         * Earliest cycle in which all operands of this instruction are available.
+         */
+        int earliestCycle;
+
+        /**
+         * Keys of the values read by this instruction.
+         */
+        final ArrayList<Object> uses = new ArrayList<>(2);
+
+        /**
+         * Keys of the values written by this instruction.
+         */
+        final ArrayList<Object> defs = new ArrayList<>(1);
+
+        ScheduleNode(LIRInstruction op, InstructionClass instructionClass, int index) {
+            this.op = op;
+            this.instructionClass = instructionClass;
+            this.index = index;
+        }
+
+        void addSuccessor(ScheduleNode successor, int latency) {
+            assert successor.index > index;
+            successors.add(successor);
+            successorLatencies.add(latency);
+            successor.unscheduledPredecessors++;
+        }
+
+        @Override
+        public String toString() {
+            return index + ": " + op;
+        }
+    }
+
+    /**
+     * Gets the key under which dependencies on {@code value} are tracked or {@code null} if
+     * {@code value} does not create dependencies (e.g. constants).
+     */
+    private static Object key(Value value) {
+        if (isVariable(value)) {
+            return asVariable(value).index;
+        }
+        if (isRegister(value)) {
+            return asRegister(value);
+        }
+        if (value instanceof AllocatableValue) {
+            return value;
+        }
+        return null;
+    }
+
+    private static void scheduleRegion(List<LIRInstruction> instructions, ArrayList<ScheduleNode> region, int pressureLimit) {
+        if (region.size() < MIN_REGION_SIZE) {
+            return;
+        }
+        regionsCounter.increment();
+        buildDependencies(region);
+        computeHeights(region);
+        ArrayList<ScheduleNode> schedule = listSchedule(region, pressureLimit);
+        assert schedule.size() == region.size();
+
+        int moved = 0;
+        for (int i = 0; i < schedule.size(); i++) {
+            ScheduleNode node = schedule.get(i);
+            int index = region.get(i).index;
+            if (node.index != index) {
+                moved++;
+            }
+            instructions.set(index, node.op);
+        }
+        if (moved > 0) {
+            reorderedRegionsCounter.increment();
+            movedInstructionsCounter.add(moved);
+        }
+    }
+
+    private static void buildDependencies(ArrayList<ScheduleNode> region) {
+        HashMap<Object, ScheduleNode> lastDef = new HashMap<>();
+        HashMap<Object, ArrayList<ScheduleNode>> readersSinceDef = new HashMap<>();
+        ScheduleNode lastLoad = null;
+        ScheduleNode lastFlagsDef = null;
+        for (ScheduleNode node : region) {
+            node.op.visitEachInput((value, mode, flags) -> addKey(node.uses, value));
+            node.op.visitEachAlive((value, mode, flags) -> addKey(node.uses, value));
+            node.op.visitEachTemp((value, mode, flags) -> addKey(node.defs, value));
+            node.op.visitEachOutput((value, mode, flags) -> addKey(node.defs, value));
+
+            for (Object use : node.uses) {
+                ScheduleNode def = lastDef.get(use);
+                if (def != null) {
+                    // read after write
+                    def.addSuccessor(node, def.instructionClass.latency);
+                }
+                readersSinceDef.computeIfAbsent(use, k -> new ArrayList<>()).add(node);
+            }
+            for (Object def : node.defs) {
+                ArrayList<ScheduleNode> readers = readersSinceDef.remove(def);
+                if (readers != null) {
+                    for (ScheduleNode reader : readers) {
+                        if (reader != node) {
+                            // write after read
+                            reader.addSuccessor(node, 0);
+                        }
+                    }
+                }
+                ScheduleNode previous = lastDef.put(def, node);
+                if (previous != null && previous != node) {
+                    // write after write
+                    previous.addSuccessor(node, 0);
+                }
+            }
+            if (node.instructionClass.isLoad()) {
+                if (lastLoad != null) {
+                    lastLoad.addSuccessor(node, 0);
+                }
+                lastLoad = node;
+            }
+            if (AMD64SchedulingModel.clobbersFlags(node.op, node.instructionClass)) {
+                lastFlagsDef = node;
+            }
+        }
+        if (lastFlagsDef != null) {
+            for (ScheduleNode node : region) {
+                if (node.index < lastFlagsDef.index && AMD64SchedulingModel.clobbersFlags(node.op, node.instructionClass)) {
+                    // write after write of the condition flags
+                    node.addSuccessor(lastFlagsDef, 0);
+                }
+            }
+        }
+    }
+
+    private static void addKey(ArrayList<Object> keys, Value value) {
+        Object key = key(value);
+        if (key != null && !keys.contains(key)) {
+            keys.add(key);
+        }
+    }
+
+    private static void computeHeights(ArrayList<ScheduleNode> region) {
+        // all edges point forward in the original order
+        for (int i = region.size() - 1; i >= 0; i--) {
+            ScheduleNode node = region.get(i);
+            int height = node.instructionClass.latency;
+            for (int j = 0; j < node.successors.size(); j++) {
+                height = Math.max(height, node.successorLatencies.get(j) + node.successors.get(j).height);
+            }
+            node.height = height;
+        }
+    }
+
+    private static ArrayList<ScheduleNode> listSchedule(ArrayList<ScheduleNode> region, int pressureLimit) {
+        /*
+         * Number of pending reads of each value defined in the region. A value is considered live
+         * from its definition until its last read in the region.
+         */
+        HashMap<Object, Integer> pendingReads = new HashMap<>();
+        for (ScheduleNode node : region) {
+            for (Object use : node.uses) {
+                pendingReads.merge(use, 1, Integer::sum);
+            }
+        }
+
+        ArrayList<ScheduleNode> ready = new ArrayList<>();
+        for (ScheduleNode node : region) {
+            if (node.unscheduledPredecessors == 0) {
+                ready.add(node);
+            }
+        }
+
+        ArrayList<ScheduleNode> schedule = new ArrayList<>(region.size());
+        HashMap<Object, Boolean> liveValues = new HashMap<>();
+        int cycle = 0;
+        while (schedule.size() < region.size()) {
+            int usedPorts = 0;
+            for (int issued = 0; issued < AMD64SchedulingModel.ISSUE_WIDTH; issued++) {
+                boolean pressure = liveValues.size() >= pressureLimit;
+                ScheduleNode best = null;
+                int bestDelta = 0;
+                for (ScheduleNode candidate : ready) {
+                    if (candidate.earliestCycle > cycle || (candidate.instructionClass.ports & ~usedPorts) == 0) {
+                        continue;
+                    }
+                    int delta = pressure ? pressureDelta(candidate, liveValues, pendingReads) : 0;
+                    if (best == null || isBetter(candidate, delta, best, bestDelta)) {
+                        best = candidate;
+                        bestDelta = delta;
+                    }
+                }
+                if (best == null) {
+                    break;
+                }
+                ready.remove(best);
+                schedule.add(best);
+                usedPorts |= Integer.lowestOneBit(best.instructionClass.ports & ~usedPorts);
+
+                for (Object use : best.uses) {
+                    if (pendingReads.merge(use, -1, Integer::sum) == 0) {
+                        liveValues.remove(use);
+                    }
+                }
+                for (Object def : best.defs) {
+                    if (pendingReads.getOrDefault(def, 0) > 0) {
+                        liveValues.put(def, Boolean.TRUE);
+                    }
+                }
+                for (int j = 0; j < best.successors.size(); j++) {
+                    ScheduleNode successor = best.successors.get(j);
+                    successor.earliestCycle = Math.max(successor.earliestCycle, cycle + best.successorLatencies.get(j));
+                    if (--successor.unscheduledPredecessors == 0) {
+                        ready.add(successor);
+                    }
+                }
+            }
+            cycle++;
+        }
+        return schedule;
+    }
+
+    /**
+     * Computes the change in the number of live values caused by scheduling {@code node}.
+     */
+    private static int pressureDelta(ScheduleNode node, HashMap<Object, Boolean> liveValues, HashMap<Object, Integer> pendingReads) {
+        int delta = 0;
+        for (Object def : node.defs) {
+            if (!liveValues.containsKey(def) && pendingReads.getOrDefault(def, 0) > 0) {
+                delta++;
+            }
+        }
+        for (Object use : node.uses) {
+            if (liveValues.containsKey(use) && pendingReads.get(use) == 1) {
+                delta--;
+            }
+        }
+        return delta;
+    }
+
+    private static boolean isBetter(ScheduleNode candidate, int candidateDelta, ScheduleNode best, int bestDelta) {
+        if (candidateDelta != bestDelta) {
+            return candidateDelta < bestDelta;
+        }
+        if (candidate.height != best.height) {
+            return candidate.height > best.height;
+        }
+        return candidate.index < best.index;
+    }
+}
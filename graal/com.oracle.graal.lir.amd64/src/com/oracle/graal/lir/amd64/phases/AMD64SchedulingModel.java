@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.amd64.phases;
+
+import com.oracle.graal.lir.LIRInstruction;
+import com.oracle.graal.lir.amd64.AMD64Binary;
+import com.oracle.graal.lir.amd64.AMD64Move;
+import com.oracle.graal.lir.amd64.AMD64ShiftOp;
+import com.oracle.graal.lir.amd64.AMD64SignExtendOp;
+import com.oracle.graal.lir.amd64.AMD64Unary;
+
+import jdk.vm.ci.amd64.AMD64Kind;
+import jdk.vm.ci.meta.PlatformKind;
+
+/**
+ * A simple latency and execution port model of AMD64 instructions used by
+ * {@link AMD64InstructionSchedulingPhase}. The numbers roughly follow recent Intel cores: 4 integer
+ * ALU ports, 2 load ports and 2 vector ports, of which only one has a divider.
+ *
+ * Only instructions for which {@link #classify(LIRInstruction)} returns a non-null
+ * {@link InstructionClass} are candidates for reordering. Every other instruction (calls, stores,
+ * compares, branches, instructions reading the condition flags or carrying a debug state, ...) acts
+ * as a scheduling barrier.
+ */
+final class AMD64SchedulingModel {
+
+    static final int PORT_0 = 1 << 0;
+    static final int PORT_1 = 1 << 1;
+    static final int PORT_2 = 1 << 2;
+    static final int PORT_3 = 1 << 3;
+    static final int PORT_5 = 1 << 5;
+    static final int PORT_6 = 1 << 6;
+
+    static final int ALU_PORTS = PORT_0 | PORT_1 | PORT_5 | PORT_6;
+    static final int LOAD_PORTS = PORT_2 | PORT_3;
+    static final int VECTOR_PORTS = PORT_0 | PORT_1;
+
+    /**
+     * Number of instructions that can be issued per cycle.
+     */
+    static final int ISSUE_WIDTH = 4;
+
+    enum InstructionClass {
+        MOVE(1, ALU_PORTS),
+        LEA(1, PORT_1 | PORT_5),
+        ALU(1, ALU_PORTS),
+        SHIFT(1, PORT_0 | PORT_6),
+        BIT_COUNT(3, PORT_1),
+        MUL(3, PORT_1),
+        CONVERT(4, PORT_1),
+        FP_ADD(4, VECTOR_PORTS),
+        FP_MUL(4, VECTOR_PORTS),
+        FP_LOGIC(1, PORT_0 | PORT_1 | PORT_5),
+        FP_DIV(14, PORT_0),
+        LOAD(4, LOAD_PORTS),
+        LOAD_OP(5, LOAD_PORTS);
+
+        final int latency;
+        final int ports;
+
+        InstructionClass(int latency, int ports) {
+            this.latency = latency;
+            this.ports = ports;
+        }
+
+        boolean isLoad() {
+            return this == LOAD || this == LOAD_OP;
+        }
+    }
+
+    private AMD64SchedulingModel() {
+    }
+
+    /**
+     * Gets the scheduling class of {@code op} or {@code null} if {@code op} must not be moved.
+     */
+    static InstructionClass classify(LIRInstruction op) {
+        if (op.hasState() || op.destroysCallerSavedRegisters()) {
+            return null;
+        }
+        if (op instanceof AMD64Move.MoveToRegOp || op instanceof AMD64Move.MoveFromRegOp || op instanceof AMD64Move.MoveFromConstOp) {
+            return InstructionClass.MOVE;
+        }
+        if (op instanceof AMD64Move.LeaOp) {
+            return InstructionClass.LEA;
+        }
+        if (op instanceof AMD64ShiftOp) {
+            return InstructionClass.SHIFT;
+        }
+        if (op instanceof AMD64SignExtendOp) {
+            return InstructionClass.ALU;
+        }
+        if (op instanceof AMD64Unary.MemoryOp) {
+            return InstructionClass.LOAD;
+        }
+        if (op instanceof AMD64Binary.MemoryTwoOp || op instanceof AMD64Binary.MemoryThreeOp) {
+            return classifyOpcode(op) == null ? null : InstructionClass.LOAD_OP;
+        }
+        if (op instanceof AMD64Binary.TwoOp || op instanceof AMD64Binary.ThreeOp || op instanceof AMD64Binary.CommutativeTwoOp || op instanceof AMD64Binary.CommutativeThreeOp ||
+                        op instanceof AMD64Binary.ConstOp || op instanceof AMD64Binary.DataTwoOp || op instanceof AMD64Binary.DataThreeOp || op instanceof AMD64Binary.RMIOp ||
+                        op instanceof AMD64Unary.MOp || op instanceof AMD64Unary.RMOp || op instanceof AMD64Unary.MROp) {
+            return classifyOpcode(op);
+        }
+        return null;
+    }
+
+    /**
+     * Determines if {@code op} may modify the condition flags. Only instructions that read the
+     * flags are barriers, so the scheduler must keep the last flag producer of a region in place
+     * for a consumer following the region (e.g. the {@code jo} after the {@code add} of an overflow
+     * check). This is conservative: moves of constants are included since a zero is materialized
+     * with an {@code xor}.
+     */
+    static boolean clobbersFlags(LIRInstruction op, InstructionClass instructionClass) {
+        switch (instructionClass) {
+            case LEA:
+            case LOAD:
+            case CONVERT:
+            case FP_ADD:
+            case FP_MUL:
+            case FP_LOGIC:
+            case FP_DIV:
+                return false;
+            case MOVE:
+                return op instanceof AMD64Move.MoveFromConstOp;
+            default:
+                return true;
+        }
+    }
+
+    private static InstructionClass classifyOpcode(LIRInstruction op) {
+        String name = op.name();
+        boolean xmm = isXMM(op);
+        switch (name) {
+            case "ADC":
+            case "SBB":
+                // read the carry flag
+                return null;
+            case "IMUL":
+            case "MUL":
+                return xmm ? InstructionClass.FP_MUL : InstructionClass.MUL;
+            case "DIV":
+            case "IDIV":
+            case "SQRT":
+                // integer division is a MulDivOp, so these can only be floating point
+                return xmm ? InstructionClass.FP_DIV : null;
+            case "ADD":
+            case "SUB":
+            case "MIN":
+            case "MAX":
+                return xmm ? InstructionClass.FP_ADD : InstructionClass.ALU;
+            case "AND":
+            case "ANDN":
+            case "OR":
+            case "XOR":
+                return xmm ? InstructionClass.FP_LOGIC : InstructionClass.ALU;
+            case "POPCNT":
+            case "TZCNT":
+            case "LZCNT":
+            case "BSF":
+            case "BSR":
+                return InstructionClass.BIT_COUNT;
+            default:
+                if (name.startsWith("CVT")) {
+                    return InstructionClass.CONVERT;
+                }
+                if (name.startsWith("MOV")) {
+                    return InstructionClass.MOVE;
+                }
+                return xmm ? InstructionClass.FP_ADD : InstructionClass.ALU;
+        }
+    }
+
+    private static boolean isXMM(LIRInstruction op) {
+        boolean[] result = {false};
+        op.visitEachOutput((value, mode, flags) -> {
+            PlatformKind kind = value.getPlatformKind();
+            if (kind instanceof AMD64Kind && ((AMD64Kind) kind).isXMM()) {
+                result[0] = true;
+            }
+        });
+        return result[0];
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.lir.jtt;
+
+import org.junit.Test;
+
+import com.oracle.graal.jtt.JTTTest;
+import com.oracle.graal.lir.asm.CompilationResultBuilder;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+
+/**
+ * Tests code emission with {@link CompilationResultBuilder#EmitColdBlocksLast} enabled. The high
+ * {@link CompilationResultBuilder#ColdBlockProbability} makes most blocks cold, so that many
+ * fall-through edges have to be turned into explicit jumps.
+ */
+public class ColdBlockLayoutTest extends JTTTest {
+
+    public static int loopSnippet(int[] array, int limit) {
+        int sum = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] > limit) {
+                sum += array[i] * 3;
+            } else {
+                sum -= array[i];
+            }
+        }
+        return sum;
+    }
+
+    public static int switchSnippet(int a) {
+        switch (a) {
+            case 0:
+                return 11;
+            case 1:
+                return 13;
+            case 3:
+                return 17;
+            case 7:
+                return 19;
+            default:
+                return a * 2;
+        }
+    }
+
+    public static int exceptionSnippet(int[] array, int index) {
+        try {
+            return array[index] + 1;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    public static int nestedLoopSnippet(int n) {
+        int result = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                if ((i ^ j) % 5 == 0) {
+                    continue;
+                }
+                result += i * j;
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("try")
+    private void runColdLast(String name, Object... args) {
+        try (OverrideScope s = OptionValue.override(CompilationResultBuilder.EmitColdBlocksLast, true, CompilationResultBuilder.ColdBlockProbability, 0.9)) {
+            runTest(name, args);
+        }
+    }
+
+    @Test
+    public void testLoop() {
+        runColdLast("loopSnippet", new int[]{1, 5, 9, 2, 7}, 4);
+        runColdLast("loopSnippet", new int[0], 4);
+    }
+
+    @Test
+    public void testSwitch() {
+        for (int i = -1; i < 9; i++) {
+            runColdLast("switchSnippet", i);
+        }
+    }
+
+    @Test
+    public void testException() {
+        runColdLast("exceptionSnippet", new int[]{1, 2, 3}, 1);
+        runColdLast("exceptionSnippet", new int[]{1, 2, 3}, 5);
+    }
+
+    @Test
+    public void testNestedLoop() {
+        runColdLast("nestedLoopSnippet", 0);
+        runColdLast("nestedLoopSnippet", 20);
+    }
+}
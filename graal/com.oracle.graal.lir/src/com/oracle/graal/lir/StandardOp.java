@@ -170,7 +170,7 @@ public class StandardOp {
         @Override
         public void emitCode(CompilationResultBuilder crb) {
             if (align) {
-                crb.asm.align(crb.target.wordSize * 2);
+                crb.alignLoopHeader();
             }
             crb.asm.bind(label);
         }
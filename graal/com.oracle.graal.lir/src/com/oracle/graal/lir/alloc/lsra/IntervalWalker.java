@@ -22,6 +22,7 @@
  */
 package com.oracle.graal.lir.alloc.lsra;
 
+import com.oracle.graal.compiler.common.CompilationBudget;
 import com.oracle.graal.debug.Debug;
 import com.oracle.graal.debug.Indent;
 import com.oracle.graal.lir.alloc.lsra.Interval.RegisterBinding;
@@ -59,6 +60,11 @@ public class IntervalWalker {
      */
     protected RegisterBinding currentBinding;
 
+    /**
+     * The budget of the current compilation, which is checked while walking the intervals.
+     */
+    private final CompilationBudget budget = CompilationBudget.current();
+
     /**
      * Processes the {@code currentInterval} interval in an attempt to allocate a physical register
      * to it and thus allow it to be moved to a list of {@linkplain #activeLists active} intervals.
@@ -221,6 +227,9 @@ public class IntervalWalker {
     protected void walkTo(int toOpId) {
         assert currentPosition <= toOpId : "can not walk backwards";
         for (Interval currentInterval = nextInterval(toOpId); currentInterval != null; currentInterval = nextInterval(toOpId)) {
+            if (budget != null) {
+                budget.checkPeriodically("LinearScan");
+            }
             int opId = currentInterval.from();
 
             // set currentPosition prior to call of walkTo
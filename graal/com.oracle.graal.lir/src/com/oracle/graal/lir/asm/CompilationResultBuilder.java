@@ -45,6 +45,7 @@ import com.oracle.graal.compiler.common.cfg.AbstractBlockBase;
 import com.oracle.graal.compiler.common.spi.ForeignCallsProvider;
 import com.oracle.graal.compiler.common.type.DataPointerConstant;
 import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.DebugCounter;
 import com.oracle.graal.debug.GraalError;
 import com.oracle.graal.graph.NodeSourcePosition;
 import com.oracle.graal.lir.LIR;
@@ -81,8 +82,23 @@ public class CompilationResultBuilder {
     // @formatter:off
     @Option(help = "Include the LIR as comments with the final assembly.", type = OptionType.Debug)
     public static final OptionValue<Boolean> PrintLIRWithAssembly = new OptionValue<>(false);
+
+    @Option(help = "Blocks whose probability relative to the method entry is below this value are considered cold.", type = OptionType.Expert)
+    public static final OptionValue<Double> ColdBlockProbability = new OptionValue<>(0.01);
+
+    @Option(help = "Emit the code of cold blocks after all other blocks of a method.", type = OptionType.Expert)
+    public static final OptionValue<Boolean> EmitColdBlocksLast = new OptionValue<>(false);
+
+    @Option(help = "Alignment in bytes of loop headers (0 uses twice the word size). With EmitColdBlocksLast, cold loop headers are not aligned.", type = OptionType.Expert)
+    public static final OptionValue<Integer> LoopHeaderAlignment = new OptionValue<>(0);
     // @formatter:on
 
+    private static final DebugCounter hotCodeSize = Debug.counter("CodeSize[hot]");
+    private static final DebugCounter coldCodeSize = Debug.counter("CodeSize[cold]");
+    private static final DebugCounter alignedLoopHeaders = Debug.counter("LoopHeaderAlignment[aligned]");
+    private static final DebugCounter unalignedColdLoopHeaders = Debug.counter("LoopHeaderAlignment[cold]");
+    private static final DebugCounter alignmentPadding = Debug.counter("LoopHeaderAlignment[paddingBytes]");
+
     private static class ExceptionInfo {
 
         public final int codeOffset;
@@ -130,11 +146,25 @@ public class CompilationResultBuilder {
      */
     private LIR lir;
 
+    /**
+     * The order in which the blocks are emitted. This is the {@linkplain LIR#codeEmittingOrder()
+     * code emitting order} of {@link #lir}, possibly with the cold blocks moved to the end.
+     */
+    private AbstractBlockBase<?>[] emittingOrder;
+
     /**
      * The index of the block currently being emitted.
      */
     private int currentBlockIndex;
 
+    private double coldBlockProbability;
+
+    /**
+     * Specifies if cold blocks are moved to the end of the code, in which case cold loop headers
+     * are not aligned either.
+     */
+    private boolean emitColdBlocksLast;
+
     /**
      * The object that emits code for managing a method's frame.
      */
@@ -423,7 +453,7 @@ public class CompilationResultBuilder {
      */
     public boolean isSuccessorEdge(LabelRef edge) {
         assert lir != null;
-        AbstractBlockBase<?>[] order = lir.codeEmittingOrder();
+        AbstractBlockBase<?>[] order = emittingOrder;
         assert order[currentBlockIndex] == edge.getSourceBlock();
         AbstractBlockBase<?> nextBlock = LIR.getNextBlock(order, currentBlockIndex);
         return nextBlock == edge.getTargetBlock();
@@ -431,22 +461,72 @@ public class CompilationResultBuilder {
 
     /**
      * Emits code for {@code lir} in its {@linkplain LIR#codeEmittingOrder() code emitting order}.
+     * If {@link #EmitColdBlocksLast} is enabled, blocks whose probability is below
+     * {@link #ColdBlockProbability} are emitted after all other blocks, keeping their relative
+     * order.
      */
     public void emit(@SuppressWarnings("hiding") LIR lir) {
         assert this.lir == null;
         assert currentBlockIndex == 0;
         this.lir = lir;
+        this.coldBlockProbability = ColdBlockProbability.getValue();
+        this.emitColdBlocksLast = EmitColdBlocksLast.getValue();
+        this.emittingOrder = emitColdBlocksLast ? moveColdBlocksLast(lir.codeEmittingOrder()) : lir.codeEmittingOrder();
         this.currentBlockIndex = 0;
         frameContext.enter(this);
-        for (AbstractBlockBase<?> b : lir.codeEmittingOrder()) {
-            assert (b == null && lir.codeEmittingOrder()[currentBlockIndex] == null) || lir.codeEmittingOrder()[currentBlockIndex].equals(b);
+        for (AbstractBlockBase<?> b : emittingOrder) {
+            assert (b == null && emittingOrder[currentBlockIndex] == null) || emittingOrder[currentBlockIndex].equals(b);
+            int start = asm.position();
             emitBlock(b);
+            if (b != null) {
+                (isCold(b) ? coldCodeSize : hotCodeSize).add(asm.position() - start);
+            }
             currentBlockIndex++;
         }
         this.lir = null;
+        this.emittingOrder = null;
         this.currentBlockIndex = 0;
     }
 
+    private boolean isCold(AbstractBlockBase<?> block) {
+        return block.probability() < coldBlockProbability;
+    }
+
+    private AbstractBlockBase<?>[] moveColdBlocksLast(AbstractBlockBase<?>[] order) {
+        AbstractBlockBase<?>[] result = new AbstractBlockBase<?>[order.length];
+        int hot = 0;
+        // the first block contains the method entry and is never moved
+        for (int i = 0; i < order.length; i++) {
+            if (order[i] != null && (i == 0 || !isCold(order[i]))) {
+                result[hot++] = order[i];
+            }
+        }
+        int cold = hot;
+        for (int i = 1; i < order.length; i++) {
+            if (order[i] != null && isCold(order[i])) {
+                result[cold++] = order[i];
+            }
+        }
+        return cold == order.length ? result : Arrays.copyOf(result, cold);
+    }
+
+    /**
+     * Aligns the start of the block currently being emitted, which is the target of a backward
+     * jump, to {@link #LoopHeaderAlignment}. If {@link #EmitColdBlocksLast} is enabled, cold blocks
+     * are not aligned since they are out of the way of the hot code anyway.
+     */
+    public void alignLoopHeader() {
+        if (lir != null && emitColdBlocksLast && isCold(emittingOrder[currentBlockIndex])) {
+            unalignedColdLoopHeaders.increment();
+            return;
+        }
+        int alignment = LoopHeaderAlignment.getValue();
+        int start = asm.position();
+        asm.align(alignment == 0 ? target.wordSize * 2 : alignment);
+        alignedLoopHeaders.increment();
+        alignmentPadding.add(asm.position() - start);
+    }
+
     private void emitBlock(AbstractBlockBase<?> block) {
         if (block == null) {
             return;
@@ -469,7 +549,7 @@ public class CompilationResultBuilder {
                     afterOp.accept(op);
                 }
             } catch (GraalError e) {
-                throw e.addContext("lir instruction", block + "@" + op.id() + " " + op + "\n" + Arrays.toString(lir.codeEmittingOrder()));
+                throw e.addContext("lir instruction", block + "@" + op.id() + " " + op + "\n" + Arrays.toString(emittingOrder));
             }
         }
     }
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.loop.phases;
+
+import static com.oracle.graal.compiler.common.GraalOptions.DeoptsToDisableOptimisticOptimization;
+
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.DebugCounter;
+import com.oracle.graal.loop.LoopEx;
+import com.oracle.graal.loop.LoopsData;
+import com.oracle.graal.nodes.AbstractBeginNode;
+import com.oracle.graal.nodes.FrameState;
+import com.oracle.graal.nodes.GuardNode;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.cfg.Block;
+import com.oracle.graal.phases.BasePhase;
+import com.oracle.graal.phases.tiers.MidTierContext;
+
+import jdk.vm.ci.meta.DeoptimizationAction;
+import jdk.vm.ci.meta.DeoptimizationReason;
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+import jdk.vm.ci.meta.SpeculationLog;
+import jdk.vm.ci.meta.SpeculationLog.SpeculationReason;
+
+/**
+ * Moves guards whose condition is loop invariant out of loops. A guard in a loop body is anchored
+ * to the loop body and thus evaluated in every iteration. If its condition does not depend on the
+ * loop, the guard is re-anchored to the block before the loop, where it is evaluated once and
+ * deoptimizes with the frame state at loop entry. A guard is moved in one step out of all
+ * enclosing loops that do not compute its condition.
+ *
+ * This is speculative: the guard may now fail although the loop would have exited before reaching
+ * the guarded code, e.g., if the loop runs zero times or the guard is in a conditional part of the
+ * loop body. A moved guard therefore invalidates the code and re-profiles when it fails. If the
+ * graph has a {@link SpeculationLog}, a moved guard registers a speculation for the outermost loop
+ * it is moved out of and its deoptimization reason, so that the recompilation moves the guards with
+ * that reason at most out of the loops nested in that loop. Without a speculation log, guards are
+ * not moved out of a loop whose method has already seen
+ * {@link com.oracle.graal.compiler.common.GraalOptions#DeoptsToDisableOptimisticOptimization}
+ * deoptimizations for the guard's reason.
+ */
+public class SpeculativeGuardMovementPhase extends BasePhase<MidTierContext> {
+
+    private static final DebugCounter GUARDS_MOVED = Debug.counter("SpeculativeGuardsMoved");
+
+    /**
+     * Speculation that the guards of a loop with a given deoptimization reason do not fail when
+     * evaluated before the loop. The loop is identified by the method and bci of its header.
+     */
+    static final class GuardMovementSpeculationReason implements SpeculationReason {
+        private final ResolvedJavaMethod method;
+        private final int bci;
+        private final DeoptimizationReason reason;
+
+        GuardMovementSpeculationReason(ResolvedJavaMethod method, int bci, DeoptimizationReason reason) {
+            this.method = method;
+            this.bci = bci;
+            this.reason = reason;
+        }
+
+        @Override
+        public int hashCode() {
+            return method.hashCode() * 31 + bci * 7 + reason.ordinal();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof GuardMovementSpeculationReason) {
+                GuardMovementSpeculationReason other = (GuardMovementSpeculationReason) obj;
+                return method.equals(other.method) && bci == other.bci && reason == other.reason;
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "GuardMovement@" + method.format("%H.%n") + ":" + bci + ":" + reason;
+        }
+    }
+
+    @Override
+    protected void run(StructuredGraph graph, MidTierContext context) {
+        if (!graph.getGuardsStage().allowsFloatingGuards() || !graph.hasLoops()) {
+            return;
+        }
+        LoopsData loops = new LoopsData(graph);
+        for (LoopEx loop : loops.innerFirst()) {
+            for (Block block : loop.loop().getBlocks()) {
+                if (block.getLoop() != loop.loop()) {
+                    // guards of nested loops are moved when their innermost loop is visited
+                    continue;
+                }
+                for (GuardNode guard : block.getBeginNode().guards().snapshot()) {
+                    tryMove(graph, guard, loop);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves a guard of the loop body of {@code innermost} to the pre-header of the outermost
+     * enclosing loop that does not compute its condition and for which the movement may be
+     * speculated.
+     */
+    private static void tryMove(StructuredGraph graph, GuardNode guard, LoopEx innermost) {
+        SpeculationLog speculationLog = graph.getSpeculationLog();
+        if (speculationLog != null && guard.getSpeculation() != null && !guard.getSpeculation().equals(JavaConstant.NULL_POINTER)) {
+            // the guard already represents a speculation, which includes guards moved by this phase
+            return;
+        }
+        LoopEx target = null;
+        SpeculationReason targetReason = null;
+        for (LoopEx loop = innermost; loop != null && loop.isOutsideLoop(guard.getCondition()); loop = loop.parent()) {
+            FrameState state = loop.loopBegin().stateAfter();
+            SpeculationReason reason = null;
+            if (speculationLog != null && state != null && state.method() != null) {
+                reason = new GuardMovementSpeculationReason(state.method(), state.bci, guard.getReason());
+                if (!speculationLog.maySpeculate(reason)) {
+                    break;
+                }
+            } else if (profile(graph, state).getDeoptimizationCount(guard.getReason()) >= DeoptsToDisableOptimisticOptimization.getValue()) {
+                break;
+            }
+            target = loop;
+            targetReason = reason;
+        }
+        if (target == null) {
+            return;
+        }
+        guard.setAnchor(AbstractBeginNode.prevBegin(target.entryPoint()));
+        if (targetReason != null) {
+            guard.setSpeculation(speculationLog.speculate(targetReason));
+        }
+        if (guard.getAction() == DeoptimizationAction.None || guard.getAction() == DeoptimizationAction.RecompileIfTooManyDeopts) {
+            guard.setAction(DeoptimizationAction.InvalidateReprofile);
+        }
+        GUARDS_MOVED.increment();
+    }
+
+    /**
+     * Gets the profile of the method containing the loop. Moved guards deoptimize with the loop
+     * entry state and are therefore counted in this profile.
+     */
+    private static ProfilingInfo profile(StructuredGraph graph, FrameState state) {
+        if (state != null && state.method() != null) {
+            return graph.getProfilingInfo(state.method());
+        }
+        return graph.getProfilingInfo();
+    }
+}
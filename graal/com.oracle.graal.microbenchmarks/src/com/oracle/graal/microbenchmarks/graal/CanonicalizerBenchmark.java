@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal;
+
+import static com.oracle.graal.compiler.common.GraalOptions.OptCanonicalizerValueNumberTable;
+
+import java.util.HashMap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.graal.microbenchmarks.graal.util.GraalState;
+import com.oracle.graal.microbenchmarks.graal.util.GraphState;
+import com.oracle.graal.microbenchmarks.graal.util.MethodSpec;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.common.CanonicalizerPhase;
+import com.oracle.graal.phases.tiers.PhaseContext;
+
+/**
+ * Benchmarks the {@link CanonicalizerPhase} with and without
+ * {@link com.oracle.graal.compiler.common.GraalOptions#OptCanonicalizerValueNumberTable}.
+ */
+public class CanonicalizerBenchmark extends GraalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ValueNumbering {
+        @Param({"false", "true"}) public boolean valueNumberTable;
+    }
+
+    private static void canonicalize(GraphState s, GraalState g, ValueNumbering v) {
+        try (OverrideScope o = OptionValue.override(OptCanonicalizerValueNumberTable, v.valueNumberTable)) {
+            new CanonicalizerPhase().apply(s.graph, new PhaseContext(g.providers));
+        }
+    }
+
+    @MethodSpec(declaringClass = HashMap.class, name = "computeIfAbsent")
+    public static class HashMapComputeIfAbsent extends GraphState {
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public void hashMapComputeIfAbsent(HashMapComputeIfAbsent s, GraalState g, ValueNumbering v) {
+        canonicalize(s, g, v);
+    }
+
+    @MethodSpec(declaringClass = CanonicalizerBenchmark.class, name = "fanOutSnippet")
+    public static class FanOut extends GraphState {
+    }
+
+    /**
+     * Many value numberable nodes sharing the same inputs, which makes the search through the
+     * usages of an input expensive.
+     */
+    public static int fanOutSnippet(int a, int b) {
+        int r = 0;
+        r += (a + 1) * (b ^ 1);
+        r += (a + 2) * (b ^ 2);
+        r += (a + 3) * (b ^ 3);
+        r += (a + 4) * (b ^ 4);
+        r += (a + 5) * (b ^ 5);
+        r += (a + 6) * (b ^ 6);
+        r += (a + 7) * (b ^ 7);
+        r += (a + 8) * (b ^ 8);
+        r += (a + 9) * (b ^ 9);
+        r += (a + 10) * (b ^ 10);
+        r += (a + 11) * (b ^ 11);
+        r += (a + 12) * (b ^ 12);
+        r += (a + 13) * (b ^ 13);
+        r += (a + 14) * (b ^ 14);
+        r += (a + 15) * (b ^ 15);
+        r += (a + 16) * (b ^ 16);
+        r += (a - 1) * (b | 1);
+        r += (a - 2) * (b | 2);
+        r += (a - 3) * (b | 3);
+        r += (a - 4) * (b | 4);
+        r += (a - 5) * (b | 5);
+        r += (a - 6) * (b | 6);
+        r += (a - 7) * (b | 7);
+        r += (a - 8) * (b | 8);
+        r += (a - 9) * (b | 9);
+        r += (a - 10) * (b | 10);
+        r += (a - 11) * (b | 11);
+        r += (a - 12) * (b | 12);
+        r += (a - 13) * (b | 13);
+        r += (a - 14) * (b | 14);
+        r += (a - 15) * (b | 15);
+        r += (a - 16) * (b | 16);
+        return r;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public void fanOut(FanOut s, GraalState g, ValueNumbering v) {
+        canonicalize(s, g, v);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal;
+
+import static com.oracle.graal.debug.internal.MemUseTrackerImpl.getCurrentThreadAllocatedBytes;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.compiler.GraalCompiler;
+import com.oracle.graal.debug.TTY;
+import com.oracle.graal.lir.asm.CompilationResultBuilderFactory;
+import com.oracle.graal.lir.phases.LIRSuites;
+import com.oracle.graal.microbenchmarks.graal.corpus.Corpus;
+import com.oracle.graal.microbenchmarks.graal.util.GraalState;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.phases.BasePhase;
+import com.oracle.graal.phases.OptimisticOptimizations;
+import com.oracle.graal.phases.PhaseSuite;
+import com.oracle.graal.phases.tiers.HighTierContext;
+import com.oracle.graal.phases.tiers.Suites;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Compiles the methods of the {@link Corpus} one after the other with
+ * {@link GraalCompiler#compile}. The score is the number of methods compiled per second, with a
+ * single compiler thread and with as many compiler threads as there are processors. At the end of
+ * each iteration, the average number of bytes allocated per method and the average time spent in
+ * the graph builder, in each tier of the front end and in the back end are printed.
+ */
+public class CompileThroughputBenchmark extends GraalBenchmark {
+
+    enum Tier {
+        GraphBuilder,
+        HighTier,
+        MidTier,
+        LowTier,
+        BackEnd
+    }
+
+    @State(Scope.Benchmark)
+    public static class CorpusState {
+
+        final GraalState graal = new GraalState();
+        final ResolvedJavaMethod[] methods;
+        final PhaseSuite<HighTierContext> graphBuilderSuite;
+        final Suites suites;
+        final LIRSuites lirSuites;
+
+        final LongAdder[] tierNanos = new LongAdder[Tier.values().length];
+        final LongAdder compileNanos = new LongAdder();
+        final LongAdder allocatedBytes = new LongAdder();
+        final LongAdder compilations = new LongAdder();
+
+        public CorpusState() {
+            List<Method> corpus = Corpus.methods();
+            methods = new ResolvedJavaMethod[corpus.size()];
+            for (int i = 0; i < methods.length; i++) {
+                methods[i] = graal.metaAccess.lookupJavaMethod(corpus.get(i));
+            }
+            for (int i = 0; i < tierNanos.length; i++) {
+                tierNanos[i] = new LongAdder();
+            }
+            graphBuilderSuite = graal.backend.getSuites().getDefaultGraphBuilderSuite();
+            Suites defaultSuites = graal.backend.getSuites().getDefaultSuites();
+            suites = new Suites(timed(defaultSuites.getHighTier(), Tier.HighTier), timed(defaultSuites.getMidTier(), Tier.MidTier), timed(defaultSuites.getLowTier(), Tier.LowTier));
+            lirSuites = graal.backend.getSuites().getDefaultLIRSuites();
+        }
+
+        private <C> PhaseSuite<C> timed(PhaseSuite<C> tier, Tier t) {
+            PhaseSuite<C> result = new PhaseSuite<>();
+            result.appendPhase(new TimedPhase<>(tier, tierNanos[t.ordinal()]));
+            return result;
+        }
+
+        CompilationResult compile(ResolvedJavaMethod method) {
+            long allocatedStart = getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            StructuredGraph graph = new StructuredGraph(method, AllowAssumptions.YES, true);
+            graphBuilderSuite.apply(graph, new HighTierContext(graal.providers, graphBuilderSuite, OptimisticOptimizations.ALL));
+            long parsed = System.nanoTime();
+            CompilationResult result = GraalCompiler.compileGraph(graph, method, graal.providers, graal.backend, graphBuilderSuite, OptimisticOptimizations.ALL, graph.getProfilingInfo(), suites,
+                            lirSuites, new CompilationResult(), CompilationResultBuilderFactory.Default);
+            long end = System.nanoTime();
+            tierNanos[Tier.GraphBuilder.ordinal()].add(parsed - start);
+            compileNanos.add(end - parsed);
+            allocatedBytes.add(getCurrentThreadAllocatedBytes() - allocatedStart);
+            compilations.increment();
+            return result;
+        }
+
+        @TearDown(Level.Iteration)
+        public void report() {
+            long n = compilations.sumThenReset();
+            if (n != 0) {
+                long[] nanos = new long[tierNanos.length];
+                for (int i = 0; i < nanos.length; i++) {
+                    nanos[i] = tierNanos[i].sumThenReset();
+                }
+                nanos[Tier.BackEnd.ordinal()] = compileNanos.sumThenReset() - nanos[Tier.HighTier.ordinal()] - nanos[Tier.MidTier.ordinal()] - nanos[Tier.LowTier.ordinal()];
+                StringBuilder sb = new StringBuilder();
+                for (Tier t : Tier.values()) {
+                    sb.append(String.format(" %s=%dus", t, nanos[t.ordinal()] / n / 1000));
+                }
+                TTY.println("  %d methods, %d bytes/method,%s", n, allocatedBytes.sumThenReset() / n, sb);
+            }
+            compileNanos.reset();
+            allocatedBytes.reset();
+        }
+    }
+
+    /**
+     * Applies a tier and accumulates the time spent in it.
+     */
+    static final class TimedPhase<C> extends BasePhase<C> {
+
+        private final PhaseSuite<C> tier;
+        private final LongAdder nanos;
+
+        TimedPhase(PhaseSuite<C> tier, LongAdder nanos) {
+            this.tier = tier;
+            this.nanos = nanos;
+        }
+
+        @Override
+        protected void run(StructuredGraph graph, C context) {
+            long start = System.nanoTime();
+            tier.apply(graph, context);
+            nanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * The position of a compiler thread in the corpus.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        ResolvedJavaMethod next(CorpusState corpus) {
+            ResolvedJavaMethod method = corpus.methods[next];
+            next = (next + 1) % corpus.methods.length;
+            return method;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public CompilationResult compile(CorpusState corpus, Cursor cursor) {
+        return corpus.compile(cursor.next(corpus));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public CompilationResult compileParallel(CorpusState corpus, Cursor cursor) {
+        return corpus.compile(cursor.next(corpus));
+    }
+}
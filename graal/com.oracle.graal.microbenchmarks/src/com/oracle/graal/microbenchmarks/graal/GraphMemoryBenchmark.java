@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal;
+
+import static com.oracle.graal.debug.internal.MemUseTrackerImpl.getCurrentThreadAllocatedBytes;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.graal.debug.TTY;
+import com.oracle.graal.graph.Graph;
+import com.oracle.graal.microbenchmarks.graal.GraphCopyBenchmark.Nullness;
+import com.oracle.graal.microbenchmarks.graal.GraphCopyBenchmark.Search;
+import com.oracle.graal.microbenchmarks.graal.NodeBenchmark.StringEquals;
+import com.oracle.graal.microbenchmarks.graal.util.GraalState;
+import com.oracle.graal.microbenchmarks.graal.util.GraalUtil;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.OptimisticOptimizations;
+import com.oracle.graal.phases.PhaseSuite;
+import com.oracle.graal.phases.tiers.HighTierContext;
+
+/**
+ * Measures the heap footprint of graphs, with and without {@link Graph.Options#CompactNodeUsages},
+ * at three points of their life: when a graph is built by the graph builder, when it is copied and
+ * when it is processed by the high tier phase plan. At the end of each iteration, the average
+ * number of bytes allocated per node and the number of bytes per node retained by the last graph
+ * produced are printed.
+ */
+public class GraphMemoryBenchmark extends GraalBenchmark {
+
+    @State(Scope.Thread)
+    public static class Allocation {
+
+        @Param({"false", "true"}) public boolean compactNodeUsages;
+
+        private long allocatedBytes;
+        private long nodes;
+
+        /**
+         * The last graph produced in this iteration, kept alive until {@link #report()} measures
+         * its retained size.
+         */
+        private StructuredGraph last;
+
+        /**
+         * Builds a new graph for the method of {@code graph}.
+         */
+        StructuredGraph build(GraalState graal, StructuredGraph graph) {
+            try (OverrideScope o = OptionValue.override(Graph.Options.CompactNodeUsages, compactNodeUsages)) {
+                long start = getCurrentThreadAllocatedBytes();
+                StructuredGraph built = GraalUtil.getGraph(graal, graph.method());
+                return record(start, built);
+            }
+        }
+
+        StructuredGraph copy(StructuredGraph graph) {
+            try (OverrideScope o = OptionValue.override(Graph.Options.CompactNodeUsages, compactNodeUsages)) {
+                long start = getCurrentThreadAllocatedBytes();
+                StructuredGraph copy = (StructuredGraph) graph.copy();
+                return record(start, copy);
+            }
+        }
+
+        /**
+         * Applies {@code plan} to a copy of {@code graph}. Only the allocation of the phases is
+         * counted, not that of the copy.
+         */
+        StructuredGraph apply(StructuredGraph graph, PhaseSuite<HighTierContext> plan, HighTierContext context) {
+            try (OverrideScope o = OptionValue.override(Graph.Options.CompactNodeUsages, compactNodeUsages)) {
+                StructuredGraph copy = (StructuredGraph) graph.copy();
+                long start = getCurrentThreadAllocatedBytes();
+                plan.apply(copy, context);
+                return record(start, copy);
+            }
+        }
+
+        private StructuredGraph record(long start, StructuredGraph graph) {
+            allocatedBytes += getCurrentThreadAllocatedBytes() - start;
+            nodes += graph.getNodeCount();
+            last = graph;
+            return graph;
+        }
+
+        @TearDown(Level.Iteration)
+        public void report() {
+            if (nodes != 0) {
+                int lastNodes = last.getNodeCount();
+                long withLast = usedHeapAfterGC();
+                last = null;
+                long retainedBytes = withLast - usedHeapAfterGC();
+                TTY.println("  [compactNodeUsages=%b] allocated %.1f bytes/node, retained %.1f bytes/node", compactNodeUsages, (double) allocatedBytes / nodes,
+                                (double) retainedBytes / lastNodes);
+            }
+            allocatedBytes = 0;
+            nodes = 0;
+            last = null;
+        }
+
+        private static long usedHeapAfterGC() {
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            for (int i = 0; i < 3; i++) {
+                memory.gc();
+            }
+            return memory.getHeapMemoryUsage().getUsed();
+        }
+    }
+
+    /**
+     * The high tier of the default suites, as a representative phase plan.
+     */
+    @State(Scope.Benchmark)
+    public static class HighTier {
+
+        final PhaseSuite<HighTierContext> plan;
+        final HighTierContext context;
+
+        public HighTier() {
+            GraalState graal = new GraalState();
+            PhaseSuite<HighTierContext> graphBuilderSuite = graal.backend.getSuites().getDefaultGraphBuilderSuite();
+            plan = graal.backend.getSuites().getDefaultSuites().getHighTier();
+            context = new HighTierContext(graal.providers, graphBuilderSuite, OptimisticOptimizations.ALL);
+        }
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public StructuredGraph nullness(Nullness s, Allocation a, @SuppressWarnings("unused") GraalState g) {
+        return a.copy(s.graph);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public StructuredGraph search(Search s, Allocation a, @SuppressWarnings("unused") GraalState g) {
+        return a.copy(s.graph);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public StructuredGraph stringEquals(StringEquals s, Allocation a) {
+        return a.copy(s.graph);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public StructuredGraph buildSearch(Search s, Allocation a, GraalState g) {
+        return a.build(g, s.graph);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public StructuredGraph buildStringEquals(StringEquals s, Allocation a, GraalState g) {
+        return a.build(g, s.graph);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public StructuredGraph highTierSearch(Search s, Allocation a, HighTier h) {
+        return a.apply(s.graph, h.plan, h.context);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public StructuredGraph highTierStringEquals(StringEquals s, Allocation a, HighTier h) {
+        return a.apply(s.graph, h.plan, h.context);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks cost of synchronization on objects whose lock has been inflated to a monitor. The
+ * benchmarks are executed with monitor operations on inflated locks going through the runtime;
+ * {@link Enabled} runs the same benchmarks with the inline fast paths.
+ */
+@Fork(value = GraalBenchmark.Defaults.FORKS, jvmArgsAppend = "-Dgraal.InlineInflatedLocking=false")
+public class InflatedSyncBenchmark extends GraalBenchmark {
+
+    @Fork(value = GraalBenchmark.Defaults.FORKS, jvmArgsAppend = "-Dgraal.InlineInflatedLocking=true")
+    public static class Enabled extends InflatedSyncBenchmark {
+    }
+
+    public static class Counter {
+        public int value;
+
+        public synchronized int increment() {
+            return ++value;
+        }
+
+        public synchronized int incrementTwice() {
+            increment();
+            return increment();
+        }
+
+        /**
+         * Waiting on the object forces its lock to be inflated.
+         */
+        public synchronized void inflate() throws InterruptedException {
+            wait(1);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class UncontendedState {
+        Counter counter = new Counter();
+
+        @Setup
+        public void setup() throws InterruptedException {
+            counter.inflate();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ContendedState {
+        Counter counter = new Counter();
+
+        @Setup
+        public void setup() throws InterruptedException {
+            counter.inflate();
+        }
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public int uncontended(UncontendedState state) {
+        return state.counter.increment();
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public int uncontendedRecursive(UncontendedState state) {
+        return state.counter.incrementTwice();
+    }
+
+    @Benchmark
+    @Threads(4)
+    @Warmup(iterations = 20)
+    public int contended(ContendedState state) {
+        return state.counter.increment();
+    }
+}
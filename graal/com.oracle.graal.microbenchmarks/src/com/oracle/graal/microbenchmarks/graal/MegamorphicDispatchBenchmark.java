@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Throughput of megamorphic virtual and interface call sites with a visitor-like mix of receiver
+ * types. The benchmarks are executed without
+ * {@link com.oracle.graal.compiler.common.GraalOptions#MegamorphicTypeSwitchDispatch};
+ * {@link Enabled} runs the same benchmarks with the type switch dispatch.
+ */
+@Fork(value = GraalBenchmark.Defaults.FORKS, jvmArgsAppend = "-Dgraal.MegamorphicTypeSwitchDispatch=false")
+public class MegamorphicDispatchBenchmark extends GraalBenchmark {
+
+    @Fork(value = GraalBenchmark.Defaults.FORKS, jvmArgsAppend = "-Dgraal.MegamorphicTypeSwitchDispatch=true")
+    public static class Enabled extends MegamorphicDispatchBenchmark {
+    }
+
+    public interface Visitor {
+        int visit(int value);
+    }
+
+    public abstract static class Node implements Visitor {
+        public abstract int accept(int value);
+    }
+
+    public static final class N0 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 1;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 1;
+        }
+    }
+
+    public static final class N1 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 2;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 2;
+        }
+    }
+
+    public static final class N2 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 3;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 3;
+        }
+    }
+
+    public static final class N3 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 4;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 4;
+        }
+    }
+
+    public static final class N4 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 5;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 5;
+        }
+    }
+
+    public static final class N5 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 6;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 6;
+        }
+    }
+
+    public static final class N6 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 7;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 7;
+        }
+    }
+
+    public static final class N7 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 8;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 8;
+        }
+    }
+
+    public static final class N8 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 9;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 9;
+        }
+    }
+
+    public static final class N9 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 10;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 10;
+        }
+    }
+
+    public static final class N10 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 11;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 11;
+        }
+    }
+
+    public static final class N11 extends Node {
+        @Override
+        public int visit(int v) {
+            return v + 12;
+        }
+
+        @Override
+        public int accept(int v) {
+            return v ^ 12;
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Receivers {
+        @Param({"6", "8", "12"}) public int types;
+
+        public Node[] nodes;
+
+        @Setup
+        public void setup() {
+            Node[] all = {new N0(), new N1(), new N2(), new N3(), new N4(), new N5(), new N6(), new N7(), new N8(), new N9(), new N10(), new N11()};
+            Random random = new Random(17);
+            nodes = new Node[4096];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = all[random.nextInt(types)];
+            }
+        }
+    }
+
+    @Benchmark
+    public int interfaceCall(Receivers s) {
+        int result = 0;
+        for (Visitor v : s.nodes) {
+            result = v.visit(result);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int virtualCall(Receivers s) {
+        int result = 0;
+        for (Node n : s.nodes) {
+            result = n.accept(result);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.oracle.graal.code.CompilationResult;
+import com.oracle.graal.compiler.GraalCompiler;
+import com.oracle.graal.compiler.common.GraalOptions;
+import com.oracle.graal.lir.asm.CompilationResultBuilderFactory;
+import com.oracle.graal.lir.phases.LIRSuites;
+import com.oracle.graal.microbenchmarks.graal.corpus.Corpus;
+import com.oracle.graal.microbenchmarks.graal.util.GraalState;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.options.OptionSnapshot;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.phases.OptimisticOptimizations;
+import com.oracle.graal.phases.PhaseSuite;
+import com.oracle.graal.phases.tiers.HighTierContext;
+import com.oracle.graal.phases.tiers.Suites;
+
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Compares reading options through the override scopes of the current thread with reading them
+ * from an {@link OptionSnapshot}. The {@code getValue} benchmarks read the options checked per node
+ * by the lowering and inlining phases. The {@code compile} benchmarks measure the effect on whole
+ * compilations of the {@link Corpus}, including the cost of capturing the snapshot once per
+ * compilation.
+ */
+public class OptionReadBenchmark extends GraalBenchmark {
+
+    @State(Scope.Thread)
+    public static class Overridden {
+        OverrideScope scope;
+        OptionSnapshot snapshot;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            scope = OptionValue.override(GraalOptions.MaximumInliningSize, 301, GraalOptions.TrivialInliningSize, 11);
+            snapshot = OptionSnapshot.capture();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            scope.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class NotOverridden {
+        OptionSnapshot snapshot;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            snapshot = OptionSnapshot.capture();
+        }
+    }
+
+    /**
+     * Compiles the methods of the {@link Corpus} one after the other.
+     */
+    @State(Scope.Thread)
+    public static class Compilation {
+        final GraalState graal = new GraalState();
+        final ResolvedJavaMethod[] methods;
+        final PhaseSuite<HighTierContext> graphBuilderSuite;
+        final Suites suites;
+        final LIRSuites lirSuites;
+        int next;
+
+        public Compilation() {
+            List<Method> corpus = Corpus.methods();
+            methods = new ResolvedJavaMethod[corpus.size()];
+            for (int i = 0; i < methods.length; i++) {
+                methods[i] = graal.metaAccess.lookupJavaMethod(corpus.get(i));
+            }
+            graphBuilderSuite = graal.backend.getSuites().getDefaultGraphBuilderSuite();
+            suites = graal.backend.getSuites().getDefaultSuites();
+            lirSuites = graal.backend.getSuites().getDefaultLIRSuites();
+        }
+
+        CompilationResult compile(OptionSnapshot options) {
+            ResolvedJavaMethod method = methods[next];
+            next = (next + 1) % methods.length;
+            StructuredGraph graph = new StructuredGraph(method, AllowAssumptions.YES, true);
+            return GraalCompiler.compile(new GraalCompiler.Request<>(graph, method, graal.providers, graal.backend, graphBuilderSuite, OptimisticOptimizations.ALL, graph.getProfilingInfo(),
+                            suites, lirSuites, new CompilationResult(), CompilationResultBuilderFactory.Default, options));
+        }
+    }
+
+    @Benchmark
+    public CompilationResult compile(Compilation c, Overridden s) {
+        return c.compile(null);
+    }
+
+    @Benchmark
+    public CompilationResult compileSnapshot(Compilation c, Overridden s) {
+        return c.compile(OptionSnapshot.capture());
+    }
+
+    @Benchmark
+    public int getValue(NotOverridden s) {
+        return read(null);
+    }
+
+    @Benchmark
+    public int getValueSnapshot(NotOverridden s) {
+        return read(s.snapshot);
+    }
+
+    @Benchmark
+    public int getValueOverridden(Overridden s) {
+        return read(null);
+    }
+
+    @Benchmark
+    public int getValueOverriddenSnapshot(Overridden s) {
+        return read(s.snapshot);
+    }
+
+    @Benchmark
+    public OptionSnapshot capture() {
+        return OptionSnapshot.capture();
+    }
+
+    private static int read(OptionSnapshot options) {
+        int result = 0;
+        if (GraalOptions.OptEliminateGuards.getValue(options)) {
+            result++;
+        }
+        if (GraalOptions.OptCanonicalizer.getValue(options)) {
+            result++;
+        }
+        if (GraalOptions.Intrinsify.getValue(options)) {
+            result++;
+        }
+        result += GraalOptions.MaximumRecursiveInlining.getValue(options);
+        result += GraalOptions.MegamorphicTypeSwitchMaxTypes.getValue(options);
+        return result;
+    }
+}
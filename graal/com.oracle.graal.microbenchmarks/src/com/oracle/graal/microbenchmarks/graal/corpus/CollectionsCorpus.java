@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal.corpus;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Code using the collection classes of the JDK.
+ */
+public class CollectionsCorpus {
+
+    public static Map<String, Integer> wordCounts(String[] words) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : words) {
+            Integer count = counts.get(word);
+            counts.put(word, count == null ? 1 : count + 1);
+        }
+        return counts;
+    }
+
+    public static List<String> topWords(Map<String, Integer> counts, int n) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+            @Override
+            public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+                int c = b.getValue().compareTo(a.getValue());
+                return c != 0 ? c : a.getKey().compareTo(b.getKey());
+            }
+        });
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < n && i < entries.size(); i++) {
+            result.add(entries.get(i).getKey());
+        }
+        return result;
+    }
+
+    public static int[] dijkstra(int[][] weights, int source) {
+        int n = weights.length;
+        int[] distance = new int[n];
+        for (int i = 0; i < n; i++) {
+            distance[i] = Integer.MAX_VALUE;
+        }
+        distance[source] = 0;
+        PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> Integer.compare(a[1], b[1]));
+        queue.add(new int[]{source, 0});
+        while (!queue.isEmpty()) {
+            int[] top = queue.poll();
+            int u = top[0];
+            if (top[1] > distance[u]) {
+                continue;
+            }
+            for (int v = 0; v < n; v++) {
+                int w = weights[u][v];
+                if (w > 0 && distance[u] + w < distance[v]) {
+                    distance[v] = distance[u] + w;
+                    queue.add(new int[]{v, distance[v]});
+                }
+            }
+        }
+        return distance;
+    }
+
+    public static List<Integer> breadthFirst(Map<Integer, List<Integer>> graph, int start) {
+        List<Integer> order = new ArrayList<>();
+        Set<Integer> visited = new HashSet<>();
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        visited.add(start);
+        while (!queue.isEmpty()) {
+            Integer node = queue.removeFirst();
+            order.add(node);
+            List<Integer> successors = graph.get(node);
+            if (successors != null) {
+                for (Integer s : successors) {
+                    if (visited.add(s)) {
+                        queue.addLast(s);
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    public static TreeMap<Integer, List<String>> groupByLength(List<String> strings) {
+        TreeMap<Integer, List<String>> groups = new TreeMap<>();
+        for (String s : strings) {
+            List<String> group = groups.get(s.length());
+            if (group == null) {
+                group = new LinkedList<>();
+                groups.put(s.length(), group);
+            }
+            group.add(s);
+        }
+        return groups;
+    }
+
+    public static int removeOdd(List<Integer> values) {
+        int removed = 0;
+        for (Iterator<Integer> it = values.iterator(); it.hasNext();) {
+            if ((it.next() & 1) != 0) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public static <K, V extends Comparable<V>> K argMax(Map<K, V> map) {
+        K best = null;
+        V bestValue = null;
+        for (Map.Entry<K, V> e : map.entrySet()) {
+            if (bestValue == null || e.getValue().compareTo(bestValue) > 0) {
+                best = e.getKey();
+                bestValue = e.getValue();
+            }
+        }
+        return best;
+    }
+
+    static void exercise() {
+        String[] words = "the quick brown fox jumps over the lazy dog the end".split(" ");
+        Map<String, Integer> counts = wordCounts(words);
+        topWords(counts, 3);
+        argMax(counts);
+        dijkstra(new int[][]{{0, 1, 4}, {1, 0, 2}, {4, 2, 0}}, 0);
+        Map<Integer, List<Integer>> graph = new HashMap<>();
+        graph.put(0, new ArrayList<>(java.util.Arrays.asList(1, 2)));
+        graph.put(1, new ArrayList<>(java.util.Arrays.asList(2)));
+        breadthFirst(graph, 0);
+        groupByLength(java.util.Arrays.asList(words));
+        removeOdd(new ArrayList<>(java.util.Arrays.asList(1, 2, 3, 4)));
+    }
+}
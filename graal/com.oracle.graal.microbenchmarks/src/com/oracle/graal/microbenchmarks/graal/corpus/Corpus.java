@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal.corpus;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A fixed set of methods to be compiled by
+ * {@link com.oracle.graal.microbenchmarks.graal.CompileThroughputBenchmark}. The corpus consists
+ * of all concrete methods declared by the corpus classes, including their lambdas.
+ */
+public final class Corpus {
+
+    private static final Class<?>[] CLASSES = {CollectionsCorpus.class, StreamsCorpus.class, StringsCorpus.class, GeneratedCorpus.class};
+
+    private Corpus() {
+    }
+
+    /**
+     * Gets the corpus methods in a deterministic order. The corpus code is executed once so that
+     * all classes it refers to are loaded and initialized.
+     */
+    public static List<Method> methods() {
+        CollectionsCorpus.exercise();
+        StreamsCorpus.exercise();
+        StringsCorpus.exercise();
+        GeneratedCorpus.exercise();
+
+        List<Method> methods = new ArrayList<>();
+        for (Class<?> c : CLASSES) {
+            Method[] declared = c.getDeclaredMethods();
+            Arrays.sort(declared, Comparator.comparing(Method::toString));
+            for (Method m : declared) {
+                if (!Modifier.isAbstract(m.getModifiers()) && !Modifier.isNative(m.getModifiers())) {
+                    methods.add(m);
+                }
+            }
+        }
+        return methods;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal.corpus;
+
+/**
+ * Code in the style of generated lexers and interpreters: long methods with large switches and
+ * table lookups.
+ */
+public class GeneratedCorpus {
+
+    public static final int T_EOF = 0;
+    public static final int T_IDENT = 1;
+    public static final int T_NUMBER = 2;
+    public static final int T_PLUS = 3;
+    public static final int T_MINUS = 4;
+    public static final int T_STAR = 5;
+    public static final int T_SLASH = 6;
+    public static final int T_LPAREN = 7;
+    public static final int T_RPAREN = 8;
+    public static final int T_ASSIGN = 9;
+    public static final int T_EQ = 10;
+    public static final int T_LT = 11;
+    public static final int T_LE = 12;
+    public static final int T_GT = 13;
+    public static final int T_GE = 14;
+    public static final int T_SEMI = 15;
+    public static final int T_ERROR = 16;
+
+    private static final byte[] CHAR_CLASS = new byte[128];
+
+    static {
+        for (int c = 'a'; c <= 'z'; c++) {
+            CHAR_CLASS[c] = 1;
+        }
+        for (int c = 'A'; c <= 'Z'; c++) {
+            CHAR_CLASS[c] = 1;
+        }
+        CHAR_CLASS['_'] = 1;
+        for (int c = '0'; c <= '9'; c++) {
+            CHAR_CLASS[c] = 2;
+        }
+        CHAR_CLASS[' '] = 3;
+        CHAR_CLASS['\t'] = 3;
+        CHAR_CLASS['\n'] = 3;
+        CHAR_CLASS['\r'] = 3;
+    }
+
+    /**
+     * Splits {@code input} into tokens, storing the token kinds in {@code kinds} and the token start
+     * offsets in {@code starts}.
+     *
+     * @return the number of tokens
+     */
+    public static int tokenize(String input, int[] kinds, int[] starts) {
+        int count = 0;
+        int pos = 0;
+        int length = input.length();
+        while (count < kinds.length) {
+            while (pos < length && input.charAt(pos) < 128 && CHAR_CLASS[input.charAt(pos)] == 3) {
+                pos++;
+            }
+            starts[count] = pos;
+            if (pos >= length) {
+                kinds[count++] = T_EOF;
+                break;
+            }
+            char c = input.charAt(pos);
+            int cls = c < 128 ? CHAR_CLASS[c] : 0;
+            int kind;
+            if (cls == 1) {
+                do {
+                    pos++;
+                } while (pos < length && input.charAt(pos) < 128 && CHAR_CLASS[input.charAt(pos)] != 0 && CHAR_CLASS[input.charAt(pos)] != 3);
+                kind = T_IDENT;
+            } else if (cls == 2) {
+                do {
+                    pos++;
+                } while (pos < length && input.charAt(pos) < 128 && CHAR_CLASS[input.charAt(pos)] == 2);
+                kind = T_NUMBER;
+            } else {
+                pos++;
+                char next = pos < length ? input.charAt(pos) : 0;
+                switch (c) {
+                    case '+':
+                        kind = T_PLUS;
+                        break;
+                    case '-':
+                        kind = T_MINUS;
+                        break;
+                    case '*':
+                        kind = T_STAR;
+                        break;
+                    case '/':
+                        kind = T_SLASH;
+                        break;
+                    case '(':
+                        kind = T_LPAREN;
+                        break;
+                    case ')':
+                        kind = T_RPAREN;
+                        break;
+                    case ';':
+                        kind = T_SEMI;
+                        break;
+                    case '=':
+                        if (next == '=') {
+                            pos++;
+                            kind = T_EQ;
+                        } else {
+                            kind = T_ASSIGN;
+                        }
+                        break;
+                    case '<':
+                        if (next == '=') {
+                            pos++;
+                            kind = T_LE;
+                        } else {
+                            kind = T_LT;
+                        }
+                        break;
+                    case '>':
+                        if (next == '=') {
+                            pos++;
+                            kind = T_GE;
+                        } else {
+                            kind = T_GT;
+                        }
+                        break;
+                    default:
+                        kind = T_ERROR;
+                }
+            }
+            kinds[count++] = kind;
+        }
+        return count;
+    }
+
+    public static final int OP_PUSH = 0;
+    public static final int OP_LOAD = 1;
+    public static final int OP_STORE = 2;
+    public static final int OP_ADD = 3;
+    public static final int OP_SUB = 4;
+    public static final int OP_MUL = 5;
+    public static final int OP_DIV = 6;
+    public static final int OP_LT = 7;
+    public static final int OP_EQ = 8;
+    public static final int OP_JMP = 9;
+    public static final int OP_JZ = 10;
+    public static final int OP_DUP = 11;
+    public static final int OP_POP = 12;
+    public static final int OP_NEG = 13;
+    public static final int OP_RET = 14;
+
+    /**
+     * Interprets a stack machine program.
+     */
+    public static int interpret(int[] code, int[] locals) {
+        int[] stack = new int[64];
+        int sp = 0;
+        int pc = 0;
+        while (true) {
+            int op = code[pc++];
+            switch (op) {
+                case OP_PUSH:
+                    stack[sp++] = code[pc++];
+                    break;
+                case OP_LOAD:
+                    stack[sp++] = locals[code[pc++]];
+                    break;
+                case OP_STORE:
+                    locals[code[pc++]] = stack[--sp];
+                    break;
+                case OP_ADD:
+                    sp--;
+                    stack[sp - 1] += stack[sp];
+                    break;
+                case OP_SUB:
+                    sp--;
+                    stack[sp - 1] -= stack[sp];
+                    break;
+                case OP_MUL:
+                    sp--;
+                    stack[sp - 1] *= stack[sp];
+                    break;
+                case OP_DIV:
+                    sp--;
+                    stack[sp - 1] /= stack[sp];
+                    break;
+                case OP_LT:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] < stack[sp] ? 1 : 0;
+                    break;
+                case OP_EQ:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] == stack[sp] ? 1 : 0;
+                    break;
+                case OP_JMP:
+                    pc = code[pc];
+                    break;
+                case OP_JZ:
+                    if (stack[--sp] == 0) {
+                        pc = code[pc];
+                    } else {
+                        pc++;
+                    }
+                    break;
+                case OP_DUP:
+                    stack[sp] = stack[sp - 1];
+                    sp++;
+                    break;
+                case OP_POP:
+                    sp--;
+                    break;
+                case OP_NEG:
+                    stack[sp - 1] = -stack[sp - 1];
+                    break;
+                case OP_RET:
+                    return stack[sp - 1];
+                default:
+                    throw new IllegalStateException("bad opcode " + op + " at " + (pc - 1));
+            }
+        }
+    }
+
+    /**
+     * A sum of 0 .. n-1 as a stack machine program, with n in local 0.
+     */
+    static final int[] SUM_PROGRAM = {OP_PUSH, 0, OP_STORE, 1, OP_PUSH, 0, OP_STORE, 2, OP_LOAD, 2, OP_LOAD, 0, OP_LT, OP_JZ, 31, OP_LOAD, 1, OP_LOAD, 2, OP_ADD, OP_STORE, 1, OP_LOAD, 2,
+                    OP_PUSH, 1, OP_ADD, OP_STORE, 2, OP_JMP, 8, OP_LOAD, 1, OP_RET};
+
+    static void exercise() {
+        int[] kinds = new int[64];
+        int[] starts = new int[64];
+        tokenize("x1 = (y + 42) * z; if a <= b >= c == d / 2 - e", kinds, starts);
+        interpret(SUM_PROGRAM, new int[]{10, 0, 0});
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.graal.corpus;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Code using lambdas and the stream library.
+ */
+public class StreamsCorpus {
+
+    public static int sumOfSquaresOfEven(int[] values) {
+        return IntStream.of(values).filter(v -> (v & 1) == 0).map(v -> v * v).sum();
+    }
+
+    public static List<String> upperCaseSorted(List<String> strings) {
+        return strings.stream().map(String::toUpperCase).sorted().distinct().collect(Collectors.toList());
+    }
+
+    public static Map<Character, Long> countByInitial(List<String> strings) {
+        return strings.stream().filter(s -> !s.isEmpty()).collect(Collectors.groupingBy(s -> s.charAt(0), Collectors.counting()));
+    }
+
+    public static Optional<String> longest(List<String> strings) {
+        return strings.stream().reduce((a, b) -> a.length() >= b.length() ? a : b);
+    }
+
+    public static double average(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).average().orElse(0);
+    }
+
+    public static String joinPrimes(int limit) {
+        return IntStream.rangeClosed(2, limit).filter(n -> IntStream.rangeClosed(2, (int) Math.sqrt(n)).noneMatch(d -> n % d == 0)).mapToObj(Integer::toString).collect(
+                        Collectors.joining(","));
+    }
+
+    static void exercise() {
+        List<String> strings = Arrays.asList("alpha", "beta", "gamma", "alpha", "delta", "");
+        sumOfSquaresOfEven(new int[]{1, 2, 3, 4});
+        upperCaseSorted(strings);
+        countByInitial(strings);
+        longest(strings);
+        average(Arrays.asList(1, 2, 3));
+        joinPrimes(20);
+    }
+}
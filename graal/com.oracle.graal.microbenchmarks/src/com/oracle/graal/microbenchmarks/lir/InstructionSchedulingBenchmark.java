@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.microbenchmarks.lir;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.oracle.graal.microbenchmarks.graal.GraalBenchmark;
+
+/**
+ * Tight numeric loops whose bodies consist of independent dependency chains. The benchmarks are
+ * executed with the AMD64 instruction scheduler disabled; {@link Enabled} runs the same benchmarks
+ * with the scheduler enabled.
+ */
+@Fork(value = GraalBenchmark.Defaults.FORKS, jvmArgsAppend = "-Dgraal.LIROptAMD64InstructionScheduling=false")
+public class InstructionSchedulingBenchmark extends GraalBenchmark {
+
+    @Fork(value = GraalBenchmark.Defaults.FORKS, jvmArgsAppend = "-Dgraal.LIROptAMD64InstructionScheduling=true")
+    public static class Enabled extends InstructionSchedulingBenchmark {
+    }
+
+    @State(Scope.Benchmark)
+    public static class Arrays {
+        @Param({"1024"}) public int size;
+
+        public double[] a;
+        public double[] b;
+        public int[] x;
+        public int[] y;
+
+        @Setup
+        public void setup() {
+            Random random = new Random(42);
+            a = new double[size];
+            b = new double[size];
+            x = new int[size];
+            y = new int[size];
+            for (int i = 0; i < size; i++) {
+                a[i] = random.nextDouble();
+                b[i] = random.nextDouble();
+                x[i] = random.nextInt();
+                y[i] = random.nextInt();
+            }
+        }
+    }
+
+    @Benchmark
+    public double dotProduct(Arrays s) {
+        double[] a = s.a;
+        double[] b = s.b;
+        double sum0 = 0;
+        double sum1 = 0;
+        for (int i = 0; i + 1 < a.length; i += 2) {
+            sum0 += a[i] * b[i];
+            sum1 += a[i + 1] * b[i + 1];
+        }
+        return sum0 + sum1;
+    }
+
+    @Benchmark
+    public double polynomial(Arrays s) {
+        double[] a = s.a;
+        double result = 0;
+        for (int i = 0; i < a.length; i++) {
+            double v = a[i];
+            double v2 = v * v;
+            double even = 1.0 + 0.5 * v2;
+            double odd = 0.25 * v + 0.125 * v * v2;
+            result += even + odd;
+        }
+        return result;
+    }
+
+    @Benchmark
+    public int mix(Arrays s) {
+        int[] x = s.x;
+        int[] y = s.y;
+        int h0 = 17;
+        int h1 = 31;
+        for (int i = 0; i < x.length; i++) {
+            int p = x[i];
+            int q = y[i];
+            h0 = (h0 * 31) ^ (p + (q << 3));
+            h1 = (h1 * 37) + ((p >>> 5) ^ q);
+        }
+        return h0 + h1;
+    }
+
+    @Benchmark
+    public long popCount(Arrays s) {
+        int[] x = s.x;
+        long result = 0;
+        for (int i = 0; i < x.length; i++) {
+            result += Integer.bitCount(x[i]) * (long) (x[i] >>> 7);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,574 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.nodeinfo.processor;
+
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.lang.model.element.Modifier.TRANSIENT;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a {@code GeneratedNodeAccessor} subclass for a concrete node class. The accessor
+ * describes the fields of the node class and visits and compares the edges and compares and hashes
+ * the data fields of a node with straight-line code instead of the offset based loops in
+ * {@code NodeClass}.
+ */
+public class GraphNodeGenerator {
+
+    /**
+     * Must be kept in sync with {@code GeneratedNodeAccessor.SUFFIX}.
+     */
+    static final String SUFFIX = "_NodeAccessor";
+
+    private final GraphNodeProcessor env;
+    private final Types types;
+    private final Elements elements;
+
+    // Checkstyle: stop
+    private final TypeElement Input;
+    private final TypeElement OptionalInput;
+    private final TypeElement Successor;
+
+    private final TypeElement Node;
+    private final TypeElement NodeList;
+    // Checkstyle: resume
+
+    public GraphNodeGenerator(GraphNodeProcessor processor) {
+        this.env = processor;
+        this.types = processor.getProcessingEnv().getTypeUtils();
+        this.elements = processor.getProcessingEnv().getElementUtils();
+
+        this.Input = getTypeElement("com.oracle.graal.graph.Node.Input");
+        this.OptionalInput = getTypeElement("com.oracle.graal.graph.Node.OptionalInput");
+        this.Successor = getTypeElement("com.oracle.graal.graph.Node.Successor");
+        this.Node = getTypeElement("com.oracle.graal.graph.Node");
+        this.NodeList = getTypeElement("com.oracle.graal.graph.NodeList");
+    }
+
+    private TypeElement getTypeElement(String name) {
+        TypeElement typeElement = elements.getTypeElement(name);
+        if (typeElement == null) {
+            throw new NoClassDefFoundError(name);
+        }
+        return typeElement;
+    }
+
+    private enum Kind {
+        Input,
+        Successor,
+        Data
+    }
+
+    /**
+     * A field of a node class and the expression used to read it in the generated code.
+     */
+    private final class FieldInfo {
+        final VariableElement field;
+        final TypeElement declaringClass;
+        final Kind kind;
+
+        /**
+         * Index of this field in the field descriptors of the generated accessor.
+         */
+        int index;
+
+        /**
+         * Determines if the field is read through {@code Unsafe} instead of directly.
+         */
+        final boolean unsafe;
+
+        FieldInfo(VariableElement field, TypeElement declaringClass, Kind kind, boolean unsafe) {
+            this.field = field;
+            this.declaringClass = declaringClass;
+            this.kind = kind;
+            this.unsafe = unsafe;
+        }
+
+        TypeKind typeKind() {
+            return field.asType().getKind();
+        }
+
+        boolean isList() {
+            return types.isAssignable(types.erasure(field.asType()), types.erasure(NodeList.asType()));
+        }
+
+        String read(String node) {
+            if (unsafe) {
+                return getterName(typeKind()) + "(" + node + ", " + index + ")";
+            }
+            return "((" + castType(declaringClass) + ") " + node + ")." + field.getSimpleName();
+        }
+
+        /**
+         * Reads a direct edge as a {@code Node}.
+         */
+        String readNode(String node) {
+            if (!unsafe && types.isAssignable(types.erasure(field.asType()), Node.asType())) {
+                return read(node);
+            }
+            return "(Node) " + read(node);
+        }
+
+        /**
+         * Reads an edge list as a {@code NodeList<?>}.
+         */
+        String readList(String node) {
+            if (unsafe) {
+                return "(NodeList<?>) " + read(node);
+            }
+            return read(node);
+        }
+
+        String descriptor() {
+            String name = "\"" + elements.getBinaryName(declaringClass) + "\", \"" + field.getSimpleName() + "\"";
+            switch (kind) {
+                case Input:
+                    boolean optional = getAnnotation(field, OptionalInput) != null;
+                    return "input(" + name + ", InputType." + getInputType(getAnnotation(field, optional ? OptionalInput : Input)) + ", " + optional + ")";
+                case Successor:
+                    return "successor(" + name + ")";
+                default:
+                    return "data(" + name + ")";
+            }
+        }
+    }
+
+    private static String getterName(TypeKind kind) {
+        switch (kind) {
+            case INT:
+                return "getInt";
+            case LONG:
+                return "getLong";
+            case BOOLEAN:
+                return "getBoolean";
+            case FLOAT:
+                return "getFloat";
+            case DOUBLE:
+                return "getDouble";
+            case SHORT:
+                return "getShort";
+            case CHAR:
+                return "getChar";
+            case BYTE:
+                return "getByte";
+            default:
+                return "getObject";
+        }
+    }
+
+    private String castType(TypeElement type) {
+        StringBuilder result = new StringBuilder(types.erasure(type.asType()).toString());
+        int parameters = type.getTypeParameters().size();
+        if (parameters != 0) {
+            result.append('<');
+            for (int i = 0; i < parameters; i++) {
+                result.append(i == 0 ? "?" : ", ?");
+            }
+            result.append('>');
+        }
+        return result.toString();
+    }
+
+    private PackageElement getPackage(Element element) {
+        return elements.getPackageOf(element);
+    }
+
+    /**
+     * Determines if {@code type} can be named from a class in {@code pkg}.
+     */
+    private boolean isAccessible(TypeElement type, PackageElement pkg) {
+        Element e = type;
+        while (e.getKind() != ElementKind.PACKAGE) {
+            if (e instanceof TypeElement) {
+                TypeElement t = (TypeElement) e;
+                if (t.getNestingKind() == NestingKind.LOCAL || t.getNestingKind() == NestingKind.ANONYMOUS) {
+                    return false;
+                }
+                Set<Modifier> modifiers = t.getModifiers();
+                if (modifiers.contains(PRIVATE)) {
+                    return false;
+                }
+                if (!modifiers.contains(PUBLIC) && !getPackage(t).equals(pkg)) {
+                    return false;
+                }
+            }
+            e = e.getEnclosingElement();
+        }
+        return true;
+    }
+
+    /**
+     * Determines if {@code field} can be read directly from a class in {@code pkg}.
+     */
+    private boolean isAccessible(VariableElement field, TypeElement declaringClass, PackageElement pkg) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(PRIVATE) || field.asType().getKind() == TypeKind.TYPEVAR || !isAccessible(declaringClass, pkg)) {
+            return false;
+        }
+        if (modifiers.contains(PUBLIC)) {
+            return true;
+        }
+        // package private or protected: only accessible within the same package
+        return getPackage(declaringClass).equals(pkg);
+    }
+
+    private AnnotationMirror getAnnotation(VariableElement field, TypeElement annotation) {
+        for (AnnotationMirror mirror : field.getAnnotationMirrors()) {
+            if (types.isSameType(mirror.getAnnotationType(), annotation.asType())) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the name of the {@code InputType} constant specified by an {@code Input} or
+     * {@code OptionalInput} annotation.
+     */
+    private String getInputType(AnnotationMirror mirror) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+            if (e.getKey().getSimpleName().contentEquals("value")) {
+                return ((VariableElement) e.getValue().getValue()).getSimpleName().toString();
+            }
+        }
+        throw new InternalError("no value in " + mirror);
+    }
+
+    private TypeElement getSuperType(TypeElement element) {
+        return (TypeElement) types.asElement(element.getSuperclass());
+    }
+
+    /**
+     * Generates the accessor for a concrete node class.
+     *
+     * @return {@code false} if the node class cannot be named from its own package, in which case
+     *         no accessor is generated
+     */
+    boolean generate(TypeElement node) {
+        PackageElement pkg = getPackage(node);
+        if (!isAccessible(node, pkg)) {
+            return false;
+        }
+
+        List<TypeElement> classes = new ArrayList<>();
+        for (TypeElement clazz = node; !types.isSameType(clazz.asType(), Node.asType()); clazz = getSuperType(clazz)) {
+            classes.add(0, clazz);
+        }
+        List<FieldInfo> directInputs = new ArrayList<>();
+        List<FieldInfo> inputLists = new ArrayList<>();
+        List<FieldInfo> directSuccessors = new ArrayList<>();
+        List<FieldInfo> successorLists = new ArrayList<>();
+        List<FieldInfo> data = new ArrayList<>();
+        for (TypeElement clazz : classes) {
+            for (VariableElement field : ElementFilter.fieldsIn(clazz.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(STATIC) || modifiers.contains(TRANSIENT)) {
+                    continue;
+                }
+                Kind kind;
+                if (getAnnotation(field, Input) != null || getAnnotation(field, OptionalInput) != null) {
+                    kind = Kind.Input;
+                } else if (getAnnotation(field, Successor) != null) {
+                    kind = Kind.Successor;
+                } else {
+                    kind = Kind.Data;
+                }
+                FieldInfo f = new FieldInfo(field, clazz, kind, !isAccessible(field, clazz, pkg));
+                switch (kind) {
+                    case Input:
+                        (f.isList() ? inputLists : directInputs).add(f);
+                        break;
+                    case Successor:
+                        (f.isList() ? successorLists : directSuccessors).add(f);
+                        break;
+                    default:
+                        data.add(f);
+                        break;
+                }
+            }
+        }
+
+        /*
+         * The descriptors list the edges in the order in which they are visited: direct edges
+         * before edge lists, and fields of superclasses before those of subclasses.
+         */
+        List<FieldInfo> inputs = new ArrayList<>(directInputs);
+        inputs.addAll(inputLists);
+        List<FieldInfo> successors = new ArrayList<>(directSuccessors);
+        successors.addAll(successorLists);
+        List<FieldInfo> fields = new ArrayList<>(inputs);
+        fields.addAll(successors);
+        fields.addAll(data);
+        for (int i = 0; i < fields.size(); i++) {
+            fields.get(i).index = i;
+        }
+
+        String nodeName = node.getQualifiedName().toString();
+        String pkgName = pkg.getQualifiedName().toString();
+        String simpleName = (pkg.isUnnamed() ? nodeName : nodeName.substring(pkgName.length() + 1)).replace('.', '_') + SUFFIX;
+        try (PrintWriter out = createSourceFile(pkg.isUnnamed() ? simpleName : pkgName + "." + simpleName, node)) {
+            out.println("// CheckStyle: stop header check");
+            out.println("// CheckStyle: stop line length check");
+            out.println("// GENERATED CONTENT - DO NOT EDIT");
+            out.println("// Source: " + nodeName);
+            if (!pkg.isUnnamed()) {
+                out.println("package " + pkgName + ";");
+                out.println();
+            }
+            out.println("import com.oracle.graal.graph.GeneratedNodeAccessor;");
+            out.println("import com.oracle.graal.graph.Node;");
+            out.println("import com.oracle.graal.graph.NodeList;");
+            out.println("import com.oracle.graal.graph.NodeStack;");
+            out.println("import com.oracle.graal.nodeinfo.InputType;");
+            out.println();
+            out.println("@SuppressWarnings(\"all\")");
+            out.println("public final class " + simpleName + " extends GeneratedNodeAccessor {");
+            out.println();
+            out.println("    public " + simpleName + "() {");
+            out.print("        super(");
+            for (int i = 0; i < fields.size(); i++) {
+                out.print(i == 0 ? "" : ", ");
+                out.print(fields.get(i).descriptor());
+            }
+            out.println(");");
+            out.println("    }");
+            generateEqualEdges(out, "equalInputs", inputs);
+            generateEqualEdges(out, "equalSuccessors", successors);
+            generateValueNumber(out, data);
+            generateDataEquals(out, data);
+            generateApplyEdges(out, "applyInputs", inputs);
+            generateApplyEdges(out, "applySuccessors", successors);
+            generatePushInputs(out, inputs);
+            generateVisitEdges(out, "registerAtInputsAsUsage", inputs, "registerInput", false);
+            generateVisitEdges(out, "unregisterAtInputsAsUsage", inputs, "unregisterInput", true);
+            generateVisitEdges(out, "registerAtSuccessorsAsPredecessor", successors, "registerSuccessor", false);
+            generateVisitEdges(out, "unregisterAtSuccessorsAsPredecessor", successors, "unregisterSuccessor", true);
+            generateReplaceFirstEdge(out, "replaceFirstInput", inputs);
+            generateReplaceFirstEdge(out, "replaceFirstSuccessor", successors);
+            generateGetEdge(out, "getInput", inputs);
+            generateGetEdge(out, "getSuccessor", successors);
+            out.println("}");
+        }
+        return true;
+    }
+
+    private static void generateEqualEdges(PrintWriter out, String name, List<FieldInfo> edges) {
+        out.println();
+        out.println("    @Override");
+        out.println("    public boolean " + name + "(Node a, Node b) {");
+        for (FieldInfo f : edges) {
+            if (f.isList()) {
+                out.println("        if (!java.util.Objects.equals(" + f.read("a") + ", " + f.read("b") + ")) {");
+            } else {
+                out.println("        if (" + f.read("a") + " != " + f.read("b") + ") {");
+            }
+            out.println("            return false;");
+            out.println("        }");
+        }
+        out.println("        return true;");
+        out.println("    }");
+    }
+
+    private static void generateValueNumber(PrintWriter out, List<FieldInfo> fields) {
+        out.println();
+        out.println("    @Override");
+        out.println("    public int valueNumber(Node n, int number) {");
+        out.println("        int result = number;");
+        for (FieldInfo f : fields) {
+            if (f.kind == Kind.Data) {
+                switch (f.typeKind()) {
+                    case INT:
+                    case SHORT:
+                    case CHAR:
+                    case BYTE:
+                        out.println("        result = (result + " + f.read("n") + ") * 13;");
+                        break;
+                    default:
+                        out.println("        result = (result + hash(" + f.read("n") + ")) * 13;");
+                        break;
+                }
+            }
+        }
+        out.println("        return result;");
+        out.println("    }");
+    }
+
+    private static void generateDataEquals(PrintWriter out, List<FieldInfo> fields) {
+        out.println();
+        out.println("    @Override");
+        out.println("    public boolean dataEquals(Node a, Node b) {");
+        for (FieldInfo f : fields) {
+            if (f.kind == Kind.Data) {
+                if (f.typeKind().isPrimitive()) {
+                    out.println("        if (" + f.read("a") + " != " + f.read("b") + ") {");
+                } else {
+                    out.println("        if (!dataEquals(" + f.read("a") + ", " + f.read("b") + ")) {");
+                }
+                out.println("            return false;");
+                out.println("        }");
+            }
+        }
+        out.println("        return true;");
+        out.println("    }");
+    }
+
+    private static void generateApplyEdges(PrintWriter out, String name, List<FieldInfo> edges) {
+        out.println();
+        out.println("    @Override");
+        out.println("    public void " + name + "(Node n, Node.EdgeVisitor consumer) {");
+        for (FieldInfo f : edges) {
+            if (f.isList()) {
+                out.println("        applyList(n, " + f.readList("n") + ", consumer);");
+            } else {
+                String e = "e" + f.index;
+                String r = "r" + f.index;
+                out.println("        Node " + e + " = " + f.readNode("n") + ";");
+                out.println("        if (" + e + " != null) {");
+                out.println("            Node " + r + " = consumer.apply(n, " + e + ");");
+                out.println("            if (" + r + " != " + e + ") {");
+                out.println("                putEdge(n, " + f.index + ", " + r + ");");
+                out.println("            }");
+                out.println("        }");
+            }
+        }
+        out.println("    }");
+    }
+
+    private static void generatePushInputs(PrintWriter out, List<FieldInfo> inputs) {
+        out.println();
+        out.println("    @Override");
+        out.println("    public void pushInputs(Node n, NodeStack stack) {");
+        for (FieldInfo f : inputs) {
+            if (f.isList()) {
+                out.println("        pushList(stack, " + f.readList("n") + ");");
+            } else {
+                String e = "e" + f.index;
+                out.println("        Node " + e + " = " + f.readNode("n") + ";");
+                out.println("        if (" + e + " != null) {");
+                out.println("            stack.push(" + e + ");");
+                out.println("        }");
+            }
+        }
+        out.println("    }");
+    }
+
+    /**
+     * Generates a method that passes each non-null edge to {@code helper}, or each edge list to
+     * {@code helper + "List"}.
+     *
+     * @param clear specifies if direct edges are cleared after being passed to {@code helper}
+     */
+    private static void generateVisitEdges(PrintWriter out, String name, List<FieldInfo> edges, String helper, boolean clear) {
+        out.println();
+        out.println("    @Override");
+        out.println("    public void " + name + "(Node n) {");
+        for (FieldInfo f : edges) {
+            if (f.isList()) {
+                out.println("        " + helper + "List(n, " + f.readList("n") + ");");
+            } else {
+                String e = "e" + f.index;
+                out.println("        Node " + e + " = " + f.readNode("n") + ";");
+                out.println("        if (" + e + " != null) {");
+                out.println("            " + helper + "(n, " + e + ");");
+                if (clear) {
+                    out.println("            putEdge(n, " + f.index + ", null);");
+                }
+                out.println("        }");
+            }
+        }
+        out.println("    }");
+    }
+
+    private static void generateReplaceFirstEdge(PrintWriter out, String name, List<FieldInfo> edges) {
+        out.println();
+        out.println("    @Override");
+        out.println("    public boolean " + name + "(Node n, Node key, Node replacement) {");
+        for (FieldInfo f : edges) {
+            if (f.isList()) {
+                out.println("        if (replaceFirst(" + f.readList("n") + ", key, replacement)) {");
+                out.println("            return true;");
+            } else {
+                out.println("        if (" + f.readNode("n") + " == key) {");
+                out.println("            putEdge(n, " + f.index + ", replacement);");
+                out.println("            return true;");
+            }
+            out.println("        }");
+        }
+        out.println("        return false;");
+        out.println("    }");
+    }
+
+    private static void generateGetEdge(PrintWriter out, String name, List<FieldInfo> edges) {
+        out.println();
+        out.println("    @Override");
+        out.println("    protected Object " + name + "(Node n, int index) {");
+        out.println("        switch (index) {");
+        for (int i = 0; i < edges.size(); i++) {
+            out.println("            case " + i + ":");
+            out.println("                return " + edges.get(i).read("n") + ";");
+        }
+        out.println("            default:");
+        out.println("                throw new IndexOutOfBoundsException(String.valueOf(index));");
+        out.println("        }");
+        out.println("    }");
+    }
+
+    private PrintWriter createSourceFile(String name, Element originatingElement) {
+        try {
+            // Ensure Unix line endings to comply with code style guide checked by Checkstyle
+            JavaFileObject sourceFile = env.getProcessingEnv().getFiler().createSourceFile(name, originatingElement);
+            return new PrintWriter(sourceFile.openWriter()) {
+
+                @Override
+                public void println() {
+                    print("\n");
+                }
+            };
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
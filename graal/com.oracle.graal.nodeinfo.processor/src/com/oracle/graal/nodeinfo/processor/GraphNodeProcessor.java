@@ -134,6 +134,7 @@ public class GraphNodeProcessor extends AbstractProcessor {
         }
 
         GraphNodeVerifier verifier = new GraphNodeVerifier(this);
+        GraphNodeGenerator generator = new GraphNodeGenerator(this);
 
         for (Element element : roundEnv.getElementsAnnotatedWith(NodeInfo.class)) {
             scope = element;
@@ -173,6 +174,7 @@ public class GraphNodeProcessor extends AbstractProcessor {
 
                 if (!typeElement.equals(verifier.Node) && !modifiers.contains(Modifier.ABSTRACT)) {
                     verifier.verify(typeElement);
+                    generator.generate(typeElement);
                 }
             } catch (ElementException ee) {
                 errorMessage(ee.element, ee.getMessage());
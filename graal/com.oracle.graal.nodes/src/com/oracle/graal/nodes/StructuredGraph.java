@@ -40,6 +40,7 @@ import com.oracle.graal.nodes.calc.FloatingNode;
 import com.oracle.graal.nodes.cfg.Block;
 import com.oracle.graal.nodes.cfg.ControlFlowGraph;
 import com.oracle.graal.nodes.java.MethodCallTargetNode;
+import com.oracle.graal.nodes.spi.ProfilingInfoProvider;
 import com.oracle.graal.nodes.spi.VirtualizableAllocation;
 import com.oracle.graal.nodes.util.GraphUtil;
 
@@ -619,7 +620,7 @@ public class StructuredGraph extends Graph implements JavaMethodContext {
      */
     public ProfilingInfo getProfilingInfo(ResolvedJavaMethod m) {
         if (useProfilingInfo && m != null) {
-            return m.getProfilingInfo();
+            return ProfilingInfoProvider.profilingInfo(m, true, false);
         } else {
             return DefaultProfilingInfo.get(TriState.UNKNOWN);
         }
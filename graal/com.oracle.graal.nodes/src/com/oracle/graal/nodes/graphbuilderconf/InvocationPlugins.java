@@ -486,6 +486,21 @@ public class InvocationPlugins {
         deferredRegistrations.add(deferrable);
     }
 
+    /**
+     * Determines if the plugins registered for a declaring class are resolved when a method of
+     * that class is first {@linkplain #get(ResolvedJavaMethod) looked up} instead of for all
+     * classes once the deferred registrations have run.
+     */
+    private boolean resolveOnFirstLookup;
+
+    /**
+     * Sets whether the plugins registered for a declaring class are only resolved when a method of
+     * that class is first looked up. {@link #closeRegistration()} always resolves all classes.
+     */
+    public void setResolveOnFirstLookup(boolean resolveOnFirstLookup) {
+        this.resolveOnFirstLookup = resolveOnFirstLookup;
+    }
+
     /**
      * Per-class invocation plugins.
      */
@@ -614,8 +629,10 @@ public class InvocationPlugins {
                     deferredRegistrations = null;
                 }
             }
-            for (Map.Entry<String, ClassPlugins> e : registrations.entrySet()) {
-                e.getValue().initializeMap();
+            if (!resolveOnFirstLookup) {
+                for (Map.Entry<String, ClassPlugins> e : registrations.entrySet()) {
+                    e.getValue().initializeMap();
+                }
             }
         }
     }
@@ -635,6 +652,15 @@ public class InvocationPlugins {
         return registrations.size();
     }
 
+    /**
+     * Determines if the plugins registered for methods of {@code declaringClass} have been
+     * resolved to {@link ResolvedJavaMethod}s.
+     */
+    public boolean isResolved(Type declaringClass) {
+        ClassPlugins classPlugins = registrations.get(MetaUtil.toInternalName(declaringClass.getTypeName()));
+        return classPlugins != null && !classPlugins.isClosed();
+    }
+
     /**
      * The plugins {@linkplain #lookupInvocation(ResolvedJavaMethod) searched} before searching in
      * this object.
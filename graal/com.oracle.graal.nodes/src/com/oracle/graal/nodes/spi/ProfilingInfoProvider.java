@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.nodes.spi;
+
+import com.oracle.graal.nodes.StructuredGraph;
+
+import jdk.vm.ci.meta.ProfilingInfo;
+import jdk.vm.ci.meta.ResolvedJavaMethod;
+
+/**
+ * Supplies the {@link ProfilingInfo} used by the compilations on the current thread. By default the
+ * profiles are obtained from the methods themselves. A provider can be {@linkplain #install()
+ * installed} to intercept these requests, e.g., to record the profiles a compilation consumes or to
+ * replay a compilation with previously recorded profiles.
+ *
+ * @see StructuredGraph#getProfilingInfo(ResolvedJavaMethod)
+ */
+public abstract class ProfilingInfoProvider {
+
+    private static final ThreadLocal<ProfilingInfoProvider> current = new ThreadLocal<>();
+
+    /**
+     * The provider that was installed when this provider was installed.
+     */
+    private ProfilingInfoProvider outer;
+
+    /**
+     * Gets the profiling info for {@code method}.
+     *
+     * @see ResolvedJavaMethod#getProfilingInfo(boolean, boolean)
+     */
+    protected abstract ProfilingInfo getProfilingInfo(ResolvedJavaMethod method, boolean includeNormal, boolean includeOSR);
+
+    /**
+     * Gets the profiling info for {@code method} that would be returned if this provider was not
+     * installed.
+     */
+    protected final ProfilingInfo getOuterProfilingInfo(ResolvedJavaMethod method, boolean includeNormal, boolean includeOSR) {
+        if (outer != null) {
+            return outer.getProfilingInfo(method, includeNormal, includeOSR);
+        }
+        return method.getProfilingInfo(includeNormal, includeOSR);
+    }
+
+    /**
+     * Gets the profiling info for {@code method} from the provider installed for the current
+     * thread, or from the method itself if there is none.
+     */
+    public static ProfilingInfo profilingInfo(ResolvedJavaMethod method, boolean includeNormal, boolean includeOSR) {
+        ProfilingInfoProvider provider = current.get();
+        if (provider != null) {
+            return provider.getProfilingInfo(method, includeNormal, includeOSR);
+        }
+        return method.getProfilingInfo(includeNormal, includeOSR);
+    }
+
+    /**
+     * Installs this provider for the current thread until the returned scope is closed.
+     */
+    public final Scope install() {
+        outer = current.get();
+        current.set(this);
+        return new Scope(outer);
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final ProfilingInfoProvider previous;
+
+        private Scope(ProfilingInfoProvider previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            current.set(previous);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.options.test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.oracle.graal.options.NestedBooleanOptionValue;
+import com.oracle.graal.options.OptionSnapshot;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.options.StableOptionValue;
+
+@SuppressWarnings("try")
+public class OptionSnapshotTest {
+
+    public static class Options {
+        public static final OptionValue<String> Mutable = new OptionValue<>("original");
+        public static final OptionValue<Integer> Other = new OptionValue<>(1);
+        public static final OptionValue<Boolean> Stable = new StableOptionValue<>(true);
+        public static final OptionValue<Integer> StableUnread = new StableOptionValue<>(1);
+        public static final OptionValue<Boolean> Master = new OptionValue<>(true);
+        public static final OptionValue<Boolean> Nested = new NestedBooleanOptionValue(Master, true);
+    }
+
+    @Test
+    public void testCapture() {
+        OptionSnapshot snapshot = OptionSnapshot.capture();
+        assertEquals("original", Options.Mutable.getValue(snapshot));
+        assertEquals(Integer.valueOf(1), Options.Other.getValue(snapshot));
+        assertEquals(true, Options.Stable.getValue(snapshot));
+    }
+
+    @Test
+    public void testOverride() {
+        OptionSnapshot snapshot;
+        try (OverrideScope s = OptionValue.override(Options.Mutable, "override", Options.Other, 2)) {
+            snapshot = OptionSnapshot.capture();
+            try (OverrideScope s2 = OptionValue.override(Options.Mutable, "later")) {
+                // overrides installed after the capture are not visible
+                assertEquals("override", Options.Mutable.getValue(snapshot));
+            }
+        }
+        // the snapshot outlives the override scope
+        assertEquals("override", Options.Mutable.getValue(snapshot));
+        assertEquals(Integer.valueOf(2), Options.Other.getValue(snapshot));
+        assertEquals("original", Options.Mutable.getValue());
+    }
+
+    @Test
+    public void testLateOption() {
+        OptionSnapshot snapshot = OptionSnapshot.capture();
+        OptionValue<String> late = new OptionValue<>("late");
+        assertEquals("late", late.getValue(snapshot));
+    }
+
+    @Test
+    public void testNested() {
+        try (OverrideScope s = OptionValue.override(Options.Master, false)) {
+            assertEquals(false, Options.Nested.getValue(OptionSnapshot.capture()));
+        }
+        assertEquals(true, Options.Nested.getValue(OptionSnapshot.capture()));
+    }
+
+    @Test
+    public void testStableNotRead() {
+        OptionSnapshot snapshot = OptionSnapshot.capture();
+        // capturing must not count as reading a stable option, which would prevent setting it
+        Options.StableUnread.setValue(2);
+        assertEquals(Integer.valueOf(2), Options.StableUnread.getValue(snapshot));
+    }
+
+    @Test
+    public void testNull() {
+        assertEquals("original", Options.Mutable.getValue(null));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.options;
+
+/**
+ * The values of all options at a given point in time, typically the start of a compilation. Reading
+ * an option from a snapshot is an array access; it does not consult the {@link OptionValue.OverrideScope}s of
+ * the current thread like {@link OptionValue#getValue()}. A snapshot is immutable, so compilations
+ * running concurrently on different threads can each use their own set of option values.
+ *
+ * Overrides installed after a snapshot was {@linkplain #capture() captured} are not visible
+ * through it. Code that overrides options for a part of a compilation and reads them through a
+ * snapshot must capture a new snapshot within the override scope.
+ *
+ * @see OptionValue#getValue(OptionSnapshot)
+ */
+public final class OptionSnapshot {
+
+    private final Object[] values;
+
+    private OptionSnapshot(Object[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Captures the current values of all options, including the overrides of the current thread.
+     */
+    public static OptionSnapshot capture() {
+        return new OptionSnapshot(OptionValue.captureValues());
+    }
+
+    /**
+     * Gets the value of {@code option} in this snapshot. Options that were created after this
+     * snapshot was captured, whose value is computed lazily or that are
+     * {@linkplain StableOptionValue stable} are read from {@code option}.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(OptionValue<T> option) {
+        int index = option.index;
+        if (index < values.length) {
+            Object value = values[index];
+            if (OptionValue.isCaptured(value)) {
+                return (T) value;
+            }
+        }
+        return option.getValue();
+    }
+}
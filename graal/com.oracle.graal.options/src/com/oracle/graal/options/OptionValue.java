@@ -24,6 +24,7 @@ package com.oracle.graal.options;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -155,6 +156,25 @@ public class OptionValue<T> {
     private OptionValue<?> next;
     private static OptionValue<?> head;
 
+    /**
+     * Index of this option in {@link #allOptions} and in the values of an {@link OptionSnapshot}.
+     */
+    final int index;
+
+    /**
+     * All option values created so far, in creation order.
+     */
+    private static OptionValue<?>[] allOptions = new OptionValue<?>[256];
+    private static int allOptionsCount;
+
+    private static synchronized int register(OptionValue<?> option) {
+        if (allOptionsCount == allOptions.length) {
+            allOptions = Arrays.copyOf(allOptions, allOptions.length * 2);
+        }
+        allOptions[allOptionsCount] = option;
+        return allOptionsCount++;
+    }
+
     /**
      * Name of the boolean system property governing whether to profile the number of times
      * {@link #getValue()} is called for each {@link OptionValue}.
@@ -176,6 +196,7 @@ public class OptionValue<T> {
     public OptionValue(T value) {
         this.defaultValue = value;
         this.value = (T) DEFAULT;
+        this.index = register(this);
         addToHistogram(this);
     }
 
@@ -190,6 +211,7 @@ public class OptionValue<T> {
     protected OptionValue() {
         this.defaultValue = (T) UNINITIALIZED;
         this.value = (T) DEFAULT;
+        this.index = register(this);
         addToHistogram(this);
     }
 
@@ -314,6 +336,65 @@ public class OptionValue<T> {
         }
     }
 
+    /**
+     * Gets the value of this option in {@code options}.
+     *
+     * @param options the option values of the current compilation, or {@code null} to get the
+     *            {@linkplain #getValue() current value}
+     */
+    public T getValue(OptionSnapshot options) {
+        if (options == null) {
+            return getValue();
+        }
+        return options.get(this);
+    }
+
+    /**
+     * Captures the current value of all options whose default value is initialized.
+     *
+     * @return the captured values indexed by {@link #index}. The entries for options whose value
+     *         cannot be captured, e.g., because their default value is initialized lazily, and for
+     *         {@link StableOptionValue}s are {@link #UNINITIALIZED}.
+     */
+    static Object[] captureValues() {
+        OptionValue<?>[] options;
+        int count;
+        synchronized (OptionValue.class) {
+            options = allOptions;
+            count = allOptionsCount;
+        }
+        OverrideScope overrideScope = getOverrideScope();
+        Object[] values = new Object[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = options[i].captureValue(overrideScope);
+        }
+        return values;
+    }
+
+    private Object captureValue(OverrideScope overrideScope) {
+        if (getClass() != OptionValue.class) {
+            /*
+             * Subclasses may compute their value in getValue(). A stable option is read when it is
+             * used since reading it prevents it from being set, and reading it is cheap anyway.
+             */
+            return UNINITIALIZED;
+        }
+        if (overrideScope != null) {
+            T override = overrideScope.getOverride(this);
+            if (override != null) {
+                return override;
+            }
+        }
+        if (value != DEFAULT) {
+            return value;
+        }
+        return defaultValue;
+    }
+
+    static boolean isCaptured(Object capturedValue) {
+        return capturedValue != UNINITIALIZED;
+    }
+
     /**
      * Gets the values of this option including overridden values.
      *
@@ -22,6 +22,9 @@
  */
 package com.oracle.graal.phases.common;
 
+import static com.oracle.graal.compiler.common.GraalOptions.OptCanonicalizerValueNumberTable;
+
+import com.oracle.graal.compiler.common.CompilationBudget;
 import com.oracle.graal.compiler.common.spi.ConstantFieldProvider;
 import com.oracle.graal.debug.Debug;
 import com.oracle.graal.debug.DebugCloseable;
@@ -175,6 +178,7 @@ public class CanonicalizerPhase extends BasePhase<PhaseContext> {
         }
 
         @Override
+        @SuppressWarnings("try")
         protected void run(StructuredGraph graph) {
             boolean wholeGraph = newNodesMark == null || newNodesMark.isStart();
             if (initWorkingSet == null) {
@@ -187,7 +191,17 @@ public class CanonicalizerPhase extends BasePhase<PhaseContext> {
                 workList.addAll(graph.getNewNodes(newNodesMark));
             }
             tool = new Tool(graph.getAssumptions());
-            processWorkSet(graph);
+            if (wholeGraph && initWorkingSet == null && OptCanonicalizerValueNumberTable.getValue()) {
+                /*
+                 * Building the value number table costs a pass over the graph, which only pays off
+                 * when the whole graph is processed anyway.
+                 */
+                try (DebugCloseable valueNumbering = graph.withValueNumberTable()) {
+                    processWorkSet(graph);
+                }
+            } else {
+                processWorkSet(graph);
+            }
         }
 
         @SuppressWarnings("try")
@@ -215,8 +229,12 @@ public class CanonicalizerPhase extends BasePhase<PhaseContext> {
                 }
 
             };
+            CompilationBudget budget = CompilationBudget.current();
             try (NodeEventScope nes = graph.trackNodeEvents(listener)) {
                 for (Node n : workList) {
+                    if (budget != null) {
+                        budget.checkPeriodically("Canonicalizer");
+                    }
                     processNode(n);
                 }
             }
@@ -268,8 +268,9 @@ public class GuardLoweringPhase extends BasePhase<MidTierContext> {
             schedulePhase.apply(graph);
             ScheduleResult schedule = graph.getLastSchedule();
 
+            int implicitNullCheckLimit = context != null && OptImplicitNullChecks.getValue(context.getOptions()) ? context.getTarget().implicitNullCheckLimit : 0;
             for (Block block : schedule.getCFG().getBlocks()) {
-                processBlock(block, schedule, context != null ? context.getTarget().implicitNullCheckLimit : 0);
+                processBlock(block, schedule, implicitNullCheckLimit);
             }
             graph.setGuardsStage(GuardsStage.FIXED_DEOPTS);
         }
@@ -283,7 +284,7 @@ public class GuardLoweringPhase extends BasePhase<MidTierContext> {
     }
 
     private static void processBlock(Block block, ScheduleResult schedule, int implicitNullCheckLimit) {
-        if (OptImplicitNullChecks.getValue() && implicitNullCheckLimit > 0) {
+        if (implicitNullCheckLimit > 0) {
             new UseImplicitNullChecks(implicitNullCheckLimit).processNodes(block, schedule);
         }
         new LowerGuards(block, Debug.isDumpEnabledForMethod() || Debug.isLogEnabledForMethod()).processNodes(block, schedule);
@@ -177,7 +177,7 @@ public class LoweringPhase extends BasePhase<PhaseContext> {
 
         @Override
         public GuardingNode createGuard(FixedNode before, LogicNode condition, DeoptimizationReason deoptReason, DeoptimizationAction action, JavaConstant speculation, boolean negated) {
-            if (OptEliminateGuards.getValue()) {
+            if (OptEliminateGuards.getValue(context.getOptions())) {
                 for (Node usage : condition.usages()) {
                     if (!activeGuards.isNew(usage) && activeGuards.isMarked(usage) && ((GuardNode) usage).isNegated() == negated) {
                         return (GuardNode) usage;
@@ -195,7 +195,7 @@ public class LoweringPhase extends BasePhase<PhaseContext> {
                 return result;
             } else {
                 GuardNode newGuard = graph.unique(new GuardNode(condition, guardAnchor, deoptReason, action, negated, speculation));
-                if (OptEliminateGuards.getValue()) {
+                if (OptEliminateGuards.getValue(context.getOptions())) {
                     activeGuards.markAndGrow(newGuard);
                 }
                 return newGuard;
@@ -377,7 +377,7 @@ public class LoweringPhase extends BasePhase<PhaseContext> {
 
             @Override
             public void postprocess() {
-                if (anchor != null && OptEliminateGuards.getValue()) {
+                if (anchor != null && OptEliminateGuards.getValue(context.getOptions())) {
                     for (GuardNode guard : anchor.asNode().usages().filter(GuardNode.class)) {
                         if (activeGuards.isMarkedAndGrow(guard)) {
                             activeGuards.clear(guard);
@@ -187,6 +187,54 @@ public class MultiTypeGuardInlineInfo extends AbstractInlineInfo {
 
     private Collection<Node> inlineMultipleMethods(StructuredGraph graph, Providers providers) {
         int numberOfMethods = concretes.size();
+        AbstractBeginNode[] successors = new AbstractBeginNode[numberOfMethods + 1];
+        PhiNode returnValuePhi = replaceInvokeWithTypeSwitch(graph, providers, successors, shouldFallbackToInvoke());
+
+        Collection<Node> canonicalizeNodes = new ArrayList<>();
+        // do the actual inlining for every invoke
+        for (int i = 0; i < numberOfMethods; i++) {
+            Invoke invokeForInlining = (Invoke) successors[i].next();
+            canonicalizeNodes.addAll(inline(invokeForInlining, methodAt(i), inlineableElementAt(i), false));
+        }
+        if (returnValuePhi != null) {
+            canonicalizeNodes.add(returnValuePhi);
+        }
+        return canonicalizeNodes;
+    }
+
+    /**
+     * Replaces the invoke with a type switch over the profiled receiver types that calls the
+     * target method of each type directly instead of inlining it. Receivers of any other type are
+     * dispatched by a copy of the original invoke, even if the profile recorded all types.
+     *
+     * @return the direct invokes of the target methods
+     */
+    public List<Invoke> dispatchWithTypeSwitch(Providers providers) {
+        StructuredGraph graph = graph();
+        AbstractBeginNode[] successors = new AbstractBeginNode[concretes.size() + 1];
+        replaceInvokeWithTypeSwitch(graph, providers, successors, true);
+        List<Invoke> directInvokes = new ArrayList<>(concretes.size());
+        for (int i = 0; i < concretes.size(); i++) {
+            Invoke directInvoke = (Invoke) successors[i].next();
+            InliningUtil.replaceInvokeCallTarget(directInvoke, graph, InvokeKind.Special, methodAt(i));
+            directInvokes.add(directInvoke);
+        }
+        return directInvokes;
+    }
+
+    /**
+     * Creates one copy of the invoke for each concrete method and a type switch selecting between
+     * them, with anchored receivers typed according to the types dispatched to each copy.
+     *
+     * @param successors receives the successors of the type switch, the last one being the
+     *            successor for unknown types
+     * @param fallbackToInvoke specifies if unknown types are dispatched by a copy of the invoke
+     *            instead of deoptimizing
+     * @return the phi merging the results of the copies or {@code null} for a {@code void} invoke
+     */
+    private PhiNode replaceInvokeWithTypeSwitch(StructuredGraph graph, Providers providers, AbstractBeginNode[] successors, boolean fallbackToInvoke) {
+        int numberOfMethods = concretes.size();
+        assert successors.length == numberOfMethods + 1;
         FixedNode continuation = invoke.next();
 
         // setup merge and phi nodes for results and exceptions
@@ -214,14 +262,13 @@ public class MultiTypeGuardInlineInfo extends AbstractInlineInfo {
         }
 
         // create one separate block for each invoked method
-        AbstractBeginNode[] successors = new AbstractBeginNode[numberOfMethods + 1];
         for (int i = 0; i < numberOfMethods; i++) {
             successors[i] = createInvocationBlock(graph, invoke, returnMerge, returnValuePhi, exceptionMerge, exceptionObjectPhi, true);
         }
 
         // create the successor for an unknown type
         FixedNode unknownTypeSux;
-        if (shouldFallbackToInvoke()) {
+        if (fallbackToInvoke) {
             unknownTypeSux = createInvocationBlock(graph, invoke, returnMerge, returnValuePhi, exceptionMerge, exceptionObjectPhi, false);
         } else {
             unknownTypeSux = graph.add(new DeoptimizeNode(DeoptimizationAction.InvalidateReprofile, DeoptimizationReason.TypeCheckedInliningViolated));
@@ -253,8 +300,6 @@ public class MultiTypeGuardInlineInfo extends AbstractInlineInfo {
         }
         invoke.asNode().safeDelete();
 
-        ArrayList<GuardedValueNode> replacementNodes = new ArrayList<>();
-
         // prepare the anchors for the invokes
         for (int i = 0; i < numberOfMethods; i++) {
             AbstractBeginNode node = successors[i];
@@ -273,22 +318,8 @@ public class MultiTypeGuardInlineInfo extends AbstractInlineInfo {
             invokeForInlining.callTarget().replaceFirstInput(receiver, anchoredReceiver);
 
             assert !anchoredReceiver.isDeleted() : anchoredReceiver;
-            replacementNodes.add(anchoredReceiver);
-        }
-        if (shouldFallbackToInvoke()) {
-            replacementNodes.add(null);
-        }
-
-        Collection<Node> canonicalizeNodes = new ArrayList<>();
-        // do the actual inlining for every invoke
-        for (int i = 0; i < numberOfMethods; i++) {
-            Invoke invokeForInlining = (Invoke) successors[i].next();
-            canonicalizeNodes.addAll(inline(invokeForInlining, methodAt(i), inlineableElementAt(i), false));
         }
-        if (returnValuePhi != null) {
-            canonicalizeNodes.add(returnValuePhi);
-        }
-        return canonicalizeNodes;
+        return returnValuePhi;
     }
 
     private int getTypeCount(int concreteMethodIndex) {
@@ -26,6 +26,7 @@ import static com.oracle.graal.compiler.common.GraalOptions.InlineEverything;
 import static com.oracle.graal.compiler.common.GraalOptions.LimitInlinedInvokes;
 import static com.oracle.graal.compiler.common.GraalOptions.MaximumDesiredSize;
 import static com.oracle.graal.compiler.common.GraalOptions.MaximumInliningSize;
+import static com.oracle.graal.compiler.common.GraalOptions.MegamorphicTypeSwitchMinProbability;
 import static com.oracle.graal.compiler.common.GraalOptions.SmallCompiledLowLevelGraphSize;
 import static com.oracle.graal.compiler.common.GraalOptions.TrivialInliningSize;
 
@@ -33,6 +34,7 @@ import java.util.Map;
 
 import com.oracle.graal.debug.Debug;
 import com.oracle.graal.debug.DebugCounter;
+import com.oracle.graal.nodes.CallTargetNode.InvokeKind;
 import com.oracle.graal.nodes.Invoke;
 import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.graal.nodes.spi.Replacements;
@@ -44,6 +46,14 @@ public class GreedyInliningPolicy extends AbstractInliningPolicy {
 
     private static final DebugCounter inliningStoppedByMaxDesiredSizeCounter = Debug.counter("InliningStoppedByMaxDesiredSize");
 
+    /**
+     * Estimated costs in cycles of a receiver type check, of a virtual call through the vtable and
+     * of an interface call through the itable, relative to a direct call.
+     */
+    private static final double TYPE_CHECK_COST = 1.0;
+    private static final double VIRTUAL_DISPATCH_COST = 3.0;
+    private static final double INTERFACE_DISPATCH_COST = 8.0;
+
     public GreedyInliningPolicy(Map<Invoke, Double> hints) {
         super(hints);
     }
@@ -58,6 +68,29 @@ public class GreedyInliningPolicy extends AbstractInliningPolicy {
         return true;
     }
 
+    /**
+     * A type switch is worth it if the profiled types cover most receivers and the expected number
+     * of type checks is cheaper than the indirect call it replaces. Receivers of types that are not
+     * checked pay for all type checks plus the original indirect call.
+     */
+    @Override
+    public boolean isWorthTypeSwitchDispatch(InvokeKind invokeKind, double[] typeProbabilities) {
+        double dispatchCost = invokeKind == InvokeKind.Interface ? INTERFACE_DISPATCH_COST : VIRTUAL_DISPATCH_COST;
+        double coveredProbability = 0;
+        double expectedChecks = 0;
+        for (int i = 0; i < typeProbabilities.length; i++) {
+            coveredProbability += typeProbabilities[i];
+            expectedChecks += typeProbabilities[i] * (i + 1);
+        }
+        if (coveredProbability < MegamorphicTypeSwitchMinProbability.getValue()) {
+            return false;
+        }
+        double uncovered = Math.max(0, 1 - coveredProbability);
+        expectedChecks += uncovered * typeProbabilities.length;
+        double cost = expectedChecks * TYPE_CHECK_COST + uncovered * dispatchCost;
+        return cost < dispatchCost;
+    }
+
     @Override
     public boolean isWorthInlining(Replacements replacements, MethodInvocation invocation, int inliningDepth, boolean fullyProcessed) {
 
@@ -22,6 +22,7 @@
  */
 package com.oracle.graal.phases.common.inlining.policy;
 
+import com.oracle.graal.nodes.CallTargetNode.InvokeKind;
 import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.graal.nodes.spi.Replacements;
 import com.oracle.graal.phases.common.inlining.walker.MethodInvocation;
@@ -31,4 +32,16 @@ public interface InliningPolicy {
     boolean continueInlining(StructuredGraph graph);
 
     boolean isWorthInlining(Replacements replacements, MethodInvocation invocation, int inliningDepth, boolean fullyProcessed);
+
+    /**
+     * Determines if a megamorphic call that is not inlined should be replaced by a type switch over
+     * its most frequent receiver types with direct calls to the corresponding targets.
+     *
+     * @param invokeKind the kind of the original call
+     * @param typeProbabilities the probabilities of the receiver types in the order in which they
+     *            are checked
+     */
+    default boolean isWorthTypeSwitchDispatch(InvokeKind invokeKind, double[] typeProbabilities) {
+        return false;
+    }
 }
@@ -25,10 +25,13 @@ package com.oracle.graal.phases.common.inlining.walker;
 import static com.oracle.graal.compiler.common.GraalOptions.Intrinsify;
 import static com.oracle.graal.compiler.common.GraalOptions.MaximumRecursiveInlining;
 import static com.oracle.graal.compiler.common.GraalOptions.MegamorphicInliningMinMethodProbability;
+import static com.oracle.graal.compiler.common.GraalOptions.MegamorphicTypeSwitchDispatch;
+import static com.oracle.graal.compiler.common.GraalOptions.MegamorphicTypeSwitchMaxTypes;
 import static com.oracle.graal.compiler.common.GraalOptions.OptCanonicalizer;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Iterator;
@@ -102,6 +105,7 @@ public class InliningData {
     private static final DebugCounter counterInliningPerformed = Debug.counter("InliningPerformed");
     private static final DebugCounter counterInliningRuns = Debug.counter("InliningRuns");
     private static final DebugCounter counterInliningConsidered = Debug.counter("InliningConsidered");
+    private static final DebugCounter counterTypeSwitchDispatch = Debug.counter("MegamorphicTypeSwitchDispatch");
 
     /**
      * Call hierarchy from outer most call (i.e., compilation unit) to inner most callee.
@@ -137,7 +141,7 @@ public class InliningData {
     private String checkTargetConditionsHelper(ResolvedJavaMethod method, int invokeBci) {
         if (method == null) {
             return "the method is not resolved";
-        } else if (method.isNative() && (!Intrinsify.getValue() || !InliningUtil.canIntrinsify(context.getReplacements(), method, invokeBci))) {
+        } else if (method.isNative() && (!Intrinsify.getValue(context.getOptions()) || !InliningUtil.canIntrinsify(context.getReplacements(), method, invokeBci))) {
             return "it is a non-intrinsic native method";
         } else if (method.isAbstract()) {
             return "it is an abstract method";
@@ -145,7 +149,7 @@ public class InliningData {
             return "the method's class is not initialized";
         } else if (!method.canBeInlined()) {
             return "it is marked non-inlinable";
-        } else if (countRecursiveInlining(method) > MaximumRecursiveInlining.getValue()) {
+        } else if (countRecursiveInlining(method) > MaximumRecursiveInlining.getValue(context.getOptions())) {
             return "it exceeds the maximum recursive inlining depth";
         } else if (new OptimisticOptimizations(rootGraph.getProfilingInfo(method)).lessOptimisticThan(context.getOptimisticOptimizations())) {
             return "the callee uses less optimistic optimizations than caller";
@@ -306,7 +310,7 @@ public class InliningData {
                 ArrayList<ResolvedJavaMethod> newConcreteMethods = new ArrayList<>();
                 ArrayList<Double> newConcreteMethodsProbabilities = new ArrayList<>();
                 for (int i = 0; i < concreteMethods.size(); ++i) {
-                    if (concreteMethodsProbabilities.get(i) >= MegamorphicInliningMinMethodProbability.getValue()) {
+                    if (concreteMethodsProbabilities.get(i) >= MegamorphicInliningMinMethodProbability.getValue(context.getOptions())) {
                         newConcreteMethods.add(concreteMethods.get(i));
                         newConcreteMethodsProbabilities.add(concreteMethodsProbabilities.get(i));
                     }
@@ -359,6 +363,86 @@ public class InliningData {
         }
     }
 
+    /**
+     * Determines how a polymorphic call that cannot be inlined can be dispatched by a type switch
+     * over its most frequent receiver types with direct calls to the corresponding targets, if the
+     * {@linkplain InliningPolicy#isWorthTypeSwitchDispatch policy} considers it profitable. All
+     * other receivers are dispatched by the original virtual or interface call.
+     *
+     * @return the description of the type switch or {@code null} if the call should be left alone
+     */
+    private MultiTypeGuardInlineInfo getTypeSwitchDispatchInfo(Invoke invoke) {
+        if (!MegamorphicTypeSwitchDispatch.getValue(context.getOptions()) || !context.getOptimisticOptimizations().devirtualizeInvokes() || !invoke.isPolymorphic() ||
+                        InliningUtil.checkInvokeConditions(invoke) != null) {
+            return null;
+        }
+        MethodCallTargetNode callTarget = (MethodCallTargetNode) invoke.callTarget();
+        JavaTypeProfile typeProfile = callTarget.getProfile();
+        if (!callTarget.invokeKind().isIndirect() || typeProfile == null || typeProfile.getTypes() == null) {
+            return null;
+        }
+        ResolvedJavaMethod targetMethod = callTarget.targetMethod();
+        JavaTypeProfile.ProfiledType[] ptypes = typeProfile.getTypes().clone();
+        Arrays.sort(ptypes, (a, b) -> Double.compare(b.getProbability(), a.getProbability()));
+        int maxTypes = MegamorphicTypeSwitchMaxTypes.getValue(context.getOptions());
+        ResolvedJavaType contextType = invoke.getContextType();
+
+        ArrayList<ResolvedJavaMethod> concreteMethods = new ArrayList<>();
+        ArrayList<JavaTypeProfile.ProfiledType> usedTypes = new ArrayList<>();
+        ArrayList<Integer> typesToConcretes = new ArrayList<>();
+        double notRecordedTypeProbability = typeProfile.getNotRecordedProbability();
+        for (JavaTypeProfile.ProfiledType type : ptypes) {
+            ResolvedJavaMethod concrete = usedTypes.size() < maxTypes ? type.getType().resolveConcreteMethod(targetMethod, contextType) : null;
+            if (concrete == null || !concrete.isConcrete()) {
+                notRecordedTypeProbability += type.getProbability();
+                continue;
+            }
+            int index = concreteMethods.indexOf(concrete);
+            if (index < 0) {
+                index = concreteMethods.size();
+                concreteMethods.add(concrete);
+            }
+            usedTypes.add(type);
+            typesToConcretes.add(index);
+        }
+        if (usedTypes.size() < 2) {
+            return null;
+        }
+
+        double[] typeProbabilities = new double[usedTypes.size()];
+        for (int i = 0; i < typeProbabilities.length; i++) {
+            typeProbabilities[i] = usedTypes.get(i).getProbability();
+        }
+        if (!inliningPolicy.isWorthTypeSwitchDispatch(callTarget.invokeKind(), typeProbabilities)) {
+            return null;
+        }
+        return new MultiTypeGuardInlineInfo(invoke, concreteMethods, usedTypes, typesToConcretes, notRecordedTypeProbability);
+    }
+
+    /**
+     * Replaces an invoke that is not inlined by a type switch dispatch if
+     * {@link #getTypeSwitchDispatchInfo} finds one. The direct calls of the dispatch are considered
+     * for inlining like the other invokes of the graph.
+     */
+    @SuppressWarnings("try")
+    private void tryTypeSwitchDispatch(CallsiteHolderExplorable callsiteHolder, Invoke invoke) {
+        MultiTypeGuardInlineInfo info = getTypeSwitchDispatchInfo(invoke);
+        if (info == null) {
+            return;
+        }
+        try (Debug.Scope scope = Debug.scope("TypeSwitchDispatch", callsiteHolder.graph())) {
+            Debug.log("type switch dispatch of %s: %s", invoke, info);
+            for (Invoke directInvoke : info.dispatchWithTypeSwitch(new Providers(context))) {
+                callsiteHolder.pushInvoke(directInvoke);
+            }
+            callsiteHolder.computeProbabilities();
+            counterTypeSwitchDispatch.increment();
+            Debug.dump(Debug.INFO_LOG_LEVEL, callsiteHolder.graph(), "after type switch dispatch of %s", info);
+        } catch (Throwable e) {
+            throw Debug.handle(e);
+        }
+    }
+
     private InlineInfo getAssumptionInlineInfo(Invoke invoke, ResolvedJavaMethod concrete, AssumptionResult<?> takenAssumption) {
         assert concrete.isConcrete();
         if (checkTargetConditions(invoke, concrete)) {
@@ -388,7 +472,7 @@ public class InliningData {
                 counterInliningRuns.increment();
                 Debug.dump(Debug.INFO_LOG_LEVEL, callerGraph, "after %s", calleeInfo);
 
-                if (OptCanonicalizer.getValue()) {
+                if (OptCanonicalizer.getValue(context.getOptions())) {
                     Graph.Mark markBeforeCanonicalization = callerGraph.getMark();
 
                     canonicalizer.applyIncremental(callerGraph, context, canonicalizedNodes);
@@ -482,6 +566,8 @@ public class InliningData {
             double invokeRelevance = callsiteHolder.invokeRelevance(invoke);
             MethodInvocation methodInvocation = new MethodInvocation(info, invokeProbability, invokeRelevance, freshlyInstantiatedArguments(invoke, callsiteHolder.getFixedParams()));
             pushInvocationAndGraphs(methodInvocation);
+        } else {
+            tryTypeSwitchDispatch(callsiteHolder, invoke);
         }
     }
 
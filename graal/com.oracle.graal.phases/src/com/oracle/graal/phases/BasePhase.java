@@ -24,6 +24,7 @@ package com.oracle.graal.phases;
 
 import java.util.regex.Pattern;
 
+import com.oracle.graal.compiler.common.CompilationBudget;
 import com.oracle.graal.debug.Debug;
 import com.oracle.graal.debug.Debug.Scope;
 import com.oracle.graal.debug.DebugCloseable;
@@ -167,6 +168,7 @@ public abstract class BasePhase<C> implements PhaseSizeContract {
                 Debug.dump(Debug.VERBOSE_LOG_LEVEL, graph, "Before phase %s", getName());
             }
             inputNodesCount.add(graph.getNodeCount());
+            CompilationBudget.check(getName());
             this.run(graph, context);
             executionCount.increment();
             if (PhaseOptions.VerifyGraalPhasesSize.getValue() && checkContract()) {
@@ -22,6 +22,7 @@
  */
 package com.oracle.graal.phases.tiers;
 
+import com.oracle.graal.options.OptionSnapshot;
 import com.oracle.graal.phases.OptimisticOptimizations;
 import com.oracle.graal.phases.PhaseSuite;
 import com.oracle.graal.phases.util.Providers;
@@ -33,7 +34,11 @@ public class HighTierContext extends PhaseContext {
     private final OptimisticOptimizations optimisticOpts;
 
     public HighTierContext(Providers providers, PhaseSuite<HighTierContext> graphBuilderSuite, OptimisticOptimizations optimisticOpts) {
-        super(providers);
+        this(providers, graphBuilderSuite, optimisticOpts, null);
+    }
+
+    public HighTierContext(Providers providers, PhaseSuite<HighTierContext> graphBuilderSuite, OptimisticOptimizations optimisticOpts, OptionSnapshot options) {
+        super(providers, options);
         this.graphBuilderSuite = graphBuilderSuite;
         this.optimisticOpts = optimisticOpts;
     }
@@ -22,6 +22,7 @@
  */
 package com.oracle.graal.phases.tiers;
 
+import com.oracle.graal.options.OptionSnapshot;
 import com.oracle.graal.phases.util.Providers;
 
 import jdk.vm.ci.code.TargetDescription;
@@ -31,7 +32,11 @@ public class LowTierContext extends PhaseContext {
     private final TargetProvider target;
 
     public LowTierContext(Providers copyFrom, TargetProvider target) {
-        super(copyFrom);
+        this(copyFrom, target, null);
+    }
+
+    public LowTierContext(Providers copyFrom, TargetProvider target, OptionSnapshot options) {
+        super(copyFrom, options);
         this.target = target;
     }
 
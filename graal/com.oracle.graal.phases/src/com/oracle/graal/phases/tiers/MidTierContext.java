@@ -22,6 +22,7 @@
  */
 package com.oracle.graal.phases.tiers;
 
+import com.oracle.graal.options.OptionSnapshot;
 import com.oracle.graal.phases.OptimisticOptimizations;
 import com.oracle.graal.phases.util.Providers;
 
@@ -35,7 +36,11 @@ public class MidTierContext extends PhaseContext {
     private final ProfilingInfo profilingInfo;
 
     public MidTierContext(Providers copyFrom, TargetProvider target, OptimisticOptimizations optimisticOpts, ProfilingInfo profilingInfo) {
-        super(copyFrom);
+        this(copyFrom, target, optimisticOpts, profilingInfo, null);
+    }
+
+    public MidTierContext(Providers copyFrom, TargetProvider target, OptimisticOptimizations optimisticOpts, ProfilingInfo profilingInfo, OptionSnapshot options) {
+        super(copyFrom, options);
         this.target = target;
         this.optimisticOpts = optimisticOpts;
         this.profilingInfo = profilingInfo;
@@ -27,6 +27,7 @@ import com.oracle.graal.nodes.spi.LoweringProvider;
 import com.oracle.graal.nodes.spi.NodeCostProvider;
 import com.oracle.graal.nodes.spi.Replacements;
 import com.oracle.graal.nodes.spi.StampProvider;
+import com.oracle.graal.options.OptionSnapshot;
 import com.oracle.graal.phases.util.Providers;
 
 import jdk.vm.ci.meta.ConstantReflectionProvider;
@@ -41,9 +42,15 @@ public class PhaseContext {
     private final Replacements replacements;
     private final StampProvider stampProvider;
     private final NodeCostProvider nodeCostProvider;
+    private final OptionSnapshot options;
 
     public PhaseContext(MetaAccessProvider metaAccess, ConstantReflectionProvider constantReflection, ConstantFieldProvider constantFieldProvider, LoweringProvider lowerer, Replacements replacements,
                     StampProvider stampProvider, NodeCostProvider nodeCostProvider) {
+        this(metaAccess, constantReflection, constantFieldProvider, lowerer, replacements, stampProvider, nodeCostProvider, null);
+    }
+
+    private PhaseContext(MetaAccessProvider metaAccess, ConstantReflectionProvider constantReflection, ConstantFieldProvider constantFieldProvider, LoweringProvider lowerer,
+                    Replacements replacements, StampProvider stampProvider, NodeCostProvider nodeCostProvider, OptionSnapshot options) {
         this.metaAccess = metaAccess;
         this.constantReflection = constantReflection;
         this.constantFieldProvider = constantFieldProvider;
@@ -51,11 +58,20 @@ public class PhaseContext {
         this.replacements = replacements;
         this.stampProvider = stampProvider;
         this.nodeCostProvider = nodeCostProvider;
+        this.options = options;
     }
 
     public PhaseContext(Providers providers) {
+        this(providers, null);
+    }
+
+    /**
+     * @param options the option values of the compilation, or {@code null} if the phases read the
+     *            current option values
+     */
+    public PhaseContext(Providers providers, OptionSnapshot options) {
         this(providers.getMetaAccess(), providers.getConstantReflection(), providers.getConstantFieldProvider(), providers.getLowerer(), providers.getReplacements(), providers.getStampProvider(),
-                        providers.getNodeCostProvider());
+                        providers.getNodeCostProvider(), options);
     }
 
     public MetaAccessProvider getMetaAccess() {
@@ -85,4 +101,17 @@ public class PhaseContext {
     public NodeCostProvider getNodeCostProvider() {
         return nodeCostProvider;
     }
+
+    /**
+     * Gets the option values of the compilation, which are captured once when the compilation
+     * starts. Phases should read options that are checked frequently, e.g., once per node, with
+     * {@link com.oracle.graal.options.OptionValue#getValue(OptionSnapshot)}.
+     *
+     * @return {@code null} if this context was created without a snapshot, in which case
+     *         {@link com.oracle.graal.options.OptionValue#getValue(OptionSnapshot)} returns the
+     *         current option values
+     */
+    public OptionSnapshot getOptions() {
+        return options;
+    }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2015, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.bench;
+
+import static com.oracle.graal.truffle.bench.nodes.BinaryNode.Operator.ADD;
+import static com.oracle.graal.truffle.bench.nodes.BinaryNode.Operator.LT;
+import static com.oracle.graal.truffle.bench.nodes.BinaryNode.Operator.MUL;
+import static com.oracle.graal.truffle.bench.nodes.BinaryNode.Operator.REM;
+import static com.oracle.graal.truffle.bench.nodes.BinaryNode.Operator.XOR;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.oracle.graal.truffle.bench.nodes.ArgumentNode;
+import com.oracle.graal.truffle.bench.nodes.BenchRootNode;
+import com.oracle.graal.truffle.bench.nodes.BinaryNode;
+import com.oracle.graal.truffle.bench.nodes.BinaryNode.Operator;
+import com.oracle.graal.truffle.bench.nodes.BlockNode;
+import com.oracle.graal.truffle.bench.nodes.CallNode;
+import com.oracle.graal.truffle.bench.nodes.ConstantNode;
+import com.oracle.graal.truffle.bench.nodes.DispatchNode;
+import com.oracle.graal.truffle.bench.nodes.ExpressionNode;
+import com.oracle.graal.truffle.bench.nodes.ReadLocalNode;
+import com.oracle.graal.truffle.bench.nodes.WhileNode;
+import com.oracle.graal.truffle.bench.nodes.WriteLocalNode;
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.FrameSlot;
+import com.oracle.truffle.api.frame.FrameSlotKind;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Truffle ASTs that exercise different parts of partial evaluation. Each program takes a single
+ * {@code int} argument that determines the number of loop iterations.
+ */
+public enum BenchPrograms {
+
+    /**
+     * A loop of integer arithmetic on locals.
+     */
+    arithmeticLoop {
+        @Override
+        RootNode createRoot() {
+            Locals l = new Locals();
+            FrameSlot i = l.add("i");
+            FrameSlot sum = l.add("sum");
+            ExpressionNode body = block(
+                            write(sum, binary(ADD, binary(XOR, binary(MUL, read(sum), constant(31)), read(i)), constant(7))),
+                            write(i, binary(ADD, read(i), constant(1))));
+            return root("arithmeticLoop", l, write(i, constant(0)), write(sum, constant(0)), loop(binary(LT, read(i), new ArgumentNode(0)), body), read(sum));
+        }
+    },
+
+    /**
+     * A loop with a call site that dispatches to four different targets.
+     */
+    polymorphicCalls {
+        @Override
+        RootNode createRoot() {
+            CallTarget[] targets = new CallTarget[4];
+            for (int k = 0; k < targets.length; k++) {
+                Locals callee = new Locals();
+                targets[k] = Truffle.getRuntime().createCallTarget(root("polymorphicCalls.f" + k, callee, binary(ADD, binary(MUL, new ArgumentNode(0), constant(k + 2)), constant(k))));
+            }
+            Locals l = new Locals();
+            FrameSlot i = l.add("i");
+            FrameSlot sum = l.add("sum");
+            ExpressionNode body = block(
+                            write(sum, binary(ADD, read(sum), new DispatchNode(targets, read(i), read(i)))),
+                            write(i, binary(ADD, read(i), constant(1))));
+            return root("polymorphicCalls", l, write(i, constant(0)), write(sum, constant(0)), loop(binary(LT, read(i), new ArgumentNode(0)), body), read(sum));
+        }
+    },
+
+    /**
+     * A loop that updates many locals in each iteration.
+     */
+    frameHeavy {
+        @Override
+        RootNode createRoot() {
+            final int count = 32;
+            Locals l = new Locals();
+            FrameSlot i = l.add("i");
+            FrameSlot[] locals = new FrameSlot[count];
+            List<ExpressionNode> init = new ArrayList<>();
+            for (int k = 0; k < count; k++) {
+                locals[k] = l.add("l" + k);
+                init.add(write(locals[k], binary(ADD, new ArgumentNode(0), constant(k))));
+            }
+            List<ExpressionNode> update = new ArrayList<>();
+            for (int k = 0; k < count; k++) {
+                update.add(write(locals[k], binary(XOR, read(locals[k]), binary(ADD, read(locals[(k + 1) % count]), read(i)))));
+            }
+            update.add(write(i, binary(ADD, read(i), constant(1))));
+            ExpressionNode result = read(locals[0]);
+            for (int k = 1; k < count; k++) {
+                result = binary(ADD, result, read(locals[k]));
+            }
+            init.add(write(i, constant(0)));
+            init.add(loop(binary(LT, read(i), new ArgumentNode(0)), block(update)));
+            init.add(result);
+            return root("frameHeavy", l, init.toArray(new ExpressionNode[init.size()]));
+        }
+    },
+
+    /**
+     * A loop calling the root of a complete binary tree of distinct call targets, each of which
+     * calls its two children.
+     */
+    deepInlining {
+        private static final int DEPTH = 6;
+
+        @Override
+        RootNode createRoot() {
+            Locals l = new Locals();
+            FrameSlot i = l.add("i");
+            FrameSlot sum = l.add("sum");
+            ExpressionNode body = block(
+                            write(sum, binary(ADD, read(sum), new CallNode(tree("deepInlining", DEPTH), read(i)))),
+                            write(i, binary(ADD, read(i), constant(1))));
+            return root("deepInlining", l, write(i, constant(0)), write(sum, constant(0)), loop(binary(LT, read(i), new ArgumentNode(0)), body), read(sum));
+        }
+
+        private CallTarget tree(String name, int depth) {
+            ExpressionNode body;
+            if (depth == 0) {
+                body = binary(ADD, new ArgumentNode(0), constant(1));
+            } else {
+                CallTarget left = tree(name + "L", depth - 1);
+                CallTarget right = tree(name + "R", depth - 1);
+                body = binary(ADD, new CallNode(left, new ArgumentNode(0)), new CallNode(right, binary(REM, new ArgumentNode(0), constant(depth + 1))));
+            }
+            return Truffle.getRuntime().createCallTarget(root(name, new Locals(), body));
+        }
+    };
+
+    /**
+     * Creates a new instance of the AST of this program.
+     */
+    abstract RootNode createRoot();
+
+    private static final class Locals {
+        final FrameDescriptor descriptor = new FrameDescriptor();
+
+        FrameSlot add(String name) {
+            return descriptor.addFrameSlot(name, FrameSlotKind.Int);
+        }
+    }
+
+    private static RootNode root(String name, Locals locals, ExpressionNode... body) {
+        return new BenchRootNode(name, locals.descriptor, body.length == 1 ? body[0] : new BlockNode(body));
+    }
+
+    private static ExpressionNode block(ExpressionNode... expressions) {
+        return new BlockNode(expressions);
+    }
+
+    private static ExpressionNode block(List<ExpressionNode> expressions) {
+        return new BlockNode(expressions.toArray(new ExpressionNode[expressions.size()]));
+    }
+
+    private static ExpressionNode loop(ExpressionNode condition, ExpressionNode body) {
+        return new WhileNode(condition, body);
+    }
+
+    private static ExpressionNode binary(Operator operator, ExpressionNode left, ExpressionNode right) {
+        return new BinaryNode(operator, left, right);
+    }
+
+    private static ExpressionNode constant(int value) {
+        return new ConstantNode(value);
+    }
+
+    private static ExpressionNode read(FrameSlot slot) {
+        return new ReadLocalNode(slot);
+    }
+
+    private static ExpressionNode write(FrameSlot slot, ExpressionNode value) {
+        return new WriteLocalNode(slot, value);
+    }
+}
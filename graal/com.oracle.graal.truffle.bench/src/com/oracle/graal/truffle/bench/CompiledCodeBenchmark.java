@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2015, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Peak performance of the code produced for {@link BenchPrograms}. The call target is compiled
+ * before the measurement starts; should the code be invalidated, the runtime recompiles it during
+ * the warmup iterations.
+ */
+public class CompiledCodeBenchmark extends TruffleBenchmark {
+
+    @State(Scope.Thread)
+    public static class Compiled extends ProgramState {
+
+        static final int ITERATIONS = 10000;
+
+        @Setup(Level.Trial)
+        public void compile() {
+            compiler.compileMethod(target);
+        }
+    }
+
+    @Benchmark
+    public Object execute(Compiled s) {
+        return s.target.call(Compiled.ITERATIONS);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.oracle.graal.truffle.CompactFrameWithoutBoxing;
+import com.oracle.graal.truffle.FrameWithoutBoxing;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.FrameSlot;
+import com.oracle.truffle.api.frame.FrameSlotKind;
+import com.oracle.truffle.api.frame.FrameSlotTypeException;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+/**
+ * Compares {@link FrameWithoutBoxing} with {@link CompactFrameWithoutBoxing} for frames that
+ * escape, i.e. that are allocated and accessed like a materialized frame. Run with
+ * {@code -prof gc} to compare the allocation rates of the two layouts.
+ */
+public class FrameBenchmark extends TruffleBenchmark {
+
+    @State(Scope.Thread)
+    public static class Frames {
+
+        @Param({"default", "compact"}) String layout;
+
+        final FrameDescriptor descriptor = new FrameDescriptor();
+        final FrameSlot[] intSlots = new FrameSlot[4];
+        final FrameSlot[] objectSlots = new FrameSlot[4];
+        final Object[] arguments = new Object[]{"argument"};
+        VirtualFrame frame;
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < intSlots.length; i++) {
+                intSlots[i] = descriptor.addFrameSlot("i" + i, FrameSlotKind.Int);
+                objectSlots[i] = descriptor.addFrameSlot("o" + i, FrameSlotKind.Object);
+            }
+            frame = createFrame();
+            fill(frame, 0);
+        }
+
+        VirtualFrame createFrame() {
+            if (layout.equals("compact")) {
+                return new CompactFrameWithoutBoxing(descriptor, arguments);
+            }
+            return new FrameWithoutBoxing(descriptor, arguments);
+        }
+
+        void fill(VirtualFrame f, int value) {
+            for (int i = 0; i < intSlots.length; i++) {
+                f.setInt(intSlots[i], value + i);
+                f.setObject(objectSlots[i], arguments);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object allocate(Frames s) {
+        VirtualFrame f = s.createFrame();
+        s.fill(f, 42);
+        return f;
+    }
+
+    @Benchmark
+    public int access(Frames s) throws FrameSlotTypeException {
+        VirtualFrame f = s.frame;
+        int sum = 0;
+        for (int i = 0; i < s.intSlots.length; i++) {
+            int value = f.getInt(s.intSlots[i]);
+            f.setInt(s.intSlots[i], value + 1);
+            sum += value;
+            if (f.getObject(s.objectSlots[i]) == null) {
+                sum++;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.oracle.graal.truffle.DefaultTruffleCompiler;
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleCompiler;
+import com.oracle.truffle.api.Truffle;
+
+/**
+ * Compares the loops of {@link BenchPrograms} in normally compiled code with the same loops
+ * executed through on-stack replacement, with and without speculation on the frame at OSR entry.
+ * The OSR variants prevent compilation of the whole call target so that every call enters the
+ * compiled loop from the interpreter.
+ */
+public class OSRBenchmark extends TruffleBenchmark {
+
+    private static final String NO_CALL_TARGET_COMPILATION = "-Dgraal.TruffleMinInvokeThreshold=2147483647";
+    private static final String OSR_THRESHOLD = "-Dgraal.TruffleOSRCompilationThreshold=1000";
+
+    static final int ITERATIONS = 100000;
+
+    @State(Scope.Thread)
+    public static class Loop {
+
+        @Param({"arithmeticLoop", "frameHeavy"}) public BenchPrograms program;
+
+        OptimizedCallTarget target;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            target = (OptimizedCallTarget) Truffle.getRuntime().createCallTarget(program.createRoot());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Compiled extends Loop {
+
+        @Setup(Level.Trial)
+        public void compile() {
+            TruffleCompiler compiler = DefaultTruffleCompiler.create((GraalTruffleRuntime) Truffle.getRuntime());
+            compiler.compileMethod(target);
+        }
+    }
+
+    @Benchmark
+    public Object compiled(Compiled s) {
+        return s.target.call(ITERATIONS);
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = {NO_CALL_TARGET_COMPILATION, OSR_THRESHOLD})
+    public Object osr(Loop s) {
+        return s.target.call(ITERATIONS);
+    }
+
+    @Benchmark
+    @Fork(jvmArgsAppend = {NO_CALL_TARGET_COMPILATION, OSR_THRESHOLD, "-Dgraal.TruffleOSRFrameSpeculation=true"})
+    public Object osrFrameSpeculation(Loop s) {
+        return s.target.call(ITERATIONS);
+    }
+}
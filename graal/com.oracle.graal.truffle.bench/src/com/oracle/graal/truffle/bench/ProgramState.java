@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.bench;
+
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleCompilationThreshold;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.oracle.graal.truffle.DefaultInliningPolicy;
+import com.oracle.graal.truffle.DefaultTruffleCompiler;
+import com.oracle.graal.truffle.GraalTruffleRuntime;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleCompiler;
+import com.oracle.graal.truffle.TruffleInlining;
+import com.oracle.truffle.api.Truffle;
+
+/**
+ * A call target for one of the {@link BenchPrograms} that has been executed in the interpreter so
+ * that all classes are loaded and all call targets exist.
+ */
+@State(Scope.Thread)
+public class ProgramState {
+
+    @Param({"arithmeticLoop", "polymorphicCalls", "frameHeavy", "deepInlining"}) public BenchPrograms program;
+
+    /**
+     * The number of times the program is called when warming it up in the interpreter.
+     */
+    static final int INTERPRETER_CALLS = 20;
+
+    public TruffleCompiler compiler;
+    public OptimizedCallTarget target;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        GraalTruffleRuntime runtime = (GraalTruffleRuntime) Truffle.getRuntime();
+        compiler = DefaultTruffleCompiler.create(runtime);
+        target = (OptimizedCallTarget) runtime.createCallTarget(program.createRoot());
+        /*
+         * Calls and loop iterations together reach half of the compilation threshold, so the
+         * profiles are warm but the runtime does not compile the program on its own.
+         */
+        int iterations = Math.max(1, TruffleCompilationThreshold.getValue() / 2 / INTERPRETER_CALLS - 1);
+        for (int i = 0; i < INTERPRETER_CALLS; i++) {
+            target.call(iterations);
+        }
+    }
+
+    TruffleInlining inlining() {
+        return new TruffleInlining(target, new DefaultInliningPolicy());
+    }
+}
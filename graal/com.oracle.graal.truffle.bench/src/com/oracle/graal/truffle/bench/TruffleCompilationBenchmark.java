@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.bench;
+
+import static com.oracle.graal.debug.internal.MemUseTrackerImpl.getCurrentThreadAllocatedBytes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.oracle.graal.debug.TTY;
+
+/**
+ * Time of a complete Truffle compilation, i.e., partial evaluation, Graal compilation and code
+ * installation. The average number of bytes allocated per compilation is printed at the end of
+ * each iteration.
+ */
+public class TruffleCompilationBenchmark extends TruffleBenchmark {
+
+    @State(Scope.Thread)
+    public static class Allocation {
+
+        private long allocatedBytes;
+        private long compilations;
+
+        @TearDown(Level.Iteration)
+        public void report() {
+            if (compilations != 0) {
+                TTY.println("  %d bytes/compilation", allocatedBytes / compilations);
+            }
+            allocatedBytes = 0;
+            compilations = 0;
+        }
+    }
+
+    @Benchmark
+    public void compile(ProgramState s, Allocation a) {
+        long start = getCurrentThreadAllocatedBytes();
+        s.compiler.compileMethod(s.target);
+        a.allocatedBytes += getCurrentThreadAllocatedBytes() - start;
+        a.compilations++;
+    }
+}
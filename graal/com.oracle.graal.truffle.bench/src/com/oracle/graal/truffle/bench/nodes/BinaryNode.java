@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2015, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.bench.nodes;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+/**
+ * An arithmetic or comparison operation. Comparisons produce {@code 1} for true and {@code 0} for
+ * false.
+ */
+public final class BinaryNode extends ExpressionNode {
+
+    public enum Operator {
+        ADD,
+        SUB,
+        MUL,
+        REM,
+        XOR,
+        LT
+    }
+
+    private final Operator operator;
+    @Child private ExpressionNode left;
+    @Child private ExpressionNode right;
+
+    public BinaryNode(Operator operator, ExpressionNode left, ExpressionNode right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    public int executeInt(VirtualFrame frame) {
+        int x = left.executeInt(frame);
+        int y = right.executeInt(frame);
+        switch (operator) {
+            case ADD:
+                return x + y;
+            case SUB:
+                return x - y;
+            case MUL:
+                return x * y;
+            case REM:
+                return x % y;
+            case XOR:
+                return x ^ y;
+            case LT:
+                return x < y ? 1 : 0;
+            default:
+                CompilerDirectives.transferToInterpreter();
+                throw new IllegalStateException(operator.toString());
+        }
+    }
+}
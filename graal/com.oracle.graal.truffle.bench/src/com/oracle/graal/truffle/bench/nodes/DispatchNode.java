@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2015, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.bench.nodes;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
+
+/**
+ * A polymorphic call with a single argument, shaped like a fully populated inline cache: the
+ * target is selected by comparing the value of the selector against each cache entry in turn.
+ */
+public final class DispatchNode extends ExpressionNode {
+
+    @Children private final DirectCallNode[] entries;
+    @Child private ExpressionNode selector;
+    @Child private ExpressionNode argument;
+
+    public DispatchNode(CallTarget[] targets, ExpressionNode selector, ExpressionNode argument) {
+        this.entries = new DirectCallNode[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            entries[i] = Truffle.getRuntime().createDirectCallNode(targets[i]);
+        }
+        this.selector = selector;
+        this.argument = argument;
+    }
+
+    @Override
+    @ExplodeLoop
+    public int executeInt(VirtualFrame frame) {
+        int index = selector.executeInt(frame) % entries.length;
+        Object[] arguments = new Object[]{argument.executeInt(frame)};
+        for (int i = 0; i < entries.length; i++) {
+            if (i == index) {
+                return (int) entries[i].call(frame, arguments);
+            }
+        }
+        CompilerDirectives.transferToInterpreter();
+        throw noTarget(index);
+    }
+
+    @TruffleBoundary
+    private static IllegalStateException noTarget(int index) {
+        return new IllegalStateException("no target for " + index);
+    }
+}
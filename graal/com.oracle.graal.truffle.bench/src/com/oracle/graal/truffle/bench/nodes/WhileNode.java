@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015, 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.bench.nodes;
+
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.LoopNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.RepeatingNode;
+
+/**
+ * Executes the body while the condition is non-zero. The loop is a runtime {@link LoopNode} so
+ * that it is subject to on-stack replacement like the loops of guest languages.
+ */
+public final class WhileNode extends ExpressionNode {
+
+    @Child private LoopNode loop;
+
+    public WhileNode(ExpressionNode condition, ExpressionNode body) {
+        this.loop = Truffle.getRuntime().createLoopNode(new Repeating(condition, body));
+    }
+
+    @Override
+    public int executeInt(VirtualFrame frame) {
+        loop.executeLoop(frame);
+        return 0;
+    }
+
+    private static final class Repeating extends Node implements RepeatingNode {
+
+        @Child private ExpressionNode condition;
+        @Child private ExpressionNode body;
+
+        Repeating(ExpressionNode condition, ExpressionNode body) {
+            this.condition = condition;
+            this.body = body;
+        }
+
+        @Override
+        public boolean executeRepeating(VirtualFrame frame) {
+            if (condition.executeInt(frame) == 0) {
+                return false;
+            }
+            body.executeInt(frame);
+            return true;
+        }
+    }
+}
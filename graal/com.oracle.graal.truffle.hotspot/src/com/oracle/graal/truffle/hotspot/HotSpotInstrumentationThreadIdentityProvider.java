@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.hotspot;
+
+import com.oracle.graal.hotspot.nodes.CurrentJavaThreadNode;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.ValueNode;
+import com.oracle.graal.serviceprovider.ServiceProvider;
+import com.oracle.graal.truffle.phases.InstrumentationThreadIdentityProvider;
+
+import jdk.vm.ci.code.Architecture;
+import jdk.vm.ci.meta.JavaKind;
+
+/**
+ * Identifies the current thread by the address of its C++ JavaThread object, which is held in the
+ * thread register and can therefore be read without a memory access.
+ */
+@ServiceProvider(InstrumentationThreadIdentityProvider.class)
+public class HotSpotInstrumentationThreadIdentityProvider implements InstrumentationThreadIdentityProvider {
+    @Override
+    public ValueNode createThreadIdentity(StructuredGraph graph, Architecture architecture) {
+        return graph.unique(new CurrentJavaThreadNode(JavaKind.fromWordSize(architecture.getWordSize())));
+    }
+}
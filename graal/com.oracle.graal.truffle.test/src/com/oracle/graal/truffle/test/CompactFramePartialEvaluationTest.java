@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.nodes.java.AbstractNewObjectNode;
+import com.oracle.graal.nodes.virtual.CommitAllocationNode;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.truffle.CompactFrameWithoutBoxing;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.TruffleCompilerOptions;
+import com.oracle.graal.truffle.nodes.frame.NewFrameNode;
+import com.oracle.graal.truffle.test.nodes.AbstractTestNode;
+import com.oracle.graal.truffle.test.nodes.AddTestNode;
+import com.oracle.graal.truffle.test.nodes.BlockTestNode;
+import com.oracle.graal.truffle.test.nodes.ConstantTestNode;
+import com.oracle.graal.truffle.test.nodes.LoadLocalTestNode;
+import com.oracle.graal.truffle.test.nodes.LoopTestNode;
+import com.oracle.graal.truffle.test.nodes.RootTestNode;
+import com.oracle.graal.truffle.test.nodes.StoreLocalTestNode;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Tests that partial evaluation removes a {@link CompactFrameWithoutBoxing} together with its
+ * arrays even though its accessors are not intrinsified.
+ */
+public class CompactFramePartialEvaluationTest extends PartialEvaluationTest {
+
+    private OverrideScope compactFrame;
+
+    public static Object constant42() {
+        return 42;
+    }
+
+    @Override
+    protected void beforeInitialization() {
+        compactFrame = OptionValue.override(TruffleCompilerOptions.TruffleUseCompactFrame, true);
+    }
+
+    @After
+    public void closeOverride() {
+        compactFrame.close();
+    }
+
+    private void assertNoAllocation(RootNode root) {
+        OptimizedCallTarget compilable = (OptimizedCallTarget) Truffle.getRuntime().createCallTarget(root);
+        StructuredGraph graph = partialEval(compilable, new Object[0], AllowAssumptions.YES);
+        removeFrameStates(graph);
+        Assert.assertTrue(graph.getNodes().filter(NewFrameNode.class).isEmpty());
+        Assert.assertTrue(graph.getNodes().filter(AbstractNewObjectNode.class).isEmpty());
+        Assert.assertTrue(graph.getNodes().filter(CommitAllocationNode.class).isEmpty());
+    }
+
+    @Test
+    public void compactFrame() {
+        FrameDescriptor fd = new FrameDescriptor();
+        Assert.assertTrue(Truffle.getRuntime().createVirtualFrame(new Object[0], fd) instanceof CompactFrameWithoutBoxing);
+    }
+
+    @Test
+    public void mixLocalAndAdd() {
+        FrameDescriptor fd = new FrameDescriptor();
+        AbstractTestNode result = new BlockTestNode(new AbstractTestNode[]{new StoreLocalTestNode("x", fd, new ConstantTestNode(40)),
+                        new StoreLocalTestNode("x", fd, new AddTestNode(new LoadLocalTestNode("x", fd), new ConstantTestNode(2))), new LoadLocalTestNode("x", fd)});
+        RootNode root = new RootTestNode(fd, "mixLocalAndAdd", result);
+        assertNoAllocation(root);
+        assertPartialEvalEquals("constant42", root);
+    }
+
+    @Test
+    public void loop() {
+        FrameDescriptor fd = new FrameDescriptor();
+        AbstractTestNode result = new BlockTestNode(new AbstractTestNode[]{new StoreLocalTestNode("x", fd, new ConstantTestNode(0)),
+                        new LoopTestNode(7, new StoreLocalTestNode("x", fd, new AddTestNode(new LoadLocalTestNode("x", fd), new ConstantTestNode(6))))});
+        RootNode root = new RootTestNode(fd, "loop", result);
+        assertNoAllocation(root);
+        assertPartialEvalEquals("constant42", root);
+    }
+}
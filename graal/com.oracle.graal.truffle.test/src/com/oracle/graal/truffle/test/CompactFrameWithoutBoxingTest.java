@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.graal.truffle.CompactFrameWithoutBoxing;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.FrameSlot;
+import com.oracle.truffle.api.frame.FrameSlotKind;
+import com.oracle.truffle.api.frame.FrameSlotTypeException;
+
+public class CompactFrameWithoutBoxingTest {
+
+    @Test
+    public void testPrimitiveSlots() throws FrameSlotTypeException {
+        FrameDescriptor descriptor = new FrameDescriptor();
+        FrameSlot slot = descriptor.addFrameSlot("x");
+        CompactFrameWithoutBoxing frame = new CompactFrameWithoutBoxing(descriptor, new Object[0]);
+
+        frame.setInt(slot, 42);
+        assertTrue(frame.isInt(slot));
+        assertFalse(frame.isObject(slot));
+        assertEquals(42, frame.getInt(slot));
+        assertEquals(42, frame.getValue(slot));
+
+        frame.setLong(slot, Long.MIN_VALUE);
+        assertEquals(Long.MIN_VALUE, frame.getLong(slot));
+        frame.setDouble(slot, 1.5d);
+        assertEquals(1.5d, frame.getDouble(slot), 0d);
+        frame.setFloat(slot, 2.5f);
+        assertEquals(2.5f, frame.getFloat(slot), 0f);
+        frame.setBoolean(slot, true);
+        assertTrue(frame.getBoolean(slot));
+        frame.setByte(slot, (byte) 7);
+        assertEquals((byte) 7, frame.getByte(slot));
+        assertEquals((byte) 7, frame.getValue(slot));
+    }
+
+    @Test
+    public void testObjectSlots() throws FrameSlotTypeException {
+        FrameDescriptor descriptor = new FrameDescriptor("default");
+        FrameSlot slot = descriptor.addFrameSlot("x", FrameSlotKind.Object);
+        CompactFrameWithoutBoxing frame = new CompactFrameWithoutBoxing(descriptor, new Object[0]);
+
+        assertEquals("default", frame.getValue(slot));
+        Object value = new Object();
+        frame.setObject(slot, value);
+        assertTrue(frame.isObject(slot));
+        assertSame(value, frame.getObject(slot));
+
+        frame.setInt(slot, 1);
+        frame.setObject(slot, null);
+        assertTrue(frame.isObject(slot));
+        assertEquals(null, frame.getObject(slot));
+    }
+
+    @Test(expected = FrameSlotTypeException.class)
+    public void testObjectReadOfPrimitive() throws FrameSlotTypeException {
+        FrameDescriptor descriptor = new FrameDescriptor();
+        FrameSlot slot = descriptor.addFrameSlot("x");
+        CompactFrameWithoutBoxing frame = new CompactFrameWithoutBoxing(descriptor, new Object[0]);
+        frame.setInt(slot, 1);
+        frame.getObject(slot);
+    }
+
+    @Test(expected = FrameSlotTypeException.class)
+    public void testPrimitiveKindMismatch() throws FrameSlotTypeException {
+        FrameDescriptor descriptor = new FrameDescriptor();
+        FrameSlot slot = descriptor.addFrameSlot("x");
+        CompactFrameWithoutBoxing frame = new CompactFrameWithoutBoxing(descriptor, new Object[0]);
+        frame.setInt(slot, 1);
+        frame.getLong(slot);
+    }
+
+    @Test
+    public void testResize() throws FrameSlotTypeException {
+        FrameDescriptor descriptor = new FrameDescriptor();
+        CompactFrameWithoutBoxing frame = new CompactFrameWithoutBoxing(descriptor, new Object[0]);
+        FrameSlot slot = descriptor.addFrameSlot("late");
+        frame.setInt(slot, 3);
+        assertEquals(3, frame.getInt(slot));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.nodes.java.MethodCallTargetNode;
+import com.oracle.graal.truffle.DefaultInliningPolicy;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.OptimizedIndirectCallNode;
+import com.oracle.graal.truffle.TruffleInlining;
+import com.oracle.graal.truffle.TruffleInliningDecision;
+import com.oracle.graal.truffle.test.nodes.ConstantTestNode;
+import com.oracle.graal.truffle.test.nodes.RootTestNode;
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.IndirectCallNode;
+import com.oracle.truffle.api.nodes.RootNode;
+
+/**
+ * Tests that a target cached by an {@link OptimizedIndirectCallNode} is inlined like the target of
+ * a direct call.
+ */
+public class IndirectCallPartialEvaluationTest extends PartialEvaluationTest {
+
+    private static final class CallerRootNode extends RootNode {
+
+        @Child private IndirectCallNode callNode = Truffle.getRuntime().createIndirectCallNode();
+
+        CallerRootNode() {
+            super(MockLanguage.class, null, null);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return callNode.call(frame, (CallTarget) frame.getArguments()[0], new Object[0]);
+        }
+    }
+
+    @Test
+    public void cachedTargetIsInlined() {
+        OptimizedCallTarget callee = (OptimizedCallTarget) Truffle.getRuntime().createCallTarget(new RootTestNode(new FrameDescriptor(), "callee", new ConstantTestNode(42)));
+        CallerRootNode caller = new CallerRootNode();
+        OptimizedCallTarget callerTarget = (OptimizedCallTarget) Truffle.getRuntime().createCallTarget(caller);
+        StructuredGraph graph = partialEval(callerTarget, new Object[]{callee}, AllowAssumptions.YES);
+
+        Assert.assertEquals(Arrays.asList(callee), ((OptimizedIndirectCallNode) caller.callNode).getCachedCallTargets());
+        TruffleInlining inlining = new TruffleInlining(callerTarget, new DefaultInliningPolicy());
+        Assert.assertEquals(1, inlining.getCallSites().size());
+        TruffleInliningDecision decision = inlining.getCallSites().get(0);
+        Assert.assertSame(callee, decision.getTarget());
+        Assert.assertTrue(decision.isInline());
+
+        // neither the cached direct call nor the generic call remains
+        removeFrameStates(graph);
+        Assert.assertTrue(graph.getNodes(MethodCallTargetNode.TYPE).isEmpty());
+    }
+}
@@ -29,6 +29,7 @@ import org.junit.Test;
 import com.oracle.graal.truffle.OptimizedCallTarget;
 import com.oracle.graal.truffle.TruffleCompilerOptions;
 import com.oracle.graal.truffle.phases.InstrumentBranchesPhase;
+import com.oracle.graal.truffle.phases.InstrumentBranchesPhase.BranchInstrumentation;
 import com.oracle.graal.truffle.test.nodes.AbstractTestNode;
 import com.oracle.graal.truffle.test.nodes.RootTestNode;
 import com.oracle.truffle.api.frame.FrameDescriptor;
@@ -76,6 +77,18 @@ public class InstrumentBranchesPhaseTest extends PartialEvaluationTest {
         }
     }
 
+    public static class ArgumentIfTestNode extends AbstractTestNode {
+
+        @Override
+        public int execute(VirtualFrame frame) {
+            if ((Integer) frame.getArguments()[0] < 0) {
+                return -1;
+            } else {
+                return 1;
+            }
+        }
+    }
+
     @Override
     protected void beforeInitialization() {
         Assert.assertFalse(TruffleCompilerOptions.TruffleInstrumentBranches.getValue());
@@ -143,4 +156,50 @@ public class InstrumentBranchesPhaseTest extends PartialEvaluationTest {
         Assert.assertTrue(stackOutput2.contains("com.oracle.graal.truffle.test.InstrumentBranchesPhaseTest$TwoIfsTestNode.execute(InstrumentBranchesPhaseTest.java"));
         Assert.assertTrue(stackOutput2.contains("[bci: 18]\n[2] state = IF(if=2#, else=0#)"));
     }
+
+    @Test
+    public void stripedCountersTest() throws InterruptedException {
+        final int threadCount = 4;
+        final int callCount = 1000;
+        FrameDescriptor descriptor = new FrameDescriptor();
+        RootTestNode rootNode = new RootTestNode(descriptor, "stripedRoot", new ArgumentIfTestNode());
+        boolean instrumentFlag = TruffleCompilerOptions.TruffleInstrumentBranches.getValue();
+        boolean prettyFlag = TruffleCompilerOptions.TruffleInstrumentBranchesPretty.getValue();
+        String filterFlag = TruffleCompilerOptions.TruffleInstrumentBranchesFilter.getValue();
+        BranchInstrumentation previous = InstrumentBranchesPhase.instrumentation;
+        BranchInstrumentation striped = new BranchInstrumentation(threadCount);
+        try {
+            InstrumentBranchesPhase.instrumentation = striped;
+            TruffleCompilerOptions.TruffleInstrumentBranches.setValue(true);
+            TruffleCompilerOptions.TruffleInstrumentBranchesPretty.setValue(false);
+            TruffleCompilerOptions.TruffleInstrumentBranchesFilter.setValue("*.*.execute");
+            OptimizedCallTarget target = compileHelper("stripedRoot", rootNode, new Object[]{0});
+            Assert.assertTrue(target.isValid());
+            /*
+             * The threads run one after the other: two threads may hash to the same stripe, and
+             * the counters of a stripe are not updated atomically.
+             */
+            for (int t = 0; t < threadCount; t++) {
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < callCount; i++) {
+                        target.call(i % 4 == 0 ? -1 : 1);
+                    }
+                });
+                thread.start();
+                thread.join();
+            }
+            Assert.assertTrue(target.isValid());
+        } finally {
+            InstrumentBranchesPhase.instrumentation = previous;
+            TruffleCompilerOptions.TruffleInstrumentBranches.setValue(instrumentFlag);
+            TruffleCompilerOptions.TruffleInstrumentBranchesPretty.setValue(prettyFlag);
+            TruffleCompilerOptions.TruffleInstrumentBranchesFilter.setValue(filterFlag);
+        }
+        Assert.assertEquals(threadCount, striped.getStripeCount());
+        String stackOutput = striped.accessTableToList().get(0);
+        Assert.assertTrue(stackOutput.contains("com.oracle.graal.truffle.test.InstrumentBranchesPhaseTest$ArgumentIfTestNode.execute(InstrumentBranchesPhaseTest.java"));
+        int ifVisits = threadCount * callCount / 4;
+        int elseVisits = threadCount * callCount - ifVisits;
+        Assert.assertTrue(stackOutput, stackOutput.contains("state = BOTH(if=" + ifVisits + "#, else=" + elseVisits + "#)"));
+    }
 }
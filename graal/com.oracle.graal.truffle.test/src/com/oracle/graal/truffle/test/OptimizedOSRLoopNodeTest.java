@@ -37,10 +37,25 @@ import org.junit.experimental.theories.Theories;
 import org.junit.experimental.theories.Theory;
 import org.junit.runner.RunWith;
 
+import com.oracle.graal.debug.Debug;
+import com.oracle.graal.debug.Debug.Scope;
+import com.oracle.graal.nodes.FixedWithNextNode;
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.StructuredGraph.AllowAssumptions;
+import com.oracle.graal.nodes.cfg.ControlFlowGraph;
+import com.oracle.graal.nodes.extended.UnsafeAccessNode;
+import com.oracle.graal.nodes.java.AccessIndexedNode;
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.truffle.DefaultInliningPolicy;
+import com.oracle.graal.truffle.DefaultTruffleCompiler;
 import com.oracle.graal.truffle.GraalTruffleRuntime;
 import com.oracle.graal.truffle.OptimizedCallTarget;
 import com.oracle.graal.truffle.OptimizedOSRLoopNode;
+import com.oracle.graal.truffle.TruffleCompiler;
 import com.oracle.graal.truffle.TruffleCompilerOptions;
+import com.oracle.graal.truffle.TruffleDebugJavaMethod;
+import com.oracle.graal.truffle.TruffleInlining;
 import com.oracle.truffle.api.CallTarget;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
@@ -53,6 +68,7 @@ import com.oracle.truffle.api.frame.FrameInstanceVisitor;
 import com.oracle.truffle.api.frame.FrameSlot;
 import com.oracle.truffle.api.frame.FrameSlotKind;
 import com.oracle.truffle.api.frame.FrameSlotTypeException;
+import com.oracle.truffle.api.frame.MaterializedFrame;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.nodes.LoopNode;
 import com.oracle.truffle.api.nodes.Node;
@@ -156,6 +172,117 @@ public class OptimizedOSRLoopNodeTest {
         Assert.assertTrue(rootNode.wasRepeatingCalledCompiled());
     }
 
+    /*
+     * Test that frame speculation at OSR entry transfers the frame slots back to the frame of the
+     * loop and recovers from failed speculations.
+     */
+    @Test
+    public void testOSRFrameSpeculation() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleOSRFrameSpeculation, true)) {
+            TestRootNode rootNode = new TestRootNode(DEFAULT, new TestRepeatingNode() {
+
+                @Override
+                public boolean executeRepeating(VirtualFrame frame) {
+                    boolean next = super.executeRepeating(frame);
+                    if (!next) {
+                        frame.setDouble(param2, 42.0);
+                    }
+                    return next;
+                }
+
+            }) {
+
+                @Override
+                public Object execute(VirtualFrame frame) {
+                    Object result = super.execute(frame);
+                    try {
+                        Assert.assertEquals(-1, frame.getInt(param1));
+                        Assert.assertEquals(42.0d, frame.getDouble(param2), 0.01);
+                    } catch (FrameSlotTypeException e) {
+                        Assert.fail();
+                    }
+                    return result;
+                }
+
+            };
+
+            executeNoCallTarget(rootNode, OSR_THRESHOLD + 1);
+            assertCompiled(rootNode.getOSRTarget());
+            assertNoFrameAccessInLoops(rootNode.getOSRTarget());
+            executeNoCallTarget(rootNode, OSR_THRESHOLD + 1);
+            executeNoCallTarget(rootNode, OSR_THRESHOLD + 1);
+            executeNoCallTarget(rootNode, 1);
+        }
+    }
+
+    /*
+     * Test that a frame materialized inside a loop with frame speculation sees the writes to the
+     * frame after the loop.
+     */
+    @Test
+    public void testOSRFrameSpeculationMaterialize() throws FrameSlotTypeException {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleOSRFrameSpeculation, true)) {
+            boolean[] materialize = new boolean[1];
+            MaterializedFrame[] materialized = new MaterializedFrame[1];
+            TestRootNode rootNode = new TestRootNode(DEFAULT, new TestRepeatingNode() {
+
+                @Override
+                public boolean executeRepeating(VirtualFrame frame) {
+                    boolean next = super.executeRepeating(frame);
+                    if (!next && materialize[0]) {
+                        materialized[0] = frame.materialize();
+                    }
+                    return next;
+                }
+
+            }) {
+
+                @Override
+                public Object execute(VirtualFrame frame) {
+                    Object result = super.execute(frame);
+                    frame.setInt(param2, 42);
+                    return result;
+                }
+
+            };
+
+            executeNoCallTarget(rootNode, OSR_THRESHOLD + 1);
+            assertCompiled(rootNode.getOSRTarget());
+            materialize[0] = true;
+            executeNoCallTarget(rootNode, OSR_THRESHOLD + 1);
+            Assert.assertEquals(42, materialized[0].getInt(rootNode.param2));
+            Assert.assertEquals(-1, materialized[0].getInt(rootNode.param1));
+
+            // later compilations of the loop do not speculate on the frame
+            materialized[0] = null;
+            executeNoCallTarget(rootNode, OSR_THRESHOLD + 1);
+            executeNoCallTarget(rootNode, OSR_THRESHOLD + 1);
+            Assert.assertEquals(42, materialized[0].getInt(rootNode.param2));
+        }
+    }
+
+    /**
+     * Asserts that the accesses to the frame slots inside the loop of an OSR compilation are
+     * virtualized, i.e., that no array or unsafe accesses remain in the loop.
+     */
+    @SuppressWarnings("try")
+    private static void assertNoFrameAccessInLoops(OptimizedCallTarget osrTarget) {
+        TruffleCompiler compiler = DefaultTruffleCompiler.create(runtime);
+        StructuredGraph graph;
+        try (Scope s = Debug.scope("OSRFrameSpeculation", new TruffleDebugJavaMethod(osrTarget))) {
+            graph = compiler.getPartialEvaluator().createGraph(osrTarget, new TruffleInlining(osrTarget, new DefaultInliningPolicy()), AllowAssumptions.YES);
+        } catch (Throwable e) {
+            throw Debug.handle(e);
+        }
+        Assert.assertTrue("the OSR graph must contain the loop", graph.hasLoops());
+        ControlFlowGraph cfg = ControlFlowGraph.compute(graph, true, true, false, false);
+        for (FixedWithNextNode access : graph.getNodes().filter(FixedWithNextNode.class)) {
+            if (access instanceof AccessIndexedNode || access instanceof UnsafeAccessNode) {
+                Assert.assertNull("frame access in OSR loop: " + access, cfg.blockFor(access).getLoop());
+            }
+        }
+    }
+
     /*
      * Test that if osr compilation is forced without any execution we do not deoptimize on first
      * execution.
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.oracle.graal.options.OptionValue;
+import com.oracle.graal.options.OptionValue.OverrideScope;
+import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.OptimizedDirectCallNode;
+import com.oracle.graal.truffle.TruffleCompilerOptions;
+import com.oracle.graal.truffle.debug.TraceSplittingListener;
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.DirectCallNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeCost;
+import com.oracle.truffle.api.nodes.RootNode;
+
+public class ProfileGuidedSplittingTest {
+
+    private static OptimizedCallTarget createIdentity() {
+        return (OptimizedCallTarget) Truffle.getRuntime().createCallTarget(new RootNode(MockLanguage.class, null, null) {
+            @Override
+            public Object execute(VirtualFrame frame) {
+                return frame.getArguments()[0];
+            }
+
+            @Override
+            public boolean isCloningAllowed() {
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Becomes polymorphic when it sees a value that is not an {@link Integer}.
+     */
+    private static class TypeCheckNode extends Node {
+
+        Object execute(Object value) {
+            if (!(value instanceof Integer)) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                return replace(new PolymorphicTypeCheckNode()).execute(value);
+            }
+            return value;
+        }
+    }
+
+    private static final class PolymorphicTypeCheckNode extends TypeCheckNode {
+
+        @Override
+        Object execute(Object value) {
+            return value;
+        }
+
+        @Override
+        public NodeCost getCost() {
+            return NodeCost.POLYMORPHIC;
+        }
+    }
+
+    /**
+     * Creates a call target that returns its first argument after passing it through a
+     * {@link TypeCheckNode}. The call target is called indirectly once so that it has no argument
+     * profile.
+     */
+    private static OptimizedCallTarget createTypeCheck() {
+        OptimizedCallTarget target = (OptimizedCallTarget) Truffle.getRuntime().createCallTarget(new RootNode(MockLanguage.class, null, null) {
+
+            @Child private TypeCheckNode typeCheck = new TypeCheckNode();
+
+            @Override
+            public Object execute(VirtualFrame frame) {
+                return typeCheck.execute(frame.getArguments()[0]);
+            }
+
+            @Override
+            public boolean isCloningAllowed() {
+                return true;
+            }
+        });
+        target.call(0);
+        return target;
+    }
+
+    private static final class CallerRootNode extends RootNode {
+
+        @Child private DirectCallNode callNode;
+
+        CallerRootNode(CallTarget target) {
+            super(MockLanguage.class, null, null);
+            this.callNode = Truffle.getRuntime().createDirectCallNode(target);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return callNode.call(frame, frame.getArguments());
+        }
+    }
+
+    @Test
+    public void testMonomorphicCallSitesAreNotSplit() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleSplittingProfileGuided, true)) {
+            OptimizedCallTarget callee = createIdentity();
+            CallerRootNode first = new CallerRootNode(callee);
+            CallerRootNode second = new CallerRootNode(callee);
+            CallTarget firstTarget = Truffle.getRuntime().createCallTarget(first);
+            CallTarget secondTarget = Truffle.getRuntime().createCallTarget(second);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(i, firstTarget.call(i));
+                assertEquals(i, secondTarget.call(i));
+            }
+            assertFalse(first.callNode.isCallTargetCloned());
+            assertFalse(second.callNode.isCallTargetCloned());
+            assertEquals(0, callee.getSplitCount());
+        }
+    }
+
+    @Test
+    public void testSplitRestoresMonomorphism() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleSplittingProfileGuided, true)) {
+            OptimizedCallTarget callee = createIdentity();
+            CallerRootNode ints = new CallerRootNode(callee);
+            CallerRootNode strings = new CallerRootNode(callee);
+            CallTarget intsTarget = Truffle.getRuntime().createCallTarget(ints);
+            CallTarget stringsTarget = Truffle.getRuntime().createCallTarget(strings);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(i, intsTarget.call(i));
+                assertEquals("s", stringsTarget.call("s"));
+            }
+            assertTrue(ints.callNode.isCallTargetCloned());
+            assertTrue(strings.callNode.isCallTargetCloned());
+            assertEquals(2, callee.getSplitCount());
+        }
+    }
+
+    @Test
+    public void testSplitsPerTargetAreBounded() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleSplittingProfileGuided, true, TruffleCompilerOptions.TruffleSplittingMaxSplitsPerTarget, 1)) {
+            OptimizedCallTarget callee = createIdentity();
+            CallerRootNode ints = new CallerRootNode(callee);
+            CallerRootNode strings = new CallerRootNode(callee);
+            CallTarget intsTarget = Truffle.getRuntime().createCallTarget(ints);
+            CallTarget stringsTarget = Truffle.getRuntime().createCallTarget(strings);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(i, intsTarget.call(i));
+                assertEquals("s", stringsTarget.call("s"));
+            }
+            assertTrue(ints.callNode.isCallTargetCloned() ^ strings.callNode.isCallTargetCloned());
+            assertEquals(1, callee.getSplitCount());
+        }
+    }
+
+    @Test
+    public void testSplitOnMonomorphicArgument() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleSplittingProfileGuided, true)) {
+            OptimizedCallTarget callee = createIdentity();
+            // the first argument of this call site is polymorphic, the second one is not
+            CallerRootNode mixed = new CallerRootNode(callee);
+            CallerRootNode strings = new CallerRootNode(callee);
+            CallTarget mixedTarget = Truffle.getRuntime().createCallTarget(mixed);
+            CallTarget stringsTarget = Truffle.getRuntime().createCallTarget(strings);
+            for (int i = 0; i < 4; i++) {
+                Object first = i % 2 == 0 ? i : "s";
+                assertEquals(first, mixedTarget.call(first, 1));
+                assertEquals(i, stringsTarget.call(i, "x"));
+            }
+            assertTrue(mixed.callNode.isCallTargetCloned());
+            assertTrue(strings.callNode.isCallTargetCloned());
+
+            String line = TraceSplittingListener.format(0, (OptimizedDirectCallNode) mixed.callNode);
+            assertTrue(line, line.contains("split"));
+            assertTrue(line, line.contains("|reason monomorphic argument 1 of type java.lang.Integer"));
+            assertTrue(line, line.contains("|splits"));
+        }
+    }
+
+    @Test
+    public void testSplitOnPolymorphicNodes() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleSplittingProfileGuided, true)) {
+            OptimizedCallTarget callee = createTypeCheck();
+            CallerRootNode ints = new CallerRootNode(callee);
+            CallerRootNode strings = new CallerRootNode(callee);
+            CallTarget intsTarget = Truffle.getRuntime().createCallTarget(ints);
+            CallTarget stringsTarget = Truffle.getRuntime().createCallTarget(strings);
+            for (int i = 0; i < 4; i++) {
+                assertEquals(i, intsTarget.call(i));
+                assertEquals("s", stringsTarget.call("s"));
+            }
+            assertTrue(ints.callNode.isCallTargetCloned());
+            assertTrue(strings.callNode.isCallTargetCloned());
+            assertEquals(2, callee.getSplitCount());
+
+            String line = TraceSplittingListener.format(0, (OptimizedDirectCallNode) ints.callNode);
+            assertTrue(line, line.contains("|reason polymorphic nodes"));
+        }
+    }
+
+    @Test
+    public void testPolymorphicCallSitesAreNotSplit() {
+        try (OverrideScope s = OptionValue.override(TruffleCompilerOptions.TruffleSplittingProfileGuided, true)) {
+            OptimizedCallTarget callee = createTypeCheck();
+            /*
+             * The first argument makes one node of the callee polymorphic and is polymorphic at the
+             * call site too, so the call site is not more monomorphic than the callee even though
+             * its second argument is monomorphic.
+             */
+            CallerRootNode mixed = new CallerRootNode(callee);
+            CallTarget mixedTarget = Truffle.getRuntime().createCallTarget(mixed);
+            for (int i = 0; i < 4; i++) {
+                Object first = i % 2 == 0 ? i : "s";
+                assertEquals(first, mixedTarget.call(first, 1));
+            }
+            assertFalse(mixed.callNode.isCallTargetCloned());
+            assertEquals(0, callee.getSplitCount());
+        }
+    }
+}
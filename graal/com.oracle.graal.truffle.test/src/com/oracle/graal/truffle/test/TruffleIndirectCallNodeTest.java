@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2015, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.oracle.graal.truffle.OptimizedIndirectCallNode;
+import com.oracle.graal.truffle.TruffleCompilerOptions;
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.IndirectCallNode;
+import com.oracle.truffle.api.nodes.NodeCost;
+import com.oracle.truffle.api.nodes.RootNode;
+
+public class TruffleIndirectCallNodeTest {
+
+    private static CallTarget createConstant(int value) {
+        return Truffle.getRuntime().createCallTarget(new RootNode(MockLanguage.class, null, null) {
+            @Override
+            public Object execute(VirtualFrame frame) {
+                return value;
+            }
+        });
+    }
+
+    private static final class CallerRootNode extends RootNode {
+
+        @Child private IndirectCallNode callNode = Truffle.getRuntime().createIndirectCallNode();
+
+        CallerRootNode() {
+            super(MockLanguage.class, null, null);
+        }
+
+        @Override
+        public Object execute(VirtualFrame frame) {
+            return callNode.call(frame, (CallTarget) frame.getArguments()[0], new Object[0]);
+        }
+    }
+
+    /**
+     * Assumes the default {@link TruffleCompilerOptions#TruffleIndirectCallCacheSize} of 2.
+     */
+    @Test
+    public void testInlineCache() {
+        CallTarget one = createConstant(1);
+        CallTarget two = createConstant(2);
+        CallTarget three = createConstant(3);
+        CallerRootNode caller = new CallerRootNode();
+        CallTarget callerTarget = Truffle.getRuntime().createCallTarget(caller);
+        OptimizedIndirectCallNode callNode = (OptimizedIndirectCallNode) caller.callNode;
+
+        assertEquals(1, callerTarget.call(one));
+        assertEquals(1, callerTarget.call(one));
+        assertEquals(Arrays.asList(one), callNode.getCachedCallTargets());
+        assertEquals(NodeCost.MONOMORPHIC, callNode.getCost());
+
+        assertEquals(2, callerTarget.call(two));
+        assertEquals(1, callerTarget.call(one));
+        assertEquals(Arrays.asList(one, two), callNode.getCachedCallTargets());
+        assertEquals(NodeCost.POLYMORPHIC, callNode.getCost());
+
+        assertEquals(3, callerTarget.call(three));
+        assertEquals(2, callerTarget.call(two));
+        assertEquals(Arrays.asList(one, two), callNode.getCachedCallTargets());
+        assertEquals(NodeCost.MEGAMORPHIC, callNode.getCost());
+    }
+}
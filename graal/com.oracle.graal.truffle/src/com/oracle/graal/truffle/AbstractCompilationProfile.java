@@ -54,6 +54,15 @@ public abstract class AbstractCompilationProfile {
 
     abstract void reportInvalidated();
 
+    /**
+     * Gets the argument types profiled for calls of the call target or {@code null} if no
+     * argument profile is available. An element is {@code null} if the argument type is not known
+     * or is polymorphic.
+     */
+    Class<?>[] getProfiledArgumentTypes() {
+        return null;
+    }
+
     public Map<String, Object> getDebugProperties() {
         return Collections.emptyMap();
     }
@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle;
+
+import static com.oracle.graal.truffle.FrameWithoutBoxing.BOOLEAN_TAG;
+import static com.oracle.graal.truffle.FrameWithoutBoxing.BYTE_TAG;
+import static com.oracle.graal.truffle.FrameWithoutBoxing.DOUBLE_TAG;
+import static com.oracle.graal.truffle.FrameWithoutBoxing.FLOAT_TAG;
+import static com.oracle.graal.truffle.FrameWithoutBoxing.INT_TAG;
+import static com.oracle.graal.truffle.FrameWithoutBoxing.LONG_TAG;
+import static com.oracle.graal.truffle.FrameWithoutBoxing.OBJECT_TAG;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.frame.FrameDescriptor;
+import com.oracle.truffle.api.frame.FrameSlot;
+import com.oracle.truffle.api.frame.FrameSlotTypeException;
+import com.oracle.truffle.api.frame.MaterializedFrame;
+import com.oracle.truffle.api.frame.VirtualFrame;
+
+import sun.misc.Unsafe;
+
+/**
+ * A variant of {@link FrameWithoutBoxing} that does not need a separate array for the slot tags.
+ * The object array holds the value of each slot whose kind is {@link FrameWithoutBoxing#OBJECT_TAG
+ * object} and a {@link PrimitiveTag} marker for each slot holding a primitive value, which is
+ * stored in the primitive array. A frame therefore costs one array allocation less than a
+ * {@link FrameWithoutBoxing}, and the tag of a slot is checked with a reference comparison on the
+ * object array that is loaded anyway for object slots.
+ *
+ * Frame accesses are not intrinsified during partial evaluation. A virtual frame of this class is
+ * still removed by escape analysis through its plain array accesses.
+ *
+ * A single array for all slots was rejected: an {@code Object[]} would have to box primitive
+ * values, and a {@code long[]} cannot hold references that the garbage collector sees. Mixing
+ * references and raw primitive bits in one array through unsafe accesses is not safe for the
+ * garbage collector either, and escape analysis could no longer virtualize the array since the
+ * kind of an element would depend on its value.
+ */
+public final class CompactFrameWithoutBoxing implements VirtualFrame, MaterializedFrame {
+    private final FrameDescriptor descriptor;
+    private final Object[] arguments;
+    private Object[] locals;
+    private long[] primitiveLocals;
+
+    /**
+     * Marks a slot of the object array whose value is stored in the primitive array.
+     */
+    static final class PrimitiveTag {
+        final byte tag;
+
+        private PrimitiveTag(byte tag) {
+            this.tag = tag;
+        }
+
+        @Override
+        public String toString() {
+            return "PrimitiveTag[" + tag + "]";
+        }
+    }
+
+    static final PrimitiveTag LONG = new PrimitiveTag(LONG_TAG);
+    static final PrimitiveTag INT = new PrimitiveTag(INT_TAG);
+    static final PrimitiveTag DOUBLE = new PrimitiveTag(DOUBLE_TAG);
+    static final PrimitiveTag FLOAT = new PrimitiveTag(FLOAT_TAG);
+    static final PrimitiveTag BOOLEAN = new PrimitiveTag(BOOLEAN_TAG);
+    static final PrimitiveTag BYTE = new PrimitiveTag(BYTE_TAG);
+
+    public CompactFrameWithoutBoxing(FrameDescriptor descriptor, Object[] arguments) {
+        this.descriptor = descriptor;
+        this.arguments = arguments;
+        int size = descriptor.getSize();
+        this.locals = new Object[size];
+        Object defaultValue = descriptor.getDefaultValue();
+        if (defaultValue != null) {
+            Arrays.fill(locals, defaultValue);
+        }
+        this.primitiveLocals = new long[size];
+    }
+
+    @Override
+    public Object[] getArguments() {
+        return unsafeCast(arguments, Object[].class, true, true);
+    }
+
+    @Override
+    public MaterializedFrame materialize() {
+        ((GraalTruffleRuntime) Truffle.getRuntime()).markFrameMaterializeCalled(descriptor);
+        return this;
+    }
+
+    private Object[] getLocals() {
+        return unsafeCast(locals, Object[].class, true, true);
+    }
+
+    private long[] getPrimitiveLocals() {
+        return unsafeCast(this.primitiveLocals, long[].class, true, true);
+    }
+
+    @Override
+    public Object getObject(FrameSlot slot) throws FrameSlotTypeException {
+        int slotIndex = slot.getIndex();
+        checkSlotIndex(slotIndex);
+        Object value = unsafeGetObject(getLocals(), getObjectOffset(slotIndex), true, slot);
+        if (value instanceof PrimitiveTag) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            throw new FrameSlotTypeException();
+        }
+        return value;
+    }
+
+    @Override
+    public void setObject(FrameSlot slot, Object value) {
+        int slotIndex = slot.getIndex();
+        checkSlotIndex(slotIndex);
+        unsafePutObject(getLocals(), getObjectOffset(slotIndex), value, slot);
+    }
+
+    @Override
+    public byte getByte(FrameSlot slot) throws FrameSlotTypeException {
+        int slotIndex = slot.getIndex();
+        boolean condition = verifyGet(slotIndex, BYTE);
+        return (byte) unsafeGetInt(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), condition, slot);
+    }
+
+    @Override
+    public void setByte(FrameSlot slot, byte value) {
+        int slotIndex = slot.getIndex();
+        verifySet(slotIndex, BYTE);
+        unsafePutInt(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), value, slot);
+    }
+
+    @Override
+    public boolean getBoolean(FrameSlot slot) throws FrameSlotTypeException {
+        int slotIndex = slot.getIndex();
+        boolean condition = verifyGet(slotIndex, BOOLEAN);
+        return unsafeGetInt(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), condition, slot) != 0;
+    }
+
+    @Override
+    public void setBoolean(FrameSlot slot, boolean value) {
+        int slotIndex = slot.getIndex();
+        verifySet(slotIndex, BOOLEAN);
+        unsafePutInt(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), value ? 1 : 0, slot);
+    }
+
+    @Override
+    public float getFloat(FrameSlot slot) throws FrameSlotTypeException {
+        int slotIndex = slot.getIndex();
+        boolean condition = verifyGet(slotIndex, FLOAT);
+        return unsafeGetFloat(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), condition, slot);
+    }
+
+    @Override
+    public void setFloat(FrameSlot slot, float value) {
+        int slotIndex = slot.getIndex();
+        verifySet(slotIndex, FLOAT);
+        unsafePutFloat(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), value, slot);
+    }
+
+    @Override
+    public long getLong(FrameSlot slot) throws FrameSlotTypeException {
+        int slotIndex = slot.getIndex();
+        boolean condition = verifyGet(slotIndex, LONG);
+        return unsafeGetLong(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), condition, slot);
+    }
+
+    @Override
+    public void setLong(FrameSlot slot, long value) {
+        int slotIndex = slot.getIndex();
+        verifySet(slotIndex, LONG);
+        unsafePutLong(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), value, slot);
+    }
+
+    @Override
+    public int getInt(FrameSlot slot) throws FrameSlotTypeException {
+        int slotIndex = slot.getIndex();
+        boolean condition = verifyGet(slotIndex, INT);
+        return unsafeGetInt(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), condition, slot);
+    }
+
+    @Override
+    public void setInt(FrameSlot slot, int value) {
+        int slotIndex = slot.getIndex();
+        verifySet(slotIndex, INT);
+        unsafePutInt(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), value, slot);
+    }
+
+    @Override
+    public double getDouble(FrameSlot slot) throws FrameSlotTypeException {
+        int slotIndex = slot.getIndex();
+        boolean condition = verifyGet(slotIndex, DOUBLE);
+        return unsafeGetDouble(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), condition, slot);
+    }
+
+    @Override
+    public void setDouble(FrameSlot slot, double value) {
+        int slotIndex = slot.getIndex();
+        verifySet(slotIndex, DOUBLE);
+        unsafePutDouble(getPrimitiveLocals(), getPrimitiveOffset(slotIndex), value, slot);
+    }
+
+    @Override
+    public FrameDescriptor getFrameDescriptor() {
+        return this.descriptor;
+    }
+
+    private void verifySet(int slotIndex, PrimitiveTag tag) {
+        checkSlotIndex(slotIndex);
+        getLocals()[slotIndex] = tag;
+    }
+
+    private boolean verifyGet(int slotIndex, PrimitiveTag tag) throws FrameSlotTypeException {
+        checkSlotIndex(slotIndex);
+        boolean condition = getLocals()[slotIndex] == tag;
+        if (!condition) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            throw new FrameSlotTypeException();
+        }
+        return condition;
+    }
+
+    private void checkSlotIndex(int slotIndex) {
+        if (CompilerDirectives.inInterpreter() && slotIndex >= getLocals().length) {
+            if (!resize()) {
+                throw new IllegalArgumentException(String.format("The frame slot '%s' is not known by the frame descriptor.", slotIndex));
+            }
+        }
+    }
+
+    private static long getObjectOffset(int slotIndex) {
+        return Unsafe.ARRAY_OBJECT_BASE_OFFSET + slotIndex * (long) Unsafe.ARRAY_OBJECT_INDEX_SCALE;
+    }
+
+    private static long getPrimitiveOffset(int slotIndex) {
+        return Unsafe.ARRAY_LONG_BASE_OFFSET + slotIndex * (long) Unsafe.ARRAY_LONG_INDEX_SCALE;
+    }
+
+    @Override
+    public Object getValue(FrameSlot slot) {
+        int slotIndex = slot.getIndex();
+        byte tag = getTag(slot);
+        long offset = getPrimitiveOffset(slotIndex);
+        switch (tag) {
+            case BOOLEAN_TAG:
+                return unsafeGetInt(getPrimitiveLocals(), offset, true, slot) != 0;
+            case BYTE_TAG:
+                return (byte) unsafeGetInt(getPrimitiveLocals(), offset, true, slot);
+            case INT_TAG:
+                return unsafeGetInt(getPrimitiveLocals(), offset, true, slot);
+            case DOUBLE_TAG:
+                return unsafeGetDouble(getPrimitiveLocals(), offset, true, slot);
+            case LONG_TAG:
+                return unsafeGetLong(getPrimitiveLocals(), offset, true, slot);
+            case FLOAT_TAG:
+                return unsafeGetFloat(getPrimitiveLocals(), offset, true, slot);
+            default:
+                assert tag == OBJECT_TAG;
+                return unsafeGetObject(getLocals(), getObjectOffset(slotIndex), true, slot);
+        }
+    }
+
+    private boolean resize() {
+        int oldSize = locals.length;
+        int newSize = descriptor.getSize();
+        if (newSize > oldSize) {
+            locals = Arrays.copyOf(locals, newSize);
+            Arrays.fill(locals, oldSize, newSize, descriptor.getDefaultValue());
+            primitiveLocals = Arrays.copyOf(primitiveLocals, newSize);
+            return true;
+        }
+        return false;
+    }
+
+    byte getTag(FrameSlot slot) {
+        int slotIndex = slot.getIndex();
+        Object[] cachedLocals = getLocals();
+        if (slotIndex >= cachedLocals.length) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            resize();
+            cachedLocals = getLocals();
+        }
+        Object value = cachedLocals[slotIndex];
+        return value instanceof PrimitiveTag ? ((PrimitiveTag) value).tag : OBJECT_TAG;
+    }
+
+    @Override
+    public boolean isObject(FrameSlot slot) {
+        return getTag(slot) == OBJECT_TAG;
+    }
+
+    @Override
+    public boolean isByte(FrameSlot slot) {
+        return getTag(slot) == BYTE_TAG;
+    }
+
+    @Override
+    public boolean isBoolean(FrameSlot slot) {
+        return getTag(slot) == BOOLEAN_TAG;
+    }
+
+    @Override
+    public boolean isInt(FrameSlot slot) {
+        return getTag(slot) == INT_TAG;
+    }
+
+    @Override
+    public boolean isLong(FrameSlot slot) {
+        return getTag(slot) == LONG_TAG;
+    }
+
+    @Override
+    public boolean isFloat(FrameSlot slot) {
+        return getTag(slot) == FLOAT_TAG;
+    }
+
+    @Override
+    public boolean isDouble(FrameSlot slot) {
+        return getTag(slot) == DOUBLE_TAG;
+    }
+
+    @SuppressWarnings({"unchecked", "unused"})
+    private static <T> T unsafeCast(Object value, Class<T> type, boolean condition, boolean nonNull) {
+        return (T) value;
+    }
+
+    @SuppressWarnings("unused")
+    private static int unsafeGetInt(Object receiver, long offset, boolean condition, Object locationIdentity) {
+        return UNSAFE.getInt(receiver, offset);
+    }
+
+    @SuppressWarnings("unused")
+    private static long unsafeGetLong(Object receiver, long offset, boolean condition, Object locationIdentity) {
+        return UNSAFE.getLong(receiver, offset);
+    }
+
+    @SuppressWarnings("unused")
+    private static float unsafeGetFloat(Object receiver, long offset, boolean condition, Object locationIdentity) {
+        return UNSAFE.getFloat(receiver, offset);
+    }
+
+    @SuppressWarnings("unused")
+    private static double unsafeGetDouble(Object receiver, long offset, boolean condition, Object locationIdentity) {
+        return UNSAFE.getDouble(receiver, offset);
+    }
+
+    @SuppressWarnings("unused")
+    private static Object unsafeGetObject(Object receiver, long offset, boolean condition, Object locationIdentity) {
+        return UNSAFE.getObject(receiver, offset);
+    }
+
+    @SuppressWarnings("unused")
+    private static void unsafePutInt(Object receiver, long offset, int value, Object locationIdentity) {
+        UNSAFE.putInt(receiver, offset, value);
+    }
+
+    @SuppressWarnings("unused")
+    private static void unsafePutLong(Object receiver, long offset, long value, Object locationIdentity) {
+        UNSAFE.putLong(receiver, offset, value);
+    }
+
+    @SuppressWarnings("unused")
+    private static void unsafePutFloat(Object receiver, long offset, float value, Object locationIdentity) {
+        UNSAFE.putFloat(receiver, offset, value);
+    }
+
+    @SuppressWarnings("unused")
+    private static void unsafePutDouble(Object receiver, long offset, double value, Object locationIdentity) {
+        UNSAFE.putDouble(receiver, offset, value);
+    }
+
+    @SuppressWarnings("unused")
+    private static void unsafePutObject(Object receiver, long offset, Object value, Object locationIdentity) {
+        UNSAFE.putObject(receiver, offset, value);
+    }
+
+    private static final Unsafe UNSAFE = getUnsafe();
+
+    private static Unsafe getUnsafe() {
+        try {
+            return Unsafe.getUnsafe();
+        } catch (SecurityException e) {
+        }
+        try {
+            Field theUnsafeInstance = Unsafe.class.getDeclaredField("theUnsafe");
+            theUnsafeInstance.setAccessible(true);
+            return (Unsafe) theUnsafeInstance.get(Unsafe.class);
+        } catch (Exception e) {
+            throw new RuntimeException("exception while trying to get Unsafe.theUnsafe via reflection:", e);
+        }
+    }
+}
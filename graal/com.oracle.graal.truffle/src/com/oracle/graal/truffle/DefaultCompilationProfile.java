@@ -114,6 +114,15 @@ public class DefaultCompilationProfile extends AbstractCompilationProfile {
         }
     }
 
+    @Override
+    Class<?>[] getProfiledArgumentTypes() {
+        Assumption argumentTypesAssumption = profiledArgumentTypesAssumption;
+        if (argumentTypesAssumption != null && argumentTypesAssumption.isValid()) {
+            return profiledArgumentTypes;
+        }
+        return null;
+    }
+
     @Override
     void profileInlinedCall() {
         // nothing to profile for inlined calls by default
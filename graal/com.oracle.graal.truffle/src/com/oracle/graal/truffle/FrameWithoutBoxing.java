@@ -339,6 +339,16 @@ public final class FrameWithoutBoxing implements VirtualFrame, MaterializedFrame
 
     }
 
+    /**
+     * Lets this frame use the slot storage of another frame so that writes to either of them are
+     * visible in both, until one of them is resized.
+     */
+    void shareSlots(FrameWithoutBoxing frame) {
+        this.locals = frame.locals;
+        this.primitiveLocals = frame.primitiveLocals;
+        this.tags = frame.tags;
+    }
+
     private boolean resize() {
         int oldSize = tags.length;
         int newSize = descriptor.getSize();
@@ -249,7 +249,7 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
 
     @Override
     public IndirectCallNode createIndirectCallNode() {
-        return new OptimizedIndirectCallNode();
+        return new OptimizedIndirectCallNode(this);
     }
 
     @Override
@@ -264,7 +264,9 @@ public abstract class GraalTruffleRuntime implements TruffleRuntime {
 
     @Override
     public MaterializedFrame createMaterializedFrame(Object[] arguments, FrameDescriptor frameDescriptor) {
-        if (TruffleCompilerOptions.TruffleUseFrameWithoutBoxing.getValue()) {
+        if (TruffleCompilerOptions.TruffleUseCompactFrame.getValue()) {
+            return new CompactFrameWithoutBoxing(frameDescriptor, arguments);
+        } else if (TruffleCompilerOptions.TruffleUseFrameWithoutBoxing.getValue()) {
             return new FrameWithoutBoxing(frameDescriptor, arguments);
         } else {
             return new FrameWithBoxing(frameDescriptor, arguments);
@@ -59,6 +59,7 @@ import com.oracle.truffle.api.frame.FrameDescriptor;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.impl.DefaultCompilerOptions;
 import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeCost;
 import com.oracle.truffle.api.nodes.NodeUtil;
 import com.oracle.truffle.api.nodes.NodeVisitor;
 import com.oracle.truffle.api.nodes.RootNode;
@@ -90,6 +91,8 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
     private volatile SpeculationLog speculationLog;
     @CompilationFinal private volatile boolean initialized;
     private volatile int callSitesKnown;
+    private volatile int splitCount;
+    private volatile int polymorphicSpecializeCount;
     private volatile Future<?> compilationTask;
     /**
      * When this call target is inlined, the inlining {@link InstalledCode} registers this
@@ -374,6 +377,26 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
         callSitesKnown--;
     }
 
+    @SuppressFBWarnings(value = "VO_VOLATILE_INCREMENT", justification = "All increments are synchronized.")
+    final synchronized void incrementSplitCount() {
+        splitCount++;
+    }
+
+    /**
+     * Gets the number of call sites that were split off this call target.
+     */
+    public final int getSplitCount() {
+        return splitCount;
+    }
+
+    /**
+     * Gets the number of node rewrites in this call target that resulted in a polymorphic or
+     * megamorphic node.
+     */
+    public final int getPolymorphicSpecializeCount() {
+        return polymorphicSpecializeCount;
+    }
+
     public final OptimizedCallTarget getSourceCallTarget() {
         return sourceCallTarget;
     }
@@ -414,7 +437,9 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
 
     /** Intrinsified in {@link TruffleGraphBuilderPlugins}. */
     public static VirtualFrame createFrame(FrameDescriptor descriptor, Object[] args) {
-        if (TruffleCompilerOptions.TruffleUseFrameWithoutBoxing.getValue()) {
+        if (TruffleCompilerOptions.TruffleUseCompactFrame.getValue()) {
+            return new CompactFrameWithoutBoxing(descriptor, args);
+        } else if (TruffleCompilerOptions.TruffleUseFrameWithoutBoxing.getValue()) {
             return new FrameWithoutBoxing(descriptor, args);
         } else {
             return new FrameWithBoxing(descriptor, args);
@@ -442,6 +467,11 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
         /* Notify compiled method that have inlined this call target that the tree changed. */
         invalidateNodeRewritingAssumption();
 
+        NodeCost cost = newNode.getCost();
+        if (cost == NodeCost.POLYMORPHIC || cost == NodeCost.MEGAMORPHIC) {
+            reportPolymorphicSpecialize();
+        }
+
         AbstractCompilationProfile profile = this.compilationProfile;
         if (profile != null) {
             profile.reportNodeReplaced();
@@ -452,6 +482,11 @@ public class OptimizedCallTarget extends InstalledCode implements RootCallTarget
         return false;
     }
 
+    @SuppressFBWarnings(value = "VO_VOLATILE_INCREMENT", justification = "All increments are synchronized.")
+    private synchronized void reportPolymorphicSpecialize() {
+        polymorphicSpecializeCount++;
+    }
+
     public void accept(NodeVisitor visitor, TruffleInlining inlingDecision) {
         if (inlingDecision != null) {
             inlingDecision.accept(this, visitor);
@@ -50,7 +50,11 @@ public final class OptimizedDirectCallNode extends DirectCallNode implements Mat
         super(target);
         assert target.getSourceCallTarget() == null;
         this.runtime = runtime;
-        this.splittingStrategy = new DefaultTruffleSplittingStrategy(this);
+        if (TruffleCompilerOptions.TruffleSplittingProfileGuided.getValue()) {
+            this.splittingStrategy = new ProfileGuidedTruffleSplittingStrategy(this);
+        } else {
+            this.splittingStrategy = new DefaultTruffleSplittingStrategy(this);
+        }
     }
 
     @Override
@@ -126,6 +130,10 @@ public final class OptimizedDirectCallNode extends DirectCallNode implements Mat
         return splitCallTarget;
     }
 
+    public TruffleSplittingStrategy getSplittingStrategy() {
+        return splittingStrategy;
+    }
+
     private void onInterpreterCall(Object[] arguments) {
         int calls = ++callCount;
         if (calls == 1) {
@@ -150,6 +158,7 @@ public final class OptimizedDirectCallNode extends DirectCallNode implements Mat
             currentTarget.decrementKnownCallSites();
         }
         splitTarget.incrementKnownCallSites();
+        currentTarget.incrementSplitCount();
 
         if (getParent() != null) {
             // dummy replace to report the split, irrelevant if this node is not adopted
@@ -22,26 +22,144 @@
  */
 package com.oracle.graal.truffle;
 
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleIndirectCallCacheSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerAsserts;
+import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.frame.FrameInstance.FrameAccess;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.nodes.ExplodeLoop;
 import com.oracle.truffle.api.nodes.IndirectCallNode;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.NodeCost;
 import com.oracle.truffle.api.nodes.NodeInfo;
 
 /**
- * A call node with a constant {@link CallTarget} that can be optimized by Graal.
+ * A call node with a dynamic {@link CallTarget} that can be optimized by Graal.
+ *
+ * The node caches up to {@link TruffleCompilerOptions#TruffleIndirectCallCacheSize} targets in the
+ * order they are first called in the interpreter. A cached target is called through an
+ * {@link OptimizedDirectCallNode} behind an identity check on the target, which makes it a
+ * candidate for {@linkplain TruffleInlining inlining}. A call to a target that is not cached
+ * deoptimizes until the cache is full, after which the node is {@linkplain NodeCost#MEGAMORPHIC
+ * megamorphic} and calls such targets through the generic path.
+ *
+ * The direct call node of a cached target is a regular call site of the target: it is counted as a
+ * known call site of the target, which the inlining heuristics take into account, it profiles the
+ * argument types of the target like any other direct call and it may split the target according to
+ * its {@linkplain OptimizedDirectCallNode#getSplittingStrategy() splitting strategy}. The cache
+ * still compares against the original target, so a split does not cause a cache miss.
  */
 @NodeInfo
 public final class OptimizedIndirectCallNode extends IndirectCallNode implements MaterializedFrameNotify {
 
     @CompilationFinal private FrameAccess outsideFrameAccess = FrameAccess.NONE;
 
+    @Child private CachedCall cache;
+    @CompilationFinal private int cacheSize;
+    @CompilationFinal private boolean generic;
+
+    private final GraalTruffleRuntime runtime;
+
+    public OptimizedIndirectCallNode(GraalTruffleRuntime runtime) {
+        this.runtime = runtime;
+    }
+
     @Override
+    @ExplodeLoop
     public Object call(VirtualFrame frame, CallTarget target, Object[] arguments) {
+        for (CachedCall entry = cache; entry != null; entry = entry.next) {
+            if (entry.callNode.getCallTarget() == target) {
+                return entry.callNode.call(frame, arguments);
+            }
+        }
+        if (!generic) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            OptimizedDirectCallNode callNode = specialize(target);
+            if (callNode != null) {
+                return callNode.call(frame, arguments);
+            }
+        }
         return OptimizedDirectCallNode.callProxy(this, target, frame, arguments, false);
     }
 
+    /**
+     * Adds {@code target} to the cache if there is space left and it can be called directly.
+     * Otherwise, switches this node to the generic path.
+     *
+     * @return the call node for {@code target} or {@code null} if it was not cached
+     */
+    private OptimizedDirectCallNode specialize(CallTarget target) {
+        CompilerAsserts.neverPartOfCompilation();
+        atomic(new Runnable() {
+            @Override
+            public void run() {
+                /*
+                 * The cache is changed atomically with the rest of the AST as calls may miss the
+                 * cache on several threads at the same time. The first thread adds the target,
+                 * later threads find it cached.
+                 */
+                if (findCachedCall(target) != null || generic) {
+                    return;
+                }
+                if (cacheSize < TruffleIndirectCallCacheSize.getValue() && target instanceof OptimizedCallTarget && ((OptimizedCallTarget) target).getSourceCallTarget() == null) {
+                    CachedCall entry = new CachedCall(new OptimizedDirectCallNode(runtime, (OptimizedCallTarget) target));
+                    if (cache == null) {
+                        cache = insert(entry);
+                    } else {
+                        cache.append(entry);
+                    }
+                    cacheSize++;
+                } else {
+                    generic = true;
+                }
+                if (getParent() != null) {
+                    // dummy replace to report the change, irrelevant if this node is not adopted
+                    replace(OptimizedIndirectCallNode.this, generic ? "Indirect call megamorphic" : "Indirect call target cached");
+                }
+            }
+        });
+        return findCachedCall(target);
+    }
+
+    private OptimizedDirectCallNode findCachedCall(CallTarget target) {
+        for (CachedCall entry = cache; entry != null; entry = entry.next) {
+            if (entry.callNode.getCallTarget() == target) {
+                return entry.callNode;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the targets cached by this node in the order they are checked.
+     */
+    public List<OptimizedCallTarget> getCachedCallTargets() {
+        List<OptimizedCallTarget> targets = new ArrayList<>(cacheSize);
+        for (CachedCall entry = cache; entry != null; entry = entry.next) {
+            targets.add(entry.callNode.getCallTarget());
+        }
+        return targets;
+    }
+
+    @Override
+    public NodeCost getCost() {
+        if (cacheSize == 0) {
+            return super.getCost();
+        } else if (generic) {
+            return NodeCost.MEGAMORPHIC;
+        } else if (cacheSize > 1) {
+            return NodeCost.POLYMORPHIC;
+        } else {
+            return NodeCost.MONOMORPHIC;
+        }
+    }
+
     @Override
     public FrameAccess getOutsideFrameAccess() {
         return outsideFrameAccess;
@@ -52,4 +170,25 @@ public final class OptimizedIndirectCallNode extends IndirectCallNode implements
         this.outsideFrameAccess = outsideFrameAccess;
     }
 
+    /**
+     * An entry in the list of cached call targets.
+     */
+    @NodeInfo(cost = NodeCost.NONE)
+    private static final class CachedCall extends Node {
+
+        @Child private OptimizedDirectCallNode callNode;
+        @Child private CachedCall next;
+
+        CachedCall(OptimizedDirectCallNode callNode) {
+            this.callNode = callNode;
+        }
+
+        void append(CachedCall entry) {
+            if (next == null) {
+                next = insert(entry);
+            } else {
+                next.append(entry);
+            }
+        }
+    }
 }
@@ -24,8 +24,10 @@ package com.oracle.graal.truffle;
 
 import java.util.Objects;
 
+import com.oracle.truffle.api.Assumption;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.ReplaceObserver;
 import com.oracle.truffle.api.Truffle;
 import com.oracle.truffle.api.TruffleLanguage;
@@ -75,13 +77,25 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
 
     protected abstract int getInvalidationBackoff();
 
+    /**
+     * Creates the root node of an OSR compilation.
+     *
+     * @param entryFrame the frame of the loop when the compilation was triggered
+     */
     protected OSRRootNode createRootNode(@SuppressWarnings("rawtypes") Class<? extends TruffleLanguage> truffleLanguage, FrameDescriptor frameDescriptor,
-                    Class<? extends VirtualFrame> clazz) {
+                    Class<? extends VirtualFrame> clazz, VirtualFrame entryFrame) {
         return new OSRRootNode(this, truffleLanguage, frameDescriptor, clazz);
     }
 
     protected abstract int getThreshold();
 
+    /**
+     * Called with the frame of the last loop iteration before the loop count reaches the OSR
+     * compilation threshold.
+     */
+    protected void beforeCompileLoop(@SuppressWarnings("unused") VirtualFrame frame) {
+    }
+
     @Override
     public final Node copy() {
         OptimizedOSRLoopNode copy = (OptimizedOSRLoopNode) super.copy();
@@ -126,9 +140,12 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
         try {
             while (repeatableNode.executeRepeating(frame)) {
                 // the baseLoopCount might be updated from a child loop during an iteration.
-                if (++iterations + baseLoopCount > threshold) {
+                int loopCount = ++iterations + baseLoopCount;
+                if (loopCount > threshold) {
                     compileLoop(frame);
                     return false;
+                } else if (loopCount == threshold) {
+                    beforeCompileLoop(frame);
                 }
             }
             return true;
@@ -210,7 +227,7 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
     }
 
     @SuppressWarnings({"rawtypes", "unchecked"})
-    private OSRRootNode createRootNodeImpl(RootNode root, Class<? extends VirtualFrame> frameClass) {
+    private OSRRootNode createRootNodeImpl(RootNode root, VirtualFrame entryFrame) {
         Class truffleLanguage = TruffleLanguage.class;
         FrameDescriptor frameDescriptor;
         if (root != null) {
@@ -218,7 +235,7 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
         } else {
             frameDescriptor = new FrameDescriptor();
         }
-        return createRootNode(truffleLanguage, frameDescriptor, frameClass);
+        return createRootNode(truffleLanguage, frameDescriptor, entryFrame.getClass(), entryFrame);
     }
 
     private OptimizedCallTarget compileImpl(VirtualFrame frame) {
@@ -228,7 +245,7 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
             if (speculationLog == null) {
                 speculationLog = GraalTruffleRuntime.getRuntime().createSpeculationLog();
             }
-            OptimizedCallTarget osrTarget = (OptimizedCallTarget) GraalTruffleRuntime.getRuntime().createCallTarget(createRootNodeImpl(root, frame.getClass()));
+            OptimizedCallTarget osrTarget = (OptimizedCallTarget) GraalTruffleRuntime.getRuntime().createCallTarget(createRootNodeImpl(root, frame));
             osrTarget.setSpeculationLog(speculationLog);
             // let the old parent re-adopt the children
             parent.adoptChildren();
@@ -334,10 +351,59 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
      */
     private static final class OptimizedDefaultOSRLoopNode extends OptimizedOSRLoopNode {
 
+        private SpeculatingOSRRootNode previousRoot;
+
+        /*
+         * Frame slot tags and values of the iteration before the compilation was triggered,
+         * indexed by frame slot index.
+         */
+        private byte[] observedTags;
+        private Object[] observedValues;
+
         OptimizedDefaultOSRLoopNode(RepeatingNode repeatableNode) {
             super(repeatableNode);
         }
 
+        @Override
+        protected void beforeCompileLoop(VirtualFrame frame) {
+            if (!TruffleCompilerOptions.TruffleOSRFrameSpeculation.getValue() || !(frame instanceof FrameWithoutBoxing)) {
+                return;
+            }
+            FrameWithoutBoxing loopFrame = (FrameWithoutBoxing) frame;
+            int size = loopFrame.getFrameDescriptor().getSize();
+            byte[] tags = new byte[size];
+            Object[] values = new Object[size];
+            for (FrameSlot slot : loopFrame.getFrameDescriptor().getSlots()) {
+                int index = slot.getIndex();
+                if (index < size) {
+                    tags[index] = loopFrame.getTag(slot);
+                    values[index] = tags[index] == FrameWithoutBoxing.ILLEGAL_TAG ? null : loopFrame.getValue(slot);
+                }
+            }
+            observedTags = tags;
+            observedValues = values;
+        }
+
+        @Override
+        protected OSRRootNode createRootNode(@SuppressWarnings("rawtypes") Class<? extends TruffleLanguage> truffleLanguage, FrameDescriptor frameDescriptor, Class<? extends VirtualFrame> clazz,
+                        VirtualFrame entryFrame) {
+            byte[] tags = observedTags;
+            Object[] values = observedValues;
+            observedTags = null;
+            observedValues = null;
+            if (!TruffleCompilerOptions.TruffleOSRFrameSpeculation.getValue() || clazz != FrameWithoutBoxing.class || GraalTruffleRuntime.getRuntime().getFrameMaterializeCalled(frameDescriptor)) {
+                return super.createRootNode(truffleLanguage, frameDescriptor, clazz, entryFrame);
+            }
+            if (previousRoot != null && previousRoot.isCompatible(frameDescriptor)) {
+                // reuse the speculations of the previous compilation so that failed speculations
+                // are not repeated
+                previousRoot = new SpeculatingOSRRootNode(previousRoot, this, truffleLanguage, frameDescriptor, clazz);
+            } else {
+                previousRoot = new SpeculatingOSRRootNode(this, truffleLanguage, frameDescriptor, clazz, (FrameWithoutBoxing) entryFrame, tags, values);
+            }
+            return previousRoot;
+        }
+
         @Override
         protected int getInvalidationBackoff() {
             return TruffleCompilerOptions.TruffleInvalidationReprofileCount.getValue();
@@ -382,9 +448,11 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
         }
 
         @Override
-        protected OSRRootNode createRootNode(@SuppressWarnings("rawtypes") Class<? extends TruffleLanguage> truffleLanguage, FrameDescriptor frameDescriptor, Class<? extends VirtualFrame> clazz) {
-            if (readFrameSlots == null || writtenFrameSlots == null) {
-                return super.createRootNode(truffleLanguage, frameDescriptor, clazz);
+        protected OSRRootNode createRootNode(@SuppressWarnings("rawtypes") Class<? extends TruffleLanguage> truffleLanguage, FrameDescriptor frameDescriptor, Class<? extends VirtualFrame> clazz,
+                        VirtualFrame entryFrame) {
+            if (readFrameSlots == null || writtenFrameSlots == null || clazz != FrameWithoutBoxing.class) {
+                // transferring frame slots relies on the tag array of FrameWithoutBoxing
+                return super.createRootNode(truffleLanguage, frameDescriptor, clazz, entryFrame);
             } else {
                 if (previousRoot == null) {
                     previousRoot = new VirtualizingOSRRootNode(this, truffleLanguage, frameDescriptor, clazz, readFrameSlots, writtenFrameSlots);
@@ -575,4 +643,289 @@ public abstract class OptimizedOSRLoopNode extends LoopNode implements ReplaceOb
 
     }
 
+    /**
+     * Root node of OSR compilations of loops with unknown frame slot usage. The values of all
+     * frame slots are copied into a frame local to the OSR compilation on entry and back on exit so
+     * that accesses to the local frame can be virtualized. The slot kinds observed when the
+     * compilation was triggered are speculated on at entry, as well as the values that did not
+     * change in the last iteration before, which makes them available as constants in the loop. A
+     * failed speculation is not repeated by later compilations.
+     *
+     * If the frame of the loop is materialized, the loop is executed on the frame of the enclosing
+     * method instead. A materialization of the local frame in compiled code deoptimizes, after
+     * which the local frame shares the slots of the enclosing frame so that writes after the loop
+     * stay visible to it.
+     */
+    private static final class SpeculatingOSRRootNode extends OSRRootNode {
+
+        private static final Object NOT_CONSTANT = new Object();
+
+        private final Assumption frameDescriptorVersion;
+        @CompilationFinal(dimensions = 1) private final FrameSlot[] frameSlots;
+        @CompilationFinal(dimensions = 1) private final byte[] speculatedTags;
+        @CompilationFinal(dimensions = 1) private final Object[] speculatedValues;
+        private final int maxTagsLength;
+
+        SpeculatingOSRRootNode(SpeculatingOSRRootNode previousRoot, OptimizedOSRLoopNode loop, @SuppressWarnings("rawtypes") Class<? extends TruffleLanguage> truffleLanguage,
+                        FrameDescriptor frameDescriptor, Class<? extends VirtualFrame> clazz) {
+            super(loop, truffleLanguage, frameDescriptor, clazz);
+            this.frameDescriptorVersion = previousRoot.frameDescriptorVersion;
+            this.frameSlots = previousRoot.frameSlots;
+            this.speculatedTags = previousRoot.speculatedTags;
+            this.speculatedValues = previousRoot.speculatedValues;
+            this.maxTagsLength = previousRoot.maxTagsLength;
+        }
+
+        SpeculatingOSRRootNode(OptimizedOSRLoopNode loop, @SuppressWarnings("rawtypes") Class<? extends TruffleLanguage> truffleLanguage, FrameDescriptor frameDescriptor,
+                        Class<? extends VirtualFrame> clazz, FrameWithoutBoxing entryFrame, byte[] observedTags, Object[] observedValues) {
+            super(loop, truffleLanguage, frameDescriptor, clazz);
+            this.frameDescriptorVersion = frameDescriptor.getVersion();
+            this.frameSlots = frameDescriptor.getSlots().toArray(new FrameSlot[0]);
+            this.speculatedTags = new byte[frameSlots.length];
+            this.speculatedValues = new Object[frameSlots.length];
+            int maxIndex = -1;
+            for (int i = 0; i < frameSlots.length; i++) {
+                FrameSlot slot = frameSlots[i];
+                maxIndex = Math.max(maxIndex, slot.getIndex());
+                speculatedTags[i] = entryFrame.getTag(slot);
+                speculatedValues[i] = isStable(entryFrame, slot, observedTags, observedValues) ? entryFrame.getValue(slot) : NOT_CONSTANT;
+            }
+            this.maxTagsLength = maxIndex + 1;
+        }
+
+        /**
+         * Determines whether the value of a slot did not change between the iteration observed
+         * before the compilation was triggered and the entry frame.
+         */
+        private static boolean isStable(FrameWithoutBoxing entryFrame, FrameSlot slot, byte[] observedTags, Object[] observedValues) {
+            int index = slot.getIndex();
+            byte tag = entryFrame.getTag(slot);
+            if (tag == FrameWithoutBoxing.ILLEGAL_TAG || observedTags == null || index >= observedTags.length || observedTags[index] != tag) {
+                return false;
+            }
+            Object value = entryFrame.getValue(slot);
+            if (tag == FrameWithoutBoxing.OBJECT_TAG) {
+                // objects are speculated on by identity
+                return value == observedValues[index];
+            }
+            return value.equals(observedValues[index]);
+        }
+
+        @TruffleBoundary
+        private boolean isFrameMaterialized() {
+            return GraalTruffleRuntime.getRuntime().getFrameMaterializeCalled(getFrameDescriptor());
+        }
+
+        boolean isCompatible(FrameDescriptor frameDescriptor) {
+            return getFrameDescriptor() == frameDescriptor && frameDescriptorVersion.isValid();
+        }
+
+        @Override
+        protected Object executeImpl(VirtualFrame originalFrame) {
+            if (!frameDescriptorVersion.isValid() || isFrameMaterialized()) {
+                // frame slots were added or changed after the speculation was made, or a frame
+                // of this loop escaped and must see the writes of the loop
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                return super.executeImpl(originalFrame);
+            }
+            FrameWithoutBoxing parentFrame = (FrameWithoutBoxing) originalFrame.getArguments()[0];
+            FrameWithoutBoxing loopFrame = (FrameWithoutBoxing) OptimizedCallTarget.createFrame(getFrameDescriptor(), parentFrame.getArguments());
+            transferIn(parentFrame, loopFrame);
+            try {
+                while (loopNode.getRepeatingNode().executeRepeating(loopFrame)) {
+                    if (CompilerDirectives.inInterpreter()) {
+                        return Boolean.FALSE;
+                    }
+                }
+                return Boolean.TRUE;
+            } finally {
+                transferOut(loopFrame, parentFrame);
+                if (CompilerDirectives.inInterpreter() && isFrameMaterialized()) {
+                    // the loop frame might have been materialized after a deoptimization
+                    loopFrame.shareSlots(parentFrame);
+                }
+            }
+        }
+
+        @ExplodeLoop
+        private void transferIn(FrameWithoutBoxing source, FrameWithoutBoxing target) {
+            if (source.getTags().length < maxTagsLength) {
+                // the frame was created before slots were added; getTag resizes it
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+            }
+            for (int i = 0; i < frameSlots.length; i++) {
+                FrameSlot slot = frameSlots[i];
+                int index = slot.getIndex();
+
+                byte speculatedTag = speculatedTags[i];
+                byte currentTag = source.getTag(slot);
+                boolean tagsCondition = speculatedTag == currentTag;
+                if (!tagsCondition) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    speculatedTags[i] = currentTag;
+                    speculatedValues[i] = NOT_CONSTANT;
+                    speculatedTag = currentTag;
+                }
+
+                switch (speculatedTag) {
+                    case FrameWithoutBoxing.BOOLEAN_TAG:
+                        target.setBoolean(slot, speculate(i, source.getBooleanUnsafe(index, slot, tagsCondition)));
+                        break;
+                    case FrameWithoutBoxing.BYTE_TAG:
+                        target.setByte(slot, speculate(i, source.getByteUnsafe(index, slot, tagsCondition)));
+                        break;
+                    case FrameWithoutBoxing.DOUBLE_TAG:
+                        target.setDouble(slot, speculate(i, source.getDoubleUnsafe(index, slot, tagsCondition)));
+                        break;
+                    case FrameWithoutBoxing.FLOAT_TAG:
+                        target.setFloat(slot, speculate(i, source.getFloatUnsafe(index, slot, tagsCondition)));
+                        break;
+                    case FrameWithoutBoxing.INT_TAG:
+                        target.setInt(slot, speculate(i, source.getIntUnsafe(index, slot, tagsCondition)));
+                        break;
+                    case FrameWithoutBoxing.LONG_TAG:
+                        target.setLong(slot, speculate(i, source.getLongUnsafe(index, slot, tagsCondition)));
+                        break;
+                    case FrameWithoutBoxing.OBJECT_TAG:
+                        target.setObject(slot, speculate(i, source.getObjectUnsafe(index, slot, tagsCondition)));
+                        break;
+                    default:
+                        // illegal slots are not transferred
+                        break;
+                }
+            }
+        }
+
+        @ExplodeLoop
+        private void transferOut(FrameWithoutBoxing source, FrameWithoutBoxing target) {
+            for (int i = 0; i < frameSlots.length; i++) {
+                FrameSlot slot = frameSlots[i];
+                transferSlot(source, target, slot);
+            }
+            if (CompilerDirectives.inInterpreter() && !frameDescriptorVersion.isValid()) {
+                // frame slots were added during the loop
+                for (FrameSlot slot : getFrameDescriptor().getSlots()) {
+                    transferSlot(source, target, slot);
+                }
+            }
+        }
+
+        private static void transferSlot(FrameWithoutBoxing source, FrameWithoutBoxing target, FrameSlot slot) {
+            int index = slot.getIndex();
+            switch (source.getTag(slot)) {
+                case FrameWithoutBoxing.BOOLEAN_TAG:
+                    target.setBoolean(slot, source.getBooleanUnsafe(index, slot, true));
+                    break;
+                case FrameWithoutBoxing.BYTE_TAG:
+                    target.setByte(slot, source.getByteUnsafe(index, slot, true));
+                    break;
+                case FrameWithoutBoxing.DOUBLE_TAG:
+                    target.setDouble(slot, source.getDoubleUnsafe(index, slot, true));
+                    break;
+                case FrameWithoutBoxing.FLOAT_TAG:
+                    target.setFloat(slot, source.getFloatUnsafe(index, slot, true));
+                    break;
+                case FrameWithoutBoxing.INT_TAG:
+                    target.setInt(slot, source.getIntUnsafe(index, slot, true));
+                    break;
+                case FrameWithoutBoxing.LONG_TAG:
+                    target.setLong(slot, source.getLongUnsafe(index, slot, true));
+                    break;
+                case FrameWithoutBoxing.OBJECT_TAG:
+                    target.setObject(slot, source.getObjectUnsafe(index, slot, true));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private void invalidateValue(int i) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            speculatedValues[i] = NOT_CONSTANT;
+        }
+
+        private boolean speculate(int i, boolean value) {
+            Object speculatedValue = speculatedValues[i];
+            if (speculatedValue != NOT_CONSTANT) {
+                boolean constant = (boolean) speculatedValue;
+                if (value == constant) {
+                    return constant;
+                }
+                invalidateValue(i);
+            }
+            return value;
+        }
+
+        private byte speculate(int i, byte value) {
+            Object speculatedValue = speculatedValues[i];
+            if (speculatedValue != NOT_CONSTANT) {
+                byte constant = (byte) speculatedValue;
+                if (value == constant) {
+                    return constant;
+                }
+                invalidateValue(i);
+            }
+            return value;
+        }
+
+        private int speculate(int i, int value) {
+            Object speculatedValue = speculatedValues[i];
+            if (speculatedValue != NOT_CONSTANT) {
+                int constant = (int) speculatedValue;
+                if (value == constant) {
+                    return constant;
+                }
+                invalidateValue(i);
+            }
+            return value;
+        }
+
+        private long speculate(int i, long value) {
+            Object speculatedValue = speculatedValues[i];
+            if (speculatedValue != NOT_CONSTANT) {
+                long constant = (long) speculatedValue;
+                if (value == constant) {
+                    return constant;
+                }
+                invalidateValue(i);
+            }
+            return value;
+        }
+
+        private float speculate(int i, float value) {
+            Object speculatedValue = speculatedValues[i];
+            if (speculatedValue != NOT_CONSTANT) {
+                float constant = (float) speculatedValue;
+                // compare the bits so that NaN and -0.0 are handled
+                if (Float.floatToRawIntBits(value) == Float.floatToRawIntBits(constant)) {
+                    return constant;
+                }
+                invalidateValue(i);
+            }
+            return value;
+        }
+
+        private double speculate(int i, double value) {
+            Object speculatedValue = speculatedValues[i];
+            if (speculatedValue != NOT_CONSTANT) {
+                double constant = (double) speculatedValue;
+                if (Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(constant)) {
+                    return constant;
+                }
+                invalidateValue(i);
+            }
+            return value;
+        }
+
+        private Object speculate(int i, Object value) {
+            Object speculatedValue = speculatedValues[i];
+            if (speculatedValue != NOT_CONSTANT) {
+                if (value == speculatedValue) {
+                    return speculatedValue;
+                }
+                invalidateValue(i);
+            }
+            return value;
+        }
+    }
 }
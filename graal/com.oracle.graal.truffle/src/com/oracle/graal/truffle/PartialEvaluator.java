@@ -82,6 +82,7 @@ import com.oracle.graal.truffle.nodes.asserts.NeverPartOfCompilationNode;
 import com.oracle.graal.truffle.nodes.frame.MaterializeFrameNode;
 import com.oracle.graal.truffle.nodes.frame.NewFrameNode.VirtualOnlyInstanceNode;
 import com.oracle.graal.truffle.phases.InstrumentBranchesPhase;
+import com.oracle.graal.truffle.phases.InstrumentationThreadIdentityProvider;
 import com.oracle.graal.truffle.phases.VerifyFrameDoesNotEscapePhase;
 import com.oracle.graal.truffle.substitutions.TruffleGraphBuilderPlugins;
 import com.oracle.graal.truffle.substitutions.TruffleInvocationPluginProvider;
@@ -467,7 +468,14 @@ public class PartialEvaluator {
     }
 
     protected void applyInstrumentationPhases(StructuredGraph graph, HighTierContext tierContext) {
-        new InstrumentBranchesPhase().apply(graph, tierContext);
+        if (TruffleCompilerOptions.TruffleInstrumentBranches.getValue()) {
+            InstrumentationThreadIdentityProvider threadIdentityProvider = null;
+            for (InstrumentationThreadIdentityProvider p : GraalServices.load(InstrumentationThreadIdentityProvider.class)) {
+                threadIdentityProvider = p;
+                break;
+            }
+            new InstrumentBranchesPhase(threadIdentityProvider, architecture).apply(graph, tierContext);
+        }
     }
 
     @SuppressWarnings("try")
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Splits a call site only if splitting is expected to restore monomorphism. Each call site
+ * profiles the type of each of its arguments. The call site is split if one of its arguments is
+ * monomorphic while the same argument in the profile of the shared call target is not. If the
+ * shared call target has no argument profile, the call site is split if more nodes of the call
+ * target became polymorphic than the call site has polymorphic arguments, i.e., if the call site is
+ * more monomorphic than the call target. The number of splits per call target is bounded by
+ * {@link TruffleCompilerOptions#TruffleSplittingMaxSplitsPerTarget}.
+ */
+public final class ProfileGuidedTruffleSplittingStrategy implements TruffleSplittingStrategy {
+
+    private final OptimizedDirectCallNode call;
+
+    /**
+     * The profiled type of each argument, or {@code null} for an argument that was seen with
+     * different types or with {@code null}.
+     */
+    private Class<?>[] argumentTypes;
+    private int lastCalleePolymorphism = -1;
+    private String splitReason;
+
+    public ProfileGuidedTruffleSplittingStrategy(OptimizedDirectCallNode call) {
+        this.call = call;
+    }
+
+    @Override
+    public void beforeCall(Object[] arguments) {
+        if (call.isCallTargetCloned()) {
+            return;
+        }
+        profileArguments(arguments);
+        if (call.getCallCount() >= 2) {
+            // only reconsider splitting if the profile of the shared call target changed
+            int calleePolymorphism = getCalleePolymorphism();
+            if (calleePolymorphism != lastCalleePolymorphism) {
+                lastCalleePolymorphism = calleePolymorphism;
+                if (shouldSplit()) {
+                    call.split();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forceSplitting() {
+        if (!canSplit()) {
+            return;
+        }
+        splitReason = "forced";
+        call.split();
+    }
+
+    @Override
+    public Map<String, Object> getDebugProperties() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        if (splitReason != null) {
+            properties.put("reason", splitReason);
+        }
+        properties.put("splits", call.getCallTarget().getSplitCount());
+        return properties;
+    }
+
+    private void profileArguments(Object[] arguments) {
+        Class<?>[] types = argumentTypes;
+        if (types == null) {
+            types = new Class<?>[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                types[i] = classOf(arguments[i]);
+            }
+            argumentTypes = types;
+        } else if (types.length != arguments.length) {
+            // the number of arguments varies, so no argument is monomorphic
+            Arrays.fill(types, null);
+        } else {
+            for (int i = 0; i < types.length; i++) {
+                if (types[i] != null && types[i] != classOf(arguments[i])) {
+                    types[i] = null;
+                }
+            }
+        }
+    }
+
+    private int getCalleePolymorphism() {
+        OptimizedCallTarget callTarget = call.getCallTarget();
+        int polymorphism = callTarget.getPolymorphicSpecializeCount();
+        Class<?>[] calleeTypes = callTarget.getCompilationProfile().getProfiledArgumentTypes();
+        if (calleeTypes == null) {
+            return polymorphism;
+        }
+        for (Class<?> type : calleeTypes) {
+            if (type == null) {
+                polymorphism++;
+            }
+        }
+        return polymorphism;
+    }
+
+    private boolean canSplit() {
+        if (call.isCallTargetCloned()) {
+            return false;
+        }
+        if (!TruffleCompilerOptions.TruffleSplitting.getValue()) {
+            return false;
+        }
+        if (!call.isCallTargetCloningAllowed()) {
+            return false;
+        }
+        return true;
+    }
+
+    private boolean shouldSplit() {
+        if (!canSplit()) {
+            return false;
+        }
+
+        OptimizedCallTarget callTarget = call.getCallTarget();
+        if (callTarget.getNonTrivialNodeCount() > TruffleCompilerOptions.TruffleSplittingMaxCalleeSize.getValue()) {
+            return false;
+        }
+        if (callTarget.getSplitCount() >= TruffleCompilerOptions.TruffleSplittingMaxSplitsPerTarget.getValue()) {
+            return false;
+        }
+
+        // disable recursive splitting for now
+        OptimizedCallTarget root = (OptimizedCallTarget) call.getRootNode().getCallTarget();
+        if (root == callTarget || root.getSourceCallTarget() == callTarget) {
+            return false;
+        }
+
+        Class<?>[] calleeTypes = callTarget.getCompilationProfile().getProfiledArgumentTypes();
+        if (calleeTypes != null) {
+            if (calleeTypes.length == argumentTypes.length) {
+                for (int i = 0; i < calleeTypes.length; i++) {
+                    if (argumentTypes[i] != null && calleeTypes[i] == null) {
+                        splitReason = "monomorphic argument " + i + " of type " + argumentTypes[i].getName();
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        int polymorphicArguments = getPolymorphicArgumentCount();
+        if (polymorphicArguments < argumentTypes.length && callTarget.getPolymorphicSpecializeCount() > polymorphicArguments) {
+            splitReason = "polymorphic nodes";
+            return true;
+        }
+        return false;
+    }
+
+    private int getPolymorphicArgumentCount() {
+        int count = 0;
+        for (Class<?> type : argumentTypes) {
+            if (type == null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Class<?> classOf(Object arg) {
+        return arg != null ? arg.getClass() : null;
+    }
+}
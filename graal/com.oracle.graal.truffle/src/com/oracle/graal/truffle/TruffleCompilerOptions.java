@@ -77,6 +77,9 @@ public class TruffleCompilerOptions {
     @Option(help = "Maximum level of recursive inlining", type = OptionType.Expert)
     public static final OptionValue<Integer> TruffleMaximumRecursiveInlining = new OptionValue<>(4);
 
+    @Option(help = "Maximum number of call targets an indirect call node calls directly so that they can be inlined", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleIndirectCallCacheSize = new OptionValue<>(2);
+
     @Option(help = "Enable call target splitting", type = OptionType.Expert)
     public static final OptionValue<Boolean> TruffleSplitting = new OptionValue<>(true);
 
@@ -86,9 +89,19 @@ public class TruffleCompilerOptions {
     @Option(help = "Number of loop iterations until on-stack-replacement compilation is triggered.", type = OptionType.Debug)
     public static final OptionValue<Integer> TruffleOSRCompilationThreshold = new OptionValue<>(100000);
 
+    @Option(help = "Speculate on the frame slot kinds and the values that are stable when the OSR compilation of a loop is triggered. " +
+                    "This allows the frame to be virtualized in OSR code.", type = OptionType.Expert)
+    public static final OptionValue<Boolean> TruffleOSRFrameSpeculation = new OptionValue<>(false);
+
     @Option(help = "Disable call target splitting if tree size exceeds this limit", type = OptionType.Debug)
     public static final OptionValue<Integer> TruffleSplittingMaxCalleeSize = new OptionValue<>(100);
 
+    @Option(help = "Split call targets only if the argument types of a call site are monomorphic where the profile of the shared call target is not", type = OptionType.Expert)
+    public static final OptionValue<Boolean> TruffleSplittingProfileGuided = new OptionValue<>(false);
+
+    @Option(help = "Maximum number of splits of a single call target with profile guided splitting", type = OptionType.Expert)
+    public static final OptionValue<Integer> TruffleSplittingMaxSplitsPerTarget = new OptionValue<>(8);
+
     @Option(help = "Enable asynchronous truffle compilation in background thread", type = OptionType.Expert)
     public static final OptionValue<Boolean> TruffleBackgroundCompilation = new OptionValue<>(true);
 
@@ -107,6 +120,9 @@ public class TruffleCompilerOptions {
     @Option(help = "", type = OptionType.Debug)
     public static final OptionValue<Boolean> TruffleUseFrameWithoutBoxing = new StableOptionValue<>(true);
 
+    @Option(help = "Use frames that keep the slot tags in the object array instead of a separate array. Takes precedence over TruffleUseFrameWithoutBoxing.", type = OptionType.Debug)
+    public static final OptionValue<Boolean> TruffleUseCompactFrame = new StableOptionValue<>(false);
+
     // tracing
     @Option(help = "Print potential performance problems", type = OptionType.Debug)
     public static final OptionValue<Boolean> TraceTrufflePerformanceWarnings = new OptionValue<>(false);
@@ -192,5 +208,9 @@ public class TruffleCompilerOptions {
     @Option(help = "Maximum number of instrumentation counters available.")
     public static final OptionValue<Integer> TruffleInstrumentBranchesCount = new OptionValue<>(10000);
 
+    @Option(help = "Number of per-thread stripes the branch instrumentation counters are spread over (rounded up to a power of two). " +
+                    "Using more than one stripe avoids contention when instrumented code runs on several threads.")
+    public static final OptionValue<Integer> TruffleInstrumentBranchesStripes = new OptionValue<>(1);
+
     // @formatter:on
 }
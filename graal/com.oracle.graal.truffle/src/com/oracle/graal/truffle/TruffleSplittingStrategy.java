@@ -22,10 +22,20 @@
  */
 package com.oracle.graal.truffle;
 
+import java.util.Collections;
+import java.util.Map;
+
 public interface TruffleSplittingStrategy {
 
     void beforeCall(Object[] arguments);
 
     void forceSplitting();
 
+    /**
+     * Gets properties describing why the call site was split, used for tracing.
+     */
+    default Map<String, Object> getDebugProperties() {
+        return Collections.emptyMap();
+    }
+
 }
@@ -79,6 +79,13 @@ public abstract class AbstractDebugCompilationListener implements GraalTruffleCo
     }
 
     public static void log(int indent, String msg, String details, Map<String, Object> properties) {
+        OptimizedCallTarget.log(format(indent, msg, details, properties));
+    }
+
+    /**
+     * Formats a line as it is printed by {@link #log}.
+     */
+    public static String format(int indent, String msg, String details, Map<String, Object> properties) {
         int spaceIndent = indent * 2;
         StringBuilder sb = new StringBuilder();
         sb.append(String.format("[truffle] %-16s ", msg));
@@ -108,7 +115,7 @@ public abstract class AbstractDebugCompilationListener implements GraalTruffleCo
                 sb.append(String.format(" %" + length + "s ", propertyBuilder.toString()));
             }
         }
-        OptimizedCallTarget.log(sb.toString());
+        return sb.toString();
     }
 
     public static void addASTSizeProperty(OptimizedCallTarget target, TruffleInlining inliningDecision, Map<String, Object> properties) {
@@ -31,6 +31,7 @@ import com.oracle.graal.code.CompilationResult;
 import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.graal.truffle.GraalTruffleRuntime;
 import com.oracle.graal.truffle.OptimizedCallTarget;
+import com.oracle.graal.truffle.OptimizedIndirectCallNode;
 import com.oracle.graal.truffle.TruffleInlining;
 import com.oracle.truffle.api.nodes.NodeCost;
 import com.oracle.truffle.api.nodes.NodeUtil;
@@ -54,6 +55,9 @@ public final class TraceCompilationPolymorphismListener extends AbstractDebugCom
                             NodeCost cost = node.getCost();
                             Map<String, Object> props = new LinkedHashMap<>();
                             props.put("simpleName", node.getClass().getSimpleName());
+                            if (node instanceof OptimizedIndirectCallNode) {
+                                props.put("targets", ((OptimizedIndirectCallNode) node).getCachedCallTargets());
+                            }
                             props.put("subtree", "\n" + NodeUtil.printCompactTreeToString(node));
                             String msg = cost == NodeCost.MEGAMORPHIC ? "megamorphic" : "polymorphic";
                             log(0, msg, node.toString(), props);
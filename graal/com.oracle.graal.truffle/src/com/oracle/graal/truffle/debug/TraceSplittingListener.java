@@ -24,6 +24,8 @@ package com.oracle.graal.truffle.debug;
 
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TraceTruffleSplitting;
 
+import java.util.Map;
+
 import com.oracle.graal.truffle.GraalTruffleRuntime;
 import com.oracle.graal.truffle.OptimizedCallTarget;
 import com.oracle.graal.truffle.OptimizedDirectCallNode;
@@ -43,9 +45,18 @@ public final class TraceSplittingListener extends AbstractDebugCompilationListen
 
     @Override
     public void notifyCompilationSplit(OptimizedDirectCallNode callNode) {
+        OptimizedCallTarget.log(format(splitCount++, callNode));
+    }
+
+    /**
+     * Formats the line that is printed for the {@code splitNumber}th split of {@code callNode}.
+     */
+    public static String format(int splitNumber, OptimizedDirectCallNode callNode) {
         OptimizedCallTarget callTarget = callNode.getCallTarget();
-        String label = String.format("split %3s-%-4s-%-4s ", splitCount++, Integer.toHexString(callNode.getCurrentCallTarget().hashCode()), callNode.getCallCount());
-        log(0, label, callTarget.toString(), callTarget.getDebugProperties(null));
+        String label = String.format("split %3s-%-4s-%-4s ", splitNumber, Integer.toHexString(callNode.getCurrentCallTarget().hashCode()), callNode.getCallCount());
+        Map<String, Object> properties = callTarget.getDebugProperties(null);
+        properties.putAll(callNode.getSplittingStrategy().getDebugProperties());
+        return format(0, label, callTarget.toString(), properties);
     }
 
 }
@@ -150,6 +150,8 @@ public final class NewFrameNode extends FixedWithNextNode implements IterableNod
         this.virtualFrameObjectArray = graph.add(new VirtualArrayNode((ResolvedJavaType) localsField.getType().getComponentType(), frameSlots.length));
         if (primitiveLocalsField != null) {
             this.virtualFramePrimitiveArray = graph.add(new VirtualArrayNode((ResolvedJavaType) primitiveLocalsField.getType().getComponentType(), frameSlots.length));
+        }
+        if (tagsField != null) {
             this.virtualFrameTagArray = graph.add(new VirtualArrayNode((ResolvedJavaType) tagsField.getType().getComponentType(), frameSlots.length));
         }
 
@@ -265,7 +267,7 @@ public final class NewFrameNode extends FixedWithNextNode implements IterableNod
             tool.createVirtualObject(virtualFrameTagArray, tagArrayEntryState, Collections.<MonitorIdNode> emptyList(), false);
         }
 
-        assert frameFields.length == 5 || frameFields.length == 3;
+        assert frameFields.length == 5 || frameFields.length == 4 || frameFields.length == 3;
         ValueNode[] frameEntryState = new ValueNode[frameFields.length];
         List<ResolvedJavaField> frameFieldList = Arrays.asList(frameFields);
         frameEntryState[frameFieldList.indexOf(descriptorField)] = getDescriptor();
@@ -25,6 +25,7 @@ package com.oracle.graal.truffle.phases;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleInstrumentBranchesCount;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleInstrumentBranchesFilter;
 import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleInstrumentBranchesPerInlineSite;
+import static com.oracle.graal.truffle.TruffleCompilerOptions.TruffleInstrumentBranchesStripes;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -45,12 +46,17 @@ import com.oracle.graal.nodes.IfNode;
 import com.oracle.graal.nodes.StructuredGraph;
 import com.oracle.graal.nodes.ValueNode;
 import com.oracle.graal.nodes.calc.AddNode;
+import com.oracle.graal.nodes.calc.MulNode;
+import com.oracle.graal.nodes.calc.NarrowNode;
+import com.oracle.graal.nodes.calc.UnsignedRightShiftNode;
+import com.oracle.graal.nodes.calc.ZeroExtendNode;
 import com.oracle.graal.nodes.java.LoadIndexedNode;
 import com.oracle.graal.nodes.java.StoreIndexedNode;
 import com.oracle.graal.phases.BasePhase;
 import com.oracle.graal.phases.tiers.HighTierContext;
 import com.oracle.graal.truffle.TruffleCompilerOptions;
 
+import jdk.vm.ci.code.Architecture;
 import jdk.vm.ci.code.CodeUtil;
 import jdk.vm.ci.meta.JavaConstant;
 import jdk.vm.ci.meta.JavaKind;
@@ -66,14 +72,33 @@ public class InstrumentBranchesPhase extends BasePhase<HighTierContext> {
                     "com.oracle.graal.truffle.OptimizedDirectCallNode.callProxy",
                     "com.oracle.graal.truffle.OptimizedDirectCallNode.call"
     };
-    private static final String ACCESS_TABLE_FIELD_NAME = "ACCESS_TABLE";
-    static final int ACCESS_TABLE_SIZE = TruffleInstrumentBranchesCount.getValue();
-    public static final long[] ACCESS_TABLE = new long[ACCESS_TABLE_SIZE];
-    public static BranchInstrumentation instrumentation = new BranchInstrumentation();
+    private static final String INSTRUMENTATION_FIELD_NAME = "instrumentation";
+    private static final String ACCESS_TABLE_FIELD_NAME = "accessTable";
+    /**
+     * Number of table slots placed between two stripes. Two cache lines keep the counters of
+     * different stripes apart even when the hardware prefetches adjacent lines in pairs.
+     */
+    private static final int STRIPE_PADDING = 16;
+    private static final long FIBONACCI_HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    static final int MAX_POINT_COUNT = TruffleInstrumentBranchesCount.getValue();
+    public static BranchInstrumentation instrumentation = new BranchInstrumentation(TruffleInstrumentBranchesStripes.getValue());
 
     private final MethodFilter[] methodFilter;
+    private final InstrumentationThreadIdentityProvider threadIdentityProvider;
+    private final Architecture architecture;
 
     public InstrumentBranchesPhase() {
+        this(null, null);
+    }
+
+    /**
+     * Creates a phase whose counters are spread over the stripes of {@link #instrumentation},
+     * selected by hashing the identity of the executing thread. Without a
+     * {@code threadIdentityProvider} all threads update the first stripe.
+     */
+    public InstrumentBranchesPhase(InstrumentationThreadIdentityProvider threadIdentityProvider, Architecture architecture) {
+        this.threadIdentityProvider = threadIdentityProvider;
+        this.architecture = architecture;
         String filterValue = TruffleInstrumentBranchesFilter.getValue();
         if (filterValue != null) {
             methodFilter = MethodFilter.parse(filterValue);
@@ -89,13 +114,18 @@ public class InstrumentBranchesPhase extends BasePhase<HighTierContext> {
 
     @Override
     protected void run(StructuredGraph graph, HighTierContext context) {
+        BranchInstrumentation branchInstrumentation = instrumentation;
         JavaConstant tableConstant = lookupTableContant(context);
         try {
+            ValueNode stripeOffset = null;
             for (IfNode n : graph.getNodes().filter(IfNode.class)) {
-                BranchInstrumentation.Point p = instrumentation.getOrCreatePoint(methodFilter, n);
+                BranchInstrumentation.Point p = branchInstrumentation.getOrCreatePoint(methodFilter, n);
                 if (p != null) {
-                    insertCounter(graph, context, tableConstant, n, p, true);
-                    insertCounter(graph, context, tableConstant, n, p, false);
+                    if (stripeOffset == null) {
+                        stripeOffset = createStripeOffset(graph, branchInstrumentation);
+                    }
+                    insertCounter(graph, context, tableConstant, stripeOffset, n, p, true);
+                    insertCounter(graph, context, tableConstant, stripeOffset, n, p, false);
                 }
             }
         } catch (Exception e) {
@@ -103,30 +133,59 @@ public class InstrumentBranchesPhase extends BasePhase<HighTierContext> {
         }
     }
 
+    /**
+     * Computes the offset of the current thread's stripe in the access table. The thread identity
+     * is usually an aligned address, so Fibonacci hashing is used to take the well-mixed high bits
+     * of its product with the golden ratio.
+     */
+    private ValueNode createStripeOffset(StructuredGraph graph, BranchInstrumentation branchInstrumentation) {
+        int stripeCount = branchInstrumentation.getStripeCount();
+        if (stripeCount == 1 || threadIdentityProvider == null) {
+            return graph.unique(ConstantNode.forInt(0));
+        }
+        ValueNode identity = threadIdentityProvider.createThreadIdentity(graph, architecture);
+        if (identity.getStackKind() != JavaKind.Long) {
+            identity = graph.unique(new ZeroExtendNode(identity, Long.SIZE));
+        }
+        ValueNode multiplier = graph.unique(ConstantNode.forLong(FIBONACCI_HASH_MULTIPLIER));
+        ValueNode hash = graph.unique(new MulNode(identity, multiplier));
+        ValueNode shift = graph.unique(ConstantNode.forInt(Long.SIZE - Integer.numberOfTrailingZeros(stripeCount)));
+        ValueNode stripe = graph.unique(new NarrowNode(graph.unique(new UnsignedRightShiftNode(hash, shift)), Integer.SIZE));
+        return graph.unique(new MulNode(stripe, graph.unique(ConstantNode.forInt(branchInstrumentation.getStripeLength()))));
+    }
+
+    /**
+     * Reads the access table of {@link #instrumentation}.
+     */
     protected JavaConstant lookupTableContant(HighTierContext context) {
-        ResolvedJavaField[] fields = context.getMetaAccess().lookupJavaType(InstrumentBranchesPhase.class).getStaticFields();
-        ResolvedJavaField tableField = null;
+        ResolvedJavaField instrumentationField = findField(context.getMetaAccess().lookupJavaType(InstrumentBranchesPhase.class).getStaticFields(), INSTRUMENTATION_FIELD_NAME);
+        JavaConstant instrumentationConstant = context.getConstantReflection().readFieldValue(instrumentationField, null);
+        ResolvedJavaField tableField = findField(context.getMetaAccess().lookupJavaType(BranchInstrumentation.class).getInstanceFields(false), ACCESS_TABLE_FIELD_NAME);
+        JavaConstant tableConstant = context.getConstantReflection().readFieldValue(tableField, instrumentationConstant);
+        return tableConstant;
+    }
+
+    private static ResolvedJavaField findField(ResolvedJavaField[] fields, String name) {
         for (ResolvedJavaField field : fields) {
-            if (field.getName().equals(ACCESS_TABLE_FIELD_NAME)) {
-                tableField = field;
-                break;
+            if (field.getName().equals(name)) {
+                return field;
             }
         }
-        JavaConstant tableConstant = context.getConstantReflection().readFieldValue(tableField, null);
-        return tableConstant;
+        return null;
     }
 
-    private static void insertCounter(StructuredGraph graph, HighTierContext context, JavaConstant tableConstant,
+    private static void insertCounter(StructuredGraph graph, HighTierContext context, JavaConstant tableConstant, ValueNode stripeOffset,
                     IfNode ifNode, BranchInstrumentation.Point p, boolean isTrue) {
         assert (tableConstant != null);
         AbstractBeginNode beginNode = (isTrue) ? ifNode.trueSuccessor() : ifNode.falseSuccessor();
         TypeReference typeRef = TypeReference.createExactTrusted(context.getMetaAccess().lookupJavaType(tableConstant));
         ConstantNode table = graph.unique(new ConstantNode(tableConstant, StampFactory.object(typeRef, true)));
         ConstantNode rawIndex = graph.unique(ConstantNode.forInt(p.getRawIndex(isTrue)));
-        LoadIndexedNode load = graph.add(new LoadIndexedNode(null, table, rawIndex, JavaKind.Long));
+        ValueNode index = stripeOffset.isConstant() ? rawIndex : graph.unique(new AddNode(stripeOffset, rawIndex));
+        LoadIndexedNode load = graph.add(new LoadIndexedNode(null, table, index, JavaKind.Long));
         ConstantNode one = graph.unique(ConstantNode.forLong(1L));
         ValueNode add = graph.unique(new AddNode(load, one));
-        StoreIndexedNode store = graph.add(new StoreIndexedNode(table, rawIndex, JavaKind.Long, add));
+        StoreIndexedNode store = graph.add(new StoreIndexedNode(table, index, JavaKind.Long, add));
 
         graph.addAfterFixed(beginNode, load);
         graph.addAfterFixed(load, store);
@@ -150,6 +209,40 @@ public class InstrumentBranchesPhase extends BasePhase<HighTierContext> {
         public Map<String, Point> pointMap = new LinkedHashMap<>();
         public int tableCount = 0;
 
+        private final int stripeCount;
+        private final int stripeLength;
+        private final long[] accessTable;
+
+        public BranchInstrumentation() {
+            this(1);
+        }
+
+        /**
+         * Creates an instrumentation whose counters are spread over {@code stripes} stripes,
+         * rounded up to a power of two.
+         */
+        public BranchInstrumentation(int stripes) {
+            this.stripeCount = stripeCount(stripes);
+            this.stripeLength = (2 * MAX_POINT_COUNT + STRIPE_PADDING - 1) / STRIPE_PADDING * STRIPE_PADDING + STRIPE_PADDING;
+            this.accessTable = new long[stripeCount * stripeLength];
+        }
+
+        private static int stripeCount(int requested) {
+            if (requested <= 1) {
+                return 1;
+            }
+            int count = Integer.highestOneBit(requested);
+            return count == requested ? count : count << 1;
+        }
+
+        public int getStripeCount() {
+            return stripeCount;
+        }
+
+        int getStripeLength() {
+            return stripeLength;
+        }
+
         /*
          * Node source location is determined by its inlining chain. A flag value controls whether
          * we discriminate nodes by their inlining site, or only by the method in which they were
@@ -270,13 +363,13 @@ public class InstrumentBranchesPhase extends BasePhase<HighTierContext> {
             Point existing = pointMap.get(key);
             if (existing != null) {
                 return existing;
-            } else if (tableCount < ACCESS_TABLE.length) {
+            } else if (tableCount < MAX_POINT_COUNT) {
                 int index = tableCount++;
                 Point p = new Point(index, n.getNodeSourcePosition());
                 pointMap.put(key, p);
                 return p;
             } else {
-                if (tableCount == ACCESS_TABLE.length) {
+                if (tableCount == MAX_POINT_COUNT) {
                     TTY.println("Maximum number of branch instrumentation counters exceeded.");
                     tableCount += 1;
                 }
@@ -303,7 +396,7 @@ public class InstrumentBranchesPhase extends BasePhase<HighTierContext> {
             }
         }
 
-        private static class Point {
+        private class Point {
             private int index;
             private NodeSourcePosition position;
 
@@ -313,11 +406,19 @@ public class InstrumentBranchesPhase extends BasePhase<HighTierContext> {
             }
 
             public long ifVisits() {
-                return ACCESS_TABLE[index * 2];
+                return sumStripes(getRawIndex(true));
             }
 
             public long elseVisits() {
-                return ACCESS_TABLE[index * 2 + 1];
+                return sumStripes(getRawIndex(false));
+            }
+
+            private long sumStripes(int rawIndex) {
+                long sum = 0;
+                for (int stripe = 0; stripe < stripeCount; stripe++) {
+                    sum += accessTable[stripe * stripeLength + rawIndex];
+                }
+                return sum;
             }
 
             public NodeSourcePosition getPosition() {
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.truffle.phases;
+
+import com.oracle.graal.nodes.StructuredGraph;
+import com.oracle.graal.nodes.ValueNode;
+
+import jdk.vm.ci.code.Architecture;
+
+/**
+ * Provides a value that identifies the current thread in compiled code. The
+ * {@link InstrumentBranchesPhase} uses it to select a per-thread counter stripe, so that
+ * instrumented code running on several threads does not contend on the same cache lines.
+ */
+public interface InstrumentationThreadIdentityProvider {
+
+    /**
+     * Creates a floating node whose value is distinct for every live thread. The value only needs
+     * to be stable for the duration of a single execution of the compiled code.
+     */
+    ValueNode createThreadIdentity(StructuredGraph graph, Architecture architecture);
+}
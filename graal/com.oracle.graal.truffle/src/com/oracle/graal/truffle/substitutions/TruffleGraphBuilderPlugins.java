@@ -72,6 +72,7 @@ import com.oracle.graal.replacements.nodes.arithmetic.IntegerMulExactNode;
 import com.oracle.graal.replacements.nodes.arithmetic.IntegerMulHighNode;
 import com.oracle.graal.replacements.nodes.arithmetic.IntegerSubExactNode;
 import com.oracle.graal.replacements.nodes.arithmetic.UnsignedMulHighNode;
+import com.oracle.graal.truffle.CompactFrameWithoutBoxing;
 import com.oracle.graal.truffle.FrameWithBoxing;
 import com.oracle.graal.truffle.FrameWithoutBoxing;
 import com.oracle.graal.truffle.OptimizedAssumption;
@@ -120,7 +121,9 @@ public class TruffleGraphBuilderPlugins {
         registerCompilerAssertsPlugins(plugins, canDelayIntrinsification);
         registerOptimizedCallTargetPlugins(plugins, snippetReflection, canDelayIntrinsification);
 
-        if (TruffleCompilerOptions.TruffleUseFrameWithoutBoxing.getValue()) {
+        if (TruffleCompilerOptions.TruffleUseCompactFrame.getValue()) {
+            registerCompactFrameWithoutBoxingPlugins(plugins, canDelayIntrinsification);
+        } else if (TruffleCompilerOptions.TruffleUseFrameWithoutBoxing.getValue()) {
             registerFrameWithoutBoxingPlugins(plugins, canDelayIntrinsification, snippetReflection);
         } else {
             registerFrameWithBoxingPlugins(plugins, canDelayIntrinsification);
@@ -394,7 +397,12 @@ public class TruffleGraphBuilderPlugins {
                 FrameDescriptor constantDescriptor = snippetReflection.asObject(FrameDescriptor.class, descriptor.asJavaConstant());
 
                 ValueNode nonNullArguments = b.add(new PiNode(args, StampFactory.objectNonNull(StampTool.typeReferenceOrNull(args))));
-                Class<?> frameClass = TruffleCompilerOptions.TruffleUseFrameWithoutBoxing.getValue() ? FrameWithoutBoxing.class : FrameWithBoxing.class;
+                Class<?> frameClass;
+                if (TruffleCompilerOptions.TruffleUseCompactFrame.getValue()) {
+                    frameClass = CompactFrameWithoutBoxing.class;
+                } else {
+                    frameClass = TruffleCompilerOptions.TruffleUseFrameWithoutBoxing.getValue() ? FrameWithoutBoxing.class : FrameWithBoxing.class;
+                }
                 NewFrameNode newFrame = new NewFrameNode(b.getMetaAccess(), snippetReflection, b.getGraph(), b.getMetaAccess().lookupJavaType(frameClass), constantDescriptor, descriptor,
                                 nonNullArguments);
                 b.addPush(JavaKind.Object, newFrame);
@@ -437,6 +445,18 @@ public class TruffleGraphBuilderPlugins {
         }
     }
 
+    /**
+     * The accessors of {@link CompactFrameWithoutBoxing} are not intrinsified since the
+     * virtual frame accessor nodes expect a separate tag array. Partial evaluation parses the
+     * accessors instead, and escape analysis virtualizes their accesses to the frame arrays.
+     */
+    public static void registerCompactFrameWithoutBoxingPlugins(InvocationPlugins plugins, boolean canDelayIntrinsification) {
+        Registration r = new Registration(plugins, CompactFrameWithoutBoxing.class);
+        registerFrameMethods(r);
+        registerUnsafeCast(r, canDelayIntrinsification);
+        registerUnsafeLoadStorePlugins(r, JavaKind.Int, JavaKind.Long, JavaKind.Float, JavaKind.Double, JavaKind.Object);
+    }
+
     public static void registerFrameWithBoxingPlugins(InvocationPlugins plugins, boolean canDelayIntrinsification) {
         Registration r = new Registration(plugins, FrameWithBoxing.class);
         registerFrameMethods(r);
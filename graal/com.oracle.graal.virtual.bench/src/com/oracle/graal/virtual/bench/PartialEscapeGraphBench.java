@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2016, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.graal.virtual.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oracle.graal.microbenchmarks.graal.GraalBenchmark;
+import com.oracle.graal.microbenchmarks.graal.util.GraalState;
+import com.oracle.graal.microbenchmarks.graal.util.GraphState;
+import com.oracle.graal.microbenchmarks.graal.util.MethodSpec;
+import com.oracle.graal.phases.common.CanonicalizerPhase;
+import com.oracle.graal.phases.tiers.PhaseContext;
+import com.oracle.graal.virtual.phases.ea.PartialEscapePhase;
+
+/**
+ * Benchmarks the compile time of {@link PartialEscapePhase} with read elimination on a graph with
+ * many control flow splits and merges, which stresses the copying and merging of the block states.
+ */
+public class PartialEscapeGraphBench extends GraalBenchmark {
+
+    public static class Point {
+        int x;
+        int y;
+        Point next;
+    }
+
+    @MethodSpec(declaringClass = PartialEscapeGraphBench.class, name = "diamondsSnippet")
+    public static class Diamonds extends GraphState {
+    }
+
+    public static int diamondsSnippet(Point p, int[] a, int n) {
+        Point q = new Point();
+        q.x = p.x;
+        q.y = p.y;
+        int r = 0;
+        if ((n & 1) != 0) {
+            q.x += p.x + a[0];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[3];
+            p.next.x = r;
+        }
+        if ((n & 2) != 0) {
+            q.x += p.x + a[1];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[4];
+            p.next.x = r;
+        }
+        if ((n & 4) != 0) {
+            q.x += p.x + a[2];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[5];
+            p.next.x = r;
+        }
+        if ((n & 8) != 0) {
+            q.x += p.x + a[3];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[6];
+            p.next.x = r;
+        }
+        if ((n & 16) != 0) {
+            q.x += p.x + a[4];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[7];
+            p.next.x = r;
+        }
+        if ((n & 32) != 0) {
+            q.x += p.x + a[5];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[0];
+            p.next.x = r;
+        }
+        if ((n & 64) != 0) {
+            q.x += p.x + a[6];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[1];
+            p.next.x = r;
+        }
+        if ((n & 128) != 0) {
+            q.x += p.x + a[7];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[2];
+            p.next.x = r;
+        }
+        if ((n & 256) != 0) {
+            q.x += p.x + a[0];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[3];
+            p.next.x = r;
+        }
+        if ((n & 512) != 0) {
+            q.x += p.x + a[1];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[4];
+            p.next.x = r;
+        }
+        if ((n & 1024) != 0) {
+            q.x += p.x + a[2];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[5];
+            p.next.x = r;
+        }
+        if ((n & 2048) != 0) {
+            q.x += p.x + a[3];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[6];
+            p.next.x = r;
+        }
+        if ((n & 4096) != 0) {
+            q.x += p.x + a[4];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[7];
+            p.next.x = r;
+        }
+        if ((n & 8192) != 0) {
+            q.x += p.x + a[5];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[0];
+            p.next.x = r;
+        }
+        if ((n & 16384) != 0) {
+            q.x += p.x + a[6];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[1];
+            p.next.x = r;
+        }
+        if ((n & 32768) != 0) {
+            q.x += p.x + a[7];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[2];
+            p.next.x = r;
+        }
+        if ((n & 1) != 0) {
+            q.x += p.x + a[0];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[3];
+            p.next.x = r;
+        }
+        if ((n & 2) != 0) {
+            q.x += p.x + a[1];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[4];
+            p.next.x = r;
+        }
+        if ((n & 4) != 0) {
+            q.x += p.x + a[2];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[5];
+            p.next.x = r;
+        }
+        if ((n & 8) != 0) {
+            q.x += p.x + a[3];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[6];
+            p.next.x = r;
+        }
+        if ((n & 16) != 0) {
+            q.x += p.x + a[4];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[7];
+            p.next.x = r;
+        }
+        if ((n & 32) != 0) {
+            q.x += p.x + a[5];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[0];
+            p.next.x = r;
+        }
+        if ((n & 64) != 0) {
+            q.x += p.x + a[6];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[1];
+            p.next.x = r;
+        }
+        if ((n & 128) != 0) {
+            q.x += p.x + a[7];
+            r += p.next.y;
+        } else {
+            q.y -= p.y + a[2];
+            p.next.x = r;
+        }
+        return r + q.x + q.y + p.x;
+    }
+
+    @Benchmark
+    @Warmup(iterations = 20)
+    public void diamonds(Diamonds s, GraalState g) {
+        new PartialEscapePhase(false, true, new CanonicalizerPhase(), null).apply(s.graph, new PhaseContext(g.providers));
+    }
+}
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.oracle.graal.compiler.common.CollectionsFactory;
+import com.oracle.graal.compiler.common.CompilationBudget;
 import com.oracle.graal.compiler.common.cfg.BlockMap;
 import com.oracle.graal.compiler.common.cfg.Loop;
 import com.oracle.graal.compiler.common.type.Stamp;
@@ -70,6 +71,7 @@ public abstract class EffectsClosure<BlockT extends EffectsBlockState<BlockT>> e
     private final Map<Loop<Block>, GraphEffectList> loopMergeEffects = CollectionsFactory.newIdentityMap();
     private final Map<LoopBeginNode, BlockT> loopEntryStates = Node.newIdentityMap();
     private final NodeBitMap hasScalarReplacedInputs;
+    private final CompilationBudget budget = CompilationBudget.current();
 
     protected boolean changed;
 
@@ -151,6 +153,9 @@ public abstract class EffectsClosure<BlockT extends EffectsBlockState<BlockT>> e
 
     @Override
     protected BlockT processBlock(Block block, BlockT state) {
+        if (budget != null) {
+            budget.checkPeriodically("EscapeAnalysis");
+        }
         if (!state.isDead()) {
             GraphEffectList effects = blockEffects.get(block);
 
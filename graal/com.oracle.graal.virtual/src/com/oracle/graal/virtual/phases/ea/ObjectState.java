@@ -52,7 +52,14 @@ public class ObjectState {
 
     private EscapeObjectState cachedState;
 
-    boolean copyOnWrite;
+    /**
+     * The owner token of the {@link PartialEscapeBlockState} that is allowed to modify this object
+     * state in place, {@link #SHARED} if no block state is allowed to do so, or {@code null} if
+     * this object state has not been added to a block state yet.
+     */
+    Object owner;
+
+    static final Object SHARED = new Object();
 
     public ObjectState(ValueNode[] entries, List<MonitorIdNode> locks, boolean ensureVirtualized) {
         this(entries, (LockState) null, ensureVirtualized);
@@ -233,7 +240,7 @@ public class ObjectState {
     }
 
     public ObjectState share() {
-        copyOnWrite = true;
+        owner = SHARED;
         return this;
     }
 }
@@ -22,39 +22,69 @@
  */
 package com.oracle.graal.virtual.phases.ea;
 
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 
-import com.oracle.graal.compiler.common.CollectionsFactory;
 import com.oracle.graal.compiler.common.LocationIdentity;
+import com.oracle.graal.compiler.common.type.IntegerStamp;
+import com.oracle.graal.compiler.common.type.Stamp;
+import com.oracle.graal.compiler.common.util.PersistentHashMap;
 import com.oracle.graal.nodes.FieldLocationIdentity;
 import com.oracle.graal.nodes.ValueNode;
+import com.oracle.graal.nodes.calc.AddNode;
+import com.oracle.graal.nodes.calc.BinaryArithmeticNode;
+import com.oracle.graal.nodes.calc.SubNode;
+import com.oracle.graal.nodes.util.GraphUtil;
 import com.oracle.graal.nodes.virtual.AllocatedObjectNode;
 import com.oracle.graal.nodes.virtual.VirtualInstanceNode;
 import com.oracle.graal.nodes.virtual.VirtualObjectNode;
 
+import jdk.vm.ci.meta.JavaConstant;
+import jdk.vm.ci.meta.JavaKind;
+
 public class PEReadEliminationBlockState extends PartialEscapeBlockState<PEReadEliminationBlockState> {
 
-    final HashMap<ReadCacheEntry, ValueNode> readCache;
+    /**
+     * The read cache is a persistent map so that copying it at control flow splits is free and
+     * merges only need to look at the entries that were changed in the predecessors.
+     */
+    PersistentHashMap<ReadCacheEntry, ValueNode> readCache;
 
     static final class ReadCacheEntry {
 
+        /**
+         * Index of entries that are keyed by a byte offset in {@link #symbolicIndex} rather than by
+         * an element index. The kind of the access is encoded in the index as
+         * {@code UNSAFE_OFFSET - kind.ordinal()} so that a cached value is only reused by an access
+         * of the same width. Such entries are assumed to alias with all other entries of the same
+         * location unless both offsets are constants and the accessed bytes do not overlap.
+         */
+        static final int UNSAFE_OFFSET = -2;
+
         public final LocationIdentity identity;
         public final ValueNode object;
+        /**
+         * The constant element index, -1 for accesses that are not to a specific array element and
+         * for elements accessed with a {@link #symbolicIndex}, or {@link #UNSAFE_OFFSET}.
+         */
         public final int index;
+        /**
+         * The value of the index of an array element whose index is not a constant, or {@code null}.
+         */
+        public final ValueNode symbolicIndex;
 
-        ReadCacheEntry(LocationIdentity identity, ValueNode object, int index) {
+        ReadCacheEntry(LocationIdentity identity, ValueNode object, int index, ValueNode symbolicIndex) {
+            assert symbolicIndex == null || index == -1 || isUnsafeOffset(index);
             this.identity = identity;
             this.object = object;
             this.index = index;
+            this.symbolicIndex = symbolicIndex;
         }
 
         @Override
         public int hashCode() {
             int result = 31 + ((identity == null) ? 0 : identity.hashCode());
             result = 31 * result + ((object == null) ? 0 : object.hashCode());
+            result = 31 * result + ((symbolicIndex == null) ? 0 : symbolicIndex.hashCode());
             return result * 31 + index;
         }
 
@@ -64,22 +94,133 @@ public class PEReadEliminationBlockState extends PartialEscapeBlockState<PEReadE
                 return false;
             }
             ReadCacheEntry other = (ReadCacheEntry) obj;
-            return identity.equals(other.identity) && object == other.object;
+            return identity.equals(other.identity) && object == other.object && index == other.index && symbolicIndex == other.symbolicIndex;
+        }
+
+        /**
+         * Determines whether a write to {@code identity} at the given element may change the value
+         * cached for this entry.
+         */
+        boolean mayBeKilledBy(LocationIdentity otherIdentity, int otherIndex, ValueNode otherSymbolicIndex) {
+            if (!identity.equals(otherIdentity)) {
+                return false;
+            }
+            if ((index == -1 && symbolicIndex == null) || (otherIndex == -1 && otherSymbolicIndex == null)) {
+                return true;
+            }
+            if (isUnsafeOffset(index) && isUnsafeOffset(otherIndex)) {
+                return mayOverlap(symbolicIndex, unsafeAccessKind(index), otherSymbolicIndex, unsafeAccessKind(otherIndex));
+            }
+            if (isUnsafeOffset(index) || isUnsafeOffset(otherIndex)) {
+                return true;
+            }
+            if (symbolicIndex == null && otherSymbolicIndex == null) {
+                return index == otherIndex;
+            } else if (symbolicIndex == null) {
+                return mayBeEqual(otherSymbolicIndex, index);
+            } else if (otherSymbolicIndex == null) {
+                return mayBeEqual(symbolicIndex, otherIndex);
+            } else {
+                return mayBeEqual(symbolicIndex, otherSymbolicIndex);
+            }
         }
 
         @Override
         public String toString() {
+            if (symbolicIndex != null) {
+                return object + "[" + (isUnsafeOffset(index) ? unsafeAccessKind(index).getJavaName() + " offset " : "") + symbolicIndex + "]:" + identity;
+            }
             return index == -1 ? (object + ":" + identity) : (object + "[" + index + "]:" + identity);
         }
     }
 
+    /**
+     * Gets the index of an entry for an access of kind {@code accessKind} at a byte offset.
+     */
+    static int unsafeOffsetIndex(JavaKind accessKind) {
+        return ReadCacheEntry.UNSAFE_OFFSET - accessKind.ordinal();
+    }
+
+    static boolean isUnsafeOffset(int index) {
+        return index <= ReadCacheEntry.UNSAFE_OFFSET;
+    }
+
+    private static JavaKind unsafeAccessKind(int index) {
+        return JavaKind.values()[ReadCacheEntry.UNSAFE_OFFSET - index];
+    }
+
+    /**
+     * Determines whether two accesses at byte offsets may access a common byte.
+     */
+    private static boolean mayOverlap(ValueNode offset, JavaKind kind, ValueNode otherOffset, JavaKind otherKind) {
+        if (offset.isConstant() && otherOffset.isConstant() && kind.isPrimitive() && otherKind.isPrimitive()) {
+            long start = offset.asJavaConstant().asLong();
+            long otherStart = otherOffset.asJavaConstant().asLong();
+            return start < otherStart + otherKind.getByteCount() && otherStart < start + kind.getByteCount();
+        }
+        return true;
+    }
+
+    private static boolean mayBeEqual(ValueNode x, long constant) {
+        Stamp stamp = x.stamp();
+        return !(stamp instanceof IntegerStamp) || ((IntegerStamp) stamp).contains(constant);
+    }
+
+    /**
+     * Determines whether two index values may be equal, either by comparing their stamps or by
+     * decomposing them into a common base value plus different constant offsets (e.g.,
+     * {@code i} and {@code i + 1}).
+     */
+    private static boolean mayBeEqual(ValueNode x, ValueNode y) {
+        if (x == y) {
+            return true;
+        }
+        if (x.stamp() instanceof IntegerStamp && y.stamp() instanceof IntegerStamp) {
+            IntegerStamp xStamp = (IntegerStamp) x.stamp();
+            IntegerStamp yStamp = (IntegerStamp) y.stamp();
+            if (xStamp.getBits() == yStamp.getBits() && (xStamp.upperBound() < yStamp.lowerBound() || yStamp.upperBound() < xStamp.lowerBound())) {
+                return false;
+            }
+        }
+        ValueNode xBase = baseOf(x);
+        ValueNode yBase = baseOf(y);
+        if (xBase == yBase && x.stamp().isCompatible(y.stamp())) {
+            // both values are in the same integer domain, so they differ if the offsets differ
+            return offsetOf(x) == offsetOf(y);
+        }
+        return true;
+    }
+
+    private static boolean isConstantOffset(ValueNode value) {
+        if (value instanceof AddNode || value instanceof SubNode) {
+            BinaryArithmeticNode<?> binary = (BinaryArithmeticNode<?>) value;
+            JavaConstant constant = binary.getY().asJavaConstant();
+            return constant != null && constant.getJavaKind() == JavaKind.Int;
+        }
+        return false;
+    }
+
+    private static ValueNode baseOf(ValueNode value) {
+        ValueNode unproxified = GraphUtil.unproxify(value);
+        return isConstantOffset(unproxified) ? GraphUtil.unproxify(((BinaryArithmeticNode<?>) unproxified).getX()) : unproxified;
+    }
+
+    private static int offsetOf(ValueNode value) {
+        ValueNode unproxified = GraphUtil.unproxify(value);
+        if (isConstantOffset(unproxified)) {
+            int offset = ((BinaryArithmeticNode<?>) unproxified).getY().asJavaConstant().asInt();
+            return unproxified instanceof SubNode ? -offset : offset;
+        }
+        return 0;
+    }
+
     public PEReadEliminationBlockState() {
-        readCache = CollectionsFactory.newMap();
+        readCache = PersistentHashMap.empty();
     }
 
     public PEReadEliminationBlockState(PEReadEliminationBlockState other) {
         super(other);
-        readCache = CollectionsFactory.newMap(other.readCache);
+        readCache = other.readCache;
     }
 
     @Override
@@ -92,7 +233,7 @@ public class PEReadEliminationBlockState extends PartialEscapeBlockState<PEReadE
         if (virtual instanceof VirtualInstanceNode) {
             VirtualInstanceNode instance = (VirtualInstanceNode) virtual;
             for (int i = 0; i < instance.entryCount(); i++) {
-                readCache.put(new ReadCacheEntry(new FieldLocationIdentity(instance.field(i)), representation, -1), values.get(i));
+                readCache = readCache.put(new ReadCacheEntry(new FieldLocationIdentity(instance.field(i)), representation, -1, null), values.get(i));
             }
         }
     }
@@ -105,7 +246,7 @@ public class PEReadEliminationBlockState extends PartialEscapeBlockState<PEReadE
         return super.equivalentTo(other);
     }
 
-    public void addReadCache(ValueNode object, LocationIdentity identity, int index, ValueNode value, PartialEscapeClosure<?> closure) {
+    public void addReadCache(ValueNode object, LocationIdentity identity, int index, ValueNode symbolicIndex, ValueNode value, PartialEscapeClosure<?> closure) {
         ValueNode cacheObject;
         ObjectState obj = closure.getObjectState(this, object);
         if (obj != null) {
@@ -114,10 +255,10 @@ public class PEReadEliminationBlockState extends PartialEscapeBlockState<PEReadE
         } else {
             cacheObject = object;
         }
-        readCache.put(new ReadCacheEntry(identity, cacheObject, index), value);
+        readCache = readCache.put(new ReadCacheEntry(identity, cacheObject, index, symbolicIndex), value);
     }
 
-    public ValueNode getReadCache(ValueNode object, LocationIdentity identity, int index, PartialEscapeClosure<?> closure) {
+    public ValueNode getReadCache(ValueNode object, LocationIdentity identity, int index, ValueNode symbolicIndex, PartialEscapeClosure<?> closure) {
         ValueNode cacheObject;
         ObjectState obj = closure.getObjectState(this, object);
         if (obj != null) {
@@ -126,7 +267,7 @@ public class PEReadEliminationBlockState extends PartialEscapeBlockState<PEReadE
         } else {
             cacheObject = object;
         }
-        ValueNode cacheValue = readCache.get(new ReadCacheEntry(identity, cacheObject, index));
+        ValueNode cacheValue = readCache.get(new ReadCacheEntry(identity, cacheObject, index, symbolicIndex));
         obj = closure.getObjectState(this, cacheValue);
         if (obj != null) {
             assert !obj.isVirtual();
@@ -139,20 +280,18 @@ public class PEReadEliminationBlockState extends PartialEscapeBlockState<PEReadE
     }
 
     public void killReadCache() {
-        readCache.clear();
+        readCache = PersistentHashMap.empty();
     }
 
-    public void killReadCache(LocationIdentity identity, int index) {
-        Iterator<Map.Entry<ReadCacheEntry, ValueNode>> iter = readCache.entrySet().iterator();
-        while (iter.hasNext()) {
-            ReadCacheEntry entry = iter.next().getKey();
-            if (entry.identity.equals(identity) && (index == -1 || entry.index == -1 || index == entry.index)) {
-                iter.remove();
-            }
-        }
+    /**
+     * Removes all entries that may be changed by a write to {@code identity} at the given element.
+     * An {@code index} of -1 without a {@code symbolicIndex} kills all entries of the location.
+     */
+    public void killReadCache(LocationIdentity identity, int index, ValueNode symbolicIndex) {
+        readCache = readCache.removeIf((entry, value) -> entry.mayBeKilledBy(identity, index, symbolicIndex));
     }
 
-    public Map<ReadCacheEntry, ValueNode> getReadCache() {
+    public PersistentHashMap<ReadCacheEntry, ValueNode> getReadCache() {
         return readCache;
     }
 }
@@ -24,7 +24,6 @@ package com.oracle.graal.virtual.phases.ea;
 
 import static com.oracle.graal.nodes.NamedLocationIdentity.ARRAY_LENGTH_LOCATION;
 
-import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +31,7 @@ import java.util.Map;
 import com.oracle.graal.compiler.common.LocationIdentity;
 import com.oracle.graal.compiler.common.cfg.Loop;
 import com.oracle.graal.compiler.common.spi.ConstantFieldProvider;
+import com.oracle.graal.compiler.common.util.PersistentHashMap;
 import com.oracle.graal.graph.Node;
 import com.oracle.graal.nodes.FieldLocationIdentity;
 import com.oracle.graal.nodes.FixedNode;
@@ -121,9 +121,10 @@ public class PEReadEliminationClosure extends PartialEscapeClosure<PEReadElimina
         return false;
     }
 
-    private boolean processStore(FixedNode store, ValueNode object, LocationIdentity identity, int index, ValueNode value, PEReadEliminationBlockState state, GraphEffectList effects) {
+    private boolean processStore(FixedNode store, ValueNode object, LocationIdentity identity, int index, ValueNode symbolicIndex, ValueNode value, PEReadEliminationBlockState state,
+                    GraphEffectList effects) {
         ValueNode unproxiedObject = GraphUtil.unproxify(object);
-        ValueNode cachedValue = state.getReadCache(object, identity, index, this);
+        ValueNode cachedValue = state.getReadCache(object, identity, index, symbolicIndex, this);
 
         ValueNode finalValue = getScalarAlias(value);
         boolean result = false;
@@ -131,40 +132,55 @@ public class PEReadEliminationClosure extends PartialEscapeClosure<PEReadElimina
             effects.deleteNode(store);
             result = true;
         }
-        state.killReadCache(identity, index);
-        state.addReadCache(unproxiedObject, identity, index, finalValue, this);
+        state.killReadCache(identity, index, symbolicIndex);
+        state.addReadCache(unproxiedObject, identity, index, symbolicIndex, finalValue, this);
         return result;
     }
 
-    private boolean processLoad(FixedNode load, ValueNode object, LocationIdentity identity, int index, PEReadEliminationBlockState state, GraphEffectList effects) {
+    private boolean processLoad(FixedNode load, ValueNode object, LocationIdentity identity, int index, ValueNode symbolicIndex, PEReadEliminationBlockState state, GraphEffectList effects) {
         ValueNode unproxiedObject = GraphUtil.unproxify(object);
-        ValueNode cachedValue = state.getReadCache(unproxiedObject, identity, index, this);
+        ValueNode cachedValue = state.getReadCache(unproxiedObject, identity, index, symbolicIndex, this);
         if (cachedValue != null) {
             effects.replaceAtUsages(load, cachedValue);
             addScalarAlias(load, cachedValue);
             return true;
         } else {
-            state.addReadCache(unproxiedObject, identity, index, load, this);
+            state.addReadCache(unproxiedObject, identity, index, symbolicIndex, load, this);
             return false;
         }
     }
 
+    /**
+     * Gets the index of the array element accessed at {@code offset} if the access reads or writes
+     * exactly one element, or -1. Accesses that are narrower or wider than the elements of the
+     * array are cached by their offset and kind instead so that, e.g., a {@code byte} load does not
+     * reuse the value of an {@code int} store.
+     */
+    private static int elementIndex(ValueNode offset, JavaKind accessKind, ResolvedJavaType arrayType) {
+        if (offset.isConstant() && accessKind == arrayType.getComponentType().getJavaKind()) {
+            return VirtualArrayNode.entryIndexForOffset(offset.asJavaConstant().asLong(), accessKind, arrayType.getComponentType(), Integer.MAX_VALUE);
+        }
+        return -1;
+    }
+
     private boolean processUnsafeLoad(UnsafeLoadNode load, PEReadEliminationBlockState state, GraphEffectList effects) {
-        if (load.offset().isConstant()) {
-            ResolvedJavaType type = StampTool.typeOrNull(load.object());
-            if (type != null && type.isArray()) {
-                long offset = load.offset().asJavaConstant().asLong();
-                int index = VirtualArrayNode.entryIndexForOffset(offset, load.accessKind(), type.getComponentType(), Integer.MAX_VALUE);
-                ValueNode object = GraphUtil.unproxify(load.object());
-                LocationIdentity location = NamedLocationIdentity.getArrayLocation(type.getComponentType().getJavaKind());
-                ValueNode cachedValue = state.getReadCache(object, location, index, this);
-                if (cachedValue != null && load.stamp().isCompatible(cachedValue.stamp())) {
-                    effects.replaceAtUsages(load, cachedValue);
-                    addScalarAlias(load, cachedValue);
-                    return true;
-                } else {
-                    state.addReadCache(object, location, index, load, this);
-                }
+        ResolvedJavaType type = StampTool.typeOrNull(load.object());
+        if (type != null && type.isArray()) {
+            int index = elementIndex(load.offset(), load.accessKind(), type);
+            ValueNode symbolicIndex = null;
+            if (index == -1) {
+                index = PEReadEliminationBlockState.unsafeOffsetIndex(load.accessKind());
+                symbolicIndex = GraphUtil.unproxify(load.offset());
+            }
+            ValueNode object = GraphUtil.unproxify(load.object());
+            LocationIdentity location = NamedLocationIdentity.getArrayLocation(type.getComponentType().getJavaKind());
+            ValueNode cachedValue = state.getReadCache(object, location, index, symbolicIndex, this);
+            if (cachedValue != null && load.stamp().isCompatible(cachedValue.stamp())) {
+                effects.replaceAtUsages(load, cachedValue);
+                addScalarAlias(load, cachedValue);
+                return true;
+            } else {
+                state.addReadCache(object, location, index, symbolicIndex, load, this);
             }
         }
         return false;
@@ -174,12 +190,12 @@ public class PEReadEliminationClosure extends PartialEscapeClosure<PEReadElimina
         ResolvedJavaType type = StampTool.typeOrNull(store.object());
         if (type != null && type.isArray()) {
             LocationIdentity location = NamedLocationIdentity.getArrayLocation(type.getComponentType().getJavaKind());
-            if (store.offset().isConstant()) {
-                long offset = store.offset().asJavaConstant().asLong();
-                int index = VirtualArrayNode.entryIndexForOffset(offset, store.accessKind(), type.getComponentType(), Integer.MAX_VALUE);
-                return processStore(store, store.object(), location, index, store.value(), state, effects);
+            int index = elementIndex(store.offset(), store.accessKind(), type);
+            if (index != -1) {
+                return processStore(store, store.object(), location, index, null, store.value(), state, effects);
             } else {
-                processIdentity(state, location);
+                int offsetIndex = PEReadEliminationBlockState.unsafeOffsetIndex(store.accessKind());
+                return processStore(store, store.object(), location, offsetIndex, GraphUtil.unproxify(store.offset()), store.value(), state, effects);
             }
         } else {
             state.killReadCache();
@@ -188,7 +204,7 @@ public class PEReadEliminationClosure extends PartialEscapeClosure<PEReadElimina
     }
 
     private boolean processArrayLength(ArrayLengthNode length, PEReadEliminationBlockState state, GraphEffectList effects) {
-        return processLoad(length, length.array(), ARRAY_LENGTH_LOCATION, -1, state, effects);
+        return processLoad(length, length.array(), ARRAY_LENGTH_LOCATION, -1, null, state, effects);
     }
 
     private boolean processStoreField(StoreFieldNode store, PEReadEliminationBlockState state, GraphEffectList effects) {
@@ -196,7 +212,7 @@ public class PEReadEliminationClosure extends PartialEscapeClosure<PEReadElimina
             state.killReadCache();
             return false;
         }
-        return processStore(store, store.object(), new FieldLocationIdentity(store.field()), -1, store.value(), state, effects);
+        return processStore(store, store.object(), new FieldLocationIdentity(store.field()), -1, null, store.value(), state, effects);
     }
 
     private boolean processLoadField(LoadFieldNode load, PEReadEliminationBlockState state, GraphEffectList effects) {
@@ -204,38 +220,38 @@ public class PEReadEliminationClosure extends PartialEscapeClosure<PEReadElimina
             state.killReadCache();
             return false;
         }
-        return processLoad(load, load.object(), new FieldLocationIdentity(load.field()), -1, state, effects);
+        return processLoad(load, load.object(), new FieldLocationIdentity(load.field()), -1, null, state, effects);
     }
 
     private boolean processStoreIndexed(StoreIndexedNode store, PEReadEliminationBlockState state, GraphEffectList effects) {
         LocationIdentity arrayLocation = NamedLocationIdentity.getArrayLocation(store.elementKind());
         if (store.index().isConstant()) {
             int index = ((JavaConstant) store.index().asConstant()).asInt();
-            return processStore(store, store.array(), arrayLocation, index, store.value(), state, effects);
+            return processStore(store, store.array(), arrayLocation, index, null, store.value(), state, effects);
         } else {
-            state.killReadCache(arrayLocation, -1);
+            return processStore(store, store.array(), arrayLocation, -1, GraphUtil.unproxify(store.index()), store.value(), state, effects);
         }
-        return false;
     }
 
     private boolean processLoadIndexed(LoadIndexedNode load, PEReadEliminationBlockState state, GraphEffectList effects) {
+        LocationIdentity arrayLocation = NamedLocationIdentity.getArrayLocation(load.elementKind());
         if (load.index().isConstant()) {
             int index = ((JavaConstant) load.index().asConstant()).asInt();
-            LocationIdentity arrayLocation = NamedLocationIdentity.getArrayLocation(load.elementKind());
-            return processLoad(load, load.array(), arrayLocation, index, state, effects);
+            return processLoad(load, load.array(), arrayLocation, index, null, state, effects);
+        } else {
+            return processLoad(load, load.array(), arrayLocation, -1, GraphUtil.unproxify(load.index()), state, effects);
         }
-        return false;
     }
 
     private boolean processUnbox(UnboxNode unbox, PEReadEliminationBlockState state, GraphEffectList effects) {
-        return processLoad(unbox, unbox.getValue(), UNBOX_LOCATIONS.get(unbox.getBoxingKind()), -1, state, effects);
+        return processLoad(unbox, unbox.getValue(), UNBOX_LOCATIONS.get(unbox.getBoxingKind()), -1, null, state, effects);
     }
 
     private static void processIdentity(PEReadEliminationBlockState state, LocationIdentity identity) {
         if (identity.isAny()) {
             state.killReadCache();
         } else {
-            state.killReadCache(identity, -1);
+            state.killReadCache(identity, -1, null);
         }
     }
 
@@ -247,9 +263,10 @@ public class PEReadEliminationClosure extends PartialEscapeClosure<PEReadElimina
             ValueNode firstValue = phi.valueAt(0);
             if (firstValue != null) {
                 firstValue = GraphUtil.unproxify(firstValue);
-                for (Map.Entry<ReadCacheEntry, ValueNode> entry : new ArrayList<>(initialState.getReadCache().entrySet())) {
+                // the read cache is persistent, so adding entries does not affect this iteration
+                for (Map.Entry<ReadCacheEntry, ValueNode> entry : initialState.getReadCache()) {
                     if (entry.getKey().object == firstValue) {
-                        initialState.addReadCache(phi, entry.getKey().identity, entry.getKey().index, entry.getValue(), this);
+                        initialState.addReadCache(phi, entry.getKey().identity, entry.getKey().index, entry.getKey().symbolicIndex, entry.getValue(), this);
                     }
                 }
             }
@@ -261,17 +278,15 @@ public class PEReadEliminationClosure extends PartialEscapeClosure<PEReadElimina
         super.processLoopExit(exitNode, initialState, exitState, effects);
 
         if (exitNode.graph().hasValueProxies()) {
-            for (Map.Entry<ReadCacheEntry, ValueNode> entry : exitState.getReadCache().entrySet()) {
-                if (initialState.getReadCache().get(entry.getKey()) != entry.getValue()) {
-                    ValueNode value = exitState.getReadCache(entry.getKey().object, entry.getKey().identity, entry.getKey().index, this);
-                    assert value != null : "Got null from read cache, entry's value:" + entry.getValue();
-                    if (!(value instanceof ProxyNode) || ((ProxyNode) value).proxyPoint() != exitNode) {
-                        ProxyNode proxy = new ValueProxyNode(value, exitNode);
-                        effects.addFloatingNode(proxy, "readCacheProxy");
-                        entry.setValue(proxy);
-                    }
+            exitState.getReadCache().forEachDifferent(initialState.getReadCache(), entry -> {
+                ValueNode value = exitState.getReadCache(entry.getKey().object, entry.getKey().identity, entry.getKey().index, entry.getKey().symbolicIndex, this);
+                assert value != null : "Got null from read cache, entry's value:" + entry.getValue();
+                if (!(value instanceof ProxyNode) || ((ProxyNode) value).proxyPoint() != exitNode) {
+                    ProxyNode proxy = new ValueProxyNode(value, exitNode);
+                    effects.addFloatingNode(proxy, "readCacheProxy");
+                    exitState.readCache = exitState.readCache.put(entry.getKey(), proxy);
                 }
-            }
+            });
         }
     }
 
@@ -299,59 +314,61 @@ public class PEReadEliminationClosure extends PartialEscapeClosure<PEReadElimina
         }
 
         private void mergeReadCache(List<PEReadEliminationBlockState> states) {
-            for (Map.Entry<ReadCacheEntry, ValueNode> entry : states.get(0).readCache.entrySet()) {
+            PersistentHashMap<ReadCacheEntry, ValueNode> first = states.get(0).readCache;
+            // entries with the identical value in all predecessors are taken over as they are
+            PersistentHashMap<ReadCacheEntry, ValueNode> common = first;
+            for (int i = 1; i < states.size(); i++) {
+                common = common.retainEqual(states.get(i).readCache);
+            }
+            if (newState.readCache.isEmpty()) {
+                newState.readCache = common;
+            } else {
+                for (Map.Entry<ReadCacheEntry, ValueNode> entry : common) {
+                    newState.readCache = newState.readCache.put(entry.getKey(), entry.getValue());
+                }
+            }
+            // the other entries need a phi if they are present in all predecessors
+            first.forEachDifferent(common, entry -> {
                 ReadCacheEntry key = entry.getKey();
-                ValueNode value = entry.getValue();
-                boolean phi = false;
                 for (int i = 1; i < states.size(); i++) {
-                    ValueNode otherValue = states.get(i).readCache.get(key);
-                    if (otherValue == null) {
-                        value = null;
-                        phi = false;
-                        break;
-                    }
-                    if (!phi && otherValue != value) {
-                        phi = true;
+                    if (states.get(i).readCache.get(key) == null) {
+                        return;
                     }
                 }
-                if (phi) {
-                    PhiNode phiNode = getPhi(entry, value.stamp().unrestricted());
-                    mergeEffects.addFloatingNode(phiNode, "mergeReadCache");
-                    for (int i = 0; i < states.size(); i++) {
-                        setPhiInput(phiNode, i, states.get(i).getReadCache(key.object, key.identity, key.index, PEReadEliminationClosure.this));
-                    }
-                    newState.readCache.put(key, phiNode);
-                } else if (value != null) {
-                    newState.readCache.put(key, value);
+                PhiNode phiNode = getPhi(entry, entry.getValue().stamp().unrestricted());
+                mergeEffects.addFloatingNode(phiNode, "mergeReadCache");
+                for (int i = 0; i < states.size(); i++) {
+                    setPhiInput(phiNode, i, states.get(i).getReadCache(key.object, key.identity, key.index, key.symbolicIndex, PEReadEliminationClosure.this));
                 }
-            }
+                newState.readCache = newState.readCache.put(key, phiNode);
+            });
             for (PhiNode phi : getPhis()) {
                 if (phi.getStackKind() == JavaKind.Object) {
-                    for (Map.Entry<ReadCacheEntry, ValueNode> entry : states.get(0).readCache.entrySet()) {
+                    for (Map.Entry<ReadCacheEntry, ValueNode> entry : first) {
                         if (entry.getKey().object == getPhiValueAt(phi, 0)) {
-                            mergeReadCachePhi(phi, entry.getKey().identity, entry.getKey().index, states);
+                            mergeReadCachePhi(phi, entry.getKey().identity, entry.getKey().index, entry.getKey().symbolicIndex, states);
                         }
                     }
                 }
             }
         }
 
-        private void mergeReadCachePhi(PhiNode phi, LocationIdentity identity, int index, List<PEReadEliminationBlockState> states) {
+        private void mergeReadCachePhi(PhiNode phi, LocationIdentity identity, int index, ValueNode symbolicIndex, List<PEReadEliminationBlockState> states) {
             ValueNode[] values = new ValueNode[states.size()];
             for (int i = 0; i < states.size(); i++) {
-                ValueNode value = states.get(i).getReadCache(getPhiValueAt(phi, i), identity, index, PEReadEliminationClosure.this);
+                ValueNode value = states.get(i).getReadCache(getPhiValueAt(phi, i), identity, index, symbolicIndex, PEReadEliminationClosure.this);
                 if (value == null) {
                     return;
                 }
                 values[i] = value;
             }
 
-            PhiNode phiNode = getPhi(new ReadCacheEntry(identity, phi, index), values[0].stamp().unrestricted());
+            PhiNode phiNode = getPhi(new ReadCacheEntry(identity, phi, index, symbolicIndex), values[0].stamp().unrestricted());
             mergeEffects.addFloatingNode(phiNode, "mergeReadCachePhi");
             for (int i = 0; i < values.length; i++) {
                 setPhiInput(phiNode, i, values[i]);
             }
-            newState.readCache.put(new ReadCacheEntry(identity, phi, index), phiNode);
+            newState.readCache = newState.readCache.put(new ReadCacheEntry(identity, phi, index, symbolicIndex), phiNode);
         }
     }
 }
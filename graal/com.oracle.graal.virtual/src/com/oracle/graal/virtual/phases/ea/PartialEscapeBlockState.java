@@ -23,11 +23,12 @@
 package com.oracle.graal.virtual.phases.ea;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import com.oracle.graal.compiler.common.util.PersistentArray;
+import com.oracle.graal.compiler.common.util.PersistentHashMap;
 import com.oracle.graal.nodes.FixedNode;
 import com.oracle.graal.nodes.FixedWithNextNode;
 import com.oracle.graal.nodes.ValueNode;
@@ -40,15 +41,19 @@ import com.oracle.graal.nodes.virtual.VirtualObjectNode;
 
 public abstract class PartialEscapeBlockState<T extends PartialEscapeBlockState<T>> extends EffectsBlockState<T> {
 
-    private static final ObjectState[] EMPTY_ARRAY = new ObjectState[0];
-
-    private ObjectState[] objectStates;
-
-    private static class RefCount {
-        private int refCount = 1;
-    }
+    /**
+     * The object states indexed by {@linkplain VirtualObjectNode#getObjectId() object id}. Copying
+     * a block state shares the whole array, modifications only copy the path to the modified
+     * element.
+     */
+    private PersistentArray<ObjectState> objectStates;
 
-    private RefCount arrayRefCount;
+    /**
+     * Identifies the object states that are only reachable from this block state and can therefore
+     * be modified in place. A new token is assigned to both block states whenever the object states
+     * are shared with another block state.
+     */
+    private Object ownerToken;
 
     /**
      * Final subclass of PartialEscapeBlockState, for performance and to make everything behave
@@ -65,8 +70,8 @@ public abstract class PartialEscapeBlockState<T extends PartialEscapeBlockState<
     }
 
     protected PartialEscapeBlockState() {
-        objectStates = EMPTY_ARRAY;
-        arrayRefCount = new RefCount();
+        objectStates = PersistentArray.empty();
+        ownerToken = new Object();
     }
 
     protected PartialEscapeBlockState(PartialEscapeBlockState<T> other) {
@@ -75,45 +80,37 @@ public abstract class PartialEscapeBlockState<T extends PartialEscapeBlockState<
     }
 
     public ObjectState getObjectState(int object) {
-        ObjectState state = objectStates[object];
+        ObjectState state = objectStates.get(object);
         assert state != null;
         return state;
     }
 
     public ObjectState getObjectStateOptional(int object) {
-        return object >= objectStates.length ? null : objectStates[object];
+        return objectStates.get(object);
     }
 
     public ObjectState getObjectState(VirtualObjectNode object) {
-        ObjectState state = objectStates[object.getObjectId()];
+        ObjectState state = objectStates.get(object.getObjectId());
         assert state != null;
         return state;
     }
 
     public ObjectState getObjectStateOptional(VirtualObjectNode object) {
-        int id = object.getObjectId();
-        return id >= objectStates.length ? null : objectStates[id];
-    }
-
-    private ObjectState[] getObjectStateArrayForModification() {
-        if (arrayRefCount.refCount > 1) {
-            objectStates = objectStates.clone();
-            arrayRefCount = new RefCount();
-        }
-        return objectStates;
+        return objectStates.get(object.getObjectId());
     }
 
     private ObjectState getObjectStateForModification(int object) {
-        ObjectState[] array = getObjectStateArrayForModification();
-        ObjectState objectState = array[object];
-        if (objectState.copyOnWrite) {
-            array[object] = objectState = objectState.cloneState();
+        ObjectState objectState = objectStates.get(object);
+        if (objectState.owner != ownerToken) {
+            objectState = objectState.cloneState();
+            objectState.owner = ownerToken;
+            objectStates = objectStates.set(object, objectState);
         }
         return objectState;
     }
 
     public void setEntry(int object, int entryIndex, ValueNode value) {
-        if (objectStates[object].getEntry(entryIndex) != value) {
+        if (objectStates.get(object).getEntry(entryIndex) != value) {
             getObjectStateForModification(object).setEntry(entryIndex, value);
         }
     }
@@ -131,13 +128,13 @@ public abstract class PartialEscapeBlockState<T extends PartialEscapeBlockState<
     }
 
     public void setEnsureVirtualized(int object, boolean ensureVirtualized) {
-        if (objectStates[object].getEnsureVirtualized() != ensureVirtualized) {
+        if (objectStates.get(object).getEnsureVirtualized() != ensureVirtualized) {
             getObjectStateForModification(object).setEnsureVirtualized(ensureVirtualized);
         }
     }
 
     public void updateMaterializedValue(int object, ValueNode value) {
-        if (objectStates[object].getMaterializedValue() != value) {
+        if (objectStates.get(object).getMaterializedValue() != value) {
             getObjectStateForModification(object).updateMaterializedValue(value);
         }
     }
@@ -234,32 +231,25 @@ public abstract class PartialEscapeBlockState<T extends PartialEscapeBlockState<
     }
 
     public void addObject(int virtual, ObjectState state) {
-        ensureSize(virtual)[virtual] = state;
-    }
-
-    private ObjectState[] ensureSize(int objectId) {
-        if (objectStates.length <= objectId) {
-            objectStates = Arrays.copyOf(objectStates, Math.max(objectId * 2, 4));
-            arrayRefCount.refCount--;
-            arrayRefCount = new RefCount();
-            return objectStates;
-        } else {
-            return getObjectStateArrayForModification();
+        if (state.owner == null) {
+            // a new object state is only reachable from this block state
+            state.owner = ownerToken;
         }
+        objectStates = objectStates.set(virtual, state);
     }
 
     public int getStateCount() {
-        return objectStates.length;
+        return objectStates.length();
     }
 
     @Override
     public String toString() {
-        return super.toString() + ", Object States: " + Arrays.toString(objectStates);
+        return super.toString() + ", Object States: " + objectStates;
     }
 
     @Override
     public boolean equivalentTo(T other) {
-        int length = Math.max(objectStates.length, other.getStateCount());
+        int length = Math.max(objectStates.length(), other.getStateCount());
         for (int i = 0; i < length; i++) {
             ObjectState left = getObjectStateOptional(i);
             ObjectState right = other.getObjectStateOptional(i);
@@ -310,8 +300,22 @@ public abstract class PartialEscapeBlockState<T extends PartialEscapeBlockState<
         }
     }
 
+    protected static <K, V> boolean compareMapsNoSize(PersistentHashMap<K, V> left, PersistentHashMap<K, V> right) {
+        if (left == right) {
+            return true;
+        }
+        boolean[] equal = {true};
+        // only the entries that are not shared with the left map need to be compared
+        right.forEachDifferent(left, entry -> {
+            if (equal[0] && !entry.getValue().equals(left.get(entry.getKey()))) {
+                equal[0] = false;
+            }
+        });
+        return equal[0];
+    }
+
     public void resetObjectStates(int size) {
-        objectStates = new ObjectState[size];
+        objectStates = PersistentArray.empty(size);
     }
 
     public static boolean identicalObjectStates(PartialEscapeBlockState<?>[] states) {
@@ -325,7 +329,7 @@ public abstract class PartialEscapeBlockState<T extends PartialEscapeBlockState<
 
     public static boolean identicalObjectStates(PartialEscapeBlockState<?>[] states, int object) {
         for (int i = 1; i < states.length; i++) {
-            if (states[0].objectStates[object] != states[i].objectStates[object]) {
+            if (states[0].objectStates.get(object) != states[i].objectStates.get(object)) {
                 return false;
             }
         }
@@ -333,19 +337,9 @@ public abstract class PartialEscapeBlockState<T extends PartialEscapeBlockState<
     }
 
     public void adoptAddObjectStates(PartialEscapeBlockState<?> other) {
-        if (objectStates != null) {
-            arrayRefCount.refCount--;
-        }
         objectStates = other.objectStates;
-        arrayRefCount = other.arrayRefCount;
-
-        if (arrayRefCount.refCount == 1) {
-            for (ObjectState state : objectStates) {
-                if (state != null) {
-                    state.share();
-                }
-            }
-        }
-        arrayRefCount.refCount++;
+        // the object states are now reachable from both block states
+        ownerToken = new Object();
+        other.ownerToken = new Object();
     }
 }
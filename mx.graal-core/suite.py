@@ -825,6 +825,16 @@ suite = {
       "workingSets" : "Graal,Bench",
     },
 
+    "com.oracle.graal.hotspot.bench" : {
+      "subDir" : "graal",
+      "sourceDirs" : ["src"],
+      "dependencies" : ["mx:JMH", "com.oracle.graal.microbenchmarks", "com.oracle.graal.hotspot"],
+      "checkstyle" : "com.oracle.graal.graph",
+      "javaCompliance" : "1.8",
+      "annotationProcessors" : ["mx:JMH"],
+      "workingSets" : "Graal,HotSpot,Bench",
+    },
+
     "com.oracle.graal.microbenchmarks" : {
       "subDir" : "graal",
       "sourceDirs" : ["src"],
@@ -1089,6 +1099,7 @@ suite = {
         "com.oracle.truffle.api.object.LayoutFactory",
         "com.oracle.graal.truffle.LoopNodeFactory",
         "com.oracle.graal.truffle.substitutions.TruffleInvocationPluginProvider",
+        "com.oracle.graal.truffle.phases.InstrumentationThreadIdentityProvider",
       ],
       "checkstyle" : "com.oracle.graal.graph",
       "annotationProcessors" : [
@@ -1109,6 +1120,7 @@ suite = {
       "dependencies" : [
         "mx:JMH",
         "truffle:TRUFFLE_API",
+        "com.oracle.graal.truffle.hotspot",
       ],
       "checkstyle" : "com.oracle.graal.graph",
       "javaCompliance" : "1.8",